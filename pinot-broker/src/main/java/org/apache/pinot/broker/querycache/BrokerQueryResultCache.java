@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.querycache;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.apache.pinot.common.response.broker.ResultTable;
+import org.apache.pinot.spi.env.PinotConfiguration;
+import org.apache.pinot.spi.utils.CommonConstants.Broker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Broker-side cache of the query results, keyed on the normalized query and the routing version of each queried table.
+ * <p>The routing version of a table (see {@code BrokerRoutingManager#getRoutingVersion(String)}) changes whenever the
+ * segment assignment (ideal state or external view) changes or a segment is refreshed, so an entry is automatically
+ * invalidated when the segments of any queried table change: the new queries compute a different key and the stale
+ * entries are evicted by size or TTL. Because consuming segments keep getting new records without changing the routing
+ * version, only the results of tables without real-time part should be cached.
+ * <p>The cache is bounded by the estimated size of the cached results in bytes, and entries expire after a TTL.
+ */
+public class BrokerQueryResultCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BrokerQueryResultCache.class);
+
+  // Rough estimates of the heap size of the cached values
+  private static final int ROW_OVERHEAD_BYTES = 32;
+  private static final int VALUE_OVERHEAD_BYTES = 16;
+  private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+  private final Cache<String, ResultTable> _cache;
+
+  public BrokerQueryResultCache(long maxSizeInBytes, long ttlMs) {
+    _cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxSizeInBytes)
+        .weigher(BrokerQueryResultCache::estimateSizeInBytes)
+        .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  /**
+   * Returns the result cache configured in the broker config, or {@code null} if the result cache is not enabled.
+   */
+  @Nullable
+  public static BrokerQueryResultCache create(PinotConfiguration config) {
+    if (!config.getProperty(Broker.CONFIG_OF_BROKER_QUERY_RESULT_CACHE_ENABLED,
+        Broker.DEFAULT_BROKER_QUERY_RESULT_CACHE_ENABLED)) {
+      return null;
+    }
+    long maxSizeInBytes = config.getProperty(Broker.CONFIG_OF_BROKER_QUERY_RESULT_CACHE_MAX_SIZE_BYTES,
+        Broker.DEFAULT_BROKER_QUERY_RESULT_CACHE_MAX_SIZE_BYTES);
+    long ttlMs = config.getProperty(Broker.CONFIG_OF_BROKER_QUERY_RESULT_CACHE_TTL_MS,
+        Broker.DEFAULT_BROKER_QUERY_RESULT_CACHE_TTL_MS);
+    LOGGER.info("Enabled query result cache with max size: {} bytes, TTL: {}ms", maxSizeInBytes, ttlMs);
+    return new BrokerQueryResultCache(maxSizeInBytes, ttlMs);
+  }
+
+  /**
+   * Returns the cache key for the given normalized query and the routing versions of the queried tables (keyed by the
+   * table name with type).
+   */
+  public static String getCacheKey(String query, SortedMap<String, Long> tableRoutingVersions) {
+    StringBuilder stringBuilder = new StringBuilder();
+    for (Map.Entry<String, Long> entry : tableRoutingVersions.entrySet()) {
+      stringBuilder.append(entry.getKey()).append('@').append(entry.getValue()).append(',');
+    }
+    return stringBuilder.append('|').append(query).toString();
+  }
+
+  /**
+   * Returns the cached result table for the given key, or {@code null} if it is not cached. The returned result table
+   * is shared across the queries hitting the cache, and must not be modified.
+   */
+  @Nullable
+  public ResultTable get(String cacheKey) {
+    return _cache.getIfPresent(cacheKey);
+  }
+
+  /**
+   * Caches the result table for the given key. Only the results of the queries without any exception or partial result
+   * should be cached.
+   */
+  public void put(String cacheKey, ResultTable resultTable) {
+    _cache.put(cacheKey, resultTable);
+  }
+
+  @VisibleForTesting
+  long size() {
+    _cache.cleanUp();
+    return _cache.size();
+  }
+
+  @VisibleForTesting
+  static int estimateSizeInBytes(String cacheKey, ResultTable resultTable) {
+    long sizeInBytes = ENTRY_OVERHEAD_BYTES + 2L * cacheKey.length();
+    for (Object[] row : resultTable.getRows()) {
+      sizeInBytes += ROW_OVERHEAD_BYTES;
+      for (Object value : row) {
+        sizeInBytes += VALUE_OVERHEAD_BYTES;
+        if (value instanceof String) {
+          sizeInBytes += 2L * ((String) value).length();
+        } else if (value instanceof Object[]) {
+          sizeInBytes += (long) VALUE_OVERHEAD_BYTES * ((Object[]) value).length;
+        }
+      }
+    }
+    return (int) Math.min(sizeInBytes, Integer.MAX_VALUE);
+  }
+}
@@ -21,9 +21,12 @@ package org.apache.pinot.broker.requesthandler;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.collect.Maps;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import javax.ws.rs.WebApplicationException;
@@ -34,6 +37,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.pinot.broker.api.AccessControl;
 import org.apache.pinot.broker.api.RequesterIdentity;
 import org.apache.pinot.broker.broker.AccessControlFactory;
+import org.apache.pinot.broker.querycache.BrokerQueryResultCache;
 import org.apache.pinot.broker.querylog.QueryLogger;
 import org.apache.pinot.broker.queryquota.QueryQuotaManager;
 import org.apache.pinot.broker.routing.BrokerRoutingManager;
@@ -44,6 +48,7 @@ import org.apache.pinot.common.metrics.BrokerMetrics;
 import org.apache.pinot.common.response.BrokerResponse;
 import org.apache.pinot.common.response.broker.BrokerResponseNative;
 import org.apache.pinot.common.response.broker.QueryProcessingException;
+import org.apache.pinot.common.utils.config.QueryOptionsUtils;
 import org.apache.pinot.common.utils.request.RequestUtils;
 import org.apache.pinot.spi.auth.AuthorizationResult;
 import org.apache.pinot.spi.env.PinotConfiguration;
@@ -74,6 +79,8 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
   protected final QueryLogger _queryLogger;
   @Nullable
   protected final String _enableNullHandling;
+  @Nullable
+  protected final BrokerQueryResultCache _queryResultCache;
 
   public BaseBrokerRequestHandler(PinotConfiguration config, String brokerId, BrokerRoutingManager routingManager,
       AccessControlFactory accessControlFactory, QueryQuotaManager queryQuotaManager, TableCache tableCache) {
@@ -90,6 +97,7 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
     _brokerTimeoutMs = config.getProperty(Broker.CONFIG_OF_BROKER_TIMEOUT_MS, Broker.DEFAULT_BROKER_TIMEOUT_MS);
     _queryLogger = new QueryLogger(config);
     _enableNullHandling = config.getProperty(Broker.CONFIG_OF_BROKER_QUERY_ENABLE_NULL_HANDLING);
+    _queryResultCache = BrokerQueryResultCache.create(config);
   }
 
   @Override
@@ -179,6 +187,45 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
       @Nullable HttpHeaders httpHeaders, AccessControl accessControl)
       throws Exception;
 
+  /**
+   * Returns the key of the query in the query result cache, or {@code null} if the result of the query should not be
+   * cached (cache disabled, skipped by query option, traced query, or routing missing for any queried table).
+   * <p>NOTE: The key must be computed before calculating the routing of the query, so that the result computed on the
+   *          segments of an older routing is never cached under a newer routing version.
+   *
+   * @param query Normalized query, which should capture everything that can affect the result (including the options)
+   * @param queryOptions Query options
+   * @param tableNamesWithType Names of the queried tables, which should not have consuming segments
+   * @param requestContext Request context
+   */
+  @Nullable
+  protected String getQueryResultCacheKey(String query, Map<String, String> queryOptions,
+      Collection<String> tableNamesWithType, RequestContext requestContext) {
+    if (_queryResultCache == null || QueryOptionsUtils.isSkipResultCache(queryOptions)
+        || Boolean.parseBoolean(queryOptions.get(Broker.Request.TRACE)) || requestContext.isSampledRequest()) {
+      return null;
+    }
+    SortedMap<String, Long> tableRoutingVersions = new TreeMap<>();
+    for (String tableNameWithType : tableNamesWithType) {
+      Long routingVersion = _routingManager.getRoutingVersion(tableNameWithType);
+      if (routingVersion == null) {
+        return null;
+      }
+      tableRoutingVersions.put(tableNameWithType, routingVersion);
+    }
+    return BrokerQueryResultCache.getCacheKey(query, tableRoutingVersions);
+  }
+
+  /**
+   * Caches the result of the query if it is complete.
+   */
+  protected void cacheQueryResult(@Nullable String resultCacheKey, BrokerResponse brokerResponse) {
+    if (resultCacheKey != null && _queryResultCache != null && !brokerResponse.isPartialResult()
+        && brokerResponse.getResultTable() != null) {
+      _queryResultCache.put(resultCacheKey, brokerResponse.getResultTable());
+    }
+  }
+
   protected static void augmentStatistics(RequestContext statistics, BrokerResponse response) {
     statistics.setNumRowsResultSet(response.getNumRowsResultSet());
     // TODO: Add partial result flag to RequestContext
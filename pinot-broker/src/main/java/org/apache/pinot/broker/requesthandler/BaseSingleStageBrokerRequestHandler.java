@@ -614,6 +614,22 @@ public abstract class BaseSingleStageBrokerRequestHandler extends BaseBrokerRequ
         realtimeBrokerRequest.getPinotQuery().setFilterExpression(null);
       }
 
+      // Serve the query from the result cache when it only hits an offline table
+      String resultCacheKey = null;
+      if (offlineBrokerRequest != null && realtimeTableName == null && !pinotQuery.isExplain()) {
+        resultCacheKey = getQueryResultCacheKey(brokerRequest.getPinotQuery() + "|" + serverPinotQuery,
+            pinotQuery.getQueryOptions(), List.of(offlineTableName), requestContext);
+        if (resultCacheKey != null) {
+          ResultTable cachedResultTable = _queryResultCache.get(resultCacheKey);
+          if (cachedResultTable != null) {
+            _brokerMetrics.addMeteredTableValue(offlineTableName, BrokerMeter.QUERY_RESULT_CACHE_HITS, 1);
+            return getCachedResultResponse(pinotQuery, cachedResultTable, rawTableName, requestContext, tableName,
+                requesterIdentity);
+          }
+          _brokerMetrics.addMeteredTableValue(offlineTableName, BrokerMeter.QUERY_RESULT_CACHE_MISSES, 1);
+        }
+      }
+
       // Calculate routing table for the query
       // TODO: Modify RoutingManager interface to directly take PinotQuery
       long routingStartTimeNs = System.nanoTime();
@@ -839,6 +855,7 @@ public abstract class BaseSingleStageBrokerRequestHandler extends BaseBrokerRequ
       long totalTimeMs = System.currentTimeMillis() - requestContext.getRequestArrivalTimeMillis();
       brokerResponse.setTimeUsedMs(totalTimeMs);
       augmentStatistics(requestContext, brokerResponse);
+      cacheQueryResult(resultCacheKey, brokerResponse);
       if (QueryOptionsUtils.shouldDropResults(pinotQuery.getQueryOptions())) {
         brokerResponse.setResultTable(null);
       }
@@ -903,6 +920,22 @@ public abstract class BaseSingleStageBrokerRequestHandler extends BaseBrokerRequ
     return brokerResponse;
   }
 
+  private BrokerResponseNative getCachedResultResponse(PinotQuery pinotQuery, ResultTable cachedResultTable,
+      String rawTableName, RequestContext requestContext, String tableName,
+      @Nullable RequesterIdentity requesterIdentity) {
+    BrokerResponseNative brokerResponse = new BrokerResponseNative();
+    brokerResponse.setResultTable(cachedResultTable);
+    brokerResponse.setTablesQueried(Set.of(rawTableName));
+    brokerResponse.setTimeUsedMs(System.currentTimeMillis() - requestContext.getRequestArrivalTimeMillis());
+    augmentStatistics(requestContext, brokerResponse);
+    if (QueryOptionsUtils.shouldDropResults(pinotQuery.getQueryOptions())) {
+      brokerResponse.setResultTable(null);
+    }
+    _queryLogger.log(
+        new QueryLogger.QueryLogParams(requestContext, tableName, brokerResponse, requesterIdentity, null));
+    return brokerResponse;
+  }
+
   private void handleTimestampIndexOverride(PinotQuery pinotQuery, @Nullable TableConfig tableConfig) {
     if (tableConfig == null || tableConfig.getFieldConfigList() == null) {
       return;
@@ -20,11 +20,13 @@ package org.apache.pinot.broker.requesthandler;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.google.common.annotations.VisibleForTesting;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
@@ -32,6 +34,11 @@ import javax.annotation.Nullable;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import org.apache.calcite.sql.SqlCall;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.SqlOperator;
+import org.apache.calcite.sql.util.SqlBasicVisitor;
+import org.apache.calcite.util.Util;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hc.client5.http.io.HttpClientConnectionManager;
 import org.apache.pinot.broker.api.AccessControl;
@@ -43,6 +50,7 @@ import org.apache.pinot.broker.routing.BrokerRoutingManager;
 import org.apache.pinot.common.config.TlsConfig;
 import org.apache.pinot.common.config.provider.TableCache;
 import org.apache.pinot.common.exception.QueryException;
+import org.apache.pinot.common.function.FunctionRegistry;
 import org.apache.pinot.common.metrics.BrokerMeter;
 import org.apache.pinot.common.metrics.BrokerQueryPhase;
 import org.apache.pinot.common.response.BrokerResponse;
@@ -68,6 +76,7 @@ import org.apache.pinot.query.runtime.plan.MultiStageQueryStats;
 import org.apache.pinot.query.service.dispatch.QueryDispatcher;
 import org.apache.pinot.spi.accounting.ThreadExecutionContext;
 import org.apache.pinot.spi.auth.TableAuthorizationResult;
+import org.apache.pinot.spi.config.table.TableType;
 import org.apache.pinot.spi.env.PinotConfiguration;
 import org.apache.pinot.spi.exception.DatabaseConflictException;
 import org.apache.pinot.spi.trace.RequestContext;
@@ -83,6 +92,11 @@ public class MultiStageBrokerRequestHandler extends BaseBrokerRequestHandler {
   private static final Logger LOGGER = LoggerFactory.getLogger(MultiStageBrokerRequestHandler.class);
 
   private static final int NUM_UNAVAILABLE_SEGMENTS_TO_LOG = 10;
+  // Canonicalized names of the functions whose result changes across executions, which are not declared as dynamic or
+  // non-deterministic in the SQL operator table
+  private static final Set<String> NON_DETERMINISTIC_FUNCTIONS =
+      Set.of("now", "ago", "agomv", "rand", "random", "currentdate", "currenttime", "currenttimestamp", "localtime",
+          "localtimestamp");
 
   private final WorkerManager _workerManager;
   private final QueryDispatcher _queryDispatcher;
@@ -130,20 +144,25 @@ public class MultiStageBrokerRequestHandler extends BaseBrokerRequestHandler {
     long queryTimeoutMs;
     QueryEnvironment.QueryPlannerResult queryPlanResult;
     String database;
+    long latestRoutingVersion;
     try {
       Long timeoutMsFromQueryOption = QueryOptionsUtils.getTimeoutMs(queryOptions);
       queryTimeoutMs = timeoutMsFromQueryOption != null ? timeoutMsFromQueryOption : _brokerTimeoutMs;
       database = DatabaseUtils.extractDatabaseFromQueryRequest(queryOptions, httpHeaders);
       boolean inferPartitionHint = _config.getProperty(CommonConstants.Broker.CONFIG_OF_INFER_PARTITION_HINT,
           CommonConstants.Broker.DEFAULT_INFER_PARTITION_HINT);
+      long autoBroadcastJoinMaxRows = _config.getProperty(CommonConstants.Broker.CONFIG_OF_AUTO_BROADCAST_JOIN_MAX_ROWS,
+          CommonConstants.Broker.DEFAULT_AUTO_BROADCAST_JOIN_MAX_ROWS);
       //@formatter:off
       QueryEnvironment queryEnvironment = new QueryEnvironment(QueryEnvironment.configBuilder()
           .database(database)
           .tableCache(_tableCache)
           .workerManager(_workerManager)
           .defaultInferPartitionHint(inferPartitionHint)
+          .defaultAutoBroadcastJoinMaxRows(autoBroadcastJoinMaxRows)
           .build());
       //@formatter:on
+      latestRoutingVersion = _routingManager.getLatestRoutingVersion();
       switch (sqlNodeAndOptions.getSqlNode().getKind()) {
         case EXPLAIN:
           boolean askServers = QueryOptionsUtils.isExplainAskingServers(queryOptions)
@@ -224,6 +243,17 @@ public class MultiStageBrokerRequestHandler extends BaseBrokerRequestHandler {
       return new BrokerResponseNative(QueryException.getException(QueryException.QUOTA_EXCEEDED_ERROR, errorMessage));
     }
 
+    // Look up the result cache
+    String resultCacheKey =
+        getResultCacheKey(sqlNodeAndOptions, database, tableNames, requestContext, latestRoutingVersion);
+    if (resultCacheKey != null) {
+      ResultTable cachedResultTable = getCachedResultTable(resultCacheKey, tableNames);
+      if (cachedResultTable != null) {
+        return getCachedResultResponse(cachedResultTable, tableNames, queryOptions, requestContext,
+            requesterIdentity);
+      }
+    }
+
     Tracing.ThreadAccountantOps.setupRunner(String.valueOf(requestId), ThreadExecutionContext.TaskType.MSE);
 
     long executionStartTimeNs = System.nanoTime();
@@ -276,6 +306,7 @@ public class MultiStageBrokerRequestHandler extends BaseBrokerRequestHandler {
     long totalTimeMs = System.currentTimeMillis() - requestContext.getRequestArrivalTimeMillis();
     brokerResponse.setTimeUsedMs(totalTimeMs);
     augmentStatistics(requestContext, brokerResponse);
+    cacheQueryResult(resultCacheKey, brokerResponse);
     if (QueryOptionsUtils.shouldDropResults(queryOptions)) {
       brokerResponse.setResultTable(null);
     }
@@ -287,6 +318,109 @@ public class MultiStageBrokerRequestHandler extends BaseBrokerRequestHandler {
     return brokerResponse;
   }
 
+  /**
+   * Returns the key of the query in the query result cache, or {@code null} if the result of the query should not be
+   * cached. The result is not cached when the routing changed during planning (identified by the latest routing version
+   * before planning) because the plan might have been built on the previous segments, when the query contains
+   * non-deterministic functions, or when any queried table has real-time segments.
+   */
+  @VisibleForTesting
+  @Nullable
+  String getResultCacheKey(SqlNodeAndOptions sqlNodeAndOptions, @Nullable String database, Set<String> tableNames,
+      RequestContext requestContext, long latestRoutingVersion) {
+    if (_queryResultCache == null || _routingManager.getLatestRoutingVersion() != latestRoutingVersion) {
+      return null;
+    }
+    SqlNode sqlNode = sqlNodeAndOptions.getSqlNode();
+    if (containsNonDeterministicFunction(sqlNode)) {
+      return null;
+    }
+    List<String> offlineTableNames = getOfflineTableNames(tableNames);
+    if (offlineTableNames == null) {
+      return null;
+    }
+    Map<String, String> queryOptions = sqlNodeAndOptions.getOptions();
+    String cacheQuery = sqlNode + "|" + database + "|" + new TreeMap<>(queryOptions);
+    return getQueryResultCacheKey(cacheQuery, queryOptions, offlineTableNames, requestContext);
+  }
+
+  /**
+   * Returns the cached result table for the given cache key, or {@code null} if it is not cached.
+   */
+  @VisibleForTesting
+  @Nullable
+  ResultTable getCachedResultTable(String resultCacheKey, Set<String> tableNames) {
+    ResultTable cachedResultTable = _queryResultCache.get(resultCacheKey);
+    BrokerMeter resultCacheMeter =
+        cachedResultTable != null ? BrokerMeter.QUERY_RESULT_CACHE_HITS : BrokerMeter.QUERY_RESULT_CACHE_MISSES;
+    for (String tableName : tableNames) {
+      _brokerMetrics.addMeteredTableValue(tableName, resultCacheMeter, 1);
+    }
+    return cachedResultTable;
+  }
+
+  /**
+   * Returns whether the query contains any function whose result can change across executions (e.g. functions based on
+   * the current time), in which case the query result cannot be cached. Such functions are evaluated to literals while
+   * planning the query, so they are not reflected in the SQL used as the cache key.
+   */
+  @VisibleForTesting
+  static boolean containsNonDeterministicFunction(SqlNode sqlNode) {
+    try {
+      sqlNode.accept(new SqlBasicVisitor<Void>() {
+        @Override
+        public Void visit(SqlCall call) {
+          SqlOperator operator = call.getOperator();
+          if (operator.isDynamicFunction() || !operator.isDeterministic()
+              || NON_DETERMINISTIC_FUNCTIONS.contains(FunctionRegistry.canonicalize(operator.getName()))) {
+            throw Util.FoundOne.NULL;
+          }
+          return super.visit(call);
+        }
+      });
+      return false;
+    } catch (Util.FoundOne e) {
+      return true;
+    }
+  }
+
+  /**
+   * Returns the names with type of the queried tables if all of them are offline tables, or {@code null} otherwise.
+   */
+  @Nullable
+  private List<String> getOfflineTableNames(Set<String> tableNames) {
+    List<String> offlineTableNames = new ArrayList<>(tableNames.size());
+    for (String tableName : tableNames) {
+      TableType tableType = TableNameBuilder.getTableTypeFromTableName(tableName);
+      if (tableType == TableType.REALTIME) {
+        return null;
+      }
+      if (tableType == null) {
+        if (_routingManager.routingExists(TableNameBuilder.REALTIME.tableNameWithType(tableName))) {
+          return null;
+        }
+        tableName = TableNameBuilder.OFFLINE.tableNameWithType(tableName);
+      }
+      offlineTableNames.add(tableName);
+    }
+    return offlineTableNames;
+  }
+
+  private BrokerResponse getCachedResultResponse(ResultTable resultTable, Set<String> tableNames,
+      Map<String, String> queryOptions, RequestContext requestContext, @Nullable RequesterIdentity requesterIdentity) {
+    BrokerResponseNativeV2 brokerResponse = new BrokerResponseNativeV2();
+    brokerResponse.setResultTable(resultTable);
+    brokerResponse.setTablesQueried(tableNames);
+    brokerResponse.setTimeUsedMs(System.currentTimeMillis() - requestContext.getRequestArrivalTimeMillis());
+    augmentStatistics(requestContext, brokerResponse);
+    if (QueryOptionsUtils.shouldDropResults(queryOptions)) {
+      brokerResponse.setResultTable(null);
+    }
+    _queryLogger.log(
+        new QueryLogger.QueryLogParams(requestContext, tableNames.toString(), brokerResponse, requesterIdentity, null));
+    return brokerResponse;
+  }
+
   private Collection<PlanNode> requestPhysicalPlan(DispatchablePlanFragment fragment,
       RequestContext requestContext, long queryTimeoutMs, Map<String, String> queryOptions) {
     List<PlanNode> stagePlans;
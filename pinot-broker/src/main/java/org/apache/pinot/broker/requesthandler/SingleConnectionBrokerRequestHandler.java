@@ -43,6 +43,7 @@ import org.apache.pinot.common.response.broker.BrokerResponseNative;
 import org.apache.pinot.common.response.broker.QueryProcessingException;
 import org.apache.pinot.common.utils.config.QueryOptionsUtils;
 import org.apache.pinot.core.query.reduce.BrokerReduceService;
+import org.apache.pinot.core.transport.AlternateServerSelector;
 import org.apache.pinot.core.transport.AsyncQueryResponse;
 import org.apache.pinot.core.transport.QueryResponse;
 import org.apache.pinot.core.transport.QueryRouter;
@@ -70,6 +71,7 @@ public class SingleConnectionBrokerRequestHandler extends BaseSingleStageBrokerR
   private final BrokerReduceService _brokerReduceService;
   private final QueryRouter _queryRouter;
   private final FailureDetector _failureDetector;
+  private final AlternateServerSelector _alternateServerSelector;
 
   public SingleConnectionBrokerRequestHandler(PinotConfiguration config, String brokerId,
       BrokerRoutingManager routingManager, AccessControlFactory accessControlFactory,
@@ -79,6 +81,18 @@ public class SingleConnectionBrokerRequestHandler extends BaseSingleStageBrokerR
     _brokerReduceService = new BrokerReduceService(_config);
     _queryRouter = new QueryRouter(_brokerId, _brokerMetrics, nettyConfig, tlsConfig, serverRoutingStatsManager);
     _failureDetector = FailureDetectorFactory.getFailureDetector(config, _brokerMetrics);
+    if (config.getProperty(CommonConstants.Broker.CONFIG_OF_BROKER_ENABLE_HEDGING,
+        CommonConstants.Broker.DEFAULT_BROKER_ENABLE_HEDGING)) {
+      _queryRouter.enableHedging(config.getProperty(CommonConstants.Broker.CONFIG_OF_BROKER_HEDGING_LATENCY_MULTIPLIER,
+              CommonConstants.Broker.DEFAULT_BROKER_HEDGING_LATENCY_MULTIPLIER),
+          config.getProperty(CommonConstants.Broker.CONFIG_OF_BROKER_HEDGING_MIN_DELAY_MS,
+              CommonConstants.Broker.DEFAULT_BROKER_HEDGING_MIN_DELAY_MS),
+          config.getProperty(CommonConstants.Broker.CONFIG_OF_BROKER_HEDGING_NUM_THREADS,
+              CommonConstants.Broker.DEFAULT_BROKER_HEDGING_NUM_THREADS));
+      _alternateServerSelector = routingManager::selectAlternateServerInstance;
+    } else {
+      _alternateServerSelector = null;
+    }
   }
 
   @Override
@@ -113,7 +127,7 @@ public class SingleConnectionBrokerRequestHandler extends BaseSingleStageBrokerR
     long scatterGatherStartTimeNs = System.nanoTime();
     AsyncQueryResponse asyncQueryResponse =
         _queryRouter.submitQuery(requestId, rawTableName, offlineBrokerRequest, offlineRoutingTable,
-            realtimeBrokerRequest, realtimeRoutingTable, timeoutMs);
+            realtimeBrokerRequest, realtimeRoutingTable, timeoutMs, _alternateServerSelector);
     _failureDetector.notifyQuerySubmitted(asyncQueryResponse);
     Map<ServerRoutingInstance, ServerResponse> finalResponses = asyncQueryResponse.getFinalResponses();
     if (asyncQueryResponse.getStatus() == QueryResponse.Status.TIMED_OUT) {
@@ -122,6 +136,10 @@ public class SingleConnectionBrokerRequestHandler extends BaseSingleStageBrokerR
       _brokerMetrics.addMeteredTableValue(rawTableName, meter, 1);
     }
     _failureDetector.notifyQueryFinished(asyncQueryResponse);
+    int numHedgedResponses = asyncQueryResponse.getNumHedgedResponses();
+    if (numHedgedResponses > 0) {
+      _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.HEDGED_RESPONSES_USED, numHedgedResponses);
+    }
     _brokerMetrics.addPhaseTiming(rawTableName, BrokerQueryPhase.SCATTER_GATHER,
         System.nanoTime() - scatterGatherStartTimeNs);
     // TODO Use scatterGatherStats as serverStats
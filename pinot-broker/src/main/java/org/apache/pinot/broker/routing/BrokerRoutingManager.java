@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.helix.AccessOption;
@@ -46,6 +47,7 @@ import org.apache.pinot.broker.routing.instanceselector.InstanceSelector;
 import org.apache.pinot.broker.routing.instanceselector.InstanceSelectorFactory;
 import org.apache.pinot.broker.routing.segmentmetadata.SegmentZkMetadataFetchListener;
 import org.apache.pinot.broker.routing.segmentmetadata.SegmentZkMetadataFetcher;
+import org.apache.pinot.broker.routing.segmentmetadata.TableNumDocsTracker;
 import org.apache.pinot.broker.routing.segmentpartition.SegmentPartitionMetadataManager;
 import org.apache.pinot.broker.routing.segmentpreselector.SegmentPreSelector;
 import org.apache.pinot.broker.routing.segmentpreselector.SegmentPreSelectorFactory;
@@ -92,6 +94,7 @@ import org.slf4j.LoggerFactory;
  *   <li>{@link #getRoutingTable(BrokerRequest, long)}: Returns the routing table for a query</li>
  *   <li>{@link #getTimeBoundaryInfo(String)}: Returns the time boundary info for a table</li>
  *   <li>{@link #getQueryTimeoutMs(String)}: Returns the table-level query timeout in milliseconds for a table</li>
+ *   <li>{@link #getRoutingVersion(String)}: Returns the version of the segments served for a table</li>
  * </ul>
  *
  * TODO: Expose RoutingEntry class to get a consistent view in the broker request handler and save the redundant map
@@ -107,6 +110,8 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
   private final Set<String> _excludedServers = new HashSet<>();
   private final ServerRoutingStatsManager _serverRoutingStatsManager;
   private final PinotConfiguration _pinotConfig;
+  // Generates the routing versions, which are unique across all the routing entries (including the rebuilt ones)
+  private final AtomicLong _routingVersionGenerator = new AtomicLong();
 
   private BaseDataAccessor<ZNRecord> _zkDataAccessor;
   private String _externalViewPathPrefix;
@@ -191,6 +196,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
               continue;
             }
             routingEntry.onAssignmentChange(idealState, externalView);
+            routingEntry.setRoutingVersion(_routingVersionGenerator.incrementAndGet());
           } catch (Exception e) {
             LOGGER.error(
                 "Caught unexpected exception while updating routing entry on segment assignment change for table: {}",
@@ -518,6 +524,13 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
       }
     }
 
+    TableNumDocsTracker numDocsTracker = null;
+    if (TableNameBuilder.isOfflineTableResource(tableNameWithType)
+        && _pinotConfig.getProperty(CommonConstants.Broker.CONFIG_OF_AUTO_BROADCAST_JOIN_MAX_ROWS,
+        CommonConstants.Broker.DEFAULT_AUTO_BROADCAST_JOIN_MAX_ROWS) > 0) {
+      numDocsTracker = new TableNumDocsTracker(tableNameWithType);
+    }
+
     QueryConfig queryConfig = tableConfig.getQueryConfig();
     Long queryTimeoutMs = queryConfig != null ? queryConfig.getTimeoutMs() : null;
 
@@ -528,12 +541,16 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     if (partitionMetadataManager != null) {
       segmentZkMetadataFetcher.register(partitionMetadataManager);
     }
+    if (numDocsTracker != null) {
+      segmentZkMetadataFetcher.register(numDocsTracker);
+    }
     segmentZkMetadataFetcher.init(idealState, externalView, preSelectedOnlineSegments);
 
     RoutingEntry routingEntry =
         new RoutingEntry(tableNameWithType, idealStatePath, externalViewPath, segmentPreSelector, segmentSelector,
             segmentPruners, instanceSelector, idealStateVersion, externalViewVersion, segmentZkMetadataFetcher,
-            timeBoundaryManager, partitionMetadataManager, queryTimeoutMs, !idealState.isEnabled());
+            timeBoundaryManager, partitionMetadataManager, numDocsTracker, queryTimeoutMs, !idealState.isEnabled());
+    routingEntry.setRoutingVersion(_routingVersionGenerator.incrementAndGet());
     if (_routingEntryMap.put(tableNameWithType, routingEntry) == null) {
       LOGGER.info("Built routing for table: {}", tableNameWithType);
     } else {
@@ -589,6 +606,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     RoutingEntry routingEntry = _routingEntryMap.get(tableNameWithType);
     if (routingEntry != null) {
       routingEntry.refreshSegment(segment);
+      routingEntry.setRoutingVersion(_routingVersionGenerator.incrementAndGet());
       LOGGER.info("Refreshed segment: {} for table: {}", segment, tableNameWithType);
     } else {
       LOGGER.warn("Routing does not exist for table: {}, skipping refreshing segment", tableNameWithType);
@@ -665,6 +683,21 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     return merged;
   }
 
+  /**
+   * Returns an enabled server instance (other than the excluded instances) hosting all the given segments of the table,
+   * which can be used to hedge the request sent to a slow server, or {@code null} if there is no such server.
+   */
+  @Nullable
+  public ServerInstance selectAlternateServerInstance(String tableNameWithType, List<String> segments,
+      Set<String> excludedInstances, long requestId) {
+    RoutingEntry routingEntry = _routingEntryMap.get(tableNameWithType);
+    if (routingEntry == null) {
+      return null;
+    }
+    String instance = routingEntry._instanceSelector.selectAlternateInstance(segments, excludedInstances, requestId);
+    return instance != null ? _enabledServerInstanceMap.get(instance) : null;
+  }
+
   @Override
   public Map<String, ServerInstance> getEnabledServerInstanceMap() {
     return _enabledServerInstanceMap;
@@ -705,6 +738,17 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     return partitionMetadataManager != null ? partitionMetadataManager.getTablePartitionInfo() : null;
   }
 
+  @Nullable
+  @Override
+  public Long getNumDocs(String tableNameWithType) {
+    RoutingEntry routingEntry = _routingEntryMap.get(tableNameWithType);
+    if (routingEntry == null) {
+      return null;
+    }
+    TableNumDocsTracker numDocsTracker = routingEntry.getNumDocsTracker();
+    return numDocsTracker != null ? numDocsTracker.getNumDocs() : null;
+  }
+
   @Nullable
   @Override
   public Set<String> getServingInstances(String tableNameWithType) {
@@ -725,6 +769,26 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     return routingEntry != null ? routingEntry.getQueryTimeoutMs() : null;
   }
 
+  /**
+   * Returns the routing version of the given table, or {@code null} if the routing does not exist. The version changes
+   * whenever the routing is rebuilt, the segment assignment changes (ideal state or external view) or a segment is
+   * refreshed, so results computed on the segments of the table remain valid as long as the version does not change.
+   * <p>NOTE: Consuming segments can get new records without changing the version.
+   */
+  @Nullable
+  public Long getRoutingVersion(String tableNameWithType) {
+    RoutingEntry routingEntry = _routingEntryMap.get(tableNameWithType);
+    return routingEntry != null ? routingEntry.getRoutingVersion() : null;
+  }
+
+  /**
+   * Returns the latest routing version assigned to any table. It can be compared before and after an operation to
+   * detect routing changes happened in between.
+   */
+  public long getLatestRoutingVersion() {
+    return _routingVersionGenerator.get();
+  }
+
   private static class RoutingEntry {
     final String _tableNameWithType;
     final String _idealStatePath;
@@ -733,6 +797,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     final SegmentSelector _segmentSelector;
     final List<SegmentPruner> _segmentPruners;
     final SegmentPartitionMetadataManager _partitionMetadataManager;
+    final TableNumDocsTracker _numDocsTracker;
     final InstanceSelector _instanceSelector;
     final Long _queryTimeoutMs;
     final SegmentZkMetadataFetcher _segmentZkMetadataFetcher;
@@ -745,12 +810,14 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
 
     transient boolean _disabled;
 
+    transient volatile long _routingVersion;
+
     RoutingEntry(String tableNameWithType, String idealStatePath, String externalViewPath,
         SegmentPreSelector segmentPreSelector, SegmentSelector segmentSelector, List<SegmentPruner> segmentPruners,
         InstanceSelector instanceSelector, int lastUpdateIdealStateVersion, int lastUpdateExternalViewVersion,
         SegmentZkMetadataFetcher segmentZkMetadataFetcher, @Nullable TimeBoundaryManager timeBoundaryManager,
-        @Nullable SegmentPartitionMetadataManager partitionMetadataManager, @Nullable Long queryTimeoutMs,
-        boolean disabled) {
+        @Nullable SegmentPartitionMetadataManager partitionMetadataManager,
+        @Nullable TableNumDocsTracker numDocsTracker, @Nullable Long queryTimeoutMs, boolean disabled) {
       _tableNameWithType = tableNameWithType;
       _idealStatePath = idealStatePath;
       _externalViewPath = externalViewPath;
@@ -762,6 +829,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
       _lastUpdateExternalViewVersion = lastUpdateExternalViewVersion;
       _timeBoundaryManager = timeBoundaryManager;
       _partitionMetadataManager = partitionMetadataManager;
+      _numDocsTracker = numDocsTracker;
       _queryTimeoutMs = queryTimeoutMs;
       _segmentZkMetadataFetcher = segmentZkMetadataFetcher;
       _disabled = disabled;
@@ -793,6 +861,11 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
       return _partitionMetadataManager;
     }
 
+    @Nullable
+    TableNumDocsTracker getNumDocsTracker() {
+      return _numDocsTracker;
+    }
+
     Long getQueryTimeoutMs() {
       return _queryTimeoutMs;
     }
@@ -801,6 +874,14 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
       return _disabled;
     }
 
+    long getRoutingVersion() {
+      return _routingVersion;
+    }
+
+    void setRoutingVersion(long routingVersion) {
+      _routingVersion = routingVersion;
+    }
+
     // NOTE: The change gets applied in sequence, and before change applied to all components, there could be some
     // inconsistency between components, which is fine because the inconsistency only exists for the newly changed
     // segments and only lasts for a very short time.
@@ -453,6 +453,56 @@ abstract class BaseInstanceSelector implements InstanceSelector {
     return queryOption != null ? queryOption : _useFixedReplica;
   }
 
+  @Nullable
+  @Override
+  public String selectAlternateInstance(List<String> segments, Set<String> excludedInstances, long requestId) {
+    if (segments.isEmpty()) {
+      return null;
+    }
+    SegmentStates segmentStates = _segmentStates;
+    List<SegmentInstanceCandidate> firstSegmentCandidates = segmentStates.getCandidates(segments.get(0));
+    if (firstSegmentCandidates == null) {
+      return null;
+    }
+    List<String> instances = new ArrayList<>(firstSegmentCandidates.size());
+    for (SegmentInstanceCandidate candidate : firstSegmentCandidates) {
+      String instance = candidate.getInstance();
+      if (candidate.isOnline() && !excludedInstances.contains(instance) && isOnlineForAllSegments(instance, segments,
+          segmentStates)) {
+        instances.add(instance);
+      }
+    }
+    int numInstances = instances.size();
+    if (numInstances == 0) {
+      return null;
+    }
+    if (_adaptiveServerSelector != null) {
+      return _adaptiveServerSelector.select(instances);
+    }
+    return instances.get((int) (requestId % MAX_REQUEST_ID) % numInstances);
+  }
+
+  private static boolean isOnlineForAllSegments(String instance, List<String> segments, SegmentStates segmentStates) {
+    int numSegments = segments.size();
+    for (int i = 1; i < numSegments; i++) {
+      List<SegmentInstanceCandidate> candidates = segmentStates.getCandidates(segments.get(i));
+      if (candidates == null) {
+        return false;
+      }
+      boolean found = false;
+      for (SegmentInstanceCandidate candidate : candidates) {
+        if (candidate.getInstance().equals(instance)) {
+          found = candidate.isOnline();
+          break;
+        }
+      }
+      if (!found) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   @Override
   public Set<String> getServingInstances() {
     return _segmentStates.getServingInstances();
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.helix.model.ExternalView;
 import org.apache.helix.model.IdealState;
@@ -74,6 +75,20 @@ public interface InstanceSelector {
    */
   SelectionResult select(BrokerRequest brokerRequest, List<String> segments, long requestId);
 
+  /**
+   * Selects an instance (other than the excluded instances) hosting all the given segments in ONLINE state, which can
+   * be used to hedge the request sent to a slow instance. Returns {@code null} if there is no such instance.
+   *
+   * @param segments segments to be served by the selected instance
+   * @param excludedInstances instances that should not be selected (e.g. instances already queried)
+   * @param requestId requestId generated by the Broker for a query
+   * @return the selected instance, or {@code null} if there is no available instance
+   */
+  @Nullable
+  default String selectAlternateInstance(List<String> segments, Set<String> excludedInstances, long requestId) {
+    return null;
+  }
+
   /**
    * Returns the enabled server instances currently serving the table.
    */
@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.routing.segmentmetadata;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.pinot.spi.utils.CommonConstants;
+
+
+/**
+ * The {@code TableNumDocsTracker} tracks the total number of documents of the online segments of a table based on the
+ * segment ZK metadata. It is used to estimate the size of a table when planning the query (e.g. to decide whether a
+ * table is small enough to be broadcast in a multi-stage join).
+ *
+ * <p>NOTE: The total number of documents is not available for the consuming segments, and the refreshed segment ZK
+ * metadata is not picked up until the segment is refreshed, so it should only be used for OFFLINE tables.
+ */
+public class TableNumDocsTracker implements SegmentZkMetadataFetchListener {
+  private static final long UNKNOWN_NUM_DOCS = -1;
+
+  private final String _tableNameWithType;
+  // Segments without valid total docs in the ZK metadata are stored with UNKNOWN_NUM_DOCS
+  private final Map<String, Long> _segmentToNumDocsMap = new HashMap<>();
+
+  private volatile long _numDocs = UNKNOWN_NUM_DOCS;
+
+  public TableNumDocsTracker(String tableNameWithType) {
+    _tableNameWithType = tableNameWithType;
+  }
+
+  @Override
+  public synchronized void init(IdealState idealState, ExternalView externalView, List<String> onlineSegments,
+      List<ZNRecord> znRecords) {
+    int numSegments = onlineSegments.size();
+    for (int i = 0; i < numSegments; i++) {
+      _segmentToNumDocsMap.put(onlineSegments.get(i), extractNumDocs(znRecords.get(i)));
+    }
+    updateNumDocs();
+  }
+
+  @Override
+  public synchronized void onAssignmentChange(IdealState idealState, ExternalView externalView,
+      Set<String> onlineSegments, List<String> pulledSegments, List<ZNRecord> znRecords) {
+    int numPulledSegments = pulledSegments.size();
+    for (int i = 0; i < numPulledSegments; i++) {
+      _segmentToNumDocsMap.putIfAbsent(pulledSegments.get(i), extractNumDocs(znRecords.get(i)));
+    }
+    _segmentToNumDocsMap.keySet().retainAll(onlineSegments);
+    updateNumDocs();
+  }
+
+  @Override
+  public synchronized void refreshSegment(String segment, @Nullable ZNRecord znRecord) {
+    _segmentToNumDocsMap.put(segment, extractNumDocs(znRecord));
+    updateNumDocs();
+  }
+
+  private static long extractNumDocs(@Nullable ZNRecord znRecord) {
+    if (znRecord == null) {
+      return UNKNOWN_NUM_DOCS;
+    }
+    long numDocs = znRecord.getLongField(CommonConstants.Segment.TOTAL_DOCS, UNKNOWN_NUM_DOCS);
+    return numDocs >= 0 ? numDocs : UNKNOWN_NUM_DOCS;
+  }
+
+  private void updateNumDocs() {
+    long numDocs = 0;
+    for (long segmentNumDocs : _segmentToNumDocsMap.values()) {
+      if (segmentNumDocs == UNKNOWN_NUM_DOCS) {
+        _numDocs = UNKNOWN_NUM_DOCS;
+        return;
+      }
+      numDocs += segmentNumDocs;
+    }
+    _numDocs = numDocs;
+  }
+
+  public String getTableNameWithType() {
+    return _tableNameWithType;
+  }
+
+  /**
+   * Returns the total number of documents of the online segments, or {@code null} if it is not known for any of the
+   * segments.
+   */
+  @Nullable
+  public Long getNumDocs() {
+    long numDocs = _numDocs;
+    return numDocs != UNKNOWN_NUM_DOCS ? numDocs : null;
+  }
+}
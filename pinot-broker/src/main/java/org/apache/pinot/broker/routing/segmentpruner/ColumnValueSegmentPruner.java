@@ -0,0 +1,357 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.routing.segmentpruner;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.request.Expression;
+import org.apache.pinot.common.request.Function;
+import org.apache.pinot.common.request.Identifier;
+import org.apache.pinot.common.request.context.RequestContextUtils;
+import org.apache.pinot.spi.data.FieldSpec;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.utils.CommonConstants;
+import org.apache.pinot.spi.utils.CommonConstants.Query.Range;
+import org.apache.pinot.sql.FilterKind;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The {@code ColumnValueSegmentPruner} prunes segments based on the column min/max values stored in the segment ZK
+ * metadata (only tracked for sorted columns). The pruner supports queries with filter (or nested filter) of EQUALITY,
+ * IN and RANGE predicates. Segments without column min/max values, or filters that cannot be evaluated on the min/max
+ * values are never pruned.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class ColumnValueSegmentPruner implements SegmentPruner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ColumnValueSegmentPruner.class);
+
+  private final String _tableNameWithType;
+  private final Schema _schema;
+  private final Map<String, Map<String, ValueRange>> _valueRangesMap = new ConcurrentHashMap<>();
+
+  public ColumnValueSegmentPruner(String tableNameWithType, Schema schema) {
+    _tableNameWithType = tableNameWithType;
+    _schema = schema;
+  }
+
+  @Override
+  public void init(IdealState idealState, ExternalView externalView, List<String> onlineSegments,
+      List<ZNRecord> znRecords) {
+    // Bulk load column min/max values for all online segments
+    for (int idx = 0; idx < onlineSegments.size(); idx++) {
+      String segment = onlineSegments.get(idx);
+      Map<String, ValueRange> valueRanges = extractValueRanges(segment, znRecords.get(idx));
+      if (valueRanges != null) {
+        _valueRangesMap.put(segment, valueRanges);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void onAssignmentChange(IdealState idealState, ExternalView externalView,
+      Set<String> onlineSegments, List<String> pulledSegments, List<ZNRecord> znRecords) {
+    // NOTE: We don't update all the segment ZK metadata for every external view change, but only the new added/removed
+    //       ones. The refreshed segment ZK metadata change won't be picked up.
+    for (int idx = 0; idx < pulledSegments.size(); idx++) {
+      String segment = pulledSegments.get(idx);
+      Map<String, ValueRange> valueRanges = extractValueRanges(segment, znRecords.get(idx));
+      if (valueRanges != null) {
+        _valueRangesMap.putIfAbsent(segment, valueRanges);
+      }
+    }
+    _valueRangesMap.keySet().retainAll(onlineSegments);
+  }
+
+  @Override
+  public synchronized void refreshSegment(String segment, @Nullable ZNRecord znRecord) {
+    Map<String, ValueRange> valueRanges = extractValueRanges(segment, znRecord);
+    if (valueRanges != null) {
+      _valueRangesMap.put(segment, valueRanges);
+    } else {
+      _valueRangesMap.remove(segment);
+    }
+  }
+
+  @Nullable
+  private Map<String, ValueRange> extractValueRanges(String segment, @Nullable ZNRecord znRecord) {
+    if (znRecord == null) {
+      return null;
+    }
+    Map<String, String> minValues = znRecord.getMapField(CommonConstants.Segment.COLUMN_MIN_VALUES);
+    Map<String, String> maxValues = znRecord.getMapField(CommonConstants.Segment.COLUMN_MAX_VALUES);
+    if (minValues == null || maxValues == null) {
+      return null;
+    }
+    Map<String, ValueRange> valueRanges = new HashMap<>();
+    for (Map.Entry<String, String> entry : minValues.entrySet()) {
+      String column = entry.getKey();
+      String maxValue = maxValues.get(column);
+      FieldSpec fieldSpec = _schema.getFieldSpecFor(column);
+      if (maxValue == null || fieldSpec == null || !fieldSpec.isSingleValueField() || !isSupported(
+          fieldSpec.getDataType())) {
+        continue;
+      }
+      DataType storedType = fieldSpec.getDataType().getStoredType();
+      try {
+        valueRanges.put(column, new ValueRange(fieldSpec.getDataType(), storedType.convertInternal(entry.getValue()),
+            storedType.convertInternal(maxValue)));
+      } catch (Exception e) {
+        LOGGER.warn("Failed to parse min/max value for column: {} in segment: {}, table: {}", column, segment,
+            _tableNameWithType, e);
+      }
+    }
+    return !valueRanges.isEmpty() ? valueRanges : null;
+  }
+
+  private static boolean isSupported(DataType dataType) {
+    switch (dataType.getStoredType()) {
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case BIG_DECIMAL:
+      case STRING:
+      case BYTES:
+        return dataType != DataType.JSON;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  public Set<String> prune(BrokerRequest brokerRequest, Set<String> segments) {
+    Expression filterExpression = brokerRequest.getPinotQuery().getFilterExpression();
+    if (filterExpression == null || _valueRangesMap.isEmpty()) {
+      return segments;
+    }
+    Set<String> selectedSegments = new HashSet<>();
+    for (String segment : segments) {
+      Map<String, ValueRange> valueRanges = _valueRangesMap.get(segment);
+      if (valueRanges == null || isValueMatch(filterExpression, valueRanges)) {
+        selectedSegments.add(segment);
+      }
+    }
+    return selectedSegments;
+  }
+
+  /**
+   * Returns {@code false} if the filter cannot match any record within the column min/max values, {@code true}
+   * otherwise.
+   */
+  private boolean isValueMatch(Expression filterExpression, Map<String, ValueRange> valueRanges) {
+    Function function = filterExpression.getFunctionCall();
+    if (function == null) {
+      return true;
+    }
+    FilterKind filterKind;
+    try {
+      filterKind = FilterKind.valueOf(function.getOperator());
+    } catch (IllegalArgumentException e) {
+      return true;
+    }
+    List<Expression> operands = function.getOperands();
+    switch (filterKind) {
+      case AND:
+        for (Expression child : operands) {
+          if (!isValueMatch(child, valueRanges)) {
+            return false;
+          }
+        }
+        return true;
+      case OR:
+        for (Expression child : operands) {
+          if (isValueMatch(child, valueRanges)) {
+            return true;
+          }
+        }
+        return false;
+      case EQUALS: {
+        ValueRange valueRange = getValueRange(operands.get(0), valueRanges);
+        if (valueRange == null) {
+          return true;
+        }
+        Comparable value = valueRange.convert(operands.get(1));
+        return value == null || valueRange.contains(value);
+      }
+      case IN: {
+        ValueRange valueRange = getValueRange(operands.get(0), valueRanges);
+        if (valueRange == null) {
+          return true;
+        }
+        int numOperands = operands.size();
+        for (int i = 1; i < numOperands; i++) {
+          Comparable value = valueRange.convert(operands.get(i));
+          if (value == null || valueRange.contains(value)) {
+            return true;
+          }
+        }
+        return false;
+      }
+      case GREATER_THAN:
+        return isRangeMatch(operands, valueRanges, operands.get(1), true, null, false);
+      case GREATER_THAN_OR_EQUAL:
+        return isRangeMatch(operands, valueRanges, operands.get(1), false, null, false);
+      case LESS_THAN:
+        return isRangeMatch(operands, valueRanges, null, false, operands.get(1), true);
+      case LESS_THAN_OR_EQUAL:
+        return isRangeMatch(operands, valueRanges, null, false, operands.get(1), false);
+      case BETWEEN:
+        return isRangeMatch(operands, valueRanges, operands.get(1), false, operands.get(2), false);
+      case RANGE: {
+        ValueRange valueRange = getValueRange(operands.get(0), valueRanges);
+        if (valueRange == null) {
+          return true;
+        }
+        return valueRange.intersects(RequestContextUtils.getStringValue(operands.get(1)));
+      }
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Returns whether the range on the column (first operand) with the given bounds ({@code null} for unbounded)
+   * intersects with the column min/max values.
+   */
+  private static boolean isRangeMatch(List<Expression> operands, Map<String, ValueRange> valueRanges,
+      @Nullable Expression lowerBound, boolean lowerExclusive, @Nullable Expression upperBound,
+      boolean upperExclusive) {
+    ValueRange valueRange = getValueRange(operands.get(0), valueRanges);
+    if (valueRange == null) {
+      return true;
+    }
+    Comparable lowerValue = null;
+    if (lowerBound != null) {
+      lowerValue = valueRange.convert(lowerBound);
+      if (lowerValue == null) {
+        return true;
+      }
+    }
+    Comparable upperValue = null;
+    if (upperBound != null) {
+      upperValue = valueRange.convert(upperBound);
+      if (upperValue == null) {
+        return true;
+      }
+    }
+    return valueRange.intersects(lowerValue, lowerExclusive, upperValue, upperExclusive);
+  }
+
+  @Nullable
+  private static ValueRange getValueRange(Expression expression, Map<String, ValueRange> valueRanges) {
+    Identifier identifier = expression.getIdentifier();
+    return identifier != null ? valueRanges.get(identifier.getName()) : null;
+  }
+
+  private static class ValueRange {
+    final DataType _dataType;
+    final Comparable _minValue;
+    final Comparable _maxValue;
+
+    ValueRange(DataType dataType, Comparable minValue, Comparable maxValue) {
+      _dataType = dataType;
+      _minValue = minValue;
+      _maxValue = maxValue;
+    }
+
+    /**
+     * Converts the literal into the internal representation of the column, or returns {@code null} if it cannot be
+     * converted (in which case the segment should not be pruned).
+     */
+    @Nullable
+    Comparable convert(Expression expression) {
+      if (expression.getLiteral() == null) {
+        return null;
+      }
+      return convert(RequestContextUtils.getStringValue(expression));
+    }
+
+    @Nullable
+    Comparable convert(String value) {
+      try {
+        return _dataType.convertInternal(value);
+      } catch (Exception e) {
+        return null;
+      }
+    }
+
+    boolean contains(Comparable value) {
+      return value.compareTo(_minValue) >= 0 && value.compareTo(_maxValue) <= 0;
+    }
+
+    /**
+     * Returns whether the range string (e.g. '(10 20]' with the range delimiter) intersects with the min/max values.
+     */
+    boolean intersects(String rangeString) {
+      int length = rangeString.length();
+      boolean lowerExclusive = rangeString.charAt(0) == Range.LOWER_EXCLUSIVE;
+      boolean upperExclusive = rangeString.charAt(length - 1) == Range.UPPER_EXCLUSIVE;
+      String[] split = StringUtils.split(rangeString.substring(1, length - 1), Range.DELIMITER);
+      if (split.length != 2) {
+        return true;
+      }
+      Comparable lowerBound = null;
+      if (!split[0].equals(Range.UNBOUNDED)) {
+        lowerBound = convert(split[0]);
+        if (lowerBound == null) {
+          return true;
+        }
+      }
+      Comparable upperBound = null;
+      if (!split[1].equals(Range.UNBOUNDED)) {
+        upperBound = convert(split[1]);
+        if (upperBound == null) {
+          return true;
+        }
+      }
+      return intersects(lowerBound, lowerExclusive, upperBound, upperExclusive);
+    }
+
+    /**
+     * Returns whether the range with the given bounds ({@code null} for unbounded) intersects with the min/max values.
+     */
+    boolean intersects(@Nullable Comparable lowerBound, boolean lowerExclusive, @Nullable Comparable upperBound,
+        boolean upperExclusive) {
+      if (lowerBound != null) {
+        int result = lowerBound.compareTo(_maxValue);
+        if (result > 0 || (result == 0 && lowerExclusive)) {
+          return false;
+        }
+      }
+      if (upperBound != null) {
+        int result = upperBound.compareTo(_minValue);
+        return result > 0 || (result == 0 && !upperExclusive);
+      }
+      return true;
+    }
+  }
+}
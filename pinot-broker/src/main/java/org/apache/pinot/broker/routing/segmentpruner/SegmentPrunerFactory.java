@@ -76,10 +76,16 @@ public class SegmentPrunerFactory {
               configuredSegmentPruners.add(timeSegmentPruner);
             }
           }
+          if (RoutingConfig.COLUMN_VALUE_SEGMENT_PRUNER_TYPE.equalsIgnoreCase(segmentPrunerType)) {
+            ColumnValueSegmentPruner columnValueSegmentPruner = getColumnValueSegmentPruner(tableConfig, propertyStore);
+            if (columnValueSegmentPruner != null) {
+              configuredSegmentPruners.add(columnValueSegmentPruner);
+            }
+          }
         }
-        // Sort all segment pruners in order of: empty -> time -> partition. We are trying to sort them in a this order
-        // for improving the performance, this order may not be the optimal case -- we need move the pruner that will
-        // potentially prune the most segments to front)
+        // Sort all segment pruners in order of: empty -> time -> partition -> column value. We are trying to sort them
+        // in a this order for improving the performance, this order may not be the optimal case -- we need move the
+        // pruner that will potentially prune the most segments to front)
         segmentPruners.addAll(sortSegmentPruners(configuredSegmentPruners));
       } else {
         // Handle legacy configs for backward-compatibility
@@ -149,9 +155,22 @@ public class SegmentPrunerFactory {
     return new TimeSegmentPruner(tableConfig, timeFieldSpec);
   }
 
+  @Nullable
+  private static ColumnValueSegmentPruner getColumnValueSegmentPruner(TableConfig tableConfig,
+      ZkHelixPropertyStore<ZNRecord> propertyStore) {
+    String tableNameWithType = tableConfig.getTableName();
+    Schema schema = ZKMetadataProvider.getTableSchema(propertyStore, tableConfig);
+    if (schema == null) {
+      LOGGER.warn("Cannot enable column value pruning without schema for table: {}", tableNameWithType);
+      return null;
+    }
+    LOGGER.info("Using ColumnValueSegmentPruner for table: {}", tableNameWithType);
+    return new ColumnValueSegmentPruner(tableNameWithType, schema);
+  }
+
   private static List<SegmentPruner> sortSegmentPruners(List<SegmentPruner> pruners) {
     // If there's multiple pruners, always prune empty segments first. After that, pruned based on time range, and
-    // followed by partition pruners.
+    // followed by partition pruners and column value pruner.
     // Partition pruner run time is proportional to input # of segments while time range pruner is not,
     // Prune based on time range first will have a smaller input size for partition pruners, so have better performance.
     List<SegmentPruner> sortedPruners = new ArrayList<>();
@@ -171,6 +190,11 @@ public class SegmentPrunerFactory {
         sortedPruners.add(pruner);
       }
     }
+    for (SegmentPruner pruner : pruners) {
+      if (pruner instanceof ColumnValueSegmentPruner) {
+        sortedPruners.add(pruner);
+      }
+    }
     return sortedPruners;
   }
 }
@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.querycache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.pinot.common.response.broker.ResultTable;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.spi.env.PinotConfiguration;
+import org.apache.pinot.spi.utils.CommonConstants.Broker;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+
+public class BrokerQueryResultCacheTest {
+  private static final DataSchema DATA_SCHEMA =
+      new DataSchema(new String[]{"name", "count"}, new ColumnDataType[]{ColumnDataType.STRING, ColumnDataType.LONG});
+
+  @Test
+  public void testCreate() {
+    assertNull(BrokerQueryResultCache.create(new PinotConfiguration()));
+    assertNotNull(BrokerQueryResultCache.create(
+        new PinotConfiguration(Map.of(Broker.CONFIG_OF_BROKER_QUERY_RESULT_CACHE_ENABLED, "true"))));
+  }
+
+  @Test
+  public void testCacheKey() {
+    TreeMap<String, Long> routingVersions = new TreeMap<>(Map.of("a_OFFLINE", 1L, "b_OFFLINE", 2L));
+    String cacheKey = BrokerQueryResultCache.getCacheKey("SELECT * FROM a", routingVersions);
+    assertEquals(BrokerQueryResultCache.getCacheKey("SELECT * FROM a", new TreeMap<>(routingVersions)), cacheKey);
+    assertNotEquals(BrokerQueryResultCache.getCacheKey("SELECT * FROM b", routingVersions), cacheKey);
+
+    // Key should change when the routing of any table changes
+    routingVersions.put("b_OFFLINE", 3L);
+    assertNotEquals(BrokerQueryResultCache.getCacheKey("SELECT * FROM a", routingVersions), cacheKey);
+  }
+
+  @Test
+  public void testGetAndPut() {
+    BrokerQueryResultCache cache = new BrokerQueryResultCache(1024 * 1024, 60_000L);
+    ResultTable resultTable = new ResultTable(DATA_SCHEMA, List.<Object[]>of(new Object[]{"foo", 1L}));
+    assertNull(cache.get("key"));
+    cache.put("key", resultTable);
+    assertSame(cache.get("key"), resultTable);
+    assertNull(cache.get("otherKey"));
+  }
+
+  @Test
+  public void testSizeLimit() {
+    List<Object[]> rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      rows.add(new Object[]{"value_" + i, (long) i});
+    }
+    ResultTable resultTable = new ResultTable(DATA_SCHEMA, rows);
+    int entrySizeInBytes = BrokerQueryResultCache.estimateSizeInBytes("key_0", resultTable);
+    assertTrue(entrySizeInBytes > 1000 * 16);
+
+    // Only a few entries fit in the cache
+    BrokerQueryResultCache cache = new BrokerQueryResultCache(3L * entrySizeInBytes, 60_000L);
+    for (int i = 0; i < 10; i++) {
+      cache.put("key_" + i, resultTable);
+    }
+    assertTrue(cache.size() <= 3);
+  }
+}
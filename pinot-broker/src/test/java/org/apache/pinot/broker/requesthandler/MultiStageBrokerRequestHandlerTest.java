@@ -0,0 +1,157 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.requesthandler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.pinot.broker.broker.AllowAllAccessControlFactory;
+import org.apache.pinot.broker.queryquota.QueryQuotaManager;
+import org.apache.pinot.broker.routing.BrokerRoutingManager;
+import org.apache.pinot.common.config.provider.TableCache;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.response.broker.BrokerResponseNativeV2;
+import org.apache.pinot.common.response.broker.ResultTable;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.spi.env.PinotConfiguration;
+import org.apache.pinot.spi.eventlistener.query.BrokerQueryEventListenerFactory;
+import org.apache.pinot.spi.trace.DefaultRequestContext;
+import org.apache.pinot.spi.utils.CommonConstants.Broker;
+import org.apache.pinot.spi.utils.CommonConstants.MultiStageQueryRunner;
+import org.apache.pinot.sql.parsers.CalciteSqlParser;
+import org.apache.pinot.sql.parsers.SqlNodeAndOptions;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+
+public class MultiStageBrokerRequestHandlerTest {
+  private static final String TABLE_NAME = "myTable";
+  private static final String OFFLINE_TABLE_NAME = "myTable_OFFLINE";
+  private static final Set<String> TABLE_NAMES = Set.of(TABLE_NAME);
+  private static final String QUERY = "SELECT col, COUNT(*) FROM myTable GROUP BY col";
+  private static final long LATEST_ROUTING_VERSION = 10L;
+
+  private BrokerRoutingManager _routingManager;
+  private MultiStageBrokerRequestHandler _requestHandler;
+
+  @BeforeMethod
+  public void setUp() {
+    _routingManager = mock(BrokerRoutingManager.class);
+    when(_routingManager.getLatestRoutingVersion()).thenReturn(LATEST_ROUTING_VERSION);
+    when(_routingManager.getRoutingVersion(OFFLINE_TABLE_NAME)).thenReturn(1L);
+    BrokerMetrics.register(mock(BrokerMetrics.class));
+    PinotConfiguration config = new PinotConfiguration(
+        Map.of(Broker.CONFIG_OF_BROKER_QUERY_RESULT_CACHE_ENABLED, "true",
+            MultiStageQueryRunner.KEY_OF_QUERY_RUNNER_HOSTNAME, "localhost",
+            MultiStageQueryRunner.KEY_OF_QUERY_RUNNER_PORT, "12345"));
+    BrokerQueryEventListenerFactory.init(config);
+    _requestHandler = new MultiStageBrokerRequestHandler(config, "testBrokerId", _routingManager,
+        new AllowAllAccessControlFactory(), mock(QueryQuotaManager.class), mock(TableCache.class));
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    _requestHandler.shutDown();
+  }
+
+  @Test
+  public void testResultCacheHit() {
+    String resultCacheKey = getResultCacheKey(QUERY);
+    assertNotNull(resultCacheKey);
+    assertNull(_requestHandler.getCachedResultTable(resultCacheKey, TABLE_NAMES));
+    ResultTable resultTable = cacheResult(resultCacheKey);
+
+    // Same query should hit the cache
+    String newResultCacheKey = getResultCacheKey(QUERY);
+    assertEquals(newResultCacheKey, resultCacheKey);
+    assertSame(_requestHandler.getCachedResultTable(newResultCacheKey, TABLE_NAMES), resultTable);
+
+    // Different query should not hit the cache
+    String otherResultCacheKey = getResultCacheKey("SELECT col, SUM(val) FROM myTable GROUP BY col");
+    assertNotNull(otherResultCacheKey);
+    assertNull(_requestHandler.getCachedResultTable(otherResultCacheKey, TABLE_NAMES));
+  }
+
+  @Test
+  public void testSkipResultCache() {
+    cacheResult(getResultCacheKey(QUERY));
+    assertNull(getResultCacheKey("SET skipResultCache = true; " + QUERY));
+  }
+
+  @Test
+  public void testRoutingChange() {
+    String resultCacheKey = getResultCacheKey(QUERY);
+    cacheResult(resultCacheKey);
+
+    // New routing version of the queried table should invalidate the cached result
+    when(_routingManager.getRoutingVersion(OFFLINE_TABLE_NAME)).thenReturn(2L);
+    String newResultCacheKey = getResultCacheKey(QUERY);
+    assertNotNull(newResultCacheKey);
+    assertNotEquals(newResultCacheKey, resultCacheKey);
+    assertNull(_requestHandler.getCachedResultTable(newResultCacheKey, TABLE_NAMES));
+
+    // Routing changed while planning the query
+    assertNull(_requestHandler.getResultCacheKey(CalciteSqlParser.compileToSqlNodeAndOptions(QUERY), null,
+        TABLE_NAMES, new DefaultRequestContext(), LATEST_ROUTING_VERSION - 1));
+
+    // Table with real-time part
+    when(_routingManager.routingExists("myTable_REALTIME")).thenReturn(true);
+    assertNull(getResultCacheKey(QUERY));
+  }
+
+  @Test
+  public void testNonDeterministicFunctions() {
+    assertNull(getResultCacheKey("SELECT COUNT(*) FROM myTable WHERE ts > ago('PT1H')"));
+    assertNull(getResultCacheKey("SELECT COUNT(*) FROM myTable WHERE ts > now() - 3600000"));
+    assertNull(getResultCacheKey("SELECT COUNT(*) FROM myTable WHERE ts > CURRENT_TIMESTAMP"));
+    assertTrue(MultiStageBrokerRequestHandler.containsNonDeterministicFunction(
+        CalciteSqlParser.compileToSqlNodeAndOptions("SELECT col, NOW() FROM myTable").getSqlNode()));
+    assertFalse(MultiStageBrokerRequestHandler.containsNonDeterministicFunction(
+        CalciteSqlParser.compileToSqlNodeAndOptions("SELECT col, UPPER(name) FROM myTable").getSqlNode()));
+  }
+
+  private String getResultCacheKey(String query) {
+    SqlNodeAndOptions sqlNodeAndOptions = CalciteSqlParser.compileToSqlNodeAndOptions(query);
+    return _requestHandler.getResultCacheKey(sqlNodeAndOptions, null, TABLE_NAMES, new DefaultRequestContext(),
+        LATEST_ROUTING_VERSION);
+  }
+
+  private ResultTable cacheResult(String resultCacheKey) {
+    ResultTable resultTable =
+        new ResultTable(new DataSchema(new String[]{"col", "count"}, new ColumnDataType[]{
+            ColumnDataType.STRING, ColumnDataType.LONG
+        }), List.<Object[]>of(new Object[]{"foo", 1L}));
+    BrokerResponseNativeV2 brokerResponse = new BrokerResponseNativeV2();
+    brokerResponse.setResultTable(resultTable);
+    _requestHandler.cacheQueryResult(resultCacheKey, brokerResponse);
+    return resultTable;
+  }
+}
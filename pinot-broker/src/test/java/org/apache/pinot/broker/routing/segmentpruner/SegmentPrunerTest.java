@@ -117,6 +117,14 @@ public class SegmentPrunerTest extends ControllerTest {
           Timestamp.valueOf("2020-01-01 00:00:00").getTime(), Timestamp.valueOf("2020-02-01 00:00:00").getTime(),
           Timestamp.valueOf("2020-04-01 00:00:00").getTime());
 
+  private static final String COLUMN_VALUE_QUERY_1 = "SELECT * FROM testTable WHERE customerId = 150";
+  private static final String COLUMN_VALUE_QUERY_2 = "SELECT * FROM testTable WHERE customerId IN (50, 250)";
+  private static final String COLUMN_VALUE_QUERY_3 = "SELECT * FROM testTable WHERE customerId > 200";
+  private static final String COLUMN_VALUE_QUERY_4 =
+      "SELECT * FROM testTable WHERE customerId BETWEEN 120 AND 180 OR customerName = 'c'";
+  private static final String COLUMN_VALUE_QUERY_5 = "SELECT * FROM testTable WHERE customerId = 150 AND memberId = 1";
+  private static final String COLUMN_VALUE_QUERY_6 = "SELECT * FROM testTable WHERE NOT customerId = 150";
+
   // this is duplicate with KinesisConfig.STREAM_TYPE, while instead of use KinesisConfig.STREAM_TYPE directly, we
   // hardcode the value here to avoid pulling the entire pinot-kinesis module as dependency.
   private static final String KINESIS_STREAM_TYPE = "kinesis";
@@ -672,6 +680,78 @@ public class SegmentPrunerTest extends ControllerTest {
     assertEquals(segmentPruner.prune(brokerRequest1, onlineSegments), Set.of(segment0));
   }
 
+  @Test
+  public void testColumnValueSegmentPruner() {
+    BrokerRequest brokerRequest1 = CalciteSqlCompiler.compileToBrokerRequest(QUERY_1);
+    BrokerRequest brokerRequest2 = CalciteSqlCompiler.compileToBrokerRequest(COLUMN_VALUE_QUERY_1);
+    BrokerRequest brokerRequest3 = CalciteSqlCompiler.compileToBrokerRequest(COLUMN_VALUE_QUERY_2);
+    BrokerRequest brokerRequest4 = CalciteSqlCompiler.compileToBrokerRequest(COLUMN_VALUE_QUERY_3);
+    BrokerRequest brokerRequest5 = CalciteSqlCompiler.compileToBrokerRequest(COLUMN_VALUE_QUERY_4);
+    BrokerRequest brokerRequest6 = CalciteSqlCompiler.compileToBrokerRequest(COLUMN_VALUE_QUERY_5);
+    BrokerRequest brokerRequest7 = CalciteSqlCompiler.compileToBrokerRequest(COLUMN_VALUE_QUERY_6);
+
+    // NOTE: Ideal state and external view are not used in the current implementation
+    IdealState idealState = Mockito.mock(IdealState.class);
+    ExternalView externalView = Mockito.mock(ExternalView.class);
+
+    Schema schema = new Schema.SchemaBuilder().setSchemaName(RAW_TABLE_NAME)
+        .addSingleValueDimension("customerId", DataType.LONG)
+        .addSingleValueDimension("customerName", DataType.STRING)
+        .addSingleValueDimension(PARTITION_COLUMN_1, DataType.INT)
+        .build();
+    ColumnValueSegmentPruner segmentPruner = new ColumnValueSegmentPruner(OFFLINE_TABLE_NAME, schema);
+    SegmentZkMetadataFetcher segmentZkMetadataFetcher =
+        new SegmentZkMetadataFetcher(OFFLINE_TABLE_NAME, _propertyStore);
+    segmentZkMetadataFetcher.register(segmentPruner);
+    Set<String> onlineSegments = new HashSet<>();
+    segmentZkMetadataFetcher.init(idealState, externalView, onlineSegments);
+
+    // Segments without column min/max values should not be pruned
+    String segmentWithoutMinMaxValues = "segmentWithoutMinMaxValues";
+    ZKMetadataProvider.setSegmentZKMetadata(_propertyStore, OFFLINE_TABLE_NAME,
+        new SegmentZKMetadata(segmentWithoutMinMaxValues));
+    onlineSegments.add(segmentWithoutMinMaxValues);
+    segmentZkMetadataFetcher.onAssignmentChange(idealState, externalView, onlineSegments);
+    Set<String> input = Set.of(segmentWithoutMinMaxValues);
+    assertEquals(segmentPruner.prune(brokerRequest2, input), input);
+    assertEquals(segmentPruner.prune(brokerRequest4, input), input);
+
+    String segment0 = "columnValueSegment0";
+    setSegmentZKColumnMinMaxValues(OFFLINE_TABLE_NAME, segment0, Map.of("customerId", "0", "customerName", "a"),
+        Map.of("customerId", "99", "customerName", "b"));
+    onlineSegments.add(segment0);
+    String segment1 = "columnValueSegment1";
+    setSegmentZKColumnMinMaxValues(OFFLINE_TABLE_NAME, segment1, Map.of("customerId", "100", "customerName", "b"),
+        Map.of("customerId", "199", "customerName", "c"));
+    onlineSegments.add(segment1);
+    String segment2 = "columnValueSegment2";
+    setSegmentZKColumnMinMaxValues(OFFLINE_TABLE_NAME, segment2, Map.of("customerId", "200", "customerName", "d"),
+        Map.of("customerId", "299", "customerName", "e"));
+    onlineSegments.add(segment2);
+    segmentZkMetadataFetcher.onAssignmentChange(idealState, externalView, onlineSegments);
+    input = Set.of(segmentWithoutMinMaxValues, segment0, segment1, segment2);
+    assertEquals(segmentPruner.prune(brokerRequest1, input), input);
+    assertEquals(segmentPruner.prune(brokerRequest2, input), Set.of(segmentWithoutMinMaxValues, segment1));
+    assertEquals(segmentPruner.prune(brokerRequest3, input), Set.of(segmentWithoutMinMaxValues, segment0, segment2));
+    // customerId > 200 should not prune the segment with max value 299, but prune the segment with max value 199
+    assertEquals(segmentPruner.prune(brokerRequest4, input), Set.of(segmentWithoutMinMaxValues, segment2));
+    assertEquals(segmentPruner.prune(brokerRequest5, input), Set.of(segmentWithoutMinMaxValues, segment1));
+    // Filter on column without min/max values should not prune
+    assertEquals(segmentPruner.prune(brokerRequest6, input), Set.of(segmentWithoutMinMaxValues, segment1));
+    // NOT filter should not prune
+    assertEquals(segmentPruner.prune(brokerRequest7, input), input);
+
+    // Update metadata without external view change or refreshing should have no effect
+    setSegmentZKColumnMinMaxValues(OFFLINE_TABLE_NAME, segment2, Map.of("customerId", "100"),
+        Map.of("customerId", "150"));
+    assertEquals(segmentPruner.prune(brokerRequest2, input), Set.of(segmentWithoutMinMaxValues, segment1));
+
+    // Refresh the changed segment should update the segment pruner
+    segmentZkMetadataFetcher.refreshSegment(segment2);
+    assertEquals(segmentPruner.prune(brokerRequest2, input), Set.of(segmentWithoutMinMaxValues, segment1, segment2));
+    assertEquals(segmentPruner.prune(brokerRequest4, input), Set.of(segmentWithoutMinMaxValues));
+  }
+
   private void setSegmentZKPartitionMetadata(String tableNameWithType, String segment, String partitionFunction,
       int numPartitions, int partitionId) {
     SegmentZKMetadata segmentZKMetadata = new SegmentZKMetadata(segment);
@@ -696,6 +776,13 @@ public class SegmentPrunerTest extends ControllerTest {
     ZKMetadataProvider.setSegmentZKMetadata(_propertyStore, tableNameWithType, segmentZKMetadata);
   }
 
+  private void setSegmentZKColumnMinMaxValues(String tableNameWithType, String segment,
+      Map<String, String> columnMinValues, Map<String, String> columnMaxValues) {
+    SegmentZKMetadata segmentZKMetadata = new SegmentZKMetadata(segment);
+    segmentZKMetadata.setColumnMinMaxValues(new HashMap<>(columnMinValues), new HashMap<>(columnMaxValues));
+    ZKMetadataProvider.setSegmentZKMetadata(_propertyStore, tableNameWithType, segmentZKMetadata);
+  }
+
   private void setSegmentZKTotalDocsMetadata(String tableNameWithType, String segment, long totalDocs) {
     SegmentZKMetadata segmentZKMetadata = new SegmentZKMetadata(segment);
     segmentZKMetadata.setTotalDocs(totalDocs);
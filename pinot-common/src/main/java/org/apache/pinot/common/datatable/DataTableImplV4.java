@@ -82,6 +82,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 public class DataTableImplV4 implements DataTable {
 
   protected static final int HEADER_SIZE = Integer.BYTES * 13;
+  private static final byte[] EMPTY_BYTES = new byte[0];
   // _errCodeToExceptionMap stores exceptions as a map of errorCode->errorMessage
   protected Map<Integer, String> _errCodeToExceptionMap;
 
@@ -421,11 +422,47 @@ public class DataTableImplV4 implements DataTable {
   @Override
   public byte[] toBytes()
       throws IOException {
+    // Size the output exactly and copy every section once, instead of growing a ByteArrayOutputStream and copying the
+    // whole payload again on toByteArray()
+    ByteBuffer[] sections = serializeSections();
+    int size = 0;
+    for (ByteBuffer section : sections) {
+      size += section.remaining();
+    }
+    byte[] bytes = new byte[size];
+    ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+    for (ByteBuffer section : sections) {
+      byteBuffer.put(section);
+    }
+    return bytes;
+  }
+
+  /**
+   * Serializes the data table into a sequence of byte buffers in the wire format. The fixed size and variable size data
+   * sections (usually the bulk of the payload) are wrapped instead of copied.
+   */
+  private ByteBuffer[] serializeSections()
+      throws IOException {
     ThreadResourceUsageProvider threadTimer = new ThreadResourceUsageProvider();
 
-    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-    DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
-    writeLeadingSections(dataOutputStream);
+    byte[] exceptionsBytes = serializeExceptions();
+    byte[] dictionaryBytes = _stringDictionary != null ? serializeStringDictionary() : EMPTY_BYTES;
+    byte[] dataSchemaBytes = _dataSchema != null ? _dataSchema.toBytes() : EMPTY_BYTES;
+    byte[] fixedSizeDataBytes = _fixedSizeDataBytes != null ? _fixedSizeDataBytes : EMPTY_BYTES;
+    byte[] variableSizeDataBytes = _variableSizeDataBytes != null ? _variableSizeDataBytes : EMPTY_BYTES;
+
+    // Write header: version, numRows, numColumns followed by the offset(START|SIZE) of each section.
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(getVersion());
+    header.putInt(_numRows);
+    header.putInt(_numColumns);
+    int dataOffset = HEADER_SIZE;
+    dataOffset = putSectionOffset(header, dataOffset, exceptionsBytes.length);
+    dataOffset = putSectionOffset(header, dataOffset, dictionaryBytes.length);
+    dataOffset = putSectionOffset(header, dataOffset, dataSchemaBytes.length);
+    dataOffset = putSectionOffset(header, dataOffset, fixedSizeDataBytes.length);
+    putSectionOffset(header, dataOffset, variableSizeDataBytes.length);
+    header.flip();
 
     // Add table serialization time metadata if thread timer is enabled.
     if (ThreadResourceUsageProvider.isThreadCpuTimeMeasurementEnabled()) {
@@ -437,84 +474,21 @@ public class DataTableImplV4 implements DataTable {
     // NOTE: We ignore metadata serialization time in "responseSerializationCpuTimeNs" as it's negligible while
     // considering it will bring a lot code complexity.
     byte[] metadataBytes = serializeMetadata();
-    dataOutputStream.writeInt(metadataBytes.length);
-    dataOutputStream.write(metadataBytes);
+    ByteBuffer metadataLength = ByteBuffer.allocate(Integer.BYTES);
+    metadataLength.putInt(metadataBytes.length);
+    metadataLength.flip();
 
-    return byteArrayOutputStream.toByteArray();
+    return new ByteBuffer[]{
+        header, ByteBuffer.wrap(exceptionsBytes), ByteBuffer.wrap(dictionaryBytes), ByteBuffer.wrap(dataSchemaBytes),
+        ByteBuffer.wrap(fixedSizeDataBytes), ByteBuffer.wrap(variableSizeDataBytes), metadataLength,
+        ByteBuffer.wrap(metadataBytes)
+    };
   }
 
-  private void writeLeadingSections(DataOutputStream dataOutputStream)
-      throws IOException {
-    dataOutputStream.writeInt(getVersion());
-    dataOutputStream.writeInt(_numRows);
-    dataOutputStream.writeInt(_numColumns);
-    int dataOffset = HEADER_SIZE;
-
-    // Write exceptions section offset(START|SIZE).
-    dataOutputStream.writeInt(dataOffset);
-    byte[] exceptionsBytes;
-    exceptionsBytes = serializeExceptions();
-    dataOutputStream.writeInt(exceptionsBytes.length);
-    dataOffset += exceptionsBytes.length;
-
-    // Write dictionary map section offset(START|SIZE).
-    dataOutputStream.writeInt(dataOffset);
-    byte[] dictionaryBytes = null;
-    if (_stringDictionary != null) {
-      dictionaryBytes = serializeStringDictionary();
-      dataOutputStream.writeInt(dictionaryBytes.length);
-      dataOffset += dictionaryBytes.length;
-    } else {
-      dataOutputStream.writeInt(0);
-    }
-
-    // Write data schema section offset(START|SIZE).
-    dataOutputStream.writeInt(dataOffset);
-    byte[] dataSchemaBytes = null;
-    if (_dataSchema != null) {
-      dataSchemaBytes = _dataSchema.toBytes();
-      dataOutputStream.writeInt(dataSchemaBytes.length);
-      dataOffset += dataSchemaBytes.length;
-    } else {
-      dataOutputStream.writeInt(0);
-    }
-
-    // Write fixed size data section offset(START|SIZE).
-    dataOutputStream.writeInt(dataOffset);
-    if (_fixedSizeDataBytes != null) {
-      dataOutputStream.writeInt(_fixedSizeDataBytes.length);
-      dataOffset += _fixedSizeDataBytes.length;
-    } else {
-      dataOutputStream.writeInt(0);
-    }
-
-    // Write variable size data section offset(START|SIZE).
-    dataOutputStream.writeInt(dataOffset);
-    if (_variableSizeDataBytes != null) {
-      dataOutputStream.writeInt(_variableSizeDataBytes.length);
-    } else {
-      dataOutputStream.writeInt(0);
-    }
-
-    // Write actual data.
-    // Write exceptions bytes.
-    dataOutputStream.write(exceptionsBytes);
-    // Write dictionary map bytes.
-    if (dictionaryBytes != null) {
-      dataOutputStream.write(dictionaryBytes);
-    }
-    // Write data schema bytes.
-    if (dataSchemaBytes != null) {
-      dataOutputStream.write(dataSchemaBytes);
-    }
-    // Write fixed size data bytes.
-    if (_fixedSizeDataBytes != null) {
-      dataOutputStream.write(_fixedSizeDataBytes);
-    }
-    // Write variable size data bytes.
-    if (_variableSizeDataBytes != null) {
-      dataOutputStream.write(_variableSizeDataBytes);
-    }
+  private static int putSectionOffset(ByteBuffer header, int dataOffset, int sectionSize) {
+    header.putInt(dataOffset);
+    header.putInt(sectionSize);
+    return dataOffset + sectionSize;
   }
 
   /**
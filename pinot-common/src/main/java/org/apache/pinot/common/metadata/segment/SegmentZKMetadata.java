@@ -275,6 +275,29 @@ public class SegmentZKMetadata implements ZKMetadata {
     }
   }
 
+  public Map<String, String> getColumnMinValues() {
+    return _znRecord.getMapField(Segment.COLUMN_MIN_VALUES);
+  }
+
+  public Map<String, String> getColumnMaxValues() {
+    return _znRecord.getMapField(Segment.COLUMN_MAX_VALUES);
+  }
+
+  /**
+   * Sets the min/max values (in string format of the stored type) of the columns in the segment, which can be used to
+   * prune the segments on the broker. Both maps should contain the same columns.
+   */
+  public void setColumnMinMaxValues(Map<String, String> columnMinValues, Map<String, String> columnMaxValues) {
+    Map<String, Map<String, String>> mapFields = _znRecord.getMapFields();
+    if (MapUtils.isNotEmpty(columnMinValues) && MapUtils.isNotEmpty(columnMaxValues)) {
+      mapFields.put(Segment.COLUMN_MIN_VALUES, columnMinValues);
+      mapFields.put(Segment.COLUMN_MAX_VALUES, columnMaxValues);
+    } else {
+      mapFields.remove(Segment.COLUMN_MIN_VALUES);
+      mapFields.remove(Segment.COLUMN_MAX_VALUES);
+    }
+  }
+
   /* FOR REALTIME SEGMENTS */
 
   public Status getStatus() {
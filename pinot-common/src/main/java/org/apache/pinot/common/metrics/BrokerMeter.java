@@ -86,6 +86,10 @@ public enum BrokerMeter implements AbstractMetrics.Meter {
   REQUEST_TIMEOUT_BEFORE_SCATTERED_EXCEPTIONS("exceptions", false),
   REQUEST_CHANNEL_LOCK_TIMEOUT_EXCEPTIONS("exceptions", false),
   REQUEST_SEND_EXCEPTIONS("exceptions", false),
+  // Hedged requests sent to alternate servers because the original servers didn't respond in time.
+  HEDGED_REQUESTS_SENT("requests", false),
+  // Hedged requests responded before the original servers, i.e. the responses of the hedged requests are used.
+  HEDGED_RESPONSES_USED("requests", false),
   // Gather phase.
   RESPONSE_FETCH_EXCEPTIONS("exceptions", false),
   // Response deserialize phase.
@@ -169,7 +173,15 @@ public enum BrokerMeter implements AbstractMetrics.Meter {
    * For each query with at least one window function, this meter is increased as many times as window functions in the
    * query.
    */
-  WINDOW_COUNT("queries", true),;
+  WINDOW_COUNT("queries", true),
+  /**
+   * Number of queries served from the broker query result cache.
+   */
+  QUERY_RESULT_CACHE_HITS("queries", false),
+  /**
+   * Number of cacheable queries not found in the broker query result cache.
+   */
+  QUERY_RESULT_CACHE_MISSES("queries", false);
 
   private final String _brokerMeterName;
   private final String _unit;
@@ -169,7 +169,15 @@ public enum ServerMeter implements AbstractMetrics.Meter {
    * That means that if a stage has 10 workers and all of them reach the limit, this will be increased by 1.
    * But if a single query has 2 different window operators and each one reaches the limit, this will be increased by 2.
    */
-  WINDOW_TIMES_MAX_ROWS_REACHED("times", true);
+  WINDOW_TIMES_MAX_ROWS_REACHED("times", true),
+  /**
+   * Number of segments whose results were served from the segment results cache.
+   */
+  SEGMENT_RESULTS_CACHE_HITS("segments", true),
+  /**
+   * Number of cacheable segments whose results were not found in the segment results cache.
+   */
+  SEGMENT_RESULTS_CACHE_MISSES("segments", true);
 
   private final String _meterName;
   private final String _unit;
@@ -91,6 +91,11 @@ public enum ServerTimer implements AbstractMetrics.Timer {
    * reading from. This is the sum of all time waiting.
    */
   RECEIVE_UPSTREAM_WAIT_CPU_TIME_MS("millis", true),
+  /**
+   * Time the send mailbox is blocked waiting for the receiver to consume the data (i.e. back-pressure from the next
+   * stage). This is the sum of all time blocked by all workers in the stage.
+   */
+  SEND_BLOCKED_TIME_MS("millis", true),
   // How long it took the server to start.
   STARTUP_SUCCESS_DURATION_MS("millis", true),
   STARTUP_FAILURE_DURATION_MS("millis", true);
@@ -125,6 +125,14 @@ public class QueryOptionsUtils {
     return Boolean.parseBoolean(queryOptions.get(QueryOptionKey.SKIP_UPSERT_VIEW));
   }
 
+  public static boolean isSkipResultCache(Map<String, String> queryOptions) {
+    return Boolean.parseBoolean(queryOptions.get(QueryOptionKey.SKIP_RESULT_CACHE));
+  }
+
+  public static boolean isSkipSegmentResultsCache(Map<String, String> queryOptions) {
+    return Boolean.parseBoolean(queryOptions.get(QueryOptionKey.SKIP_SEGMENT_RESULTS_CACHE));
+  }
+
   public static long getUpsertViewFreshnessMs(Map<String, String> queryOptions) {
     String freshnessMsString = queryOptions.get(QueryOptionKey.UPSERT_VIEW_FRESHNESS_MS);
     return freshnessMsString != null ? Long.parseLong(freshnessMsString) : -1; //can blow up with NFE
@@ -297,12 +305,30 @@ public class QueryOptionsUtils {
     return checkedParseIntPositive(QueryOptionKey.MAX_ROWS_IN_JOIN, maxRowsInJoin);
   }
 
+  @Nullable
+  public static Long getAutoBroadcastJoinMaxRows(Map<String, String> queryOptions) {
+    String autoBroadcastJoinMaxRows = queryOptions.get(QueryOptionKey.AUTO_BROADCAST_JOIN_MAX_ROWS);
+    return checkedParseLongNonNegative(QueryOptionKey.AUTO_BROADCAST_JOIN_MAX_ROWS, autoBroadcastJoinMaxRows);
+  }
+
   @Nullable
   public static JoinOverFlowMode getJoinOverflowMode(Map<String, String> queryOptions) {
     String joinOverflowModeStr = queryOptions.get(QueryOptionKey.JOIN_OVERFLOW_MODE);
     return joinOverflowModeStr != null ? JoinOverFlowMode.valueOf(joinOverflowModeStr) : null;
   }
 
+  @Nullable
+  public static Integer getSortSpillThresholdRows(Map<String, String> queryOptions) {
+    String sortSpillThresholdRows = queryOptions.get(QueryOptionKey.SORT_SPILL_THRESHOLD_ROWS);
+    return checkedParseIntPositive(QueryOptionKey.SORT_SPILL_THRESHOLD_ROWS, sortSpillThresholdRows);
+  }
+
+  @Nullable
+  public static Integer getGroupBySpillThresholdGroups(Map<String, String> queryOptions) {
+    String groupBySpillThresholdGroups = queryOptions.get(QueryOptionKey.GROUP_BY_SPILL_THRESHOLD_GROUPS);
+    return checkedParseIntPositive(QueryOptionKey.GROUP_BY_SPILL_THRESHOLD_GROUPS, groupBySpillThresholdGroups);
+  }
+
   @Nullable
   public static Integer getMaxRowsInWindow(Map<String, String> queryOptions) {
     String maxRowsInWindow = queryOptions.get(QueryOptionKey.MAX_ROWS_IN_WINDOW);
@@ -372,6 +398,11 @@ public class QueryOptionsUtils {
     return checkedParseLong(optionName, optionValue, 1);
   }
 
+  @Nullable
+  private static Long checkedParseLongNonNegative(String optionName, @Nullable String optionValue) {
+    return checkedParseLong(optionName, optionValue, 0);
+  }
+
   @Nullable
   private static Long checkedParseLong(String optionName, @Nullable String optionValue, long minValue) {
     if (optionValue == null) {
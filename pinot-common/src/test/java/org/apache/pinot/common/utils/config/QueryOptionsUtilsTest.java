@@ -47,6 +47,7 @@ public class QueryOptionsUtilsTest {
   }};
   private static final List<String> POSITIVE_LONG_KEYS =
       List.of(TIMEOUT_MS, MAX_SERVER_RESPONSE_SIZE_BYTES, MAX_QUERY_RESPONSE_SIZE_BYTES);
+  private static final List<String> NON_NEGATIVE_LONG_KEYS = List.of(AUTO_BROADCAST_JOIN_MAX_ROWS);
 
   @Test
   public void shouldConvertCaseInsensitiveMapToUseCorrectValues() {
@@ -94,6 +95,13 @@ public class QueryOptionsUtilsTest {
         assertEquals(getValue(map, key), value);
       }
     }
+
+    for (String key : NON_NEGATIVE_LONG_KEYS) {
+      for (Long value : new Long[]{null, 0L, 1L, 10L, Long.MAX_VALUE}) {
+        map.put(key, value != null ? String.valueOf(value) : null);
+        assertEquals(getValue(map, key), value);
+      }
+    }
   }
 
   @Test
@@ -143,6 +151,19 @@ public class QueryOptionsUtilsTest {
         }
       }
     }
+
+    for (String key : NON_NEGATIVE_LONG_KEYS) {
+      for (String value : new String[]{
+          "-100000000000000000000", "-9223372036854775809", "-1", "9223372036854775808", "100000000000000000000"
+      }) {
+        try {
+          getValue(Map.of(key, value), key);
+          fail();
+        } catch (IllegalArgumentException ise) {
+          assertEquals(ise.getMessage(), key + " must be a number between 0 and 2^63-1, got: " + value);
+        }
+      }
+    }
   }
 
   private static Object getValue(Map<String, String> map, String key) {
@@ -181,6 +202,9 @@ public class QueryOptionsUtilsTest {
         return QueryOptionsUtils.getMaxServerResponseSizeBytes(map);
       case MAX_QUERY_RESPONSE_SIZE_BYTES:
         return QueryOptionsUtils.getMaxQueryResponseSizeBytes(map);
+      // Non-negative longs
+      case AUTO_BROADCAST_JOIN_MAX_ROWS:
+        return QueryOptionsUtils.getAutoBroadcastJoinMaxRows(map);
       default:
         throw new IllegalArgumentException("Unexpected key!");
     }
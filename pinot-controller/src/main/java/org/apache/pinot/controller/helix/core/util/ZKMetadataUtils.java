@@ -40,6 +40,9 @@ public class ZKMetadataUtils {
   private ZKMetadataUtils() {
   }
 
+  // Skip tracking min/max values that are too long to keep the segment ZK metadata small
+  private static final int MAX_COLUMN_MIN_MAX_VALUE_LENGTH = 256;
+
   /**
    * Creates the segment ZK metadata for a new segment.
    */
@@ -121,6 +124,9 @@ public class ZKMetadataUtils {
     segmentZKMetadata.setPartitionMetadata(
         !columnPartitionMap.isEmpty() ? new SegmentPartitionMetadata(columnPartitionMap) : null);
 
+    // Set column min/max values
+    updateColumnMinMaxValues(segmentZKMetadata, segmentMetadata);
+
     // Update custom metadata
     // NOTE: Do not remove existing keys because they can be set by the HTTP header from the segment upload request
     Map<String, String> customMap = segmentZKMetadata.getCustomMap();
@@ -153,6 +159,33 @@ public class ZKMetadataUtils {
     }
   }
 
+  /**
+   * Updates the min/max values of the sorted single-value columns in the segment ZK metadata, which are used by the
+   * broker to prune segments with filters on these columns.
+   */
+  public static void updateColumnMinMaxValues(SegmentZKMetadata segmentZKMetadata, SegmentMetadata segmentMetadata) {
+    Map<String, String> columnMinValues = new HashMap<>();
+    Map<String, String> columnMaxValues = new HashMap<>();
+    segmentMetadata.getColumnMetadataMap().forEach((column, columnMetadata) -> {
+      if (!columnMetadata.isSingleValue() || !columnMetadata.isSorted() || columnMetadata.isMinMaxValueInvalid()) {
+        return;
+      }
+      Comparable<?> minValue = columnMetadata.getMinValue();
+      Comparable<?> maxValue = columnMetadata.getMaxValue();
+      if (minValue == null || maxValue == null) {
+        return;
+      }
+      String minValueString = minValue.toString();
+      String maxValueString = maxValue.toString();
+      if (minValueString.length() <= MAX_COLUMN_MIN_MAX_VALUE_LENGTH
+          && maxValueString.length() <= MAX_COLUMN_MIN_MAX_VALUE_LENGTH) {
+        columnMinValues.put(column, minValueString);
+        columnMaxValues.put(column, maxValueString);
+      }
+    });
+    segmentZKMetadata.setColumnMinMaxValues(columnMinValues, columnMaxValues);
+  }
+
   private static boolean isValidTimeMetadata(ColumnMetadata timeColumnMetadata) {
     return timeColumnMetadata != null && timeColumnMetadata.getMinValue() != null
         && timeColumnMetadata.getMaxValue() != null && !timeColumnMetadata.isMinMaxValueInvalid();
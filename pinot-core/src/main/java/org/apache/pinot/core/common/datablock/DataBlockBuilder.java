@@ -32,12 +32,14 @@ import java.util.function.ToIntFunction;
 import javax.annotation.Nullable;
 import org.apache.pinot.common.CustomObject;
 import org.apache.pinot.common.datablock.ColumnarDataBlock;
+import org.apache.pinot.common.datablock.DataBlockUtils;
 import org.apache.pinot.common.datablock.RowDataBlock;
 import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
 import org.apache.pinot.common.utils.RoaringBitmapUtils;
 import org.apache.pinot.core.common.ObjectSerDeUtils;
 import org.apache.pinot.segment.spi.memory.CompoundDataBuffer;
+import org.apache.pinot.segment.spi.memory.DataBuffer;
 import org.apache.pinot.segment.spi.memory.PagedPinotOutputStream;
 import org.apache.pinot.segment.spi.memory.PinotByteBuffer;
 import org.apache.pinot.spi.utils.BigDecimalUtils;
@@ -198,6 +200,104 @@ public class DataBlockBuilder {
     return buildColumnarBlock(numRows, dataSchema, getReverseDictionary(dictionary), fixedSize, varBufferBuilder);
   }
 
+  /**
+   * Builds a row data block with the given rows of another row data block. The fixed size values are copied as raw
+   * bytes without being deserialized, and the string dictionary and the variable size data are shared with the source
+   * block, so that the rows can be filtered without materializing them.
+   */
+  public static RowDataBlock buildFromRowIds(RowDataBlock dataBlock, int[] rowIds, int numRows)
+      throws IOException {
+    DataSchema dataSchema = dataBlock.getDataSchema();
+    int numColumns = dataSchema.size();
+    int rowSizeInBytes = dataBlock.getRowSizeInBytes();
+    int fixedDataSize = rowSizeInBytes * numRows;
+    ByteBuffer fixedSize = ByteBuffer.allocate(fixedDataSize + numColumns * Integer.BYTES * 2)
+        .order(ByteOrder.BIG_ENDIAN);
+    byte[] fixedSizeBytes = fixedSize.array();
+    DataBuffer sourceFixedSize = dataBlock.getFixedData();
+    for (int i = 0; i < numRows; i++) {
+      sourceFixedSize.copyTo((long) rowIds[i] * rowSizeInBytes, fixedSizeBytes, i * rowSizeInBytes, rowSizeInBytes);
+    }
+    fixedSize.position(fixedDataSize);
+
+    RoaringBitmap[] nullBitmaps = new RoaringBitmap[numColumns];
+    for (int colId = 0; colId < numColumns; colId++) {
+      RoaringBitmap sourceNullBitmap = dataBlock.getNullRowIds(colId);
+      if (sourceNullBitmap != null) {
+        RoaringBitmap nullBitmap = new RoaringBitmap();
+        for (int i = 0; i < numRows; i++) {
+          if (sourceNullBitmap.contains(rowIds[i])) {
+            nullBitmap.add(i);
+          }
+        }
+        nullBitmaps[colId] = nullBitmap;
+      }
+    }
+    CompoundDataBuffer.Builder varBufferBuilder = getSharedVarBufferBuilder(dataBlock);
+    setNullRowIds(nullBitmaps, fixedSize, varBufferBuilder);
+    return buildRowBlock(numRows, dataSchema, dataBlock.getStringDictionary(), fixedSize, varBufferBuilder);
+  }
+
+  /**
+   * Builds a row data block with the given columns of another row data block, where the column at index {@code i} of
+   * the new block is the column at index {@code colIds[i]} of the source block. The given data schema must have the
+   * same column data types as the selected source columns. Like {@link #buildFromRowIds}, the values are copied as raw
+   * bytes and the string dictionary and the variable size data are shared with the source block.
+   */
+  public static RowDataBlock buildFromColumnIds(RowDataBlock dataBlock, int[] colIds, DataSchema dataSchema) {
+    DataSchema sourceDataSchema = dataBlock.getDataSchema();
+    int numRows = dataBlock.getNumberOfRows();
+    int numColumns = colIds.length;
+    int[] sourceColumnOffsets = new int[sourceDataSchema.size()];
+    int sourceRowSizeInBytes = DataBlockUtils.computeColumnOffsets(sourceDataSchema, sourceColumnOffsets);
+    int[] columnOffsets = new int[numColumns];
+    int rowSizeInBytes = DataBlockUtils.computeColumnOffsets(dataSchema, columnOffsets);
+    int[] columnSizes = new int[numColumns];
+    for (int i = 0; i < numColumns; i++) {
+      columnSizes[i] = (i < numColumns - 1 ? columnOffsets[i + 1] : rowSizeInBytes) - columnOffsets[i];
+    }
+    int fixedDataSize = rowSizeInBytes * numRows;
+    ByteBuffer fixedSize = ByteBuffer.allocate(fixedDataSize + numColumns * Integer.BYTES * 2)
+        .order(ByteOrder.BIG_ENDIAN);
+    byte[] fixedSizeBytes = fixedSize.array();
+    DataBuffer sourceFixedSize = dataBlock.getFixedData();
+    for (int rowId = 0; rowId < numRows; rowId++) {
+      long sourceRowOffset = (long) rowId * sourceRowSizeInBytes;
+      int rowOffset = rowId * rowSizeInBytes;
+      for (int i = 0; i < numColumns; i++) {
+        sourceFixedSize.copyTo(sourceRowOffset + sourceColumnOffsets[colIds[i]], fixedSizeBytes,
+            rowOffset + columnOffsets[i], columnSizes[i]);
+      }
+    }
+    fixedSize.position(fixedDataSize);
+
+    // The null bitmaps are stored in the shared variable size data, so only their (offset, length) need to be copied
+    long sourceNullOffset = (long) numRows * sourceRowSizeInBytes;
+    boolean hasNullSection = sourceFixedSize.size() > sourceNullOffset;
+    for (int colId : colIds) {
+      if (hasNullSection) {
+        long position = sourceNullOffset + (long) colId * Integer.BYTES * 2;
+        fixedSize.putInt(sourceFixedSize.getInt(position));
+        fixedSize.putInt(sourceFixedSize.getInt(position + Integer.BYTES));
+      } else {
+        fixedSize.putInt(0);
+        fixedSize.putInt(0);
+      }
+    }
+    return buildRowBlock(numRows, dataSchema, dataBlock.getStringDictionary(), fixedSize,
+        getSharedVarBufferBuilder(dataBlock));
+  }
+
+  private static CompoundDataBuffer.Builder getSharedVarBufferBuilder(RowDataBlock dataBlock) {
+    // NOTE: The new block does not own the buffers of the source block
+    CompoundDataBuffer.Builder varBufferBuilder = new CompoundDataBuffer.Builder(ByteOrder.BIG_ENDIAN, false);
+    DataBuffer sourceVarSize = dataBlock.getVarSizeData();
+    if (sourceVarSize != null) {
+      varBufferBuilder.addBuffer(sourceVarSize);
+    }
+    return varBufferBuilder;
+  }
+
   private static void serializeColumnData(List<Object[]> columns, DataSchema dataSchema, int colId,
       ByteBuffer fixedSize, PagedPinotOutputStream varSize, RoaringBitmap nullBitmap,
       Object2IntOpenHashMap<String> dictionary)
@@ -0,0 +1,226 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.manager.realtime;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+import org.apache.pinot.segment.local.segment.creator.TransformPipeline;
+import org.apache.pinot.spi.stream.MessageBatch;
+import org.apache.pinot.spi.stream.StreamDataDecoder;
+import org.apache.pinot.spi.stream.StreamDataDecoderResult;
+
+
+/**
+ * Decodes the messages of a {@link MessageBatch} and runs them through the {@link TransformPipeline}, so that the
+ * consumer thread only needs to index the transformed rows.
+ *
+ * Without executor, each message is decoded and transformed on the consumer thread when it is requested. With an
+ * executor, the messages are split into chunks which are decoded and transformed on the worker threads while the
+ * consumer thread indexes the rows of the previous chunks. Decoders and transform pipelines are not thread safe, so
+ * each worker uses its own ones. The decoded messages are always returned in the offset order.
+ */
+class MessageBatchDecoder {
+  @VisibleForTesting
+  static final int CHUNK_SIZE = 128;
+
+  private final StreamDataDecoder[] _decoders;
+  private final TransformPipeline[] _transformPipelines;
+  @Nullable
+  private final ExecutorService _executorService;
+  private final DecodedMessage _reusedDecodedMessage = new DecodedMessage();
+
+  // Below are the states of the current message batch
+  private MessageBatch _messageBatch;
+  private DecodedMessage[] _decodedMessages;
+  private CompletableFuture<?>[] _chunkFutures;
+  private Future<?>[] _taskFutures;
+  private volatile boolean _cancelled;
+
+  /**
+   * Decodes the messages on the consumer thread.
+   */
+  MessageBatchDecoder(StreamDataDecoder decoder, TransformPipeline transformPipeline) {
+    _decoders = new StreamDataDecoder[]{decoder};
+    _transformPipelines = new TransformPipeline[]{transformPipeline};
+    _executorService = null;
+  }
+
+  /**
+   * Decodes the messages on the given executor, with one decoder and transform pipeline per worker. The decoders should
+   * not reuse the decoded rows across messages.
+   */
+  MessageBatchDecoder(StreamDataDecoder[] decoders, TransformPipeline[] transformPipelines,
+      ExecutorService executorService) {
+    Preconditions.checkArgument(decoders.length > 0 && decoders.length == transformPipelines.length,
+        "Expect one transform pipeline per decoder");
+    _decoders = decoders;
+    _transformPipelines = transformPipelines;
+    _executorService = executorService;
+  }
+
+  /**
+   * Starts decoding the given message batch. With executor, the decoding is asynchronous.
+   */
+  void start(MessageBatch messageBatch) {
+    finish();
+    _messageBatch = messageBatch;
+    if (_executorService == null) {
+      return;
+    }
+    int messageCount = messageBatch.getMessageCount();
+    if (messageCount == 0) {
+      return;
+    }
+    _decodedMessages = new DecodedMessage[messageCount];
+    int numChunks = (messageCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    _chunkFutures = new CompletableFuture[numChunks];
+    for (int i = 0; i < numChunks; i++) {
+      _chunkFutures[i] = new CompletableFuture<>();
+    }
+    // Each task processes the chunks assigned to it in order with its own decoder and transform pipeline, so that the
+    // early chunks are ready first
+    int numTasks = Math.min(_decoders.length, numChunks);
+    _taskFutures = new Future[numTasks];
+    for (int i = 0; i < numTasks; i++) {
+      int taskId = i;
+      _taskFutures[i] = _executorService.submit(() -> decodeChunks(taskId, numTasks));
+    }
+  }
+
+  private void decodeChunks(int taskId, int numTasks) {
+    int messageCount = _decodedMessages.length;
+    for (int chunkId = taskId; chunkId < _chunkFutures.length; chunkId += numTasks) {
+      CompletableFuture<?> chunkFuture = _chunkFutures[chunkId];
+      if (_cancelled) {
+        chunkFuture.cancel(false);
+        continue;
+      }
+      try {
+        int endIndex = Math.min((chunkId + 1) * CHUNK_SIZE, messageCount);
+        for (int index = chunkId * CHUNK_SIZE; index < endIndex; index++) {
+          DecodedMessage decodedMessage = new DecodedMessage();
+          decode(taskId, index, decodedMessage);
+          _decodedMessages[index] = decodedMessage;
+        }
+        chunkFuture.complete(null);
+      } catch (Throwable t) {
+        chunkFuture.completeExceptionally(t);
+      }
+    }
+  }
+
+  private void decode(int decoderId, int index, DecodedMessage decodedMessage) {
+    StreamDataDecoderResult decoderResult = _decoders[decoderId].decode(_messageBatch.getStreamMessage(index));
+    decodedMessage._decoderResult = decoderResult;
+    decodedMessage._transformException = null;
+    if (decoderResult.getException() == null) {
+      try {
+        _transformPipelines[decoderId].processRow(decoderResult.getResult(), decodedMessage._transformResult);
+      } catch (Exception e) {
+        // When exception happens we prefer abandoning the whole message and not partially indexing some rows
+        decodedMessage._transformResult.getTransformedRows().clear();
+        decodedMessage._transformException = e;
+      }
+    }
+  }
+
+  /**
+   * Returns the decoded message at the given index of the current message batch, waiting for it to be decoded if
+   * necessary. Without executor, the returned message is reused for the next call.
+   */
+  DecodedMessage get(int index) {
+    if (_executorService == null) {
+      decode(0, index, _reusedDecodedMessage);
+      return _reusedDecodedMessage;
+    }
+    try {
+      Uninterruptibles.getUninterruptibly(_chunkFutures[index / CHUNK_SIZE]);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Caught exception while decoding message at index: " + index, e.getCause());
+    }
+    return _decodedMessages[index];
+  }
+
+  /**
+   * Stops decoding the current message batch and waits for the workers to be done with it, after which the decoders and
+   * transform pipelines can be used for the next message batch.
+   */
+  void finish() {
+    if (_taskFutures != null) {
+      _cancelled = true;
+      for (Future<?> taskFuture : _taskFutures) {
+        try {
+          Uninterruptibles.getUninterruptibly(taskFuture);
+        } catch (ExecutionException | CancellationException e) {
+          // Exceptions are reported to the consumer thread through the chunk futures
+        }
+      }
+    }
+    _messageBatch = null;
+    _decodedMessages = null;
+    _chunkFutures = null;
+    _taskFutures = null;
+    _cancelled = false;
+  }
+
+  /**
+   * Finishes the current message batch and shuts down the executor.
+   */
+  void close() {
+    finish();
+    if (_executorService != null) {
+      _executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Result of decoding and transforming a message.
+   */
+  static class DecodedMessage {
+    private final TransformPipeline.Result _transformResult = new TransformPipeline.Result();
+    private StreamDataDecoderResult _decoderResult;
+    private Exception _transformException;
+
+    StreamDataDecoderResult getDecoderResult() {
+      return _decoderResult;
+    }
+
+    /**
+     * Returns the result of the transform pipeline, only valid when the message is successfully decoded.
+     */
+    TransformPipeline.Result getTransformResult() {
+      return _transformResult;
+    }
+
+    /**
+     * Returns the exception thrown by the transform pipeline, in which case no row is transformed.
+     */
+    @Nullable
+    Exception getTransformException() {
+      return _transformException;
+    }
+  }
+}
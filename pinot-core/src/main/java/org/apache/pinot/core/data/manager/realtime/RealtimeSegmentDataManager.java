@@ -32,7 +32,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -50,6 +52,7 @@ import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.common.protocols.SegmentCompletionProtocol;
 import org.apache.pinot.common.restlet.resources.SegmentErrorInfo;
 import org.apache.pinot.common.utils.LLCSegmentName;
+import org.apache.pinot.common.utils.NamedThreadFactory;
 import org.apache.pinot.common.utils.TarCompressionUtils;
 import org.apache.pinot.core.data.manager.realtime.RealtimeConsumptionRateManager.ConsumptionRateLimiter;
 import org.apache.pinot.segment.local.data.manager.SegmentDataManager;
@@ -286,6 +289,7 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
   private final PartitionGroupConsumptionStatus _partitionGroupConsumptionStatus;
   final String _clientId;
   private final TransformPipeline _transformPipeline;
+  private final MessageBatchDecoder _messageBatchDecoder;
   private PartitionGroupConsumer _partitionGroupConsumer = null;
   private StreamMetadataProvider _partitionMetadataProvider = null;
   private final File _resourceTmpDir;
@@ -563,7 +567,7 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
     int streamMessageCount = 0;
     boolean canTakeMore = true;
 
-    TransformPipeline.Result reusedResult = new TransformPipeline.Result();
+    _messageBatchDecoder.start(messageBatch);
     boolean prematureExit = false;
 
     for (int index = 0; index < messageCount; index++) {
@@ -596,9 +600,10 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
         throw new RuntimeException("Realtime segment full");
       }
 
-      // Decode message
+      // Decode and transform message
       StreamMessage streamMessage = messageBatch.getStreamMessage(index);
-      StreamDataDecoderResult decodedRow = _streamDataDecoder.decode(streamMessage);
+      MessageBatchDecoder.DecodedMessage decodedMessage = _messageBatchDecoder.get(index);
+      StreamDataDecoderResult decodedRow = decodedMessage.getDecoderResult();
       StreamMessageMetadata metadata = streamMessage.getMetadata();
       StreamPartitionMsgOffset offset = null;
       StreamPartitionMsgOffset nextOffset = null;
@@ -620,17 +625,17 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
         _numRowsErrored++;
         _numBytesDropped += rowSizeInBytes;
       } else {
-        try {
-          _transformPipeline.processRow(decodedRow.getResult(), reusedResult);
-        } catch (Exception e) {
+        TransformPipeline.Result reusedResult = decodedMessage.getTransformResult();
+        Exception transformException = decodedMessage.getTransformException();
+        if (transformException != null) {
+          // No row is indexed for the message when transform fails
           _numRowsErrored++;
           _numBytesDropped += rowSizeInBytes;
-          // when exception happens we prefer abandoning the whole batch and not partially indexing some rows
-          reusedResult.getTransformedRows().clear();
           String errorMessage = "Caught exception while transforming the record at offset: " + offset + " , row: "
               + decodedRow.getResult();
-          _segmentLogger.error(errorMessage, e);
-          _realtimeTableDataManager.addSegmentError(_segmentNameStr, new SegmentErrorInfo(now(), errorMessage, e));
+          _segmentLogger.error(errorMessage, transformException);
+          _realtimeTableDataManager.addSegmentError(_segmentNameStr,
+              new SegmentErrorInfo(now(), errorMessage, transformException));
         }
         if (reusedResult.getSkippedRowCount() > 0) {
           realtimeRowsDroppedMeter = _serverMetrics.addMeteredTableValue(_clientId, ServerMeter.REALTIME_ROWS_FILTERED,
@@ -680,6 +685,7 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
       _numRowsConsumed++;
       streamMessageCount++;
     }
+    _messageBatchDecoder.finish();
 
     updateCurrentDocumentCountMetrics();
     if (messageBatch.getUnfilteredMessageCount() > 0) {
@@ -1436,6 +1442,7 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
 
   @Override
   protected void doDestroy() {
+    _messageBatchDecoder.close();
     _realtimeSegment.destroy();
   }
 
@@ -1533,10 +1540,12 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
         .createRateLimiter(_streamConfig, _tableNameWithType, _serverMetrics, _clientId);
     _serverRateLimiter = RealtimeConsumptionRateManager.getInstance().getServerRateLimiter();
 
+    int numDecodeThreads = 0;
     if (tableConfig.getIngestionConfig() != null
         && tableConfig.getIngestionConfig().getStreamIngestionConfig() != null) {
       _trackFilteredMessageOffsets =
           tableConfig.getIngestionConfig().getStreamIngestionConfig().isTrackFilteredMessageOffsets();
+      numDecodeThreads = tableConfig.getIngestionConfig().getStreamIngestionConfig().getNumDecodeThreads();
     }
 
     // Read the max number of rows
@@ -1605,6 +1614,8 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
           new SegmentErrorInfo(now(), "Failed to initialize the TransformPipeline", e));
       throw e;
     }
+    _messageBatchDecoder = numDecodeThreads > 0 ? createParallelMessageBatchDecoder(numDecodeThreads, fieldsToRead)
+        : new MessageBatchDecoder(_streamDataDecoder, _transformPipeline);
 
     // Acquire semaphore to create stream consumers
     try {
@@ -1910,6 +1921,27 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
     }
   }
 
+  /**
+   * Creates a {@link MessageBatchDecoder} which decodes and transforms the messages on a dedicated thread pool while
+   * the consumer thread indexes them, with one decoder and transform pipeline per thread.
+   */
+  private MessageBatchDecoder createParallelMessageBatchDecoder(int numDecodeThreads, Set<String> fieldsToRead) {
+    StreamDataDecoder[] decoders = new StreamDataDecoder[numDecodeThreads];
+    TransformPipeline[] transformPipelines = new TransformPipeline[numDecodeThreads];
+    for (int i = 0; i < numDecodeThreads; i++) {
+      // The decoded rows are kept until indexed, so they cannot be reused across messages
+      decoders[i] = new StreamDataDecoderImpl(createMessageDecoder(fieldsToRead), false);
+      transformPipelines[i] = new TransformPipeline(_tableConfig, _schema);
+    }
+    ThreadPoolExecutor executorService =
+        new ThreadPoolExecutor(numDecodeThreads, numDecodeThreads, 1L, TimeUnit.MINUTES, new LinkedBlockingQueue<>(),
+            new NamedThreadFactory(_segmentNameStr + "-decoder"));
+    // Release the threads once the segment stops consuming
+    executorService.allowCoreThreadTimeOut(true);
+    _segmentLogger.info("Decoding stream messages with {} threads", numDecodeThreads);
+    return new MessageBatchDecoder(decoders, transformPipelines, executorService);
+  }
+
   @Override
   public MutableSegment getSegment() {
     return _realtimeSegment;
@@ -52,6 +52,9 @@ public class ConcurrentIndexedTable extends IndexedTable {
   }
 
   protected void upsertWithOrderBy(Key key, Record record) {
+    if (isPruned(key)) {
+      return;
+    }
     _readWriteLock.readLock().lock();
     try {
       addOrUpdateRecord(key, record);
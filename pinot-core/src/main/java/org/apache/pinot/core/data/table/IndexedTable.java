@@ -46,10 +46,16 @@ public abstract class IndexedTable extends BaseTable {
   protected final TableResizer _tableResizer;
   protected final int _trimSize;
   protected final int _trimThreshold;
+  // Whether new groups can be pruned based on the trim boundary of the last resize. This is the case when ordering only
+  // on the group-by expressions, because the order of a group doesn't change when more records are merged into it.
+  protected final boolean _pruneGroupsOnTrimBoundary;
 
   protected Collection<Record> _topRecords;
   private int _numResizes;
   private long _resizeTimeNs;
+  // Groups ordered strictly after the trim boundary can never make it into the top records. The boundary only moves
+  // forward across resizes, so it is safe to read a stale value.
+  private volatile IntermediateRecord _trimBoundary;
 
   /**
    * Constructor for the IndexedTable.
@@ -84,6 +90,21 @@ public abstract class IndexedTable extends BaseTable {
     assert _hasOrderBy || (trimSize == Integer.MAX_VALUE && trimThreshold == Integer.MAX_VALUE);
     _trimSize = trimSize;
     _trimThreshold = trimThreshold;
+    _pruneGroupsOnTrimBoundary =
+        _hasOrderBy && resultSize <= trimSize && _tableResizer.isOrderByGroupByExpressionsOnly();
+  }
+
+  /**
+   * Returns {@code true} if the group with the given key can be skipped because it can never make it into the top
+   * records, i.e. it is ordered after the groups retained by the last resize. Groups already in the table are never
+   * pruned.
+   */
+  protected boolean isPruned(Key key) {
+    if (!_pruneGroupsOnTrimBoundary) {
+      return false;
+    }
+    IntermediateRecord trimBoundary = _trimBoundary;
+    return trimBoundary != null && _tableResizer.isOrderedAfter(key, trimBoundary);
   }
 
   @Override
@@ -132,7 +153,10 @@ public abstract class IndexedTable extends BaseTable {
   protected void resize() {
     assert _hasOrderBy;
     long startTimeNs = System.nanoTime();
-    _tableResizer.resizeRecordsMap(_lookupMap, _trimSize);
+    IntermediateRecord trimBoundary = _tableResizer.resizeRecordsMap(_lookupMap, _trimSize);
+    if (_pruneGroupsOnTrimBoundary && trimBoundary != null) {
+      _trimBoundary = trimBoundary;
+    }
     long resizeTimeNs = System.nanoTime() - startTimeNs;
     _numResizes++;
     _resizeTimeNs += resizeTimeNs;
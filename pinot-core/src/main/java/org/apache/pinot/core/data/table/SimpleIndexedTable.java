@@ -41,6 +41,9 @@ public class SimpleIndexedTable extends IndexedTable {
   @Override
   public boolean upsert(Key key, Record record) {
     if (_hasOrderBy) {
+      if (isPruned(key)) {
+        return true;
+      }
       addOrUpdateRecord(key, record);
       if (_lookupMap.size() >= _trimThreshold) {
         resize();
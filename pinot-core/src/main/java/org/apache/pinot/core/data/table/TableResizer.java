@@ -28,6 +28,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pinot.common.request.context.ExpressionContext;
 import org.apache.pinot.common.request.context.FilterContext;
@@ -57,6 +58,7 @@ public class TableResizer {
   private final Map<Pair<FunctionContext, FilterContext>, Integer> _filteredAggregationIndexMap;
   private final int _numOrderByExpressions;
   private final OrderByValueExtractor[] _orderByValueExtractors;
+  private final boolean _orderByGroupByExpressionsOnly;
   private final Comparator<IntermediateRecord> _intermediateRecordComparator;
 
   public TableResizer(DataSchema dataSchema, QueryContext queryContext) {
@@ -95,6 +97,15 @@ public class TableResizer {
       comparators[i] = orderByExpression.isAsc() ? Comparator.naturalOrder() : Comparator.reverseOrder();
       nullComparisonResults[i] = orderByExpression.isNullsLast() ? -1 : 1;
     }
+    boolean orderByGroupByExpressionsOnly = true;
+    for (OrderByValueExtractor extractor : _orderByValueExtractors) {
+      if (!(extractor instanceof LiteralExtractor) && !(extractor instanceof GroupByExpressionExtractor
+          && ((GroupByExpressionExtractor) extractor)._index < _numGroupByExpressions)) {
+        orderByGroupByExpressionsOnly = false;
+        break;
+      }
+    }
+    _orderByGroupByExpressionsOnly = orderByGroupByExpressionsOnly;
     boolean nullHandlingEnabled = queryContext.isNullHandlingEnabled();
     if (nullHandlingEnabled) {
       _intermediateRecordComparator = (o1, o2) -> {
@@ -177,13 +188,34 @@ public class TableResizer {
     return new IntermediateRecord(key, record, orderByValues);
   }
 
+  /**
+   * Returns whether the records are ordered only on the group-by expressions (and literals), in which case the order of
+   * a group is known from its key and doesn't change when more records are merged into the group.
+   */
+  public boolean isOrderByGroupByExpressionsOnly() {
+    return _orderByGroupByExpressionsOnly;
+  }
+
+  /**
+   * Returns whether the group with the given key is ordered strictly after the given record. Should only be called when
+   * {@link #isOrderByGroupByExpressionsOnly()} is true.
+   */
+  public boolean isOrderedAfter(Key key, IntermediateRecord record) {
+    assert _orderByGroupByExpressionsOnly;
+    return _intermediateRecordComparator.compare(getIntermediateRecord(key, new Record(key.getValues())), record) > 0;
+  }
+
   /**
    * Resizes the recordsMap to the given size.
+   *
+   * @return The trim boundary (the best evicted record or the worst retained record) such that any record ordered
+   *         strictly after it is not among the top records retained, or {@code null} if no record is evicted
    */
-  public void resizeRecordsMap(Map<Key, Record> recordsMap, int size) {
+  @Nullable
+  public IntermediateRecord resizeRecordsMap(Map<Key, Record> recordsMap, int size) {
     int numRecordsToEvict = recordsMap.size() - size;
     if (numRecordsToEvict <= 0) {
-      return;
+      return null;
     }
     if (numRecordsToEvict <= size) {
       // Fewer records to evict than retain, make a heap of records to evict
@@ -192,6 +224,8 @@ public class TableResizer {
       for (IntermediateRecord recordToEvict : recordsToEvict) {
         recordsMap.remove(recordToEvict._key);
       }
+      // The root of the heap is the best evicted record
+      return recordsToEvict[0];
     } else {
       // Fewer records to retain than evict, make a heap of records to retain
       IntermediateRecord[] recordsToRetain =
@@ -200,6 +234,8 @@ public class TableResizer {
       for (IntermediateRecord recordToRetain : recordsToRetain) {
         recordsMap.put(recordToRetain._key, recordToRetain._record);
       }
+      // The root of the heap is the worst retained record, or null when retaining nothing
+      return size > 0 ? recordsToRetain[0] : null;
     }
   }
 
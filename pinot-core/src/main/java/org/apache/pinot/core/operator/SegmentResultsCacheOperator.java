@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.operator;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import org.apache.pinot.core.common.Operator;
+import org.apache.pinot.core.operator.blocks.results.BaseResultsBlock;
+import org.apache.pinot.core.query.executor.SegmentResultsCache;
+import org.apache.pinot.core.query.executor.SegmentResultsCache.CachedResults;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.segment.spi.IndexSegment;
+
+
+/**
+ * Segment level operator backed by the {@link SegmentResultsCache}.
+ * <p>When the results of the segment are cached, it returns the cached results without running any child operator.
+ * Otherwise, it returns the results of the child operator and puts them into the cache for the following queries.
+ */
+public class SegmentResultsCacheOperator extends BaseOperator<BaseResultsBlock> {
+  private static final String EXPLAIN_NAME = "SEGMENT_RESULTS_CACHE";
+
+  private final IndexSegment _indexSegment;
+  private final QueryContext _queryContext;
+  private final CachedResults _cachedResults;
+  private final Operator<BaseResultsBlock> _childOperator;
+  private final SegmentResultsCache _segmentResultsCache;
+  private final String _cacheKey;
+
+  /**
+   * Serves the cached results.
+   */
+  public SegmentResultsCacheOperator(IndexSegment indexSegment, QueryContext queryContext,
+      CachedResults cachedResults) {
+    _indexSegment = indexSegment;
+    _queryContext = queryContext;
+    _cachedResults = cachedResults;
+    _childOperator = null;
+    _segmentResultsCache = null;
+    _cacheKey = null;
+  }
+
+  /**
+   * Computes the results with the child operator and caches them.
+   */
+  public SegmentResultsCacheOperator(IndexSegment indexSegment, QueryContext queryContext,
+      Operator<BaseResultsBlock> childOperator, SegmentResultsCache segmentResultsCache, String cacheKey) {
+    _indexSegment = indexSegment;
+    _queryContext = queryContext;
+    _cachedResults = null;
+    _childOperator = childOperator;
+    _segmentResultsCache = segmentResultsCache;
+    _cacheKey = cacheKey;
+  }
+
+  @Override
+  protected BaseResultsBlock getNextBlock() {
+    try {
+      if (_cachedResults != null) {
+        return _cachedResults.getResultsBlock(_queryContext);
+      }
+      BaseResultsBlock resultsBlock = _childOperator.nextBlock();
+      _segmentResultsCache.put(_cacheKey, resultsBlock, _childOperator.getExecutionStatistics().getNumDocsScanned());
+      return resultsBlock;
+    } catch (IOException e) {
+      throw new RuntimeException("Caught exception while accessing cached results for segment: "
+          + _indexSegment.getSegmentName(), e);
+    }
+  }
+
+  @Override
+  public List<Operator> getChildOperators() {
+    return _childOperator != null ? Collections.singletonList(_childOperator) : Collections.emptyList();
+  }
+
+  @Override
+  public IndexSegment getIndexSegment() {
+    return _indexSegment;
+  }
+
+  /**
+   * For cached results, only the number of documents scanned is reported so that the segment is still counted as
+   * matched, but no entry is scanned.
+   */
+  @Override
+  public ExecutionStatistics getExecutionStatistics() {
+    if (_cachedResults != null) {
+      return new ExecutionStatistics(_cachedResults.getNumDocsScanned(), 0, 0,
+          _indexSegment.getSegmentMetadata().getTotalDocs());
+    }
+    return _childOperator.getExecutionStatistics();
+  }
+
+  @Override
+  public String toExplainString() {
+    return EXPLAIN_NAME;
+  }
+}
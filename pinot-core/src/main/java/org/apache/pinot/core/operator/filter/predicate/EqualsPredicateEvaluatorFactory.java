@@ -126,12 +126,13 @@ public class EqualsPredicateEvaluatorFactory {
     @Override
     public int applySV(int limit, int[] docIds, int[] values) {
       // reimplemented here to ensure applySV can be inlined
+      // Always write the docId and only advance on match, so that the loop has no data dependent branch. The other
+      // batch applySV() methods of the EQ and range predicate evaluators compact the docIds the same way.
       int matches = 0;
       for (int i = 0; i < limit; i++) {
         int value = values[i];
-        if (applySV(value)) {
-          docIds[matches++] = docIds[i];
-        }
+        docIds[matches] = docIds[i];
+        matches += applySV(value) ? 1 : 0;
       }
       return matches;
     }
@@ -194,9 +195,8 @@ public class EqualsPredicateEvaluatorFactory {
       int matches = 0;
       for (int i = 0; i < limit; i++) {
         int value = values[i];
-        if (applySV(value)) {
-          docIds[matches++] = docIds[i];
-        }
+        docIds[matches] = docIds[i];
+        matches += applySV(value) ? 1 : 0;
       }
       return matches;
     }
@@ -247,9 +247,8 @@ public class EqualsPredicateEvaluatorFactory {
       int matches = 0;
       for (int i = 0; i < limit; i++) {
         long value = values[i];
-        if (applySV(value)) {
-          docIds[matches++] = docIds[i];
-        }
+        docIds[matches] = docIds[i];
+        matches += applySV(value) ? 1 : 0;
       }
       return matches;
     }
@@ -295,9 +294,8 @@ public class EqualsPredicateEvaluatorFactory {
       int matches = 0;
       for (int i = 0; i < limit; i++) {
         float value = values[i];
-        if (applySV(value)) {
-          docIds[matches++] = docIds[i];
-        }
+        docIds[matches] = docIds[i];
+        matches += applySV(value) ? 1 : 0;
       }
       return matches;
     }
@@ -343,9 +341,8 @@ public class EqualsPredicateEvaluatorFactory {
       int matches = 0;
       for (int i = 0; i < limit; i++) {
         double value = values[i];
-        if (applySV(value)) {
-          docIds[matches++] = docIds[i];
-        }
+        docIds[matches] = docIds[i];
+        matches += applySV(value) ? 1 : 0;
       }
       return matches;
     }
@@ -371,9 +371,8 @@ public class RangePredicateEvaluatorFactory {
       int matches = 0;
       for (int i = 0; i < limit; i++) {
         int value = values[i];
-        if (applySV(value)) {
-          docIds[matches++] = docIds[i];
-        }
+        docIds[matches] = docIds[i];
+        matches += applySV(value) ? 1 : 0;
       }
       return matches;
     }
@@ -427,9 +426,8 @@ public class RangePredicateEvaluatorFactory {
       int matches = 0;
       for (int i = 0; i < limit; i++) {
         long value = values[i];
-        if (applySV(value)) {
-          docIds[matches++] = docIds[i];
-        }
+        docIds[matches] = docIds[i];
+        matches += applySV(value) ? 1 : 0;
       }
       return matches;
     }
@@ -483,9 +481,8 @@ public class RangePredicateEvaluatorFactory {
       int matches = 0;
       for (int i = 0; i < limit; i++) {
         float value = values[i];
-        if (applySV(value)) {
-          docIds[matches++] = docIds[i];
-        }
+        docIds[matches] = docIds[i];
+        matches += applySV(value) ? 1 : 0;
       }
       return matches;
     }
@@ -539,9 +536,8 @@ public class RangePredicateEvaluatorFactory {
       int matches = 0;
       for (int i = 0; i < limit; i++) {
         double value = values[i];
-        if (applySV(value)) {
-          docIds[matches++] = docIds[i];
-        }
+        docIds[matches] = docIds[i];
+        matches += applySV(value) ? 1 : 0;
       }
       return matches;
     }
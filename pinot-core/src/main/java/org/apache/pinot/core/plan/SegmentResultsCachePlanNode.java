@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.plan;
+
+import org.apache.pinot.core.common.Operator;
+import org.apache.pinot.core.operator.SegmentResultsCacheOperator;
+import org.apache.pinot.core.operator.blocks.results.BaseResultsBlock;
+import org.apache.pinot.core.query.executor.SegmentResultsCache;
+import org.apache.pinot.core.query.executor.SegmentResultsCache.CachedResults;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.segment.spi.IndexSegment;
+
+
+/**
+ * Segment level plan node backed by the {@link SegmentResultsCache}. The cache is looked up when making the plan, so
+ * that the segment is not planned at all when its results are cached.
+ */
+public class SegmentResultsCachePlanNode implements PlanNode {
+  private final IndexSegment _indexSegment;
+  private final QueryContext _queryContext;
+  private final CachedResults _cachedResults;
+  private final PlanNode _childPlanNode;
+  private final SegmentResultsCache _segmentResultsCache;
+  private final String _cacheKey;
+
+  /**
+   * Serves the cached results.
+   */
+  public SegmentResultsCachePlanNode(IndexSegment indexSegment, QueryContext queryContext,
+      CachedResults cachedResults) {
+    _indexSegment = indexSegment;
+    _queryContext = queryContext;
+    _cachedResults = cachedResults;
+    _childPlanNode = null;
+    _segmentResultsCache = null;
+    _cacheKey = null;
+  }
+
+  /**
+   * Runs the child plan and caches its results.
+   */
+  public SegmentResultsCachePlanNode(IndexSegment indexSegment, QueryContext queryContext, PlanNode childPlanNode,
+      SegmentResultsCache segmentResultsCache, String cacheKey) {
+    _indexSegment = indexSegment;
+    _queryContext = queryContext;
+    _cachedResults = null;
+    _childPlanNode = childPlanNode;
+    _segmentResultsCache = segmentResultsCache;
+    _cacheKey = cacheKey;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public SegmentResultsCacheOperator run() {
+    if (_cachedResults != null) {
+      return new SegmentResultsCacheOperator(_indexSegment, _queryContext, _cachedResults);
+    }
+    return new SegmentResultsCacheOperator(_indexSegment, _queryContext,
+        (Operator<BaseResultsBlock>) _childPlanNode.run(), _segmentResultsCache, _cacheKey);
+  }
+}
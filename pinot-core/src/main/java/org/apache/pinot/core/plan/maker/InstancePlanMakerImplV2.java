@@ -25,8 +25,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import javax.annotation.Nullable;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
+import org.apache.pinot.common.metrics.ServerMeter;
 import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.common.request.context.ExpressionContext;
 import org.apache.pinot.common.request.context.FilterContext;
@@ -42,11 +44,13 @@ import org.apache.pinot.core.plan.GroupByPlanNode;
 import org.apache.pinot.core.plan.InstanceResponsePlanNode;
 import org.apache.pinot.core.plan.Plan;
 import org.apache.pinot.core.plan.PlanNode;
+import org.apache.pinot.core.plan.SegmentResultsCachePlanNode;
 import org.apache.pinot.core.plan.SelectionPlanNode;
 import org.apache.pinot.core.plan.StreamingInstanceResponsePlanNode;
 import org.apache.pinot.core.plan.StreamingSelectionPlanNode;
 import org.apache.pinot.core.plan.TimeSeriesPlanNode;
 import org.apache.pinot.core.query.executor.ResultsBlockStreamer;
+import org.apache.pinot.core.query.executor.SegmentResultsCache;
 import org.apache.pinot.core.query.prefetch.FetchPlanner;
 import org.apache.pinot.core.query.prefetch.FetchPlannerRegistry;
 import org.apache.pinot.core.query.request.context.QueryContext;
@@ -90,6 +94,10 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
   public static final String GROUPBY_TRIM_THRESHOLD_KEY = "groupby.trim.threshold";
   public static final int DEFAULT_GROUPBY_TRIM_THRESHOLD = 1_000_000;
 
+  // Size budget of the segment results cache, where 0 disables the cache
+  public static final String SEGMENT_RESULTS_CACHE_MAX_SIZE_BYTES_KEY = "segment.results.cache.max.size.bytes";
+  public static final long DEFAULT_SEGMENT_RESULTS_CACHE_MAX_SIZE_BYTES = 0;
+
   private static final Logger LOGGER = LoggerFactory.getLogger(InstancePlanMakerImplV2.class);
 
   private final FetchPlanner _fetchPlanner = FetchPlannerRegistry.getPlanner();
@@ -102,6 +110,7 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
   private int _minSegmentGroupTrimSize = DEFAULT_MIN_SEGMENT_GROUP_TRIM_SIZE;
   private int _minServerGroupTrimSize = DEFAULT_MIN_SERVER_GROUP_TRIM_SIZE;
   private int _groupByTrimThreshold = DEFAULT_GROUPBY_TRIM_THRESHOLD;
+  private SegmentResultsCache _segmentResultsCache;
 
   public InstancePlanMakerImplV2() {
   }
@@ -127,10 +136,16 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
     _groupByTrimThreshold = queryExecutorConfig.getProperty(GROUPBY_TRIM_THRESHOLD_KEY, DEFAULT_GROUPBY_TRIM_THRESHOLD);
     Preconditions.checkState(_groupByTrimThreshold > 0,
         "Invalid configurable: groupByTrimThreshold: %d must be positive", _groupByTrimThreshold);
+    long segmentResultsCacheMaxSizeBytes = queryExecutorConfig.getProperty(SEGMENT_RESULTS_CACHE_MAX_SIZE_BYTES_KEY,
+        DEFAULT_SEGMENT_RESULTS_CACHE_MAX_SIZE_BYTES);
+    if (segmentResultsCacheMaxSizeBytes > 0) {
+      _segmentResultsCache = new SegmentResultsCache(segmentResultsCacheMaxSizeBytes);
+    }
     LOGGER.info("Initialized plan maker with maxExecutionThreads: {}, maxInitialResultHolderCapacity: {}, "
-            + "numGroupsLimit: {}, minSegmentGroupTrimSize: {}, minServerGroupTrimSize: {}, groupByTrimThreshold: {}",
-        _maxExecutionThreads, _maxInitialResultHolderCapacity, _numGroupsLimit, _minSegmentGroupTrimSize,
-        _minServerGroupTrimSize, _groupByTrimThreshold);
+            + "numGroupsLimit: {}, minSegmentGroupTrimSize: {}, minServerGroupTrimSize: {}, groupByTrimThreshold: {}, "
+            + "segmentResultsCacheMaxSizeBytes: {}", _maxExecutionThreads, _maxInitialResultHolderCapacity,
+        _numGroupsLimit, _minSegmentGroupTrimSize, _minServerGroupTrimSize, _groupByTrimThreshold,
+        segmentResultsCacheMaxSizeBytes);
   }
 
   @VisibleForTesting
@@ -163,10 +178,18 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
     _groupByTrimThreshold = groupByTrimThreshold;
   }
 
+  @VisibleForTesting
+  public void setSegmentResultsCache(@Nullable SegmentResultsCache segmentResultsCache) {
+    _segmentResultsCache = segmentResultsCache;
+  }
+
   public Plan makeInstancePlan(List<SegmentContext> segmentContexts, QueryContext queryContext,
       ExecutorService executorService, ServerMetrics serverMetrics) {
     applyQueryOptions(queryContext);
 
+    // Compute the query fingerprint before the query context is rewritten for each segment
+    String queryFingerprint =
+        _segmentResultsCache != null ? SegmentResultsCache.getQueryFingerprint(queryContext) : null;
     int numSegments = segmentContexts.size();
     List<PlanNode> planNodes = new ArrayList<>(numSegments);
     List<FetchContext> fetchContexts;
@@ -176,14 +199,14 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
         FetchContext fetchContext =
             _fetchPlanner.planFetchForProcessing(segmentContext.getIndexSegment(), queryContext);
         fetchContexts.add(fetchContext);
-        planNodes.add(
-            new AcquireReleaseColumnsSegmentPlanNode(makeSegmentPlanNode(segmentContext, queryContext), segmentContext,
-                fetchContext));
+        planNodes.add(new AcquireReleaseColumnsSegmentPlanNode(
+            makeCachedSegmentPlanNode(segmentContext, queryContext, queryFingerprint, serverMetrics), segmentContext,
+            fetchContext));
       }
     } else {
       fetchContexts = Collections.emptyList();
       for (SegmentContext segmentContext : segmentContexts) {
-        planNodes.add(makeSegmentPlanNode(segmentContext, queryContext));
+        planNodes.add(makeCachedSegmentPlanNode(segmentContext, queryContext, queryFingerprint, serverMetrics));
       }
     }
 
@@ -266,6 +289,31 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
     }
   }
 
+  /**
+   * Makes the segment level plan node backed by the segment results cache when the results of the segment can be
+   * cached, or the regular segment level plan node otherwise.
+   */
+  private PlanNode makeCachedSegmentPlanNode(SegmentContext segmentContext, QueryContext queryContext,
+      @Nullable String queryFingerprint, @Nullable ServerMetrics serverMetrics) {
+    if (queryFingerprint != null) {
+      IndexSegment indexSegment = segmentContext.getIndexSegment();
+      String cacheKey = SegmentResultsCache.getCacheKey(queryFingerprint, indexSegment);
+      if (cacheKey != null) {
+        SegmentResultsCache.CachedResults cachedResults = _segmentResultsCache.get(cacheKey);
+        if (serverMetrics != null) {
+          serverMetrics.addMeteredGlobalValue(cachedResults != null ? ServerMeter.SEGMENT_RESULTS_CACHE_HITS
+              : ServerMeter.SEGMENT_RESULTS_CACHE_MISSES, 1);
+        }
+        if (cachedResults != null) {
+          return new SegmentResultsCachePlanNode(indexSegment, queryContext, cachedResults);
+        }
+        return new SegmentResultsCachePlanNode(indexSegment, queryContext,
+            makeSegmentPlanNode(segmentContext, queryContext), _segmentResultsCache, cacheKey);
+      }
+    }
+    return makeSegmentPlanNode(segmentContext, queryContext);
+  }
+
   @Override
   public PlanNode makeSegmentPlanNode(SegmentContext segmentContext, QueryContext queryContext) {
     rewriteQueryContextWithHints(queryContext, segmentContext.getIndexSegment());
@@ -0,0 +1,260 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.executor;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+import org.apache.pinot.common.datablock.DataBlock;
+import org.apache.pinot.common.datablock.DataBlockUtils;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.common.utils.config.QueryOptionsUtils;
+import org.apache.pinot.core.common.datablock.DataBlockBuilder;
+import org.apache.pinot.core.data.table.IntermediateRecord;
+import org.apache.pinot.core.data.table.Key;
+import org.apache.pinot.core.data.table.Record;
+import org.apache.pinot.core.operator.blocks.results.AggregationResultsBlock;
+import org.apache.pinot.core.operator.blocks.results.BaseResultsBlock;
+import org.apache.pinot.core.operator.blocks.results.GroupByResultsBlock;
+import org.apache.pinot.core.query.aggregation.function.AggregationFunction;
+import org.apache.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
+import org.apache.pinot.core.query.aggregation.groupby.GroupKeyGenerator;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.core.query.request.context.utils.QueryContextUtils;
+import org.apache.pinot.core.util.DataBlockExtractUtils;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.spi.utils.CommonConstants.Broker.Request.QueryOptionKey;
+
+
+/**
+ * Server-side cache of the segment level results of the aggregation and group-by queries, keyed on the query
+ * fingerprint and the name and CRC of the segment.
+ * <p>Only the immutable segments without valid doc ids (i.e. not upsert or dedup) are cached because their results
+ * never change until the segment is replaced, in which case the CRC changes. The intermediate results are serialized
+ * as a {@link DataBlock} into a direct buffer, which keeps the cached results off-heap and protects them from the
+ * in-place merge of the combine operators. The cache is bounded by the total size of the serialized results and
+ * evicts the least recently used entries.
+ * <p>The cache can be bypassed for a query with the {@code skipSegmentResultsCache} query option. It is independent of
+ * the {@code skipResultCache} query option, which only bypasses the broker query result cache.
+ */
+@SuppressWarnings("rawtypes")
+public class SegmentResultsCache {
+  // Rough estimate of the heap size of a cache entry besides the serialized results
+  private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+  private final Cache<String, CachedResults> _cache;
+
+  public SegmentResultsCache(long maxSizeInBytes) {
+    _cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxSizeInBytes)
+        .weigher((String cacheKey, CachedResults cachedResults) -> ENTRY_OVERHEAD_BYTES + 2 * cacheKey.length()
+            + cachedResults._data.capacity())
+        .build();
+  }
+
+  /**
+   * Returns the fingerprint of the query for the cache key, or {@code null} if the query results should not be cached.
+   * The fingerprint contains everything that can affect the segment level results, but not the query timeout which
+   * differs for each query, or the option to bypass the broker query result cache.
+   */
+  @Nullable
+  public static String getQueryFingerprint(QueryContext queryContext) {
+    Map<String, String> queryOptions = queryContext.getQueryOptions();
+    if (queryContext.isExplain() || QueryContextUtils.isTimeSeriesQuery(queryContext)
+        || !QueryContextUtils.isAggregationQuery(queryContext)
+        || QueryOptionsUtils.isSkipSegmentResultsCache(queryOptions)) {
+      return null;
+    }
+    Map<String, String> sortedQueryOptions = new TreeMap<>(queryOptions);
+    sortedQueryOptions.remove(QueryOptionKey.TIMEOUT_MS);
+    sortedQueryOptions.remove(QueryOptionKey.SKIP_RESULT_CACHE);
+    return queryContext.getTableName() + '|' + queryContext.getSelectExpressions() + '|' + queryContext.getFilter()
+        + '|' + queryContext.getGroupByExpressions() + '|' + queryContext.getOrderByExpressions() + '|'
+        + queryContext.getLimit() + '|' + queryContext.isNullHandlingEnabled() + '|'
+        + queryContext.getExpressionOverrideHints() + '|' + sortedQueryOptions;
+  }
+
+  /**
+   * Returns the cache key of the given segment for the query fingerprint, or {@code null} if the results of the segment
+   * should not be cached.
+   */
+  @Nullable
+  public static String getCacheKey(String queryFingerprint, IndexSegment indexSegment) {
+    if (!(indexSegment instanceof ImmutableSegment) || indexSegment.getValidDocIds() != null
+        || indexSegment.getQueryableDocIds() != null) {
+      return null;
+    }
+    String crc = indexSegment.getSegmentMetadata().getCrc();
+    if (crc == null) {
+      return null;
+    }
+    return indexSegment.getSegmentName() + '|' + crc + '|' + queryFingerprint;
+  }
+
+  @Nullable
+  public CachedResults get(String cacheKey) {
+    return _cache.getIfPresent(cacheKey);
+  }
+
+  /**
+   * Caches the given segment level results if they are cacheable.
+   */
+  public void put(String cacheKey, BaseResultsBlock resultsBlock, long numDocsScanned)
+      throws IOException {
+    ByteBuffer data = serialize(resultsBlock);
+    if (data != null) {
+      _cache.put(cacheKey, new CachedResults(data, numDocsScanned, resultsBlock instanceof GroupByResultsBlock));
+    }
+  }
+
+  @VisibleForTesting
+  long size() {
+    _cache.cleanUp();
+    return _cache.size();
+  }
+
+  /**
+   * Serializes the segment level results into a direct buffer, or returns {@code null} if the results cannot be
+   * cached.
+   */
+  @Nullable
+  private static ByteBuffer serialize(BaseResultsBlock resultsBlock)
+      throws IOException {
+    DataSchema dataSchema;
+    List<Object[]> rows;
+    if (resultsBlock instanceof AggregationResultsBlock) {
+      AggregationResultsBlock aggregationResultsBlock = (AggregationResultsBlock) resultsBlock;
+      AggregationFunction[] aggregationFunctions = aggregationResultsBlock.getAggregationFunctions();
+      List<Object> results = aggregationResultsBlock.getResults();
+      int numColumns = results.size();
+      String[] columnNames = new String[numColumns];
+      ColumnDataType[] columnDataTypes = new ColumnDataType[numColumns];
+      for (int i = 0; i < numColumns; i++) {
+        columnNames[i] = aggregationFunctions[i].getResultColumnName();
+        columnDataTypes[i] = aggregationFunctions[i].getIntermediateResultColumnType();
+      }
+      dataSchema = new DataSchema(columnNames, columnDataTypes);
+      rows = Collections.singletonList(results.toArray());
+    } else if (resultsBlock instanceof GroupByResultsBlock) {
+      GroupByResultsBlock groupByResultsBlock = (GroupByResultsBlock) resultsBlock;
+      // Results with groups dropped cannot be reused for a different set of segments
+      if (groupByResultsBlock.isNumGroupsLimitReached()) {
+        return null;
+      }
+      dataSchema = groupByResultsBlock.getDataSchema();
+      rows = getGroupByRows(groupByResultsBlock);
+    } else {
+      return null;
+    }
+    List<ByteBuffer> buffers = DataBlockUtils.serialize(DataBlockBuilder.buildFromRows(rows, dataSchema));
+    int sizeInBytes = 0;
+    for (ByteBuffer buffer : buffers) {
+      sizeInBytes += buffer.remaining();
+    }
+    ByteBuffer data = ByteBuffer.allocateDirect(sizeInBytes);
+    for (ByteBuffer buffer : buffers) {
+      data.put(buffer);
+    }
+    return data.flip();
+  }
+
+  private static List<Object[]> getGroupByRows(GroupByResultsBlock groupByResultsBlock) {
+    Collection<IntermediateRecord> intermediateRecords = groupByResultsBlock.getIntermediateRecords();
+    if (intermediateRecords != null) {
+      List<Object[]> rows = new ArrayList<>(intermediateRecords.size());
+      for (IntermediateRecord intermediateRecord : intermediateRecords) {
+        rows.add(intermediateRecord._record.getValues());
+      }
+      return rows;
+    }
+    AggregationGroupByResult aggregationGroupByResult = groupByResultsBlock.getAggregationGroupByResult();
+    if (aggregationGroupByResult == null) {
+      return Collections.emptyList();
+    }
+    int numColumns = groupByResultsBlock.getDataSchema().size();
+    int numGroupByExpressions = groupByResultsBlock.getQueryContext().getGroupByExpressions().size();
+    int numAggregationFunctions = numColumns - numGroupByExpressions;
+    List<Object[]> rows = new ArrayList<>(aggregationGroupByResult.getNumGroups());
+    Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator = aggregationGroupByResult.getGroupKeyIterator();
+    while (groupKeyIterator.hasNext()) {
+      GroupKeyGenerator.GroupKey groupKey = groupKeyIterator.next();
+      Object[] row = Arrays.copyOf(groupKey._keys, numColumns);
+      for (int i = 0; i < numAggregationFunctions; i++) {
+        row[numGroupByExpressions + i] = aggregationGroupByResult.getResultForGroupId(i, groupKey._groupId);
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  /**
+   * Serialized segment level results in the cache.
+   */
+  public static class CachedResults {
+    private final ByteBuffer _data;
+    private final long _numDocsScanned;
+    private final boolean _groupBy;
+
+    private CachedResults(ByteBuffer data, long numDocsScanned, boolean groupBy) {
+      _data = data;
+      _numDocsScanned = numDocsScanned;
+      _groupBy = groupBy;
+    }
+
+    public long getNumDocsScanned() {
+      return _numDocsScanned;
+    }
+
+    /**
+     * Deserializes the cached results into a new results block for the given query. The returned results block can be
+     * modified freely.
+     */
+    public BaseResultsBlock getResultsBlock(QueryContext queryContext)
+        throws IOException {
+      DataBlock dataBlock = DataBlockUtils.readFrom(_data.duplicate());
+      List<Object[]> rows = DataBlockExtractUtils.extractRows(dataBlock);
+      if (_groupBy) {
+        DataSchema dataSchema = dataBlock.getDataSchema();
+        int numGroupByExpressions = queryContext.getGroupByExpressions().size();
+        List<IntermediateRecord> intermediateRecords = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+          Key key = new Key(Arrays.copyOf(row, numGroupByExpressions));
+          intermediateRecords.add(new IntermediateRecord(key, new Record(row), null));
+        }
+        return new GroupByResultsBlock(dataSchema, intermediateRecords, queryContext);
+      } else {
+        return new AggregationResultsBlock(queryContext.getAggregationFunctions(), Arrays.asList(rows.get(0)),
+            queryContext);
+      }
+    }
+  }
+}
@@ -107,6 +107,7 @@ public abstract class PriorityScheduler extends QueryScheduler {
               @Override
               public void run() {
                 executor.releaseWorkers();
+                onQueryEnd(request);
                 request.getSchedulerGroup().endQuery();
                 _runningQueriesSemaphore.release();
                 checkStopResourceManager();
@@ -117,6 +118,7 @@ public abstract class PriorityScheduler extends QueryScheduler {
             }, MoreExecutors.directExecutor());
             request.setResultFuture(queryFutureTask);
             request.getSchedulerGroup().startQuery();
+            onQueryStart(request);
             queryRequest.getTimerContext().getPhaseTimer(ServerQueryPhase.SCHEDULER_WAIT).stopAndRecord();
             _resourceManager.getQueryRunners().submit(queryFutureTask);
           } catch (Throwable t) {
@@ -138,6 +140,18 @@ public abstract class PriorityScheduler extends QueryScheduler {
     _scheduler.start();
   }
 
+  /**
+   * Invoked right before the query is submitted to the query runners.
+   */
+  protected void onQueryStart(SchedulerQueryContext request) {
+  }
+
+  /**
+   * Invoked when the query finishes execution, before the scheduler group is notified.
+   */
+  protected void onQueryEnd(SchedulerQueryContext request) {
+  }
+
   @Override
   public void stop() {
     super.stop();
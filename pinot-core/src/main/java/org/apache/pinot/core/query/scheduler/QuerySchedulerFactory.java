@@ -26,6 +26,7 @@ import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.core.query.executor.QueryExecutor;
 import org.apache.pinot.core.query.scheduler.fcfs.BoundedFCFSScheduler;
 import org.apache.pinot.core.query.scheduler.fcfs.FCFSQueryScheduler;
+import org.apache.pinot.core.query.scheduler.resourceusage.ResourceUsageScheduler;
 import org.apache.pinot.core.query.scheduler.tokenbucket.TokenPriorityScheduler;
 import org.apache.pinot.spi.env.PinotConfiguration;
 import org.apache.pinot.spi.plugin.PluginManager;
@@ -46,6 +47,7 @@ public class QuerySchedulerFactory {
   public static final String TOKEN_BUCKET_ALGORITHM = "tokenbucket";
   public static final String BOUNDED_FCFS_ALGORITHM = "bounded_fcfs";
   public static final String BINARY_WORKLOAD_ALGORITHM = "binary_workload";
+  public static final String RESOURCE_USAGE_ALGORITHM = "resource_usage";
   public static final String ALGORITHM_NAME_CONFIG_KEY = "name";
   public static final String DEFAULT_QUERY_SCHEDULER_ALGORITHM = FCFS_ALGORITHM;
 
@@ -77,6 +79,9 @@ public class QuerySchedulerFactory {
       case BINARY_WORKLOAD_ALGORITHM:
         scheduler = new BinaryWorkloadScheduler(schedulerConfig, queryExecutor, serverMetrics, latestQueryTime);
         break;
+      case RESOURCE_USAGE_ALGORITHM:
+        scheduler = ResourceUsageScheduler.create(schedulerConfig, queryExecutor, serverMetrics, latestQueryTime);
+        break;
       default:
         scheduler =
             getQuerySchedulerByClassName(schedulerName, schedulerConfig, queryExecutor, serverMetrics, latestQueryTime);
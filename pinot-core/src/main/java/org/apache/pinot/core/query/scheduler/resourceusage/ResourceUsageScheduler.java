@@ -0,0 +1,264 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.scheduler.resourceusage;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import javax.annotation.Nullable;
+import org.apache.pinot.common.exception.QueryException;
+import org.apache.pinot.common.metrics.ServerMeter;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.utils.NamedThreadFactory;
+import org.apache.pinot.core.query.executor.QueryExecutor;
+import org.apache.pinot.core.query.request.ServerQueryRequest;
+import org.apache.pinot.core.query.scheduler.MultiLevelPriorityQueue;
+import org.apache.pinot.core.query.scheduler.PriorityScheduler;
+import org.apache.pinot.core.query.scheduler.SchedulerGroupFactory;
+import org.apache.pinot.core.query.scheduler.SchedulerQueryContext;
+import org.apache.pinot.core.query.scheduler.TableBasedGroupMapper;
+import org.apache.pinot.core.query.scheduler.resources.PolicyBasedResourceManager;
+import org.apache.pinot.core.query.scheduler.resources.ResourceManager;
+import org.apache.pinot.spi.accounting.QueryResourceTracker;
+import org.apache.pinot.spi.env.PinotConfiguration;
+import org.apache.pinot.spi.trace.Tracing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Schedules queries from a {@link ResourceUsageSchedulerGroup} with the lowest recent resource usage on priority.
+ *
+ * The resource usage (CPU time and allocated bytes) of the running queries is periodically sampled from the thread
+ * resource usage accountant (e.g. the one created by PerQueryCPUMemAccountantFactory), and charged to the per-table
+ * scheduler groups. When the accountant doesn't track a query (e.g. CPU/memory sampling is disabled), the wall clock
+ * time of the query runner thread is charged instead.
+ *
+ * Queries are admitted, queued or rejected as follows:
+ * <ul>
+ *   <li>Queued queries are picked from the group with the lowest recent usage, so that a heavy table cannot starve the
+ *   light (latency sensitive) ones. Per-table thread limits are still enforced by the {@link ResourceManager}.</li>
+ *   <li>When the heap usage is above the configured ratio, new queries from the groups taking more than the configured
+ *   share of the total usage are rejected with out of capacity error, while the other groups are still admitted.</li>
+ * </ul>
+ */
+public class ResourceUsageScheduler extends PriorityScheduler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResourceUsageScheduler.class);
+  private static final MemoryMXBean MEMORY_MX_BEAN = ManagementFactory.getMemoryMXBean();
+  private static final long BYTES_PER_MB = 1024 * 1024;
+
+  public static final String USAGE_SAMPLING_INTERVAL_MS_KEY = "usage_sampling_interval_ms";
+  public static final String USAGE_DECAY_FACTOR_KEY = "usage_decay_factor";
+  // Cost (in CPU nanoseconds) of allocating 1MB of memory, used to combine CPU time and allocated bytes
+  public static final String ALLOCATED_MB_COST_NS_KEY = "allocated_mb_cost_ns";
+  // Heap usage ratio above which queries from the heavy groups are rejected, non-positive value disables rejection
+  public static final String REJECT_HEAP_USAGE_RATIO_KEY = "reject_heap_usage_ratio";
+  // Minimum share of the total usage for a group to be considered heavy
+  public static final String REJECT_MIN_USAGE_SHARE_KEY = "reject_min_usage_share";
+  private static final int DEFAULT_USAGE_SAMPLING_INTERVAL_MS = 100;
+  private static final double DEFAULT_USAGE_DECAY_FACTOR = 0.8;
+  private static final long DEFAULT_ALLOCATED_MB_COST_NS = 1_000_000L;
+  private static final double DEFAULT_REJECT_HEAP_USAGE_RATIO = 0.9;
+  private static final double DEFAULT_REJECT_MIN_USAGE_SHARE = 0.5;
+
+  private final Map<String, ResourceUsageSchedulerGroup> _schedulerGroups;
+  private final Map<String, RunningQuery> _runningQueries = new ConcurrentHashMap<>();
+  private final int _usageSamplingIntervalMs;
+  private final double _usageDecayFactor;
+  private final long _allocatedMBCostNs;
+  private final double _rejectHeapUsageRatio;
+  private final double _rejectMinUsageShare;
+
+  private ScheduledExecutorService _usageSampler;
+  private volatile double _totalUsage;
+  private volatile double _heapUsageRatio;
+
+  public static ResourceUsageScheduler create(PinotConfiguration config, QueryExecutor queryExecutor,
+      ServerMetrics metrics, LongAccumulator latestQueryTime) {
+    final ResourceManager rm = new PolicyBasedResourceManager(config);
+    final Map<String, ResourceUsageSchedulerGroup> schedulerGroups = new ConcurrentHashMap<>();
+    final SchedulerGroupFactory groupFactory = new SchedulerGroupFactory() {
+      @Override
+      public ResourceUsageSchedulerGroup create(PinotConfiguration config, String groupName) {
+        return schedulerGroups.computeIfAbsent(groupName, ResourceUsageSchedulerGroup::new);
+      }
+    };
+
+    MultiLevelPriorityQueue queue = new MultiLevelPriorityQueue(config, rm, groupFactory, new TableBasedGroupMapper());
+    return new ResourceUsageScheduler(config, rm, queryExecutor, queue, metrics, latestQueryTime, schedulerGroups);
+  }
+
+  @VisibleForTesting
+  ResourceUsageScheduler(PinotConfiguration config, ResourceManager resourceManager, QueryExecutor queryExecutor,
+      MultiLevelPriorityQueue queue, ServerMetrics metrics, LongAccumulator latestQueryTime,
+      Map<String, ResourceUsageSchedulerGroup> schedulerGroups) {
+    super(config, resourceManager, queryExecutor, queue, metrics, latestQueryTime);
+    _schedulerGroups = schedulerGroups;
+    _usageSamplingIntervalMs = config.getProperty(USAGE_SAMPLING_INTERVAL_MS_KEY, DEFAULT_USAGE_SAMPLING_INTERVAL_MS);
+    _usageDecayFactor = config.getProperty(USAGE_DECAY_FACTOR_KEY, DEFAULT_USAGE_DECAY_FACTOR);
+    _allocatedMBCostNs = config.getProperty(ALLOCATED_MB_COST_NS_KEY, DEFAULT_ALLOCATED_MB_COST_NS);
+    _rejectHeapUsageRatio = config.getProperty(REJECT_HEAP_USAGE_RATIO_KEY, DEFAULT_REJECT_HEAP_USAGE_RATIO);
+    _rejectMinUsageShare = config.getProperty(REJECT_MIN_USAGE_SHARE_KEY, DEFAULT_REJECT_MIN_USAGE_SHARE);
+    Preconditions.checkArgument(_usageSamplingIntervalMs > 0, "Usage sampling interval must be positive");
+    Preconditions.checkArgument(_usageDecayFactor >= 0 && _usageDecayFactor < 1,
+        "Usage decay factor must be in range [0, 1)");
+  }
+
+  @Override
+  public ListenableFuture<byte[]> submit(ServerQueryRequest queryRequest) {
+    if (_isRunning && shouldReject(queryRequest.getTableNameWithType())) {
+      LOGGER.warn("Rejecting query: {} for table: {} with usage share above: {} when heap usage ratio is: {}",
+          queryRequest.getRequestId(), queryRequest.getTableNameWithType(), _rejectMinUsageShare, _heapUsageRatio);
+      _serverMetrics.addMeteredTableValue(queryRequest.getTableNameWithType(),
+          ServerMeter.SERVER_OUT_OF_CAPACITY_EXCEPTIONS, 1);
+      return immediateErrorResponse(queryRequest, QueryException.SERVER_OUT_OF_CAPACITY_ERROR);
+    }
+    return super.submit(queryRequest);
+  }
+
+  /**
+   * Returns {@code true} if the heap usage is above the threshold, and the group of the query is taking at least the
+   * configured share of the total usage.
+   */
+  @VisibleForTesting
+  boolean shouldReject(String groupName) {
+    if (_rejectHeapUsageRatio <= 0 || _heapUsageRatio < _rejectHeapUsageRatio) {
+      return false;
+    }
+    ResourceUsageSchedulerGroup group = _schedulerGroups.get(groupName);
+    double totalUsage = _totalUsage;
+    return group != null && totalUsage > 0 && group.getUsage() >= _rejectMinUsageShare * totalUsage;
+  }
+
+  @Override
+  protected void onQueryStart(SchedulerQueryContext request) {
+    ServerQueryRequest queryRequest = request.getQueryRequest();
+    _runningQueries.put(queryRequest.getQueryId(),
+        new RunningQuery((ResourceUsageSchedulerGroup) request.getSchedulerGroup(), System.nanoTime()));
+  }
+
+  @Override
+  protected void onQueryEnd(SchedulerQueryContext request) {
+    _runningQueries.remove(request.getQueryRequest().getQueryId());
+  }
+
+  @Override
+  public void start() {
+    super.start();
+    _usageSampler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("resource-usage-sampler"));
+    _usageSampler.scheduleWithFixedDelay(() -> {
+      try {
+        sampleUsage();
+      } catch (Throwable t) {
+        LOGGER.error("Caught exception while sampling resource usage", t);
+      }
+    }, _usageSamplingIntervalMs, _usageSamplingIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void stop() {
+    super.stop();
+    if (_usageSampler != null) {
+      _usageSampler.shutdownNow();
+    }
+  }
+
+  /**
+   * Charges the usage of the running queries since the last sample to their scheduler groups, and refreshes the heap
+   * usage.
+   */
+  @VisibleForTesting
+  void sampleUsage() {
+    Map<String, ? extends QueryResourceTracker> queryResources = Tracing.getThreadAccountant().getQueryResources();
+    long currentTimeNs = System.nanoTime();
+    Map<ResourceUsageSchedulerGroup, Long> sampledUsageMap = new HashMap<>();
+    for (Map.Entry<String, RunningQuery> entry : _runningQueries.entrySet()) {
+      RunningQuery runningQuery = entry.getValue();
+      long sampledUsage = runningQuery.sample(queryResources.get(entry.getKey()), currentTimeNs, _allocatedMBCostNs);
+      sampledUsageMap.merge(runningQuery._schedulerGroup, sampledUsage, Long::sum);
+    }
+    double totalUsage = 0;
+    for (ResourceUsageSchedulerGroup group : _schedulerGroups.values()) {
+      group.updateUsage(_usageDecayFactor, sampledUsageMap.getOrDefault(group, 0L));
+      totalUsage += group.getUsage();
+    }
+    _totalUsage = totalUsage;
+    MemoryUsage heapUsage = MEMORY_MX_BEAN.getHeapMemoryUsage();
+    long maxHeapBytes = heapUsage.getMax();
+    _heapUsageRatio = maxHeapBytes > 0 ? (double) heapUsage.getUsed() / maxHeapBytes : 0;
+  }
+
+  @VisibleForTesting
+  void setHeapUsageRatio(double heapUsageRatio) {
+    _heapUsageRatio = heapUsageRatio;
+  }
+
+  @Override
+  public String name() {
+    return "ResourceUsage";
+  }
+
+  /**
+   * Tracks the usage of a running query charged to its scheduler group so far. Only accessed by the usage sampler
+   * thread.
+   */
+  private static class RunningQuery {
+    final ResourceUsageSchedulerGroup _schedulerGroup;
+    long _lastSampleTimeNs;
+    long _cpuTimeNs;
+    long _allocatedBytes;
+    // Whether the query is tracked by the accountant. Once tracked, wall clock time is no longer charged.
+    boolean _tracked;
+
+    RunningQuery(ResourceUsageSchedulerGroup schedulerGroup, long startTimeNs) {
+      _schedulerGroup = schedulerGroup;
+      _lastSampleTimeNs = startTimeNs;
+    }
+
+    /**
+     * Returns the usage since the last sample.
+     */
+    long sample(@Nullable QueryResourceTracker queryResourceTracker, long currentTimeNs, long allocatedMBCostNs) {
+      long usage = 0;
+      if (queryResourceTracker != null) {
+        _tracked = true;
+        long cpuTimeNs = queryResourceTracker.getCpuTimeNs();
+        long allocatedBytes = queryResourceTracker.getAllocatedBytes();
+        usage = Math.max(cpuTimeNs - _cpuTimeNs, 0)
+            + (long) ((double) Math.max(allocatedBytes - _allocatedBytes, 0) / BYTES_PER_MB * allocatedMBCostNs);
+        _cpuTimeNs = Math.max(cpuTimeNs, _cpuTimeNs);
+        _allocatedBytes = Math.max(allocatedBytes, _allocatedBytes);
+      } else if (!_tracked) {
+        usage = currentTimeNs - _lastSampleTimeNs;
+      }
+      _lastSampleTimeNs = currentTimeNs;
+      return usage;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.scheduler.resourceusage;
+
+import org.apache.pinot.core.query.scheduler.AbstractSchedulerGroup;
+import org.apache.pinot.core.query.scheduler.SchedulerGroup;
+import org.apache.pinot.core.query.scheduler.SchedulerGroupAccountant;
+import org.apache.pinot.core.query.scheduler.fcfs.FCFSSchedulerGroup;
+
+
+/**
+ * Scheduler group that manages accounting based on the resource usage of its queries.
+ *
+ * Usage of the group is the CPU time (in nanoseconds) plus the weighted allocated bytes of its running queries,
+ * sampled periodically from the thread resource usage accountant by the {@link ResourceUsageScheduler}. Usage decays
+ * exponentially on each sample so that the recent usage dominates. Groups with lower recent usage win, which prevents
+ * heavy tables from starving the light (latency sensitive) ones.
+ */
+public class ResourceUsageSchedulerGroup extends AbstractSchedulerGroup {
+  // Decayed usage of the group, only updated by the usage sampler thread
+  private volatile double _usage;
+
+  ResourceUsageSchedulerGroup(String schedGroupName) {
+    super(schedGroupName);
+  }
+
+  public double getUsage() {
+    return _usage;
+  }
+
+  /**
+   * Decays the current usage with the given factor, then adds the usage sampled since the last update.
+   * NOTE: This method is not thread safe, and should only be called by the usage sampler thread.
+   */
+  void updateUsage(double decayFactor, long sampledUsage) {
+    _usage = _usage * decayFactor + sampledUsage;
+  }
+
+  /**
+   * Compares priority of this group with respect to another scheduler group.
+   * Priority is compared on the basis of recent resource usage. SchedulerGroup with
+   * lower usage wins. If both groups have same usage then the group with earliest
+   * waiting job has higher priority (FCFS if usages are equal).
+   * @param rhs SchedulerGroupAccount to compare with
+   * @return < 0 if lhs has lower priority than rhs
+   *     > 0 if lhs has higher priority than rhs
+   *     = 0 if lhs has same priority as rhs
+   */
+  @Override
+  public int compareTo(SchedulerGroupAccountant rhs) {
+    if (rhs == null) {
+      return 1;
+    }
+    if (this == rhs) {
+      return 0;
+    }
+    int result = Double.compare(((ResourceUsageSchedulerGroup) rhs).getUsage(), getUsage());
+    return result != 0 ? result : FCFSSchedulerGroup.compare(this, (SchedulerGroup) rhs);
+  }
+
+  public String toString() {
+    return String.format(" {%s:[%.0f,%d,%d,%d,%d]},", name(), getUsage(), numPending(), numRunning(),
+        getThreadsInUse(), totalReservedThreads());
+  }
+}
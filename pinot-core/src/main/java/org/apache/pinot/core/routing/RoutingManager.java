@@ -83,4 +83,13 @@ public interface RoutingManager {
    */
   @Nullable
   Set<String> getServingInstances(String tableNameWithType);
+
+  /**
+   * Returns the total number of documents of the online segments of the given table based on the segment ZK metadata,
+   * or {@code null} if it is not tracked for the table or not known for all the segments.
+   */
+  @Nullable
+  default Long getNumDocs(String tableNameWithType) {
+    return null;
+  }
 }
@@ -0,0 +1,43 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.transport;
+
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+
+/**
+ * The {@code AlternateServerSelector} selects an alternate server to hedge the request sent to a slow server.
+ */
+public interface AlternateServerSelector {
+
+  /**
+   * Returns a server (other than the excluded instances) hosting all the given segments of the table, or {@code null}
+   * if there is no such server.
+   *
+   * @param tableNameWithType table name with type suffix
+   * @param segments segments queried on the slow server
+   * @param excludedInstances ids of the instances already queried for the table
+   * @param requestId requestId generated by the Broker for the query
+   */
+  @Nullable
+  ServerInstance select(String tableNameWithType, List<String> segments, Set<String> excludedInstances,
+      long requestId);
+}
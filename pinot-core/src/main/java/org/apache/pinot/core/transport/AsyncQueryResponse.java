@@ -18,10 +18,15 @@
  */
 package org.apache.pinot.core.transport;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -31,10 +36,15 @@ import org.apache.pinot.common.datatable.DataTable;
 import org.apache.pinot.common.exception.QueryException;
 import org.apache.pinot.common.utils.HashUtil;
 import org.apache.pinot.core.transport.server.routing.stats.ServerRoutingStatsManager;
+import org.apache.pinot.spi.config.table.TableType;
 
 
 /**
  * The {@code AsyncQueryResponse} class represents an asynchronous query response.
+ * <p>When hedging is enabled, a slow server can be hedged by another server serving the same segments. The first
+ * response without processing exceptions received from either server is taken, and the other one is discarded. A
+ * response with processing exceptions is held back while the other server can still respond, and is only taken when
+ * the other server also fails, is down, or doesn't respond before the query times out.
  */
 @ThreadSafe
 public class AsyncQueryResponse implements QueryResponse {
@@ -47,6 +57,23 @@ public class AsyncQueryResponse implements QueryResponse {
   private final long _maxEndTimeMs;
   private final long _timeoutMs;
   private final ServerRoutingStatsManager _serverRoutingStatsManager;
+  // Servers (original ones, not the hedged ones) whose response is already received
+  private final Set<ServerRoutingInstance> _respondedServers = ConcurrentHashMap.newKeySet();
+  // Map from hedged server to the original server
+  private final ConcurrentHashMap<ServerRoutingInstance, ServerRoutingInstance> _hedgedServerMap =
+      new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<ServerRoutingInstance, ServerResponse> _hedgedResponseMap = new ConcurrentHashMap<>();
+  // Map from original server to the hedged server whose response is taken
+  private final ConcurrentHashMap<ServerRoutingInstance, ServerRoutingInstance> _hedgedWinnerMap =
+      new ConcurrentHashMap<>();
+  private final List<Future<?>> _hedgingFutures = new CopyOnWriteArrayList<>();
+  // Guarded by _hedgedResponseMap, set when the query is done to reject new hedged servers
+  private boolean _hedgingClosed;
+  // Guarded by _hedgedResponseMap, servers (original or hedged) which already responded or won't respond
+  private final Set<ServerRoutingInstance> _finishedServers = new HashSet<>();
+  // Guarded by _hedgedResponseMap, map from original server to the server (original or hedged) whose response with
+  // processing exceptions is held back while waiting for the other server
+  private final Map<ServerRoutingInstance, ServerRoutingInstance> _heldBackServerMap = new HashMap<>();
 
   private volatile ServerRoutingInstance _failedServer;
   private volatile Exception _exception;
@@ -91,8 +118,33 @@ public class AsyncQueryResponse implements QueryResponse {
     try {
       boolean finish = _countDownLatch.await(_maxEndTimeMs - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
       _status.compareAndSet(Status.IN_PROGRESS, finish ? Status.COMPLETED : Status.TIMED_OUT);
-      return _responseMap;
+      // Take the held back responses with processing exceptions when the other server didn't respond in time
+      synchronized (_hedgedResponseMap) {
+        for (Map.Entry<ServerRoutingInstance, ServerRoutingInstance> entry : _heldBackServerMap.entrySet()) {
+          ServerRoutingInstance originalServer = entry.getKey();
+          ServerRoutingInstance heldBackServer = entry.getValue();
+          if (_respondedServers.add(originalServer) && heldBackServer != originalServer) {
+            _hedgedWinnerMap.put(originalServer, heldBackServer);
+          }
+        }
+        _heldBackServerMap.clear();
+      }
+      if (_hedgedWinnerMap.isEmpty()) {
+        return _responseMap;
+      }
+      // Replace the responses of the slow servers with the responses of the hedged servers
+      Map<ServerRoutingInstance, ServerResponse> finalResponses = new HashMap<>(_responseMap);
+      for (Map.Entry<ServerRoutingInstance, ServerRoutingInstance> entry : _hedgedWinnerMap.entrySet()) {
+        ServerRoutingInstance hedgedServer = entry.getValue();
+        finalResponses.remove(entry.getKey());
+        finalResponses.put(hedgedServer, _hedgedResponseMap.get(hedgedServer));
+      }
+      return finalResponses;
     } finally {
+      for (Future<?> future : _hedgingFutures) {
+        future.cancel(false);
+      }
+
       // Update ServerRoutingStats for query completion. This is done here to ensure that the stats are updated for
       // servers even if the query times out or if servers have not responded.
       for (Map.Entry<ServerRoutingInstance, ServerResponse> entry : _responseMap.entrySet()) {
@@ -107,6 +159,16 @@ public class AsyncQueryResponse implements QueryResponse {
         }
         _serverRoutingStatsManager.recordStatsUponResponseArrival(_requestId, entry.getKey().getInstanceId(), latency);
       }
+      synchronized (_hedgedResponseMap) {
+        _hedgingClosed = true;
+        for (Map.Entry<ServerRoutingInstance, ServerResponse> entry : _hedgedResponseMap.entrySet()) {
+          ServerResponse response = entry.getValue();
+          long latency = hasServerNotResponded(response) || hasServerReturnedExceptions(response) ? _timeoutMs
+              : response.getResponseDelayMs();
+          _serverRoutingStatsManager.recordStatsUponResponseArrival(_requestId, entry.getKey().getInstanceId(),
+              latency);
+        }
+      }
 
       _queryRouter.markQueryDone(_requestId);
     }
@@ -142,12 +204,16 @@ public class AsyncQueryResponse implements QueryResponse {
     for (Map.Entry<ServerRoutingInstance, ServerResponse> entry : _responseMap.entrySet()) {
       stringBuilder.append(';').append(entry.getKey().getShortName()).append('=').append(entry.getValue().toString());
     }
+    for (Map.Entry<ServerRoutingInstance, ServerResponse> entry : _hedgedResponseMap.entrySet()) {
+      stringBuilder.append(";hedged:").append(entry.getKey().getShortName()).append('=')
+          .append(entry.getValue().toString());
+    }
     return stringBuilder.toString();
   }
 
   @Override
   public long getServerResponseDelayMs(ServerRoutingInstance serverRoutingInstance) {
-    return _responseMap.get(serverRoutingInstance).getResponseDelayMs();
+    return getServerResponse(serverRoutingInstance).getResponseDelayMs();
   }
 
   @Nullable
@@ -171,23 +237,160 @@ public class AsyncQueryResponse implements QueryResponse {
     return _timeoutMs;
   }
 
+  /**
+   * Returns the number of slow servers whose response is taken from the hedged server.
+   */
+  public int getNumHedgedResponses() {
+    return _hedgedWinnerMap.size();
+  }
+
+  /**
+   * Returns the {@link ServerResponse} for either the original server or the hedged server.
+   */
+  private ServerResponse getServerResponse(ServerRoutingInstance serverRoutingInstance) {
+    ServerResponse response = _responseMap.get(serverRoutingInstance);
+    return response != null ? response : _hedgedResponseMap.get(serverRoutingInstance);
+  }
+
   void markRequestSubmitted(ServerRoutingInstance serverRoutingInstance) {
-    _responseMap.get(serverRoutingInstance).markRequestSubmitted();
+    getServerResponse(serverRoutingInstance).markRequestSubmitted();
   }
 
   void markRequestSent(ServerRoutingInstance serverRoutingInstance, int requestSentLatencyMs) {
-    _responseMap.get(serverRoutingInstance).markRequestSent(requestSentLatencyMs);
+    getServerResponse(serverRoutingInstance).markRequestSent(requestSentLatencyMs);
+  }
+
+  /**
+   * Returns whether the response for the given (original) server is already received, either from the server itself
+   * or from the hedged server.
+   */
+  boolean hasServerResponded(ServerRoutingInstance serverRoutingInstance) {
+    return _respondedServers.contains(serverRoutingInstance);
+  }
+
+  /**
+   * Returns the ids of the instances queried (including the hedged ones) for the given table type.
+   */
+  Set<String> getQueriedInstanceIds(TableType tableType) {
+    Set<String> instanceIds = new HashSet<>();
+    for (ServerRoutingInstance serverRoutingInstance : _responseMap.keySet()) {
+      if (serverRoutingInstance.getTableType() == tableType) {
+        instanceIds.add(serverRoutingInstance.getInstanceId());
+      }
+    }
+    for (ServerRoutingInstance serverRoutingInstance : _hedgedServerMap.keySet()) {
+      if (serverRoutingInstance.getTableType() == tableType) {
+        instanceIds.add(serverRoutingInstance.getInstanceId());
+      }
+    }
+    return instanceIds;
+  }
+
+  /**
+   * Registers a hedged server for the given (original) server. Returns {@code false} if the hedged server is already
+   * queried or the query is already done, in which case the hedged request should not be sent.
+   */
+  boolean addHedgedServer(ServerRoutingInstance hedgedServer, ServerRoutingInstance serverRoutingInstance,
+      long startTimeMs) {
+    if (_responseMap.containsKey(hedgedServer)) {
+      return false;
+    }
+    synchronized (_hedgedResponseMap) {
+      if (_hedgingClosed || _hedgedResponseMap.containsKey(hedgedServer)) {
+        return false;
+      }
+      // Put the response before registering the hedged server so that it is available when the response arrives
+      _hedgedResponseMap.put(hedgedServer, new ServerResponse(startTimeMs));
+      _serverRoutingStatsManager.recordStatsForQuerySubmission(_requestId, hedgedServer.getInstanceId());
+      _hedgedServerMap.put(hedgedServer, serverRoutingInstance);
+      return true;
+    }
+  }
+
+  void addHedgingFuture(Future<?> future) {
+    _hedgingFutures.add(future);
   }
 
   void receiveDataTable(ServerRoutingInstance serverRoutingInstance, DataTable dataTable, int responseSize,
       int deserializationTimeMs) {
+    ServerRoutingInstance originalServer = serverRoutingInstance;
     ServerResponse response = _responseMap.get(serverRoutingInstance);
+    if (response == null) {
+      originalServer = _hedgedServerMap.get(serverRoutingInstance);
+      response = _hedgedResponseMap.get(serverRoutingInstance);
+    }
     response.receiveDataTable(dataTable, responseSize, deserializationTimeMs);
 
+    // Only take one response for each original server, and discard the other one
+    synchronized (_hedgedResponseMap) {
+      _finishedServers.add(serverRoutingInstance);
+      if (_respondedServers.contains(originalServer)) {
+        return;
+      }
+      if (!dataTable.getExceptions().isEmpty() && hasPendingServer(originalServer)) {
+        // Hold back the response with processing exceptions as the other server might still respond successfully
+        _heldBackServerMap.putIfAbsent(originalServer, serverRoutingInstance);
+        return;
+      }
+      _heldBackServerMap.remove(originalServer);
+      markServerResponded(originalServer, serverRoutingInstance);
+    }
+  }
+
+  /**
+   * Returns whether the original server or any of its hedged servers can still respond. Should be called while holding
+   * the lock on {@link #_hedgedResponseMap}.
+   */
+  private boolean hasPendingServer(ServerRoutingInstance originalServer) {
+    if (!_finishedServers.contains(originalServer)) {
+      return true;
+    }
+    for (Map.Entry<ServerRoutingInstance, ServerRoutingInstance> entry : _hedgedServerMap.entrySet()) {
+      if (entry.getValue().equals(originalServer) && !_finishedServers.contains(entry.getKey())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Marks the given server (original or hedged) as not able to respond, and takes the held back response for the
+   * original server if no other server can respond. Should be called while holding the lock on
+   * {@link #_hedgedResponseMap}.
+   */
+  private void markServerFinished(ServerRoutingInstance serverRoutingInstance, ServerRoutingInstance originalServer) {
+    _finishedServers.add(serverRoutingInstance);
+    ServerRoutingInstance heldBackServer = _heldBackServerMap.get(originalServer);
+    if (heldBackServer != null && !hasPendingServer(originalServer)) {
+      _heldBackServerMap.remove(originalServer);
+      markServerResponded(originalServer, heldBackServer);
+    }
+  }
+
+  private void markServerResponded(ServerRoutingInstance originalServer, ServerRoutingInstance respondedServer) {
+    if (!_respondedServers.add(originalServer)) {
+      return;
+    }
+    if (respondedServer != originalServer) {
+      _hedgedWinnerMap.put(originalServer, respondedServer);
+    }
     _numServersResponded.getAndIncrement();
     _countDownLatch.countDown();
   }
 
+  /**
+   * Marks the hedged request as failed (e.g. failed to send the request), so that the held back response with
+   * processing exceptions for the original server can be taken without waiting for the hedged server.
+   */
+  void markHedgedRequestFailed(ServerRoutingInstance hedgedServer) {
+    ServerRoutingInstance originalServer = _hedgedServerMap.get(hedgedServer);
+    if (originalServer != null) {
+      synchronized (_hedgedResponseMap) {
+        markServerFinished(hedgedServer, originalServer);
+      }
+    }
+  }
+
   void markQueryFailed(ServerRoutingInstance serverRoutingInstance, Exception exception) {
     _status.set(Status.FAILED);
     _failedServer = serverRoutingInstance;
@@ -200,11 +403,24 @@ public class AsyncQueryResponse implements QueryResponse {
 
   /**
    * NOTE: the server might not be hit by the query. Only fail the query if the query was sent to the server and the
-   * server hasn't responded yet.
+   * server hasn't responded yet. The query is not failed when the server is hedged by another server, or when the
+   * hedged server is down as the original server can still respond. In both cases, the held back response with
+   * processing exceptions from the other server is taken if no other server can respond.
    */
   void markServerDown(ServerRoutingInstance serverRoutingInstance, Exception exception) {
     ServerResponse serverResponse = _responseMap.get(serverRoutingInstance);
-    if (serverResponse != null && serverResponse.getDataTable() == null) {
+    if (serverResponse == null) {
+      markHedgedRequestFailed(serverRoutingInstance);
+      return;
+    }
+    if (_respondedServers.contains(serverRoutingInstance)) {
+      return;
+    }
+    if (_hedgedServerMap.containsValue(serverRoutingInstance)) {
+      synchronized (_hedgedResponseMap) {
+        markServerFinished(serverRoutingInstance, serverRoutingInstance);
+      }
+    } else {
       markQueryFailed(serverRoutingInstance, exception);
     }
   }
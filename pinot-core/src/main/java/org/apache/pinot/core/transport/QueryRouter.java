@@ -22,6 +22,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
@@ -35,6 +38,7 @@ import org.apache.pinot.common.metrics.BrokerMeter;
 import org.apache.pinot.common.metrics.BrokerMetrics;
 import org.apache.pinot.common.request.BrokerRequest;
 import org.apache.pinot.common.request.InstanceRequest;
+import org.apache.pinot.common.utils.NamedThreadFactory;
 import org.apache.pinot.common.utils.config.QueryOptionsUtils;
 import org.apache.pinot.core.transport.server.routing.stats.ServerRoutingStatsManager;
 import org.apache.pinot.spi.config.table.TableType;
@@ -47,6 +51,8 @@ import org.slf4j.LoggerFactory;
  * The {@code QueryRouter} class provides methods to route the query based on the routing table, and returns a
  * {@link AsyncQueryResponse} so that caller can handle the query response asynchronously.
  * <p>It works on {@link ServerChannels} which maintains only a single connection between the broker and each server.
+ * <p>When hedging is enabled, the request sent to a server that hasn't responded after the hedging delay is re-sent to
+ * another server hosting the same segments, and the first response is taken.
  */
 @ThreadSafe
 public class QueryRouter {
@@ -59,6 +65,11 @@ public class QueryRouter {
   private final ConcurrentHashMap<Long, AsyncQueryResponse> _asyncQueryResponseMap = new ConcurrentHashMap<>();
   private final ServerRoutingStatsManager _serverRoutingStatsManager;
 
+  // Hedging configs, set before submitting any query
+  private ScheduledExecutorService _hedgingExecutor;
+  private double _hedgingLatencyMultiplier;
+  private long _hedgingMinDelayMs;
+
   /**
    * Creates an unsecured query router.
    * @param brokerId broker id
@@ -87,11 +98,40 @@ public class QueryRouter {
     _serverRoutingStatsManager = serverRoutingStatsManager;
   }
 
+  /**
+   * Enables hedged requests. When a server hasn't responded after the hedging delay, the same segments are sent to an
+   * alternate server picked by the {@link AlternateServerSelector} passed to the query submission, and the first
+   * response is taken. The hedging delay is the EMA latency of the server tracked by the
+   * {@link ServerRoutingStatsManager} times the latency multiplier, and no less than the min delay.
+   * <p>Should be called before submitting any query.
+   */
+  public void enableHedging(double latencyMultiplier, long minDelayMs, int numThreads) {
+    _hedgingLatencyMultiplier = latencyMultiplier;
+    _hedgingMinDelayMs = minDelayMs;
+    _hedgingExecutor = Executors.newScheduledThreadPool(numThreads, new NamedThreadFactory("hedged-request"));
+    LOGGER.info("Enabled hedging with latency multiplier: {}, min delay: {}ms, num threads: {}", latencyMultiplier,
+        minDelayMs, numThreads);
+  }
+
   public AsyncQueryResponse submitQuery(long requestId, String rawTableName,
       @Nullable BrokerRequest offlineBrokerRequest,
       @Nullable Map<ServerInstance, Pair<List<String>, List<String>>> offlineRoutingTable,
       @Nullable BrokerRequest realtimeBrokerRequest,
       @Nullable Map<ServerInstance, Pair<List<String>, List<String>>> realtimeRoutingTable, long timeoutMs) {
+    return submitQuery(requestId, rawTableName, offlineBrokerRequest, offlineRoutingTable, realtimeBrokerRequest,
+        realtimeRoutingTable, timeoutMs, null);
+  }
+
+  /**
+   * Submits the query to the servers in the routing tables. When hedging is enabled and the alternate server selector
+   * is provided, slow servers are hedged by the alternate servers.
+   */
+  public AsyncQueryResponse submitQuery(long requestId, String rawTableName,
+      @Nullable BrokerRequest offlineBrokerRequest,
+      @Nullable Map<ServerInstance, Pair<List<String>, List<String>>> offlineRoutingTable,
+      @Nullable BrokerRequest realtimeBrokerRequest,
+      @Nullable Map<ServerInstance, Pair<List<String>, List<String>>> realtimeRoutingTable, long timeoutMs,
+      @Nullable AlternateServerSelector alternateServerSelector) {
     assert offlineBrokerRequest != null || realtimeBrokerRequest != null;
 
     // can prefer but not require TLS until all servers guaranteed to be on TLS
@@ -150,9 +190,70 @@ public class QueryRouter {
       }
     }
 
+    if (_hedgingExecutor != null && alternateServerSelector != null
+        && asyncQueryResponse.getStatus() == QueryResponse.Status.IN_PROGRESS) {
+      for (Map.Entry<ServerRoutingInstance, InstanceRequest> entry : requestMap.entrySet()) {
+        scheduleHedgedRequest(rawTableName, asyncQueryResponse, entry.getKey(), entry.getValue(),
+            alternateServerSelector, timeoutMs);
+      }
+    }
+
     return asyncQueryResponse;
   }
 
+  private void scheduleHedgedRequest(String rawTableName, AsyncQueryResponse asyncQueryResponse,
+      ServerRoutingInstance serverRoutingInstance, InstanceRequest instanceRequest,
+      AlternateServerSelector alternateServerSelector, long timeoutMs) {
+    long delayMs = getHedgingDelayMs(serverRoutingInstance.getInstanceId());
+    if (delayMs >= timeoutMs) {
+      return;
+    }
+    asyncQueryResponse.addHedgingFuture(_hedgingExecutor.schedule(
+        () -> sendHedgedRequest(rawTableName, asyncQueryResponse, serverRoutingInstance, instanceRequest,
+            alternateServerSelector, timeoutMs - delayMs), delayMs, TimeUnit.MILLISECONDS));
+  }
+
+  private long getHedgingDelayMs(String instanceId) {
+    Double latencyEMA = _serverRoutingStatsManager.fetchEMALatencyForServer(instanceId);
+    if (latencyEMA == null) {
+      return _hedgingMinDelayMs;
+    }
+    return Math.max((long) (latencyEMA * _hedgingLatencyMultiplier), _hedgingMinDelayMs);
+  }
+
+  private void sendHedgedRequest(String rawTableName, AsyncQueryResponse asyncQueryResponse,
+      ServerRoutingInstance serverRoutingInstance, InstanceRequest instanceRequest,
+      AlternateServerSelector alternateServerSelector, long timeoutMs) {
+    long requestId = asyncQueryResponse.getRequestId();
+    if (asyncQueryResponse.getStatus() != QueryResponse.Status.IN_PROGRESS || asyncQueryResponse.hasServerResponded(
+        serverRoutingInstance)) {
+      return;
+    }
+    TableType tableType = serverRoutingInstance.getTableType();
+    ServerInstance alternateServer =
+        alternateServerSelector.select(instanceRequest.getQuery().getQuerySource().getTableName(),
+            instanceRequest.getSearchSegments(), asyncQueryResponse.getQueriedInstanceIds(tableType), requestId);
+    if (alternateServer == null) {
+      return;
+    }
+    ServerRoutingInstance hedgedServer =
+        alternateServer.toServerRoutingInstance(tableType, _serverChannelsTls != null);
+    if (!asyncQueryResponse.addHedgedServer(hedgedServer, serverRoutingInstance, System.currentTimeMillis())) {
+      return;
+    }
+    ServerChannels serverChannels = hedgedServer.isTlsEnabled() ? _serverChannelsTls : _serverChannels;
+    try {
+      serverChannels.sendRequest(rawTableName, asyncQueryResponse, hedgedServer, instanceRequest, timeoutMs);
+      asyncQueryResponse.markRequestSubmitted(hedgedServer);
+      _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.HEDGED_REQUESTS_SENT, 1);
+    } catch (Exception e) {
+      // Do not fail the query because the request to the original server is still in flight
+      LOGGER.warn("Caught exception while sending hedged request {} to server: {} for server: {}", requestId,
+          hedgedServer, serverRoutingInstance, e);
+      asyncQueryResponse.markHedgedRequestFailed(hedgedServer);
+    }
+  }
+
   private boolean isSkipUnavailableServers(@Nullable BrokerRequest offlineBrokerRequest,
       @Nullable BrokerRequest realtimeBrokerRequest) {
     if (offlineBrokerRequest != null && QueryOptionsUtils.isSkipUnavailableServers(
@@ -189,6 +290,9 @@ public class QueryRouter {
 
   public void shutDown() {
     _serverChannels.shutDown();
+    if (_hedgingExecutor != null) {
+      _hedgingExecutor.shutdownNow();
+    }
   }
 
   void receiveDataTable(ServerRoutingInstance serverRoutingInstance, DataTable dataTable, int responseSize,
@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.manager.realtime;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.pinot.segment.local.segment.creator.TransformPipeline;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.stream.MessageBatch;
+import org.apache.pinot.spi.stream.StreamDataDecoder;
+import org.apache.pinot.spi.stream.StreamDataDecoderResult;
+import org.apache.pinot.spi.stream.StreamMessage;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+
+public class MessageBatchDecoderTest {
+  private static final int NUM_MESSAGES = MessageBatchDecoder.CHUNK_SIZE * 5 + 7;
+  private static final int INVALID_MESSAGE_INTERVAL = 50;
+
+  @Test
+  public void testDecodeOnConsumerThread() {
+    MessageBatchDecoder messageBatchDecoder =
+        new MessageBatchDecoder(new TestDecoder(), TransformPipeline.getPassThroughPipeline());
+    verifyDecodedMessages(messageBatchDecoder);
+    verifyDecodedMessages(messageBatchDecoder);
+    messageBatchDecoder.close();
+  }
+
+  @Test
+  public void testDecodeOnWorkerThreads() {
+    int numThreads = 3;
+    StreamDataDecoder[] decoders = new StreamDataDecoder[numThreads];
+    TransformPipeline[] transformPipelines = new TransformPipeline[numThreads];
+    for (int i = 0; i < numThreads; i++) {
+      decoders[i] = new TestDecoder();
+      transformPipelines[i] = TransformPipeline.getPassThroughPipeline();
+    }
+    ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+    MessageBatchDecoder messageBatchDecoder = new MessageBatchDecoder(decoders, transformPipelines, executorService);
+    // Decoders should be reusable for the next batch
+    verifyDecodedMessages(messageBatchDecoder);
+    verifyDecodedMessages(messageBatchDecoder);
+
+    // Stop in the middle of a batch
+    messageBatchDecoder.start(getMessageBatch());
+    assertNotNull(messageBatchDecoder.get(0).getDecoderResult().getResult());
+    messageBatchDecoder.finish();
+
+    messageBatchDecoder.close();
+    assertTrue(executorService.isShutdown());
+  }
+
+  private static void verifyDecodedMessages(MessageBatchDecoder messageBatchDecoder) {
+    messageBatchDecoder.start(getMessageBatch());
+    for (int i = 0; i < NUM_MESSAGES; i++) {
+      MessageBatchDecoder.DecodedMessage decodedMessage = messageBatchDecoder.get(i);
+      StreamDataDecoderResult decoderResult = decodedMessage.getDecoderResult();
+      if (i % INVALID_MESSAGE_INTERVAL == 0) {
+        assertNotNull(decoderResult.getException());
+        continue;
+      }
+      assertNull(decoderResult.getException());
+      assertNull(decodedMessage.getTransformException());
+      List<GenericRow> transformedRows = decodedMessage.getTransformResult().getTransformedRows();
+      assertEquals(transformedRows.size(), 1);
+      assertEquals(transformedRows.get(0).getValue("id"), i);
+    }
+    messageBatchDecoder.finish();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static MessageBatch<Integer> getMessageBatch() {
+    MessageBatch<Integer> messageBatch = mock(MessageBatch.class);
+    when(messageBatch.getMessageCount()).thenReturn(NUM_MESSAGES);
+    when(messageBatch.getStreamMessage(anyInt())).thenAnswer(
+        invocation -> new StreamMessage<>((Integer) invocation.getArgument(0), Integer.BYTES));
+    return messageBatch;
+  }
+
+  /**
+   * Decoder which fails when used concurrently, and returns a new row for each message.
+   */
+  private static class TestDecoder implements StreamDataDecoder {
+    final AtomicBoolean _inUse = new AtomicBoolean();
+
+    @Override
+    public StreamDataDecoderResult decode(StreamMessage message) {
+      assertFalse(_inUse.getAndSet(true), "Decoder should not be used concurrently");
+      try {
+        int id = (Integer) message.getValue();
+        if (id % INVALID_MESSAGE_INTERVAL == 0) {
+          return new StreamDataDecoderResult(null, new IllegalStateException("Invalid message: " + id));
+        }
+        GenericRow row = new GenericRow();
+        row.putValue("id", id);
+        return new StreamDataDecoderResult(row, null);
+      } finally {
+        _inUse.set(false);
+      }
+    }
+  }
+}
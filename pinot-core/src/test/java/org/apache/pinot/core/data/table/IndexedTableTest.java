@@ -250,6 +250,45 @@ public class IndexedTableTest {
     return new Record(columns);
   }
 
+  @Test
+  public void testPruneGroupsOnTrimBoundary() {
+    QueryContext queryContext = QueryContextConverterUtils.getQueryContext(
+        "SELECT SUM(m1), MAX(m2) FROM testTable GROUP BY d1, d2, d3 ORDER BY d1 LIMIT 2");
+    DataSchema dataSchema = new DataSchema(new String[]{"d1", "d2", "d3", "sum(m1)", "max(m2)"}, new ColumnDataType[]{
+        ColumnDataType.STRING, ColumnDataType.INT, ColumnDataType.DOUBLE, ColumnDataType.DOUBLE, ColumnDataType.DOUBLE
+    });
+
+    testPruneGroupsOnTrimBoundary(
+        new SimpleIndexedTable(dataSchema, false, queryContext, 2, 3, 5, INITIAL_CAPACITY));
+    testPruneGroupsOnTrimBoundary(
+        new ConcurrentIndexedTable(dataSchema, false, queryContext, 2, 3, 5, INITIAL_CAPACITY));
+  }
+
+  private void testPruneGroupsOnTrimBoundary(IndexedTable indexedTable) {
+    indexedTable.upsert(getRecord(new Object[]{"c", 3, 30d, 10d, 300d}));
+    indexedTable.upsert(getRecord(new Object[]{"d", 4, 40d, 10d, 400d}));
+    indexedTable.upsert(getRecord(new Object[]{"e", 5, 50d, 10d, 500d}));
+    indexedTable.upsert(getRecord(new Object[]{"f", 6, 60d, 10d, 600d}));
+    indexedTable.upsert(getRecord(new Object[]{"g", 7, 70d, 10d, 700d}));
+    // Trimmed to 'c', 'd' and 'e' when reaching the trim threshold
+    Assert.assertEquals(indexedTable.size(), 3);
+
+    // Groups ordered after the evicted groups can never make it into the top records, and are not added
+    indexedTable.upsert(getRecord(new Object[]{"h", 8, 80d, 10d, 800d}));
+    Assert.assertEquals(indexedTable.size(), 3);
+
+    // Existing groups and groups ordered before the trim boundary are still upserted
+    indexedTable.upsert(getRecord(new Object[]{"c", 3, 30d, 10d, 300d}));
+    indexedTable.upsert(getRecord(new Object[]{"a", 1, 10d, 10d, 100d}));
+    Assert.assertEquals(indexedTable.size(), 4);
+
+    indexedTable.finish(true);
+    Iterator<Record> iterator = indexedTable.iterator();
+    Assert.assertEquals(iterator.next().getValues(), new Object[]{"a", 1, 10d, 10d, 100d});
+    Assert.assertEquals(iterator.next().getValues(), new Object[]{"c", 3, 30d, 20d, 300d});
+    Assert.assertFalse(iterator.hasNext());
+  }
+
   @Test
   public void testNoMoreNewRecords() {
     QueryContext queryContext =
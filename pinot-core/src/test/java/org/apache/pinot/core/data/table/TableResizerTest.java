@@ -37,6 +37,9 @@ import org.testng.annotations.Test;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 
@@ -248,6 +251,40 @@ public class TableResizerTest {
     assertTrue(recordsMap.containsKey(_keys.get(0)));
   }
 
+  @Test
+  public void testTrimBoundary() {
+    assertFalse(new TableResizer(DATA_SCHEMA, QueryContextConverterUtils.getQueryContext(QUERY_PREFIX + "SUM(m1)"))
+        .isOrderByGroupByExpressionsOnly());
+    assertFalse(new TableResizer(DATA_SCHEMA, QueryContextConverterUtils.getQueryContext(QUERY_PREFIX + "d1, MAX(m2)"))
+        .isOrderByGroupByExpressionsOnly());
+
+    // d1 asc
+    TableResizer tableResizer =
+        new TableResizer(DATA_SCHEMA, QueryContextConverterUtils.getQueryContext(QUERY_PREFIX + "d1"));
+    assertTrue(tableResizer.isOrderByGroupByExpressionsOnly());
+
+    // numRecordsToEvict <= trimToSize, the trim boundary is the best evicted record
+    Map<Key, Record> recordsMap = new HashMap<>(_recordsMap);
+    IntermediateRecord trimBoundary = tableResizer.resizeRecordsMap(recordsMap, TRIM_TO_SIZE);
+    assertNotNull(trimBoundary);
+    assertEquals(trimBoundary._values[0], "c");
+    assertTrue(tableResizer.isOrderedAfter(new Key(new Object[]{"d", 10, 1.0}), trimBoundary));
+    // Ties with the trim boundary are not ordered after it
+    assertFalse(tableResizer.isOrderedAfter(new Key(new Object[]{"c", 10, 1.0}), trimBoundary));
+    assertFalse(tableResizer.isOrderedAfter(_keys.get(1), trimBoundary));
+
+    // numRecordsToEvict > trimToSize, the trim boundary is the worst retained record
+    recordsMap = new HashMap<>(_recordsMap);
+    trimBoundary = tableResizer.resizeRecordsMap(recordsMap, 1);
+    assertNotNull(trimBoundary);
+    assertEquals(trimBoundary._key, _keys.get(0));
+    assertTrue(tableResizer.isOrderedAfter(_keys.get(1), trimBoundary));
+
+    // Nothing evicted
+    recordsMap = new HashMap<>(_recordsMap);
+    assertNull(tableResizer.resizeRecordsMap(recordsMap, _recordsMap.size()));
+  }
+
   /**
    * Tests the sort function for ordered resizer
    */
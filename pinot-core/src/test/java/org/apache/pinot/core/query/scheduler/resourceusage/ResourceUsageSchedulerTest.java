@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.scheduler.resourceusage;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.core.query.executor.QueryExecutor;
+import org.apache.pinot.core.query.scheduler.MultiLevelPriorityQueue;
+import org.apache.pinot.core.query.scheduler.SchedulerQueryContext;
+import org.apache.pinot.core.query.scheduler.TableBasedGroupMapper;
+import org.apache.pinot.core.query.scheduler.TestHelper;
+import org.apache.pinot.core.query.scheduler.resources.PolicyBasedResourceManager;
+import org.apache.pinot.core.query.scheduler.resources.ResourceManager;
+import org.apache.pinot.spi.env.PinotConfiguration;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+
+public class ResourceUsageSchedulerTest {
+
+  @Test
+  public void testUsageAccountingAndRejection()
+      throws Exception {
+    ServerMetrics serverMetrics = mock(ServerMetrics.class);
+    PinotConfiguration config = new PinotConfiguration();
+    ResourceManager resourceManager = new PolicyBasedResourceManager(config);
+    Map<String, ResourceUsageSchedulerGroup> schedulerGroups = new ConcurrentHashMap<>();
+    MultiLevelPriorityQueue queue = new MultiLevelPriorityQueue(config, resourceManager,
+        (groupConfig, groupName) -> schedulerGroups.computeIfAbsent(groupName, ResourceUsageSchedulerGroup::new),
+        new TableBasedGroupMapper());
+    ResourceUsageScheduler scheduler =
+        new ResourceUsageScheduler(config, resourceManager, mock(QueryExecutor.class), queue, serverMetrics,
+            new LongAccumulator(Long::max, 0), schedulerGroups);
+    try {
+      ResourceUsageSchedulerGroup heavyGroup = new ResourceUsageSchedulerGroup("heavy_OFFLINE");
+      ResourceUsageSchedulerGroup lightGroup = new ResourceUsageSchedulerGroup("light_OFFLINE");
+      schedulerGroups.put(heavyGroup.name(), heavyGroup);
+      schedulerGroups.put(lightGroup.name(), lightGroup);
+
+      // Without accountant, the wall clock time of the running query is charged to its group
+      SchedulerQueryContext query = TestHelper.createQueryRequest("heavy_OFFLINE", serverMetrics);
+      query.setSchedulerGroupContext(heavyGroup);
+      scheduler.onQueryStart(query);
+      Thread.sleep(10);
+      scheduler.sampleUsage();
+      double heavyUsage = heavyGroup.getUsage();
+      assertTrue(heavyUsage > 0);
+      assertEquals(lightGroup.getUsage(), 0.0);
+
+      // Group with lower usage has higher priority
+      assertTrue(lightGroup.compareTo(heavyGroup) > 0);
+      assertTrue(heavyGroup.compareTo(lightGroup) < 0);
+
+      // Heavy group is rejected only when the heap usage is high
+      scheduler.setHeapUsageRatio(0.5);
+      assertFalse(scheduler.shouldReject(heavyGroup.name()));
+      assertFalse(scheduler.shouldReject(lightGroup.name()));
+      scheduler.setHeapUsageRatio(0.95);
+      assertTrue(scheduler.shouldReject(heavyGroup.name()));
+      assertFalse(scheduler.shouldReject(lightGroup.name()));
+      assertFalse(scheduler.shouldReject("unknown_OFFLINE"));
+
+      // Usage decays after the query finishes
+      scheduler.onQueryEnd(query);
+      scheduler.sampleUsage();
+      assertEquals(heavyGroup.getUsage(), heavyUsage * 0.8, 1e-6);
+    } finally {
+      resourceManager.stop();
+    }
+  }
+}
@@ -552,6 +552,106 @@ public class QueryRoutingTest {
     queryServer.shutDown();
   }
 
+  @Test
+  public void testHedgedRequest()
+      throws Exception {
+    int port = 12348;
+    ServerInstance slowServerInstance = new ServerInstance("localhost", port);
+    ServerInstance fastServerInstance = new ServerInstance("localhost", port + 1);
+    ServerRoutingInstance slowServerRoutingInstance =
+        slowServerInstance.toServerRoutingInstance(TableType.OFFLINE, ServerInstance.RoutingType.NETTY);
+    ServerRoutingInstance fastServerRoutingInstance =
+        fastServerInstance.toServerRoutingInstance(TableType.OFFLINE, ServerInstance.RoutingType.NETTY);
+    Map<ServerInstance, Pair<List<String>, List<String>>> routingTable =
+        Collections.singletonMap(slowServerInstance, Pair.of(List.of("segment0"), Collections.emptyList()));
+
+    long requestId = 123;
+    DataTable dataTable = DataTableBuilderFactory.getEmptyDataTable();
+    dataTable.getMetadata().put(MetadataKey.REQUEST_ID.getName(), Long.toString(requestId));
+    byte[] responseBytes = dataTable.toBytes();
+    QueryServer slowQueryServer = getQueryServer(5000, responseBytes, port);
+    slowQueryServer.start();
+    QueryServer fastQueryServer = getQueryServer(0, responseBytes, port + 1);
+    fastQueryServer.start();
+
+    // Use a separate query router with stats collection disabled so that the min delay is used as the hedging delay
+    ServerRoutingStatsManager serverRoutingStatsManager =
+        new ServerRoutingStatsManager(new PinotConfiguration(), mock(BrokerMetrics.class));
+    serverRoutingStatsManager.init();
+    QueryRouter queryRouter = new QueryRouter("testBroker", mock(BrokerMetrics.class), serverRoutingStatsManager);
+    queryRouter.enableHedging(2.0, 100L, 1);
+    try {
+      long startTimeMs = System.currentTimeMillis();
+      AsyncQueryResponse asyncQueryResponse =
+          queryRouter.submitQuery(requestId, "testTable", BROKER_REQUEST, routingTable, null, null, 10_000L,
+              (tableNameWithType, segments, excludedInstances, id) -> {
+                assertEquals(segments, List.of("segment0"));
+                assertTrue(excludedInstances.contains(slowServerInstance.getInstanceId()));
+                return fastServerInstance;
+              });
+      Map<ServerRoutingInstance, ServerResponse> response = asyncQueryResponse.getFinalResponses();
+      assertEquals(asyncQueryResponse.getStatus(), QueryResponse.Status.COMPLETED);
+      assertEquals(asyncQueryResponse.getNumHedgedResponses(), 1);
+      assertEquals(asyncQueryResponse.getNumServersResponded(), 1);
+      // The response of the slow server should be replaced with the response of the hedged server
+      assertEquals(response.size(), 1);
+      assertTrue(response.containsKey(fastServerRoutingInstance));
+      assertNotNull(response.get(fastServerRoutingInstance).getDataTable());
+      assertTrue(System.currentTimeMillis() - startTimeMs < 5000);
+    } finally {
+      queryRouter.shutDown();
+      slowQueryServer.shutDown();
+      fastQueryServer.shutDown();
+    }
+  }
+
+  @Test
+  public void testHedgedRequestWithExceptions()
+      throws Exception {
+    int port = 12350;
+    ServerInstance slowServerInstance = new ServerInstance("localhost", port);
+    ServerInstance failingServerInstance = new ServerInstance("localhost", port + 1);
+    ServerRoutingInstance slowServerRoutingInstance =
+        slowServerInstance.toServerRoutingInstance(TableType.OFFLINE, ServerInstance.RoutingType.NETTY);
+    Map<ServerInstance, Pair<List<String>, List<String>>> routingTable =
+        Collections.singletonMap(slowServerInstance, Pair.of(List.of("segment0"), Collections.emptyList()));
+
+    long requestId = 123;
+    DataTable dataTable = DataTableBuilderFactory.getEmptyDataTable();
+    dataTable.getMetadata().put(MetadataKey.REQUEST_ID.getName(), Long.toString(requestId));
+    QueryServer slowQueryServer = getQueryServer(1000, dataTable.toBytes(), port);
+    slowQueryServer.start();
+    DataTable failedDataTable = DataTableBuilderFactory.getEmptyDataTable();
+    failedDataTable.getMetadata().put(MetadataKey.REQUEST_ID.getName(), Long.toString(requestId));
+    failedDataTable.addException(QueryException.QUERY_EXECUTION_ERROR_CODE, "Test error message");
+    QueryServer failingQueryServer = getQueryServer(0, failedDataTable.toBytes(), port + 1);
+    failingQueryServer.start();
+
+    ServerRoutingStatsManager serverRoutingStatsManager =
+        new ServerRoutingStatsManager(new PinotConfiguration(), mock(BrokerMetrics.class));
+    serverRoutingStatsManager.init();
+    QueryRouter queryRouter = new QueryRouter("testBroker", mock(BrokerMetrics.class), serverRoutingStatsManager);
+    queryRouter.enableHedging(2.0, 100L, 1);
+    try {
+      AsyncQueryResponse asyncQueryResponse =
+          queryRouter.submitQuery(requestId, "testTable", BROKER_REQUEST, routingTable, null, null, 10_000L,
+              (tableNameWithType, segments, excludedInstances, id) -> failingServerInstance);
+      Map<ServerRoutingInstance, ServerResponse> response = asyncQueryResponse.getFinalResponses();
+      assertEquals(asyncQueryResponse.getStatus(), QueryResponse.Status.COMPLETED);
+      // The response with exceptions from the hedged server should not win over the response of the slow server
+      assertEquals(asyncQueryResponse.getNumHedgedResponses(), 0);
+      assertEquals(asyncQueryResponse.getNumServersResponded(), 1);
+      assertEquals(response.size(), 1);
+      DataTable serverDataTable = response.get(slowServerRoutingInstance).getDataTable();
+      assertNotNull(serverDataTable);
+      assertTrue(serverDataTable.getExceptions().isEmpty());
+    } finally {
+      queryRouter.shutDown();
+      slowQueryServer.shutDown();
+      failingQueryServer.shutDown();
+    }
+  }
+
   private void waitForStatsUpdate(long taskCount) {
     TestUtils.waitForCondition(aVoid -> {
       return (_serverRoutingStatsManager.getCompletedTaskCount() == taskCount);
@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.queries;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.core.plan.maker.InstancePlanMakerImplV2;
+import org.apache.pinot.core.query.executor.SegmentResultsCache;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentLoader;
+import org.apache.pinot.segment.local.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import org.apache.pinot.segment.local.segment.index.loader.IndexLoadingConfig;
+import org.apache.pinot.segment.local.segment.readers.GenericRowRecordReader;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.creator.SegmentGeneratorConfig;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.utils.CommonConstants.Broker.Request.QueryOptionKey;
+import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+
+/**
+ * Queries test for the segment results cache, which should return the same results as the regular execution without
+ * scanning the segments again.
+ */
+public class SegmentResultsCacheQueriesTest extends BaseQueriesTest {
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "SegmentResultsCacheQueriesTest");
+  private static final String RAW_TABLE_NAME = "testTable";
+  private static final String SEGMENT_NAME = "testSegment";
+  private static final int NUM_RECORDS = 1000;
+
+  private static final String INT_COLUMN = "intColumn";
+  private static final String LONG_COLUMN = "longColumn";
+  private static final String STRING_COLUMN = "stringColumn";
+  private static final Schema SCHEMA = new Schema.SchemaBuilder().setSchemaName(RAW_TABLE_NAME)
+      .addSingleValueDimension(INT_COLUMN, DataType.INT)
+      .addSingleValueDimension(STRING_COLUMN, DataType.STRING)
+      .addMetric(LONG_COLUMN, DataType.LONG)
+      .build();
+  private static final TableConfig TABLE_CONFIG =
+      new TableConfigBuilder(TableType.OFFLINE).setTableName(RAW_TABLE_NAME).build();
+
+  private IndexSegment _indexSegment;
+  private List<IndexSegment> _indexSegments;
+
+  @Override
+  protected String getFilter() {
+    return "";
+  }
+
+  @Override
+  protected IndexSegment getIndexSegment() {
+    return _indexSegment;
+  }
+
+  @Override
+  protected List<IndexSegment> getIndexSegments() {
+    return _indexSegments;
+  }
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteQuietly(INDEX_DIR);
+
+    List<GenericRow> records = new ArrayList<>(NUM_RECORDS);
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      GenericRow record = new GenericRow();
+      record.putValue(INT_COLUMN, i % 10);
+      record.putValue(STRING_COLUMN, "value" + (i % 7));
+      record.putValue(LONG_COLUMN, (long) i);
+      records.add(record);
+    }
+
+    SegmentGeneratorConfig segmentGeneratorConfig = new SegmentGeneratorConfig(TABLE_CONFIG, SCHEMA);
+    segmentGeneratorConfig.setTableName(RAW_TABLE_NAME);
+    segmentGeneratorConfig.setSegmentName(SEGMENT_NAME);
+    segmentGeneratorConfig.setOutDir(INDEX_DIR.getPath());
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(segmentGeneratorConfig, new GenericRowRecordReader(records));
+    driver.build();
+
+    ImmutableSegment immutableSegment = ImmutableSegmentLoader.load(new File(INDEX_DIR, SEGMENT_NAME),
+        new IndexLoadingConfig(TABLE_CONFIG, SCHEMA));
+    _indexSegment = immutableSegment;
+    _indexSegments = List.of(immutableSegment, immutableSegment);
+  }
+
+  @DataProvider
+  public Object[][] queries() {
+    return new Object[][]{
+        {"SELECT COUNT(*), SUM(longColumn), MAX(longColumn), DISTINCTCOUNT(stringColumn) FROM testTable "
+            + "WHERE intColumn < 5"},
+        {"SELECT stringColumn, COUNT(*), SUM(longColumn), DISTINCTCOUNT(intColumn) FROM testTable "
+            + "GROUP BY stringColumn ORDER BY stringColumn"},
+        {"SELECT intColumn, stringColumn, AVG(longColumn) FROM testTable WHERE longColumn > 100 "
+            + "GROUP BY intColumn, stringColumn ORDER BY AVG(longColumn) DESC, intColumn, stringColumn LIMIT 20"}
+    };
+  }
+
+  @Test(dataProvider = "queries")
+  public void testCachedResults(String query) {
+    InstancePlanMakerImplV2 planMaker = new InstancePlanMakerImplV2();
+    planMaker.setSegmentResultsCache(new SegmentResultsCache(1024 * 1024));
+    BrokerResponseNative expectedResponse = getBrokerResponse(query);
+
+    // First query computes and caches the segment results
+    BrokerResponseNative brokerResponse = getBrokerResponse(query, planMaker);
+    assertSameResults(brokerResponse, expectedResponse);
+    assertTrue(brokerResponse.getNumEntriesScannedPostFilter() > 0);
+
+    // Second query is served from the cache without scanning the segments
+    brokerResponse = getBrokerResponse(query, planMaker);
+    assertSameResults(brokerResponse, expectedResponse);
+    assertEquals(brokerResponse.getNumEntriesScannedInFilter(), 0);
+    assertEquals(brokerResponse.getNumEntriesScannedPostFilter(), 0);
+
+    // Bypassing the broker query result cache should still be served from the segment results cache
+    brokerResponse = getBrokerResponse("SET " + QueryOptionKey.SKIP_RESULT_CACHE + " = true; " + query, planMaker);
+    assertSameResults(brokerResponse, expectedResponse);
+    assertEquals(brokerResponse.getNumEntriesScannedPostFilter(), 0);
+
+    // Cache should be bypassed with the query option
+    brokerResponse =
+        getBrokerResponse("SET " + QueryOptionKey.SKIP_SEGMENT_RESULTS_CACHE + " = true; " + query, planMaker);
+    assertSameResults(brokerResponse, expectedResponse);
+    assertTrue(brokerResponse.getNumEntriesScannedPostFilter() > 0);
+  }
+
+  private static void assertSameResults(BrokerResponseNative actual, BrokerResponseNative expected) {
+    assertTrue(actual.getExceptions().isEmpty(), actual.getExceptions().toString());
+    assertEquals(actual.getNumDocsScanned(), expected.getNumDocsScanned());
+    assertEquals(actual.getTotalDocs(), expected.getTotalDocs());
+    assertEquals(actual.getNumSegmentsMatched(), expected.getNumSegmentsMatched());
+    assertEquals(actual.getResultTable().getDataSchema(), expected.getResultTable().getDataSchema());
+    List<Object[]> actualRows = actual.getResultTable().getRows();
+    List<Object[]> expectedRows = expected.getResultTable().getRows();
+    assertEquals(actualRows.size(), expectedRows.size());
+    for (int i = 0; i < actualRows.size(); i++) {
+      assertEquals(actualRows.get(i), expectedRows.get(i));
+    }
+  }
+
+  @AfterClass
+  public void tearDown()
+      throws IOException {
+    _indexSegment.destroy();
+    FileUtils.deleteDirectory(INDEX_DIR);
+  }
+}
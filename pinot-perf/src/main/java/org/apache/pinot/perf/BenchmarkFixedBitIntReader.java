@@ -25,6 +25,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.pinot.segment.local.io.reader.impl.FixedBitIntReader;
 import org.apache.pinot.segment.local.io.util.PinotDataBitSet;
 import org.apache.pinot.segment.local.io.writer.impl.FixedBitSVForwardIndexWriter;
+import org.apache.pinot.segment.local.segment.index.readers.forward.FixedBitSVForwardIndexReaderV2;
 import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -51,11 +52,17 @@ import org.openjdk.jmh.runner.options.OptionsBuilder;
 public class BenchmarkFixedBitIntReader {
   private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "BenchmarkFixedBitIntReader");
   private static final int NUM_VALUES = 5_000_000;
+  // Batch size of the projection, not aligned to the 32-value blocks
+  private static final int NUM_DOC_IDS_PER_BATCH = 10_000 - 7;
   private static final Random RANDOM = new Random();
 
   private PinotDataBuffer _dataBuffer;
   private PinotDataBitSet _bitSet;
   private FixedBitIntReader _intReader;
+  private FixedBitSVForwardIndexReaderV2 _forwardIndexReader;
+  private FixedBitSVForwardIndexReaderV2.Context _forwardIndexReaderContext;
+  private final int[] _docIds = new int[NUM_DOC_IDS_PER_BATCH];
+  private final int[] _dictIds = new int[NUM_DOC_IDS_PER_BATCH];
 
   @Param({
       "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12", "13", "14", "15", "16", "17", "18", "19", "20",
@@ -78,6 +85,8 @@ public class BenchmarkFixedBitIntReader {
     _dataBuffer = PinotDataBuffer.mapReadOnlyBigEndianFile(indexFile);
     _bitSet = new PinotDataBitSet(_dataBuffer);
     _intReader = FixedBitIntReader.getReader(_dataBuffer, _numBits);
+    _forwardIndexReader = new FixedBitSVForwardIndexReaderV2(_dataBuffer, NUM_VALUES, _numBits);
+    _forwardIndexReaderContext = _forwardIndexReader.createContext();
   }
 
   @TearDown
@@ -127,6 +136,30 @@ public class BenchmarkFixedBitIntReader {
     return sum;
   }
 
+  @Benchmark
+  public int forwardIndexReadDictIds() {
+    return readDictIds(null);
+  }
+
+  @Benchmark
+  public int forwardIndexReadDictIdsWithContext() {
+    return readDictIds(_forwardIndexReaderContext);
+  }
+
+  private int readDictIds(FixedBitSVForwardIndexReaderV2.Context context) {
+    int sum = 0;
+    for (int startDocId = 0; startDocId < NUM_VALUES - NUM_DOC_IDS_PER_BATCH; startDocId += NUM_DOC_IDS_PER_BATCH) {
+      for (int i = 0; i < NUM_DOC_IDS_PER_BATCH; i++) {
+        _docIds[i] = startDocId + i;
+      }
+      _forwardIndexReader.readDictIds(_docIds, NUM_DOC_IDS_PER_BATCH, _dictIds, context);
+      for (int dictId : _dictIds) {
+        sum += dictId;
+      }
+    }
+    return sum;
+  }
+
   public static void main(String[] args)
       throws Exception {
     new Runner(new OptionsBuilder().include(BenchmarkFixedBitIntReader.class.getSimpleName()).build()).run();
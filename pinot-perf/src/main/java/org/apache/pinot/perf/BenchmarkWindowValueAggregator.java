@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.perf;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.query.runtime.operator.window.aggregate.WindowValueAggregator;
+import org.apache.pinot.query.runtime.operator.window.aggregate.WindowValueAggregatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Benchmarks the window value aggregators over a 'ROWS BETWEEN (frameSize - 1) PRECEDING AND CURRENT ROW' window frame
+ * (e.g. moving average), comparing sliding the window (add the new value and remove the expired one for each row)
+ * against recomputing the whole window for each row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class BenchmarkWindowValueAggregator {
+  private static final int NUM_ROWS = 100_000;
+
+  @Param({"SUM", "MIN", "MAX", "COUNT"})
+  private String _functionName;
+
+  @Param({"10", "100", "1000"})
+  private int _frameSize;
+
+  private Object[] _values;
+
+  public static void main(String[] args)
+      throws Exception {
+    new Runner(new OptionsBuilder().include(BenchmarkWindowValueAggregator.class.getSimpleName()).build()).run();
+  }
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    _values = new Object[NUM_ROWS];
+    for (int i = 0; i < NUM_ROWS; i++) {
+      _values[i] = random.nextDouble() * 1000;
+    }
+  }
+
+  @Benchmark
+  public void slidingWindow(Blackhole bh) {
+    WindowValueAggregator<Object> aggregator =
+        WindowValueAggregatorFactory.getWindowValueAggregator(_functionName, ColumnDataType.DOUBLE, true);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      aggregator.addValue(_values[i]);
+      if (i >= _frameSize) {
+        aggregator.removeValue(_values[i - _frameSize]);
+      }
+      bh.consume(aggregator.getCurrentAggregatedValue());
+    }
+  }
+
+  @Benchmark
+  public void recomputeWindow(Blackhole bh) {
+    WindowValueAggregator<Object> aggregator =
+        WindowValueAggregatorFactory.getWindowValueAggregator(_functionName, ColumnDataType.DOUBLE, false);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      aggregator.clear();
+      for (int j = Math.max(0, i - _frameSize + 1); j <= i; j++) {
+        aggregator.addValue(_values[j]);
+      }
+      bh.consume(aggregator.getCurrentAggregatedValue());
+    }
+  }
+}
@@ -18,6 +18,8 @@
  */
 package org.apache.pinot.calcite.rel.rules;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.calcite.plan.RelOptRule;
 import org.apache.calcite.plan.RelOptRuleCall;
 import org.apache.calcite.plan.hep.HepRelVertex;
@@ -28,7 +30,13 @@ import org.apache.calcite.rel.core.Exchange;
 import org.apache.calcite.rel.core.Join;
 import org.apache.calcite.rel.core.JoinInfo;
 import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.tools.RelBuilder;
 import org.apache.calcite.tools.RelBuilderFactory;
+import org.apache.calcite.util.ImmutableIntList;
 import org.apache.pinot.calcite.rel.hint.PinotHintOptions;
 import org.apache.pinot.calcite.rel.hint.PinotHintStrategyTable;
 import org.apache.pinot.calcite.rel.logical.PinotLogicalExchange;
@@ -105,6 +113,28 @@ import org.apache.pinot.calcite.rel.logical.PinotRelExchangeType;
  *   </li>
  * </ul>
  *
+ * <p> For INNER and RIGHT joins explicitly hinted with the dynamic broadcast join strategy, the join itself is kept
+ * and the dynamic broadcast is applied as a runtime filter on the left leaf stage instead: the join keys of the right
+ * side are broadcast (as a pipeline breaker) to a SEMI join stacked on top of the left input, which is then converted
+ * to an IN filter on the leaf stage. The rows of the left table that cannot match any right row are filtered out
+ * before being shuffled to the join stage, at the cost of reading the right side twice.
+ *
+ *                 ...                                      ...
+ *                  |                                        |
+ *            [ Inner Join ]                           [ Inner Join ]
+ *            /            \                           /            \
+ *       [xChange]      [xChange]                 [xChange]       [xChange]
+ *          /                \                       /                  \
+ *    [Proj/Filter]     [Proj/Filter]          [Dyn. Broadcast]     [Proj/Filter]
+ *         |                  |                   /          \           |
+ *    [Table Scan ]     [Table Scan ]      [Proj/Filter]   [xChange]  [Table Scan ]
+ *                                              |              \
+ *                                        [Table Scan ]    [Project (join keys)]
+ *                                                                |
+ *                                                          [Proj/Filter]
+ *                                                                |
+ *                                                          [Table Scan ]
+ *
  * TODO #1: Only support SEMI-JOIN, once JOIN operator is supported by leaf-stage we should allow it to match
  *   @see <a href="https://github.com/apache/pinot/pull/10565/>
  * TODO #2: Only convert to dynamic broadcast from right-to-left, allow option to specify dynamic broadcast direction.
@@ -131,18 +161,44 @@ public class PinotJoinToDynamicBroadcastRule extends RelOptRule {
       return false;
     }
 
-    // Do not apply this rule if it is not a SEMI join
     JoinInfo joinInfo = join.analyzeCondition();
+    RelNode left = ((HepRelVertex) join.getLeft()).getCurrentRel();
+    RelNode right = ((HepRelVertex) join.getRight()).getCurrentRel();
+    if (!(left instanceof Exchange) || !(right instanceof Exchange)) {
+      return false;
+    }
+    if (isDynamicFilterJoin(join)) {
+      // Apply the dynamic filter only when explicitly requested and not applied yet
+      return joinStrategy != null && !joinInfo.leftKeys.isEmpty() && !hasDynamicFilter(left.getInput(0))
+          && PinotRuleUtils.canPushDynamicBroadcastToLeaf(left.getInput(0));
+    }
+
+    // Do not apply this rule if it is not a SEMI join
     if (join.getJoinType() != JoinRelType.SEMI || !joinInfo.nonEquiConditions.isEmpty()
         || joinInfo.leftKeys.size() != 1) {
       return false;
     }
 
     // Apply this rule if the left side can be pushed as dynamic exchange
-    RelNode left = ((HepRelVertex) join.getLeft()).getCurrentRel();
-    RelNode right = ((HepRelVertex) join.getRight()).getCurrentRel();
-    return left instanceof Exchange && right instanceof Exchange && PinotRuleUtils.canPushDynamicBroadcastToLeaf(
-        left.getInput(0));
+    return PinotRuleUtils.canPushDynamicBroadcastToLeaf(left.getInput(0));
+  }
+
+  /**
+   * Returns whether the join keeps only the left rows matching some right rows, so that the left side can be filtered
+   * with the right join keys without changing the join result.
+   */
+  private static boolean isDynamicFilterJoin(Join join) {
+    return join.getJoinType() == JoinRelType.INNER || join.getJoinType() == JoinRelType.RIGHT;
+  }
+
+  private static boolean hasDynamicFilter(RelNode relNode) {
+    relNode = PinotRuleUtils.unboxRel(relNode);
+    if (!(relNode instanceof Join)) {
+      return false;
+    }
+    RelNode right = PinotRuleUtils.unboxRel(((Join) relNode).getRight());
+    return right instanceof PinotLogicalExchange
+        && ((PinotLogicalExchange) right).getExchangeType() == PinotRelExchangeType.PIPELINE_BREAKER;
   }
 
   @Override
@@ -150,6 +206,10 @@ public class PinotJoinToDynamicBroadcastRule extends RelOptRule {
     Join join = call.rel(0);
     Exchange left = (Exchange) ((HepRelVertex) join.getLeft()).getCurrentRel();
     Exchange right = (Exchange) ((HepRelVertex) join.getRight()).getCurrentRel();
+    if (isDynamicFilterJoin(join)) {
+      onMatchDynamicFilter(call, join, left, right);
+      return;
+    }
 
     // when colocated join hint is given, dynamic broadcast exchange can be hash-distributed b/c
     //    1. currently, dynamic broadcast only works against main table off leaf-stage; (e.g. receive node on leaf)
@@ -165,4 +225,44 @@ public class PinotJoinToDynamicBroadcastRule extends RelOptRule {
     call.transformTo(join.copy(join.getTraitSet(), join.getCondition(), left.getInput(), dynamicBroadcastExchange,
         join.getJoinType(), join.isSemiJoinDone()));
   }
+
+  /**
+   * Keeps the join, and stacks a dynamic broadcast SEMI join on top of the left input so that the left leaf stage only
+   * reads the rows matching the right join keys.
+   */
+  private static void onMatchDynamicFilter(RelOptRuleCall call, Join join, Exchange left, Exchange right) {
+    JoinInfo joinInfo = join.analyzeCondition();
+    List<Integer> leftKeys = joinInfo.leftKeys;
+    List<Integer> rightKeys = joinInfo.rightKeys;
+    int numKeys = leftKeys.size();
+
+    // Only broadcast the right join keys
+    RelBuilder relBuilder = call.builder();
+    RelNode rightKeysInput = relBuilder.push(right.getInput()).project(relBuilder.fields(rightKeys)).build();
+    boolean isColocatedJoin =
+        PinotHintStrategyTable.isHintOptionTrue(join.getHints(), PinotHintOptions.JOIN_HINT_OPTIONS,
+            PinotHintOptions.JoinHintOptions.IS_COLOCATED_BY_JOIN_KEYS);
+    RelDistribution relDistribution = isColocatedJoin ? RelDistributions.hash(ImmutableIntList.range(0, numKeys))
+        : RelDistributions.BROADCAST_DISTRIBUTED;
+    PinotLogicalExchange dynamicBroadcastExchange =
+        PinotLogicalExchange.create(rightKeysInput, relDistribution, PinotRelExchangeType.PIPELINE_BREAKER);
+
+    RelNode leftInput = left.getInput();
+    RexBuilder rexBuilder = join.getCluster().getRexBuilder();
+    int numLeftFields = leftInput.getRowType().getFieldCount();
+    List<RexNode> conditions = new ArrayList<>(numKeys);
+    for (int i = 0; i < numKeys; i++) {
+      RexNode leftKey = rexBuilder.makeInputRef(leftInput, leftKeys.get(i));
+      RexNode rightKey =
+          rexBuilder.makeInputRef(rightKeysInput.getRowType().getFieldList().get(i).getType(), numLeftFields + i);
+      conditions.add(rexBuilder.makeCall(SqlStdOperatorTable.EQUALS, leftKey, rightKey));
+    }
+    Join dynamicFilterJoin =
+        join.copy(join.getTraitSet(), RexUtil.composeConjunction(rexBuilder, conditions), leftInput,
+            dynamicBroadcastExchange, JoinRelType.SEMI, false);
+
+    call.transformTo(join.copy(join.getTraitSet(), join.getCondition(),
+        left.copy(left.getTraitSet(), dynamicFilterJoin, left.getDistribution()), right, join.getJoinType(),
+        join.isSemiJoinDone()));
+  }
 }
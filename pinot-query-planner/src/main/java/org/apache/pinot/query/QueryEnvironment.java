@@ -402,7 +402,8 @@ public class QueryEnvironment {
       @Nullable TransformationTracker.Builder<PlanNode, RelNode> tracker) {
     SubPlan plan = PinotLogicalQueryPlanner.makePlan(relRoot, tracker);
     PinotDispatchPlanner pinotDispatchPlanner =
-        new PinotDispatchPlanner(plannerContext, _envConfig.getWorkerManager(), requestId, _envConfig.getTableCache());
+        new PinotDispatchPlanner(plannerContext, _envConfig.getWorkerManager(), requestId, _envConfig.getTableCache(),
+            _envConfig.defaultAutoBroadcastJoinMaxRows());
     return pinotDispatchPlanner.createDispatchableSubPlan(plan);
   }
 
@@ -484,6 +485,21 @@ public class QueryEnvironment {
       return CommonConstants.Broker.DEFAULT_INFER_PARTITION_HINT;
     }
 
+    /**
+     * Max number of rows of the right table of a hash join to broadcast it instead of shuffling both sides of the join.
+     * Non-positive value disables the optimization.
+     *
+     * This is treated as the default value for the broker and it is expected to be obtained from a Pinot configuration.
+     * This default value can be overridden at query level by the query option
+     * {@link CommonConstants.Broker.Request.QueryOptionKey#AUTO_BROADCAST_JOIN_MAX_ROWS}. Note that the broker only
+     * tracks the number of rows of the tables when this default value is positive, so the query option has no effect
+     * otherwise.
+     */
+    @Value.Default
+    default long defaultAutoBroadcastJoinMaxRows() {
+      return CommonConstants.Broker.DEFAULT_AUTO_BROADCAST_JOIN_MAX_ROWS;
+    }
+
     /**
      * Returns the worker manager.
      *
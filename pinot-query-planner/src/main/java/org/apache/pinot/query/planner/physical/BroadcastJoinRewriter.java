@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.planner.physical;
+
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.apache.calcite.rel.RelDistribution;
+import org.apache.pinot.calcite.rel.logical.PinotRelExchangeType;
+import org.apache.pinot.query.planner.plannode.JoinNode;
+import org.apache.pinot.query.planner.plannode.MailboxReceiveNode;
+import org.apache.pinot.query.planner.plannode.MailboxSendNode;
+import org.apache.pinot.query.planner.plannode.PlanNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Rewrites hash joins whose right side is a small table into broadcast joins.
+ *
+ * <p>When both inputs of a hash join are leaf stages and the right table is known to have no more than the configured
+ * number of rows, instead of shuffling both sides on the join keys, the join stage is co-located with the left leaf
+ * stage (SINGLETON exchange, no shuffle) and the right leaf stage is broadcast to all the join workers.
+ *
+ * <p>This must run after the worker assignment and before the mailbox assignment, and only changes the exchanges
+ * directly feeding the join, so the worker assignment of the other stages is not affected.
+ */
+public class BroadcastJoinRewriter {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BroadcastJoinRewriter.class);
+
+  private BroadcastJoinRewriter() {
+  }
+
+  public static void rewrite(DispatchablePlanContext context, long maxRows) {
+    if (maxRows <= 0) {
+      return;
+    }
+    for (PlanNode stageRoot : context.getDispatchablePlanStageRootMap().values()) {
+      if (!(stageRoot instanceof MailboxSendNode)) {
+        continue;
+      }
+      JoinNode joinNode = findJoinNode(stageRoot);
+      if (joinNode != null) {
+        rewriteJoin((MailboxSendNode) stageRoot, joinNode, context, maxRows);
+      }
+    }
+  }
+
+  /**
+   * Returns the join node within the stage (there can be at most one join per stage), or {@code null} if not found.
+   */
+  @Nullable
+  private static JoinNode findJoinNode(PlanNode node) {
+    if (node instanceof JoinNode) {
+      return (JoinNode) node;
+    }
+    if (node instanceof MailboxReceiveNode) {
+      return null;
+    }
+    for (PlanNode input : node.getInputs()) {
+      JoinNode joinNode = findJoinNode(input);
+      if (joinNode != null) {
+        return joinNode;
+      }
+    }
+    return null;
+  }
+
+  private static void rewriteJoin(MailboxSendNode joinStageRoot, JoinNode joinNode, DispatchablePlanContext context,
+      long maxRows) {
+    if (joinNode.getJoinStrategy() != JoinNode.JoinStrategy.HASH || !isSupportedJoinType(joinNode)) {
+      return;
+    }
+    List<PlanNode> inputs = joinNode.getInputs();
+    if (!(inputs.get(0) instanceof MailboxReceiveNode) || !(inputs.get(1) instanceof MailboxReceiveNode)) {
+      return;
+    }
+    MailboxReceiveNode leftReceive = (MailboxReceiveNode) inputs.get(0);
+    MailboxReceiveNode rightReceive = (MailboxReceiveNode) inputs.get(1);
+    Map<Integer, PlanNode> stageRootMap = context.getDispatchablePlanStageRootMap();
+    MailboxSendNode leftSend = (MailboxSendNode) stageRootMap.get(leftReceive.getSenderStageId());
+    MailboxSendNode rightSend = (MailboxSendNode) stageRootMap.get(rightReceive.getSenderStageId());
+    if (!isHashExchange(leftReceive, leftSend) || !isHashExchange(rightReceive, rightSend)) {
+      return;
+    }
+    Map<Integer, DispatchablePlanMetadata> metadataMap = context.getDispatchablePlanMetadataMap();
+    DispatchablePlanMetadata joinMetadata = metadataMap.get(joinNode.getStageId());
+    DispatchablePlanMetadata leftMetadata = metadataMap.get(leftReceive.getSenderStageId());
+    DispatchablePlanMetadata rightMetadata = metadataMap.get(rightReceive.getSenderStageId());
+    // The parent stage might have inherited the worker assignment of a SINGLETON or pre-partitioned join stage, in
+    // which case the join workers cannot be changed.
+    if (joinStageRoot.getDistributionType() == RelDistribution.Type.SINGLETON || joinMetadata.isPrePartitioned()
+        || joinMetadata.isRequiresSingletonInstance()) {
+      return;
+    }
+    if (leftMetadata.getScannedTables().size() != 1 || rightMetadata.getScannedTables().size() != 1) {
+      return;
+    }
+    Long rightNumDocs = context.getWorkerManager().getNumDocs(rightMetadata);
+    if (rightNumDocs == null || rightNumDocs > maxRows) {
+      return;
+    }
+    LOGGER.debug("Broadcasting right table: {} with {} rows for join in stage: {}",
+        rightMetadata.getScannedTables().get(0), rightNumDocs, joinNode.getStageId());
+    leftReceive.setDistributionType(RelDistribution.Type.SINGLETON);
+    leftSend.setDistributionType(RelDistribution.Type.SINGLETON);
+    rightReceive.setDistributionType(RelDistribution.Type.BROADCAST_DISTRIBUTED);
+    rightSend.setDistributionType(RelDistribution.Type.BROADCAST_DISTRIBUTED);
+    joinMetadata.setWorkerIdToServerInstanceMap(leftMetadata.getWorkerIdToServerInstanceMap());
+  }
+
+  /**
+   * Broadcasting the right side is only correct when each left row can be joined independently of the other workers,
+   * i.e. when the unmatched right rows are not emitted.
+   */
+  private static boolean isSupportedJoinType(JoinNode joinNode) {
+    switch (joinNode.getJoinType()) {
+      case INNER:
+      case LEFT:
+      case SEMI:
+      case ANTI:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isHashExchange(MailboxReceiveNode receiveNode, MailboxSendNode sendNode) {
+    return receiveNode.getDistributionType() == RelDistribution.Type.HASH_DISTRIBUTED
+        && sendNode.getDistributionType() == RelDistribution.Type.HASH_DISTRIBUTED
+        && receiveNode.getExchangeType() == PinotRelExchangeType.STREAMING && !receiveNode.isSort()
+        && !sendNode.isPrePartitioned() && isSingleReceiver(sendNode);
+  }
+
+  private static boolean isSingleReceiver(MailboxSendNode sendNode) {
+    int numReceivers = 0;
+    for (Integer ignored : sendNode.getReceiverStageIds()) {
+      numReceivers++;
+    }
+    return numReceivers == 1;
+  }
+}
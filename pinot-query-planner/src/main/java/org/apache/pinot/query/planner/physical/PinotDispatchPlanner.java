@@ -23,6 +23,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import org.apache.pinot.common.config.provider.TableCache;
+import org.apache.pinot.common.utils.config.QueryOptionsUtils;
 import org.apache.pinot.query.context.PlannerContext;
 import org.apache.pinot.query.planner.PlanFragment;
 import org.apache.pinot.query.planner.SubPlan;
@@ -30,6 +31,7 @@ import org.apache.pinot.query.planner.physical.colocated.GreedyShuffleRewriteVis
 import org.apache.pinot.query.planner.plannode.PlanNode;
 import org.apache.pinot.query.planner.validation.ArrayToMvValidationVisitor;
 import org.apache.pinot.query.routing.WorkerManager;
+import org.apache.pinot.spi.utils.CommonConstants;
 
 
 public class PinotDispatchPlanner {
@@ -39,13 +41,21 @@ public class PinotDispatchPlanner {
   private final PlannerContext _plannerContext;
 
   private final TableCache _tableCache;
+  private final long _defaultAutoBroadcastJoinMaxRows;
 
   public PinotDispatchPlanner(PlannerContext plannerContext, WorkerManager workerManager, long requestId,
       TableCache tableCache) {
+    this(plannerContext, workerManager, requestId, tableCache,
+        CommonConstants.Broker.DEFAULT_AUTO_BROADCAST_JOIN_MAX_ROWS);
+  }
+
+  public PinotDispatchPlanner(PlannerContext plannerContext, WorkerManager workerManager, long requestId,
+      TableCache tableCache, long defaultAutoBroadcastJoinMaxRows) {
     _plannerContext = plannerContext;
     _workerManager = workerManager;
     _requestId = requestId;
     _tableCache = tableCache;
+    _defaultAutoBroadcastJoinMaxRows = defaultAutoBroadcastJoinMaxRows;
   }
 
   /**
@@ -64,16 +74,23 @@ public class PinotDispatchPlanner {
     context.getDispatchablePlanStageRootMap().put(0, rootNode);
     // 3. add worker assignment after the dispatchable plan context is fulfilled after the visit.
     context.getWorkerManager().assignWorkers(rootFragment, context);
-    // 4. compute the mailbox assignment for each stage.
+    // 4. broadcast small right tables of hash joins instead of shuffling both sides.
+    BroadcastJoinRewriter.rewrite(context, getAutoBroadcastJoinMaxRows());
+    // 5. compute the mailbox assignment for each stage.
     rootNode.visit(MailboxAssignmentVisitor.INSTANCE, context);
-    // 5. Run physical optimizations
+    // 6. Run physical optimizations
     runPhysicalOptimizers(rootNode, context, _tableCache);
-    // 6. Run validations
+    // 7. Run validations
     runValidations(rootFragment, context);
-    // 7. convert it into query plan.
+    // 8. convert it into query plan.
     return finalizeDispatchableSubPlan(rootFragment, context);
   }
 
+  private long getAutoBroadcastJoinMaxRows() {
+    Long maxRows = QueryOptionsUtils.getAutoBroadcastJoinMaxRows(_plannerContext.getOptions());
+    return maxRows != null ? maxRows : _defaultAutoBroadcastJoinMaxRows;
+  }
+
   /**
    * Run validations on the plan. Since there is only one validator right now, don't try to over-engineer it.
    */
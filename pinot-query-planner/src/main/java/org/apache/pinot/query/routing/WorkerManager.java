@@ -386,6 +386,34 @@ public class WorkerManager {
         CalciteSqlCompiler.compileToBrokerRequest("SELECT * FROM \"" + tableNameWithType + "\""), requestId);
   }
 
+  /**
+   * Returns the total number of documents of the table scanned by the given leaf stage (across all the table types
+   * routed to), or {@code null} if it is unknown for any of the table types.
+   */
+  @Nullable
+  public Long getNumDocs(DispatchablePlanMetadata leafMetadata) {
+    String tableName = leafMetadata.getScannedTables().get(0);
+    String rawTableName = TableNameBuilder.extractRawTableName(tableName);
+    Set<String> tableTypes = new HashSet<>();
+    for (Map<String, List<String>> tableTypeToSegments : leafMetadata.getWorkerIdToSegmentsMap().values()) {
+      tableTypes.addAll(tableTypeToSegments.keySet());
+    }
+    if (tableTypes.isEmpty()) {
+      return null;
+    }
+    long numDocs = 0;
+    for (String tableType : tableTypes) {
+      String tableNameWithType =
+          TableNameBuilder.forType(TableType.valueOf(tableType)).tableNameWithType(rawTableName);
+      Long tableNumDocs = _routingManager.getNumDocs(tableNameWithType);
+      if (tableNumDocs == null) {
+        return null;
+      }
+      numDocs += tableNumDocs;
+    }
+    return numDocs;
+  }
+
   // --------------------------------------------------------------------------
   // Partitioned leaf stage assignment
   // --------------------------------------------------------------------------
@@ -28,6 +28,8 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 import org.apache.calcite.rel.RelDistribution;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.pinot.calcite.rel.logical.PinotRelExchangeType;
 import org.apache.pinot.query.planner.PlannerUtils;
 import org.apache.pinot.query.planner.physical.DispatchablePlanFragment;
 import org.apache.pinot.query.planner.physical.DispatchableSubPlan;
@@ -161,6 +163,93 @@ public class QueryCompilationTest extends QueryEnvironmentTestBase {
     }
   }
 
+  @Test
+  public void testAutoBroadcastJoin() {
+    // Table c has 3 OFFLINE segments, 30 docs in total
+    String query = "SELECT * FROM a JOIN c ON a.col1 = c.col2";
+    assertJoinExchange(_queryEnvironment.planQuery(query), false);
+    assertJoinExchange(_queryEnvironment.planQuery("SET autoBroadcastJoinMaxRows = 10; " + query), false);
+    assertJoinExchange(_queryEnvironment.planQuery("SET autoBroadcastJoinMaxRows = 30; " + query), true);
+
+    // Hybrid table d doesn't have the number of docs tracked for the REALTIME table
+    assertJoinExchange(
+        _queryEnvironment.planQuery("SET autoBroadcastJoinMaxRows = 1000; SELECT * FROM a JOIN d ON a.col1 = d.col2"),
+        false);
+
+    // Right join cannot be broadcast
+    assertJoinExchange(
+        _queryEnvironment.planQuery(
+            "SET autoBroadcastJoinMaxRows = 1000; SELECT * FROM a RIGHT JOIN c ON a.col1 = c.col2"), false);
+  }
+
+  @Test
+  public void testDynamicFilterJoin() {
+    String query = "SELECT /*+ joinOptions(join_strategy='dynamic_broadcast') */ a.col1, b.col3 FROM a JOIN b "
+        + "ON a.col1 = b.col2 WHERE b.col3 > 0";
+    DispatchableSubPlan dispatchableSubPlan = _queryEnvironment.planQuery(query);
+    List<DispatchablePlanFragment> stagePlans = dispatchableSubPlan.getQueryStageList();
+    // The right table is read twice: once for the join, and once to broadcast the join keys to the left leaf stage
+    assertEquals(stagePlans.size(), 5);
+    int numHashJoins = 0;
+    int numDynamicFilterJoins = 0;
+    for (DispatchablePlanFragment stagePlan : stagePlans) {
+      PlanNode node = stagePlan.getPlanFragment().getFragmentRoot();
+      while (!(node instanceof JoinNode) && !node.getInputs().isEmpty()) {
+        node = node.getInputs().get(0);
+      }
+      if (!(node instanceof JoinNode)) {
+        continue;
+      }
+      JoinNode joinNode = (JoinNode) node;
+      MailboxReceiveNode right = (MailboxReceiveNode) joinNode.getInputs().get(1);
+      if (joinNode.getJoinType() == JoinRelType.SEMI) {
+        // Dynamic filter is planned as a SEMI join within the left leaf stage
+        numDynamicFilterJoins++;
+        assertEquals(stagePlan.getTableName(), "a");
+        assertEquals(right.getExchangeType(), PinotRelExchangeType.PIPELINE_BREAKER);
+        assertEquals(right.getDataSchema().size(), 1);
+      } else {
+        numHashJoins++;
+        assertEquals(joinNode.getJoinType(), JoinRelType.INNER);
+        assertEquals(right.getExchangeType(), PinotRelExchangeType.STREAMING);
+        assertEquals(right.getDistributionType(), RelDistribution.Type.HASH_DISTRIBUTED);
+      }
+    }
+    assertEquals(numHashJoins, 1);
+    assertEquals(numDynamicFilterJoins, 1);
+  }
+
+  private static void assertJoinExchange(DispatchableSubPlan dispatchableSubPlan, boolean broadcast) {
+    List<DispatchablePlanFragment> stagePlans = dispatchableSubPlan.getQueryStageList();
+    int numJoins = 0;
+    for (int stageId = 0; stageId < stagePlans.size(); stageId++) {
+      DispatchablePlanFragment stagePlan = stagePlans.get(stageId);
+      PlanNode node = stagePlan.getPlanFragment().getFragmentRoot();
+      while (!(node instanceof JoinNode) && !node.getInputs().isEmpty()) {
+        node = node.getInputs().get(0);
+      }
+      if (!(node instanceof JoinNode)) {
+        continue;
+      }
+      numJoins++;
+      MailboxReceiveNode left = (MailboxReceiveNode) node.getInputs().get(0);
+      MailboxReceiveNode right = (MailboxReceiveNode) node.getInputs().get(1);
+      if (broadcast) {
+        // Join stage is co-located with the left table scan stage, and the right table is broadcast
+        assertEquals(left.getDistributionType(), RelDistribution.Type.SINGLETON);
+        assertEquals(left.getSender().getDistributionType(), RelDistribution.Type.SINGLETON);
+        assertEquals(right.getDistributionType(), RelDistribution.Type.BROADCAST_DISTRIBUTED);
+        assertEquals(right.getSender().getDistributionType(), RelDistribution.Type.BROADCAST_DISTRIBUTED);
+        assertEquals(stagePlan.getServerInstanceToWorkerIdMap(),
+            stagePlans.get(left.getSenderStageId()).getServerInstanceToWorkerIdMap());
+      } else {
+        assertEquals(left.getDistributionType(), RelDistribution.Type.HASH_DISTRIBUTED);
+        assertEquals(right.getDistributionType(), RelDistribution.Type.HASH_DISTRIBUTED);
+      }
+    }
+    assertEquals(numJoins, 1);
+  }
+
   @Test
   public void testQueryProjectFilterPushDownForJoin() {
     String query = "SELECT a.col1, a.ts, b.col2, b.col3 FROM a JOIN b ON a.col1 = b.col2 "
@@ -52,6 +52,7 @@ import static org.mockito.Mockito.when;
 public class MockRoutingManagerFactory {
   private static final String TIME_BOUNDARY_COLUMN = "ts";
   private static final String HOST_NAME = "localhost";
+  public static final long NUM_DOCS_PER_SEGMENT = 10;
 
   private final Map<String, String> _tableNameMap;
   private final Map<String, Schema> _schemaMap;
@@ -182,5 +183,20 @@ public class MockRoutingManagerFactory {
     public Set<String> getServingInstances(String tableNameWithType) {
       return _serverInstances.keySet();
     }
+
+    @Nullable
+    @Override
+    public Long getNumDocs(String tableNameWithType) {
+      // Same as the broker, only track the number of documents for OFFLINE tables
+      RoutingTable routingTable = _routingTableMap.get(tableNameWithType);
+      if (routingTable == null || !TableNameBuilder.isOfflineTableResource(tableNameWithType)) {
+        return null;
+      }
+      long numSegments = 0;
+      for (Pair<List<String>, List<String>> segments : routingTable.getServerInstanceToSegmentsMap().values()) {
+        numSegments += segments.getLeft().size();
+      }
+      return numSegments * NUM_DOCS_PER_SEGMENT;
+    }
   }
 }
@@ -22,6 +22,7 @@ import com.google.protobuf.ByteString;
 import io.grpc.stub.StreamObserver;
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.apache.pinot.common.datablock.DataBlock;
 import org.apache.pinot.common.datablock.DataBlockUtils;
 import org.apache.pinot.common.datatable.StatMap;
@@ -32,12 +33,17 @@ import org.apache.pinot.query.mailbox.channel.MailboxStatusObserver;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
 import org.apache.pinot.query.runtime.operator.MailboxSendOperator;
+import org.apache.pinot.spi.exception.QueryCancelledException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 /**
  * gRPC implementation of the {@link SendingMailbox}. The gRPC stream is created on the first call to {@link #send}.
+ *
+ * <p>The mailbox applies credit based flow control: it stops sending when the number of messages (or bytes) not yet
+ * acknowledged by the receiver reaches the configured limit, instead of buffering an unbounded amount of data in the
+ * gRPC stream when the receiver is slow.
  */
 public class GrpcSendingMailbox implements SendingMailbox {
   private static final Logger LOGGER = LoggerFactory.getLogger(GrpcSendingMailbox.class);
@@ -47,6 +53,8 @@ public class GrpcSendingMailbox implements SendingMailbox {
   private final String _hostname;
   private final int _port;
   private final long _deadlineMs;
+  private final int _maxInFlightMessages;
+  private final long _maxInFlightBytes;
   private final StatMap<MailboxSendOperator.StatKey> _statMap;
   private final MailboxStatusObserver _statusObserver = new MailboxStatusObserver();
 
@@ -54,17 +62,24 @@ public class GrpcSendingMailbox implements SendingMailbox {
 
   public GrpcSendingMailbox(String id, ChannelManager channelManager, String hostname, int port, long deadlineMs,
       StatMap<MailboxSendOperator.StatKey> statMap) {
+    this(id, channelManager, hostname, port, deadlineMs, Integer.MAX_VALUE, Long.MAX_VALUE, statMap);
+  }
+
+  public GrpcSendingMailbox(String id, ChannelManager channelManager, String hostname, int port, long deadlineMs,
+      int maxInFlightMessages, long maxInFlightBytes, StatMap<MailboxSendOperator.StatKey> statMap) {
     _id = id;
     _channelManager = channelManager;
     _hostname = hostname;
     _port = port;
     _deadlineMs = deadlineMs;
+    _maxInFlightMessages = maxInFlightMessages;
+    _maxInFlightBytes = maxInFlightBytes;
     _statMap = statMap;
   }
 
   @Override
   public void send(TransferableBlock block)
-      throws IOException {
+      throws IOException, TimeoutException {
     if (isTerminated() || (isEarlyTerminated() && !block.isEndOfStreamBlock())) {
       return;
     }
@@ -74,7 +89,16 @@ public class GrpcSendingMailbox implements SendingMailbox {
     if (_contentObserver == null) {
       _contentObserver = getContentObserver();
     }
-    _contentObserver.onNext(toMailboxContent(block));
+    MailboxContent mailboxContent = toMailboxContent(block);
+    // NOTE: Do not block on error block because the receiver won't acknowledge the messages after receiving an error
+    if (!block.isErrorBlock()) {
+      awaitCredit();
+      if (isTerminated() || (isEarlyTerminated() && !block.isEndOfStreamBlock())) {
+        return;
+      }
+    }
+    _statusObserver.onMessageSent(mailboxContent.getPayload().size());
+    _contentObserver.onNext(mailboxContent);
     if (LOGGER.isDebugEnabled()) {
       LOGGER.debug("==[GRPC SEND]== message " + block + " sent to: " + _id);
     }
@@ -122,6 +146,23 @@ public class GrpcSendingMailbox implements SendingMailbox {
     return _statusObserver.isFinished();
   }
 
+  private void awaitCredit()
+      throws TimeoutException {
+    long startTimeMs = System.currentTimeMillis();
+    try {
+      if (!_statusObserver.awaitCredit(_maxInFlightMessages, _maxInFlightBytes, _deadlineMs)) {
+        throw new TimeoutException(
+            String.format("Timed out waiting for receiver to consume data from mailbox: %s with %d in-flight messages",
+                _id, _statusObserver.getNumInFlightMessages()));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new QueryCancelledException(String.format("Interrupted while sending data to mailbox: %s", _id));
+    } finally {
+      _statMap.merge(MailboxSendOperator.StatKey.SEND_BLOCKED_TIME_MS, System.currentTimeMillis() - startTimeMs);
+    }
+  }
+
   private StreamObserver<MailboxContent> getContentObserver() {
     return PinotMailboxGrpc.newStub(_channelManager.getChannel(_hostname, _port))
         .withDeadlineAfter(_deadlineMs - System.currentTimeMillis(), TimeUnit.MILLISECONDS).open(_statusObserver);
@@ -59,7 +59,9 @@ public class InMemorySendingMailbox implements SendingMailbox {
     }
     _statMap.merge(MailboxSendOperator.StatKey.IN_MEMORY_MESSAGES, 1);
     long timeoutMs = _deadlineMs - System.currentTimeMillis();
+    long startTimeMs = System.currentTimeMillis();
     ReceivingMailbox.ReceivingMailboxStatus status = _receivingMailbox.offer(block, timeoutMs);
+    _statMap.merge(MailboxSendOperator.StatKey.SEND_BLOCKED_TIME_MS, System.currentTimeMillis() - startTimeMs);
 
     switch (status) {
       case SUCCESS:
@@ -30,6 +30,7 @@ import org.apache.pinot.query.mailbox.channel.ChannelManager;
 import org.apache.pinot.query.mailbox.channel.GrpcMailboxServer;
 import org.apache.pinot.query.runtime.operator.MailboxSendOperator;
 import org.apache.pinot.spi.env.PinotConfiguration;
+import org.apache.pinot.spi.utils.CommonConstants.MultiStageQueryRunner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,6 +65,8 @@ public class MailboxService {
   private final PinotConfiguration _config;
   private final ChannelManager _channelManager;
   @Nullable private final TlsConfig _tlsConfig;
+  private final int _maxInFlightMessages;
+  private final long _maxInFlightBytes;
 
   private GrpcMailboxServer _grpcMailboxServer;
 
@@ -77,6 +80,10 @@ public class MailboxService {
     _config = config;
     _tlsConfig = tlsConfig;
     _channelManager = new ChannelManager(tlsConfig);
+    _maxInFlightMessages = config.getProperty(MultiStageQueryRunner.KEY_OF_MAILBOX_MAX_IN_FLIGHT_MESSAGES,
+        MultiStageQueryRunner.DEFAULT_MAILBOX_MAX_IN_FLIGHT_MESSAGES);
+    _maxInFlightBytes = config.getProperty(MultiStageQueryRunner.KEY_OF_MAILBOX_MAX_IN_FLIGHT_BYTES,
+        MultiStageQueryRunner.DEFAULT_MAILBOX_MAX_IN_FLIGHT_BYTES);
     LOGGER.info("Initialized MailboxService with hostname: {}, port: {}", hostname, port);
   }
 
@@ -115,7 +122,8 @@ public class MailboxService {
     if (_hostname.equals(hostname) && _port == port) {
       return new InMemorySendingMailbox(mailboxId, this, deadlineMs, statMap);
     } else {
-      return new GrpcSendingMailbox(mailboxId, _channelManager, hostname, port, deadlineMs, statMap);
+      return new GrpcSendingMailbox(mailboxId, _channelManager, hostname, port, deadlineMs, _maxInFlightMessages,
+          _maxInFlightBytes, statMap);
     }
   }
 
@@ -19,8 +19,13 @@
 package org.apache.pinot.query.mailbox.channel;
 
 import io.grpc.stub.StreamObserver;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import org.apache.pinot.common.proto.Mailbox.MailboxStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +33,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * {@code MailboxStatusStreamObserver} is the status streaming observer used to track the status by the sender.
+ *
+ * <p>It also provides credit based flow control for the sender: the receiver responds with a status for each message
+ * accepted into the receiving mailbox, which returns the credit of the message. The sender should call
+ * {@link #awaitCredit(int, long, long)} before sending a message, and {@link #onMessageSent(int)} when sending it.
  */
 public class MailboxStatusObserver implements StreamObserver<MailboxStatus> {
   private static final Logger LOGGER = LoggerFactory.getLogger(MailboxStatusObserver.class);
@@ -37,6 +46,12 @@ public class MailboxStatusObserver implements StreamObserver<MailboxStatus> {
   private final AtomicBoolean _finished = new AtomicBoolean();
   private volatile boolean _isEarlyTerminated;
 
+  private final Lock _lock = new ReentrantLock();
+  private final Condition _creditReturned = _lock.newCondition();
+  // Sizes of the messages sent but not acknowledged by the receiver yet, in the sending order
+  private final ArrayDeque<Integer> _inFlightMessageSizes = new ArrayDeque<>();
+  private long _inFlightBytes;
+
   @Override
   public void onNext(MailboxStatus mailboxStatus) {
     // when receiving mailbox receives a data block it will return an updated info of the receiving end status including
@@ -48,13 +63,60 @@ public class MailboxStatusObserver implements StreamObserver<MailboxStatus> {
       _isEarlyTerminated = true;
     }
     // -- handling buffer size back-pressure
-    // TODO: this feedback info is not used to throttle the send speed. it is currently being discarded.
     if (mailboxStatus.getMetadataMap().containsKey(ChannelUtils.MAILBOX_METADATA_BUFFER_SIZE_KEY)) {
       _bufferSize.set(
           Integer.parseInt(mailboxStatus.getMetadataMap().get(ChannelUtils.MAILBOX_METADATA_BUFFER_SIZE_KEY)));
     } else {
       _bufferSize.set(DEFAULT_MAILBOX_QUEUE_CAPACITY); // DEFAULT_AVAILABILITY;
     }
+    // -- return the credit of the acknowledged message
+    _lock.lock();
+    try {
+      Integer messageSize = _inFlightMessageSizes.poll();
+      if (messageSize != null) {
+        _inFlightBytes -= messageSize;
+      }
+      _creditReturned.signalAll();
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  /**
+   * Records a message of the given size sent to the receiver. Must be called before the message is handed over to the
+   * stream so that the acknowledgement cannot arrive before the message is recorded.
+   */
+  public void onMessageSent(int sizeInBytes) {
+    _lock.lock();
+    try {
+      _inFlightMessageSizes.add(sizeInBytes);
+      _inFlightBytes += sizeInBytes;
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  /**
+   * Waits until the number of in-flight messages is below {@code maxInFlightMessages} and the in-flight bytes are below
+   * {@code maxInFlightBytes}, or the stream is finished or early terminated. A message can always be sent when there is
+   * no message in flight. Returns {@code false} if the deadline is reached before the credit is available.
+   */
+  public boolean awaitCredit(int maxInFlightMessages, long maxInFlightBytes, long deadlineMs)
+      throws InterruptedException {
+    _lock.lock();
+    try {
+      while (!_finished.get() && !_isEarlyTerminated && !_inFlightMessageSizes.isEmpty() && (
+          _inFlightMessageSizes.size() >= maxInFlightMessages || _inFlightBytes >= maxInFlightBytes)) {
+        long remainingTimeNs = TimeUnit.MILLISECONDS.toNanos(deadlineMs - System.currentTimeMillis());
+        if (remainingTimeNs <= 0) {
+          return false;
+        }
+        _creditReturned.awaitNanos(remainingTimeNs);
+      }
+      return true;
+    } finally {
+      _lock.unlock();
+    }
   }
 
   public boolean isEarlyTerminated() {
@@ -65,15 +127,35 @@ public class MailboxStatusObserver implements StreamObserver<MailboxStatus> {
     return _bufferSize.get();
   }
 
+  public int getNumInFlightMessages() {
+    _lock.lock();
+    try {
+      return _inFlightMessageSizes.size();
+    } finally {
+      _lock.unlock();
+    }
+  }
+
   @Override
   public void onError(Throwable t) {
     LOGGER.warn("Error on sender side", t);
-    _finished.set(true);
+    finish();
   }
 
   @Override
   public void onCompleted() {
+    finish();
+  }
+
+  private void finish() {
     _finished.set(true);
+    // Wake up the sender waiting for credit
+    _lock.lock();
+    try {
+      _creditReturned.signalAll();
+    } finally {
+      _lock.unlock();
+    }
   }
 
   public boolean isFinished() {
@@ -22,6 +22,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.protobuf.ByteString;
 import io.grpc.stub.StreamObserver;
+import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
@@ -35,6 +36,7 @@ import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.helix.HelixManager;
 import org.apache.pinot.common.config.TlsConfig;
@@ -111,12 +113,22 @@ public class QueryRunner {
   private Integer _maxInitialResultHolderCapacity;
   @Nullable
   private Integer _minInitialIndexedTableCapacity;
+  @Nullable
+  private Integer _groupBySpillThresholdGroups;
 
   // Join overflow settings
   @Nullable
   private Integer _maxRowsInJoin;
   @Nullable
   private JoinOverFlowMode _joinOverflowMode;
+
+  // Sort spill settings
+  @Nullable
+  private Integer _sortSpillThresholdRows;
+
+  // Directory where the operators create their spill files
+  private File _spillDir;
+
   @Nullable
   private PhysicalTimeSeriesServerPlanVisitor _timeSeriesPhysicalPlanVisitor;
 
@@ -148,10 +160,19 @@ public class QueryRunner {
         config.getProperty(CommonConstants.Server.CONFIG_OF_QUERY_EXECUTOR_MIN_INITIAL_INDEXED_TABLE_CAPACITY);
     _minInitialIndexedTableCapacity =
         minInitialIndexedTableCapacityStr != null ? Integer.parseInt(minInitialIndexedTableCapacityStr) : null;
+    String groupBySpillThresholdGroupsStr =
+        config.getProperty(CommonConstants.MultiStageQueryRunner.KEY_OF_GROUP_BY_SPILL_THRESHOLD_GROUPS);
+    _groupBySpillThresholdGroups =
+        groupBySpillThresholdGroupsStr != null ? Integer.parseInt(groupBySpillThresholdGroupsStr) : null;
     String maxRowsInJoinStr = config.getProperty(CommonConstants.MultiStageQueryRunner.KEY_OF_MAX_ROWS_IN_JOIN);
     _maxRowsInJoin = maxRowsInJoinStr != null ? Integer.parseInt(maxRowsInJoinStr) : null;
     String joinOverflowModeStr = config.getProperty(CommonConstants.MultiStageQueryRunner.KEY_OF_JOIN_OVERFLOW_MODE);
     _joinOverflowMode = joinOverflowModeStr != null ? JoinOverFlowMode.valueOf(joinOverflowModeStr) : null;
+    String sortSpillThresholdRowsStr =
+        config.getProperty(CommonConstants.MultiStageQueryRunner.KEY_OF_SORT_SPILL_THRESHOLD_ROWS);
+    _sortSpillThresholdRows = sortSpillThresholdRowsStr != null ? Integer.parseInt(sortSpillThresholdRowsStr) : null;
+    String spillDir = config.getProperty(CommonConstants.MultiStageQueryRunner.KEY_OF_SPILL_DIR);
+    _spillDir = spillDir != null ? new File(spillDir) : FileUtils.getTempDirectory();
 
     _executorService = ExecutorServiceUtils.create(
         config, CommonConstants.Server.CONFIG_OF_QUERY_EXECUTOR_OPCHAIN_EXECUTOR, "query-runner-on-" + port,
@@ -241,7 +262,7 @@ public class QueryRunner {
     // run OpChain
     OpChainExecutionContext executionContext =
         new OpChainExecutionContext(_mailboxService, requestId, deadlineMs, opChainMetadata, stageMetadata,
-            workerMetadata, pipelineBreakerResult, parentContext);
+            workerMetadata, pipelineBreakerResult, parentContext, _spillDir);
     OpChain opChain;
     if (workerMetadata.isLeafStageWorker()) {
       opChain = ServerPlanRequestUtils.compileLeafStage(executionContext, stagePlan, _helixManager, _serverMetrics,
@@ -334,6 +355,15 @@ public class QueryRunner {
           Integer.toString(minInitialIndexedTableCapacity));
     }
 
+    Integer groupBySpillThresholdGroups = QueryOptionsUtils.getGroupBySpillThresholdGroups(opChainMetadata);
+    if (groupBySpillThresholdGroups == null) {
+      groupBySpillThresholdGroups = _groupBySpillThresholdGroups;
+    }
+    if (groupBySpillThresholdGroups != null) {
+      opChainMetadata.put(QueryOptionKey.GROUP_BY_SPILL_THRESHOLD_GROUPS,
+          Integer.toString(groupBySpillThresholdGroups));
+    }
+
     Integer maxRowsInJoin = QueryOptionsUtils.getMaxRowsInJoin(opChainMetadata);
     if (maxRowsInJoin == null) {
       maxRowsInJoin = _maxRowsInJoin;
@@ -349,6 +379,14 @@ public class QueryRunner {
     if (joinOverflowMode != null) {
       opChainMetadata.put(QueryOptionKey.JOIN_OVERFLOW_MODE, joinOverflowMode.name());
     }
+
+    Integer sortSpillThresholdRows = QueryOptionsUtils.getSortSpillThresholdRows(opChainMetadata);
+    if (sortSpillThresholdRows == null) {
+      sortSpillThresholdRows = _sortSpillThresholdRows;
+    }
+    if (sortSpillThresholdRows != null) {
+      opChainMetadata.put(QueryOptionKey.SORT_SPILL_THRESHOLD_ROWS, Integer.toString(sortSpillThresholdRows));
+    }
     return opChainMetadata;
   }
 
@@ -19,6 +19,7 @@
 package org.apache.pinot.query.runtime.operator;
 
 import com.google.common.base.Preconditions;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -69,6 +70,7 @@ public class AggregateOperator extends MultiStageOperator {
   private final StatMap<StatKey> _statMap = new StatMap<>(StatKey.class);
 
   private boolean _hasConstructedAggregateBlock;
+  private boolean _hasProcessedSpilledPartitions;
 
   public AggregateOperator(OpChainExecutionContext context, MultiStageOperator input, AggregateNode node) {
     super(context);
@@ -100,7 +102,8 @@ public class AggregateOperator extends MultiStageOperator {
     } else {
       _groupByExecutor =
           new MultistageGroupByExecutor(getGroupKeyIds(groupKeys), aggFunctions, filterArgIds, maxFilterArgId, aggType,
-              leafReturnFinalResult, _resultSchema, context.getOpChainMetadata(), node.getNodeHint());
+              leafReturnFinalResult, _resultSchema, context.getOpChainMetadata(), node.getNodeHint(),
+              context.getSpillDir());
       _aggregationExecutor = null;
     }
   }
@@ -132,9 +135,29 @@ public class AggregateOperator extends MultiStageOperator {
   }
 
   @Override
-  protected TransferableBlock getNextBlock() {
+  public void close() {
+    if (_groupByExecutor != null) {
+      _groupByExecutor.close();
+    }
+    super.close();
+  }
+
+  @Override
+  public void cancel(Throwable e) {
+    if (_groupByExecutor != null) {
+      _groupByExecutor.close();
+    }
+    super.cancel(e);
+  }
+
+  @Override
+  protected TransferableBlock getNextBlock()
+      throws IOException {
     if (_hasConstructedAggregateBlock) {
       assert _eosBlock != null;
+      if (_groupByExecutor != null && !_hasProcessedSpilledPartitions) {
+        return produceSpilledGroupByBlock();
+      }
       return _eosBlock;
     }
     TransferableBlock finalBlock = _aggregationExecutor != null ? consumeAggregation() : consumeGroupBy();
@@ -147,14 +170,15 @@ public class AggregateOperator extends MultiStageOperator {
     return produceAggregatedBlock();
   }
 
-  private TransferableBlock produceAggregatedBlock() {
+  private TransferableBlock produceAggregatedBlock()
+      throws IOException {
     _hasConstructedAggregateBlock = true;
     if (_aggregationExecutor != null) {
       return new TransferableBlock(_aggregationExecutor.getResult(), _resultSchema, DataBlock.Type.ROW);
     } else {
       List<Object[]> rows = _groupByExecutor.getResult();
       if (rows.isEmpty()) {
-        return _eosBlock;
+        return produceSpilledGroupByBlock();
       } else {
         TransferableBlock dataBlock = new TransferableBlock(rows, _resultSchema, DataBlock.Type.ROW);
         if (_groupByExecutor.isNumGroupsLimitReached()) {
@@ -166,12 +190,35 @@ public class AggregateOperator extends MultiStageOperator {
     }
   }
 
+  /**
+   * Returns the groups of the next non-empty spilled partition, one partition per block, or the EOS block when all the
+   * spilled partitions are processed.
+   */
+  private TransferableBlock produceSpilledGroupByBlock()
+      throws IOException {
+    while (_groupByExecutor.hasPendingSpilledPartitions()) {
+      List<Object[]> rows = _groupByExecutor.getNextSpilledResult();
+      sampleAndCheckInterruption();
+      if (!rows.isEmpty()) {
+        return new TransferableBlock(rows, _resultSchema, DataBlock.Type.ROW);
+      }
+    }
+    _hasProcessedSpilledPartitions = true;
+    _statMap.merge(StatKey.SPILLED_ROWS, _groupByExecutor.getNumSpilledRows());
+    _statMap.merge(StatKey.SPILLED_BYTES, _groupByExecutor.getNumSpilledBytes());
+    if (_groupByExecutor.isNumGroupsLimitReached()) {
+      _statMap.merge(StatKey.NUM_GROUPS_LIMIT_REACHED, true);
+    }
+    return _eosBlock;
+  }
+
   /**
    * Consumes the input blocks as a group by
    *
    * @return the last block, which must always be either an error or the end of the stream
    */
-  private TransferableBlock consumeGroupBy() {
+  private TransferableBlock consumeGroupBy()
+      throws IOException {
     TransferableBlock block = _input.nextBlock();
     while (block.isDataBlock()) {
       _groupByExecutor.processBlock(block);
@@ -370,7 +417,15 @@ public class AggregateOperator extends MultiStageOperator {
         return true;
       }
     },
-    NUM_GROUPS_LIMIT_REACHED(StatMap.Type.BOOLEAN);
+    NUM_GROUPS_LIMIT_REACHED(StatMap.Type.BOOLEAN),
+    /**
+     * Number of input rows spilled to disk by the group-by.
+     */
+    SPILLED_ROWS(StatMap.Type.LONG),
+    /**
+     * Number of bytes spilled to disk by the group-by.
+     */
+    SPILLED_BYTES(StatMap.Type.LONG);
     //@formatter:on
 
     private final StatMap.Type _type;
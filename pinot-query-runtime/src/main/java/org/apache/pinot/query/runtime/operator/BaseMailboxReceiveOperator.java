@@ -135,6 +135,7 @@ public abstract class BaseMailboxReceiveOperator extends MultiStageOperator {
     _statMap.merge(StatKey.IN_MEMORY_MESSAGES, from.getInt(ReceivingMailbox.StatKey.IN_MEMORY_MESSAGES));
     _statMap.merge(StatKey.DOWNSTREAM_WAIT_MS, from.getLong(ReceivingMailbox.StatKey.OFFER_CPU_TIME_MS));
     _statMap.merge(StatKey.UPSTREAM_WAIT_MS, from.getLong(ReceivingMailbox.StatKey.WAIT_CPU_TIME_MS));
+    _statMap.merge(StatKey.MAX_PENDING_BLOCKS, from.getInt(ReceivingMailbox.StatKey.MAX_PENDING_BLOCKS));
   }
 
   private static class ReadMailboxAsyncStream implements AsyncStream<TransferableBlock> {
@@ -231,7 +232,18 @@ public abstract class BaseMailboxReceiveOperator extends MultiStageOperator {
     /**
      * How long (in CPU time) it took to wait for the messages to be offered to downstream operator.
      */
-    UPSTREAM_WAIT_MS(StatMap.Type.LONG);
+    UPSTREAM_WAIT_MS(StatMap.Type.LONG),
+    /**
+     * The max number of blocks pending in any of the receiving mailboxes.
+     * <p>
+     * A value close to the mailbox capacity indicates that this stage cannot keep up with the upstream stage.
+     */
+    MAX_PENDING_BLOCKS(StatMap.Type.INT) {
+      @Override
+      public int merge(int value1, int value2) {
+        return Math.max(value1, value2);
+      }
+    };
     //@formatter:on
 
     private final StatMap.Type _type;
@@ -19,18 +19,24 @@
 package org.apache.pinot.query.runtime.operator;
 
 import com.google.common.base.Preconditions;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.apache.pinot.common.datablock.DataBlock;
+import org.apache.pinot.common.datablock.RowDataBlock;
 import org.apache.pinot.common.datatable.StatMap;
 import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.core.common.datablock.DataBlockBuilder;
 import org.apache.pinot.query.planner.plannode.FilterNode;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
+import org.apache.pinot.query.runtime.operator.operands.DataBlockFilter;
 import org.apache.pinot.query.runtime.operator.operands.TransformOperand;
 import org.apache.pinot.query.runtime.operator.operands.TransformOperandFactory;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
 import org.apache.pinot.spi.utils.BooleanUtils;
+import org.roaringbitmap.RoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,6 +53,9 @@ import org.slf4j.LoggerFactory;
     2) Binary Operand: equals, notEquals, greaterThan, greaterThanOrEqual, lessThan, lessThanOrEqual
     3) All boolean scalar functions we have that take tranformOperand.
     Note: Scalar functions are the ones we have in v1 engine and only do function name and arg # matching.
+   When the condition only compares columns with literals and the input block is still a serialized row data block, the
+   condition is evaluated on the primitive column values and the matching rows are copied without being extracted, so
+   that the downstream operators can keep working on the data block (see DataBlockFilter).
  */
 public class FilterOperator extends MultiStageOperator {
 
@@ -55,6 +64,8 @@ public class FilterOperator extends MultiStageOperator {
 
   private final MultiStageOperator _input;
   private final TransformOperand _filterOperand;
+  @Nullable
+  private final DataBlockFilter _dataBlockFilter;
   private final DataSchema _dataSchema;
   private final StatMap<StatKey> _statMap = new StatMap<>(StatKey.class);
 
@@ -65,6 +76,7 @@ public class FilterOperator extends MultiStageOperator {
     _filterOperand = TransformOperandFactory.getTransformOperand(node.getCondition(), _dataSchema);
     Preconditions.checkState(_filterOperand.getResultType() == ColumnDataType.BOOLEAN,
         "Filter operand must return BOOLEAN, got: %s", _filterOperand.getResultType());
+    _dataBlockFilter = DataBlockFilter.create(node.getCondition(), _dataSchema);
   }
 
   @Override
@@ -94,7 +106,8 @@ public class FilterOperator extends MultiStageOperator {
   }
 
   @Override
-  protected TransferableBlock getNextBlock() {
+  protected TransferableBlock getNextBlock()
+      throws IOException {
     // Keep reading the input blocks until we find a match row or all blocks are processed.
     // TODO: Consider batching the rows to improve performance.
     while (true) {
@@ -106,6 +119,14 @@ public class FilterOperator extends MultiStageOperator {
         return updateEosBlock(block, _statMap);
       }
       assert block.isDataBlock();
+      if (_dataBlockFilter != null && !block.isContainerConstructed()
+          && block.getDataBlock() instanceof RowDataBlock) {
+        TransferableBlock filteredBlock = filterDataBlock(block);
+        if (filteredBlock != null) {
+          return filteredBlock;
+        }
+        continue;
+      }
       List<Object[]> rows = new ArrayList<>();
       for (Object[] row : block.getContainer()) {
         Object filterResult = _filterOperand.apply(row);
@@ -119,6 +140,25 @@ public class FilterOperator extends MultiStageOperator {
     }
   }
 
+  /**
+   * Filters the rows of a block backed by a row data block without extracting them. Returns {@code null} if no row
+   * matches the condition.
+   */
+  @Nullable
+  private TransferableBlock filterDataBlock(TransferableBlock block)
+      throws IOException {
+    RowDataBlock dataBlock = (RowDataBlock) block.getDataBlock();
+    RoaringBitmap matchingRows = _dataBlockFilter.getMatchingRows(dataBlock);
+    int numMatchingRows = matchingRows.getCardinality();
+    if (numMatchingRows == 0) {
+      return null;
+    }
+    if (numMatchingRows == dataBlock.getNumberOfRows()) {
+      return block;
+    }
+    return new TransferableBlock(DataBlockBuilder.buildFromRowIds(dataBlock, matchingRows.toArray(), numMatchingRows));
+  }
+
   public enum StatKey implements StatMap.Key {
     //@formatter:off
     EXECUTION_TIME_MS(StatMap.Type.LONG) {
@@ -19,6 +19,9 @@
 package org.apache.pinot.query.runtime.operator;
 
 import com.google.common.base.Preconditions;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.HashMap;
@@ -43,6 +46,7 @@ import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
 import org.apache.pinot.query.runtime.operator.operands.TransformOperand;
 import org.apache.pinot.query.runtime.operator.operands.TransformOperandFactory;
+import org.apache.pinot.query.runtime.operator.utils.DataBlockSpillFile;
 import org.apache.pinot.query.runtime.plan.MultiStageQueryStats;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
 import org.apache.pinot.spi.utils.BooleanUtils;
@@ -54,9 +58,13 @@ import org.slf4j.LoggerFactory;
 
 /**
  * This {@code HashJoinOperator} implements the hash join algorithm.
- * <p>This algorithm assumes that the right table has to fit in memory since we are not supporting any spilling. It
- * reads the complete hash partitioned right table and materialize the data into a hash table. Then for each of the left
- * table row, it looks up for the corresponding row(s) from the hash table and create a joint row.
+ * <p>It reads the complete hash partitioned right table and materialize the data into a hash table. Then for each of
+ * the left table row, it looks up for the corresponding row(s) from the hash table and create a joint row.
+ * <p>When the right table does not fit into the max rows limit and the overflow mode is {@link JoinOverFlowMode#SPILL},
+ * it falls back to a grace hash join: both the right and the left table are hash partitioned into local spill files on
+ * the join keys, then each pair of partitions is joined in memory one at a time. Partitions that still exceed the limit
+ * are recursively re-partitioned up to {@link #MAX_SPILL_DEPTH} levels, after which the join fails with the same
+ * error as the THROW mode.
  * <p>For each of the data block received from the left table, it generates a joint data block. The output is in the
  * format of [left_row, right_row].
  */
@@ -68,6 +76,8 @@ public class HashJoinOperator extends MultiStageOperator {
   private static final int INITIAL_HEURISTIC_SIZE = 16;
   private static final int DEFAULT_MAX_ROWS_IN_JOIN = 1024 * 1024; // 2^20, around 1MM rows
   private static final JoinOverFlowMode DEFAULT_JOIN_OVERFLOW_MODE = JoinOverFlowMode.THROW;
+  private static final int NUM_SPILL_PARTITIONS = 16;
+  private static final int MAX_SPILL_DEPTH = 3;
 
   private static final Set<JoinRelType> SUPPORTED_JOIN_TYPES =
       Set.of(JoinRelType.INNER, JoinRelType.LEFT, JoinRelType.RIGHT, JoinRelType.FULL, JoinRelType.SEMI,
@@ -84,6 +94,7 @@ public class HashJoinOperator extends MultiStageOperator {
   private final JoinRelType _joinType;
   private final KeySelector<?> _leftKeySelector;
   private final KeySelector<?> _rightKeySelector;
+  private final DataSchema _leftSchema;
   private final DataSchema _resultSchema;
   private final int _leftColumnSize;
   private final int _resultColumnSize;
@@ -99,12 +110,22 @@ public class HashJoinOperator extends MultiStageOperator {
    */
   private final int _maxRowsInJoin;
   /**
-   * Mode when join overflow happens, supported values: THROW or BREAK.
+   * Mode when join overflow happens, supported values: THROW, BREAK or SPILL.
    *   THROW(default): Break right table build process, and throw exception, no JOIN with left table performed.
    *   BREAK: Break right table build process, continue to perform JOIN operation, results might be partial.
+   *   SPILL: Partition both tables to local disk and join them partition by partition. The limit on the joined rows
+   *          emitted for a left block is still enforced the same way as THROW.
    */
   private final JoinOverFlowMode _joinOverflowMode;
 
+  // Below are only used when the right table is spilled to disk.
+  private final File _spillDir;
+  private DataBlockSpillFile[] _rightSpillFiles;
+  private DataBlockSpillFile[] _leftSpillFiles;
+  private ArrayDeque<SpillPartition> _pendingSpillPartitions;
+  private SpillPartition _currentSpillPartition;
+  private DataBlockSpillFile.Reader _leftSpillReader;
+
   private boolean _isHashTableBuilt;
   private TransferableBlock _upstreamErrorBlock;
   private MultiStageQueryStats _leftSideStats;
@@ -124,6 +145,7 @@ public class HashJoinOperator extends MultiStageOperator {
 
     _leftKeySelector = KeySelectorFactory.getKeySelector(node.getLeftKeys());
     _rightKeySelector = KeySelectorFactory.getKeySelector(node.getRightKeys());
+    _leftSchema = leftSchema;
     _leftColumnSize = leftSchema.size();
     _resultSchema = node.getDataSchema();
     _resultColumnSize = _resultSchema.size();
@@ -142,6 +164,7 @@ public class HashJoinOperator extends MultiStageOperator {
     PlanNode.NodeHint nodeHint = node.getNodeHint();
     _maxRowsInJoin = getMaxRowsInJoin(metadata, nodeHint);
     _joinOverflowMode = getJoinOverflowMode(metadata, nodeHint);
+    _spillDir = context.getSpillDir();
   }
 
   @Override
@@ -209,6 +232,9 @@ public class HashJoinOperator extends MultiStageOperator {
     if (_upstreamErrorBlock != null) {
       return _upstreamErrorBlock;
     }
+    if (_rightSpillFiles != null) {
+      return buildSpilledJoinedDataBlock();
+    }
     return buildJoinedDataBlock();
   }
 
@@ -219,11 +245,26 @@ public class HashJoinOperator extends MultiStageOperator {
     TransferableBlock rightBlock = _rightInput.nextBlock();
     while (!TransferableBlockUtils.isEndOfStream(rightBlock)) {
       List<Object[]> container = rightBlock.getContainer();
+      if (_rightSpillFiles != null) {
+        spillRows(container, _rightKeySelector, _rightSpillFiles, 0);
+        sampleAndCheckInterruption();
+        rightBlock = _rightInput.nextBlock();
+        continue;
+      }
       // Row based overflow check.
       if (container.size() + numRowsInHashTable > _maxRowsInJoin) {
         if (_joinOverflowMode == JoinOverFlowMode.THROW) {
           throwProcessingExceptionForJoinRowLimitExceeded(
               "Cannot build in memory hash table for join operator, reached number of rows limit: " + _maxRowsInJoin);
+        } else if (_joinOverflowMode == JoinOverFlowMode.SPILL) {
+          logger().info("Spilling join operator to disk as the maximum number of rows limit was reached: {}",
+              _maxRowsInJoin);
+          _rightSpillFiles = createSpillFiles(rightBlock.getDataSchema());
+          spillHashTable();
+          spillRows(container, _rightKeySelector, _rightSpillFiles, 0);
+          sampleAndCheckInterruption();
+          rightBlock = _rightInput.nextBlock();
+          continue;
         } else {
           // Just fill up the buffer.
           int remainingRows = _maxRowsInJoin - numRowsInHashTable;
@@ -233,16 +274,7 @@ public class HashJoinOperator extends MultiStageOperator {
           _rightInput.earlyTerminate();
         }
       }
-      // put all the rows into corresponding hash collections keyed by the key selector function.
-      for (Object[] row : container) {
-        ArrayList<Object[]> hashCollection = _broadcastRightTable.computeIfAbsent(_rightKeySelector.getKey(row),
-            k -> new ArrayList<>(INITIAL_HEURISTIC_SIZE));
-        int size = hashCollection.size();
-        if ((size & size - 1) == 0 && size < _maxRowsInJoin && size < Integer.MAX_VALUE / 2) { // is power of 2
-          hashCollection.ensureCapacity(Math.min(size << 1, _maxRowsInJoin));
-        }
-        hashCollection.add(row);
-      }
+      addToHashTable(container);
       numRowsInHashTable += container.size();
       sampleAndCheckInterruption();
       rightBlock = _rightInput.nextBlock();
@@ -257,6 +289,261 @@ public class HashJoinOperator extends MultiStageOperator {
     _statMap.merge(StatKey.TIME_BUILDING_HASH_TABLE_MS, System.currentTimeMillis() - startTime);
   }
 
+  /**
+   * Puts all the rows into corresponding hash collections keyed by the key selector function.
+   */
+  private void addToHashTable(List<Object[]> rows) {
+    for (Object[] row : rows) {
+      ArrayList<Object[]> hashCollection = _broadcastRightTable.computeIfAbsent(_rightKeySelector.getKey(row),
+          k -> new ArrayList<>(INITIAL_HEURISTIC_SIZE));
+      int size = hashCollection.size();
+      if ((size & size - 1) == 0 && size < _maxRowsInJoin && size < Integer.MAX_VALUE / 2) { // is power of 2
+        hashCollection.ensureCapacity(Math.min(size << 1, _maxRowsInJoin));
+      }
+      hashCollection.add(row);
+    }
+  }
+
+  private DataBlockSpillFile[] createSpillFiles(DataSchema dataSchema)
+      throws ProcessingException {
+    DataBlockSpillFile[] spillFiles = new DataBlockSpillFile[NUM_SPILL_PARTITIONS];
+    try {
+      for (int i = 0; i < NUM_SPILL_PARTITIONS; i++) {
+        spillFiles[i] = new DataBlockSpillFile(_spillDir, dataSchema);
+      }
+    } catch (IOException e) {
+      closeSpillFiles(spillFiles);
+      throw spillException(e);
+    }
+    return spillFiles;
+  }
+
+  /**
+   * Moves the rows already in the in-memory hash table into the right spill partitions.
+   */
+  private void spillHashTable()
+      throws ProcessingException {
+    List<Object[]> rows = new ArrayList<>();
+    for (ArrayList<Object[]> hashCollection : _broadcastRightTable.values()) {
+      rows.addAll(hashCollection);
+    }
+    _broadcastRightTable.clear();
+    spillRows(rows, _rightKeySelector, _rightSpillFiles, 0);
+  }
+
+  /**
+   * Hash partitions the rows on the join keys and appends each partition to the corresponding spill file. The depth is
+   * used to pick a different hash function on each level of recursive partitioning.
+   */
+  private void spillRows(List<Object[]> rows, KeySelector<?> keySelector, DataBlockSpillFile[] spillFiles, int depth)
+      throws ProcessingException {
+    int numPartitions = spillFiles.length;
+    List<List<Object[]>> partitionedRows = new ArrayList<>(numPartitions);
+    for (int i = 0; i < numPartitions; i++) {
+      partitionedRows.add(new ArrayList<>());
+    }
+    for (Object[] row : rows) {
+      partitionedRows.get(DataBlockSpillFile.getPartitionId(keySelector.getKey(row), depth, numPartitions)).add(row);
+    }
+    try {
+      for (int i = 0; i < numPartitions; i++) {
+        DataBlockSpillFile spillFile = spillFiles[i];
+        long sizeInBytes = spillFile.getSizeInBytes();
+        spillFile.appendRows(partitionedRows.get(i));
+        _statMap.merge(StatKey.SPILLED_BYTES, spillFile.getSizeInBytes() - sizeInBytes);
+      }
+    } catch (IOException e) {
+      throw spillException(e);
+    }
+    _statMap.merge(StatKey.SPILLED_ROWS, rows.size());
+  }
+
+  private TransferableBlock buildSpilledJoinedDataBlock()
+      throws ProcessingException {
+    if (_leftSpillFiles == null) {
+      // Partition the complete left table with the same hash function used for the right table
+      _leftSpillFiles = createSpillFiles(_leftSchema);
+      TransferableBlock leftBlock = _leftInput.nextBlock();
+      while (!TransferableBlockUtils.isEndOfStream(leftBlock)) {
+        spillRows(leftBlock.getContainer(), _leftKeySelector, _leftSpillFiles, 0);
+        sampleAndCheckInterruption();
+        leftBlock = _leftInput.nextBlock();
+      }
+      if (leftBlock.isErrorBlock()) {
+        return leftBlock;
+      }
+      _leftSideStats = leftBlock.getQueryStats();
+      assert _leftSideStats != null;
+      _pendingSpillPartitions = new ArrayDeque<>(NUM_SPILL_PARTITIONS);
+      for (int i = 0; i < NUM_SPILL_PARTITIONS; i++) {
+        _pendingSpillPartitions.add(new SpillPartition(_rightSpillFiles[i], _leftSpillFiles[i], 0));
+      }
+    }
+
+    while (true) {
+      if (_currentSpillPartition == null) {
+        SpillPartition spillPartition = _pendingSpillPartitions.poll();
+        if (spillPartition == null) {
+          assert _rightSideStats != null;
+          _leftSideStats.mergeInOrder(_rightSideStats, getOperatorType(), _statMap);
+          return TransferableBlockUtils.getEndOfStreamTransferableBlock(_leftSideStats);
+        }
+        openSpillPartition(spillPartition);
+        continue;
+      }
+
+      List<Object[]> leftRows;
+      try {
+        leftRows = _leftSpillReader.nextRows();
+      } catch (IOException e) {
+        throw spillException(e);
+      }
+      if (leftRows != null) {
+        List<Object[]> rows = buildJoinedRows(leftRows);
+        sampleAndCheckInterruption();
+        if (!rows.isEmpty()) {
+          return new TransferableBlock(rows, _resultSchema, DataBlock.Type.ROW);
+        }
+        continue;
+      }
+
+      // All the left rows of the current partition are processed
+      List<Object[]> rows = needUnmatchedRightRows() ? buildNonMatchRightRows() : List.of();
+      closeSpillPartition(_currentSpillPartition);
+      _currentSpillPartition = null;
+      _leftSpillReader = null;
+      _broadcastRightTable.clear();
+      if (_matchedRightRows != null) {
+        _matchedRightRows.clear();
+      }
+      if (!rows.isEmpty()) {
+        return new TransferableBlock(rows, _resultSchema, DataBlock.Type.ROW);
+      }
+    }
+  }
+
+  /**
+   * Loads the right rows of the given partition into the hash table, or re-partitions it when it is still too large.
+   */
+  private void openSpillPartition(SpillPartition spillPartition)
+      throws ProcessingException {
+    DataBlockSpillFile rightFile = spillPartition._rightFile;
+    DataBlockSpillFile leftFile = spillPartition._leftFile;
+    if (!canProduceRows(leftFile.getNumRows(), rightFile.getNumRows())) {
+      closeSpillPartition(spillPartition);
+      return;
+    }
+    try {
+      if (rightFile.getNumRows() > _maxRowsInJoin && spillPartition._depth < MAX_SPILL_DEPTH) {
+        int depth = spillPartition._depth + 1;
+        DataBlockSpillFile[] rightSpillFiles = createSpillFiles(rightFile.getDataSchema());
+        DataBlockSpillFile[] leftSpillFiles = createSpillFiles(leftFile.getDataSchema());
+        DataBlockSpillFile.Reader rightReader = rightFile.openReader();
+        List<Object[]> rows;
+        while ((rows = rightReader.nextRows()) != null) {
+          spillRows(rows, _rightKeySelector, rightSpillFiles, depth);
+          sampleAndCheckInterruption();
+        }
+        DataBlockSpillFile.Reader leftReader = leftFile.openReader();
+        while ((rows = leftReader.nextRows()) != null) {
+          spillRows(rows, _leftKeySelector, leftSpillFiles, depth);
+          sampleAndCheckInterruption();
+        }
+        closeSpillPartition(spillPartition);
+        for (int i = 0; i < NUM_SPILL_PARTITIONS; i++) {
+          _pendingSpillPartitions.add(new SpillPartition(rightSpillFiles[i], leftSpillFiles[i], depth));
+        }
+        return;
+      }
+      if (rightFile.getNumRows() > _maxRowsInJoin) {
+        // The join keys are too skewed to be split further, fail instead of loading the whole partition into memory
+        closeSpillPartition(spillPartition);
+        throwProcessingExceptionForJoinRowLimitExceeded(
+            "Cannot build in memory hash table for spilled join partition with " + rightFile.getNumRows()
+                + " rows after " + MAX_SPILL_DEPTH + " levels of partitioning, reached number of rows limit: "
+                + _maxRowsInJoin);
+      }
+      long startTime = System.currentTimeMillis();
+      DataBlockSpillFile.Reader rightReader = rightFile.openReader();
+      List<Object[]> rows;
+      while ((rows = rightReader.nextRows()) != null) {
+        addToHashTable(rows);
+        sampleAndCheckInterruption();
+      }
+      _statMap.merge(StatKey.TIME_BUILDING_HASH_TABLE_MS, System.currentTimeMillis() - startTime);
+    } catch (IOException e) {
+      throw spillException(e);
+    }
+    _currentSpillPartition = spillPartition;
+    _leftSpillReader = leftFile.openReader();
+  }
+
+  /**
+   * Returns whether joining a partition with the given number of left and right rows can produce any row.
+   */
+  private boolean canProduceRows(int numLeftRows, int numRightRows) {
+    if (numLeftRows == 0) {
+      return numRightRows > 0 && needUnmatchedRightRows();
+    }
+    if (numRightRows == 0) {
+      return needUnmatchedLeftRows() || _joinType == JoinRelType.ANTI;
+    }
+    return true;
+  }
+
+  private ProcessingException spillException(IOException e) {
+    ProcessingException processingException =
+        new ProcessingException(QueryException.QUERY_EXECUTION_ERROR_CODE);
+    processingException.setMessage("Caught exception while spilling join operator to disk: " + e.getMessage());
+    return processingException;
+  }
+
+  private void closeSpillPartition(SpillPartition spillPartition) {
+    closeSpillFiles(spillPartition._rightFile, spillPartition._leftFile);
+  }
+
+  private void closeSpillFiles(DataBlockSpillFile... spillFiles) {
+    for (DataBlockSpillFile spillFile : spillFiles) {
+      if (spillFile != null) {
+        try {
+          spillFile.close();
+        } catch (Exception e) {
+          logger().warn("Failed to close join spill file", e);
+        }
+      }
+    }
+  }
+
+  private void releaseSpillFiles() {
+    if (_rightSpillFiles != null) {
+      closeSpillFiles(_rightSpillFiles);
+    }
+    if (_leftSpillFiles != null) {
+      closeSpillFiles(_leftSpillFiles);
+    }
+    if (_currentSpillPartition != null) {
+      closeSpillPartition(_currentSpillPartition);
+    }
+    if (_pendingSpillPartitions != null) {
+      for (SpillPartition spillPartition : _pendingSpillPartitions) {
+        closeSpillPartition(spillPartition);
+      }
+      _pendingSpillPartitions.clear();
+    }
+  }
+
+  @Override
+  public void close() {
+    releaseSpillFiles();
+    super.close();
+  }
+
+  @Override
+  public void cancel(Throwable e) {
+    releaseSpillFiles();
+    super.cancel(e);
+  }
+
   private TransferableBlock buildJoinedDataBlock()
       throws ProcessingException {
     // Keep reading the input blocks until we find a match row or all blocks are processed.
@@ -289,7 +576,7 @@ public class HashJoinOperator extends MultiStageOperator {
         return leftBlock;
       }
       assert leftBlock.isDataBlock();
-      List<Object[]> rows = buildJoinedRows(leftBlock);
+      List<Object[]> rows = buildJoinedRows(leftBlock.getContainer());
       sampleAndCheckInterruption();
       if (!rows.isEmpty()) {
         return new TransferableBlock(rows, _resultSchema, DataBlock.Type.ROW);
@@ -297,22 +584,21 @@ public class HashJoinOperator extends MultiStageOperator {
     }
   }
 
-  private List<Object[]> buildJoinedRows(TransferableBlock leftBlock)
+  private List<Object[]> buildJoinedRows(List<Object[]> container)
       throws ProcessingException {
     switch (_joinType) {
       case SEMI:
-        return buildJoinedDataBlockSemi(leftBlock);
+        return buildJoinedDataBlockSemi(container);
       case ANTI:
-        return buildJoinedDataBlockAnti(leftBlock);
+        return buildJoinedDataBlockAnti(container);
       default: { // INNER, LEFT, RIGHT, FULL
-        return buildJoinedDataBlockDefault(leftBlock);
+        return buildJoinedDataBlockDefault(container);
       }
     }
   }
 
-  private List<Object[]> buildJoinedDataBlockDefault(TransferableBlock leftBlock)
+  private List<Object[]> buildJoinedDataBlockDefault(List<Object[]> container)
       throws ProcessingException {
-    List<Object[]> container = leftBlock.getContainer();
     ArrayList<Object[]> rows = new ArrayList<>(container.size());
 
     for (Object[] leftRow : container) {
@@ -363,8 +649,7 @@ public class HashJoinOperator extends MultiStageOperator {
     return rows;
   }
 
-  private List<Object[]> buildJoinedDataBlockSemi(TransferableBlock leftBlock) {
-    List<Object[]> container = leftBlock.getContainer();
+  private List<Object[]> buildJoinedDataBlockSemi(List<Object[]> container) {
     List<Object[]> rows = new ArrayList<>(container.size());
 
     for (Object[] leftRow : container) {
@@ -378,8 +663,7 @@ public class HashJoinOperator extends MultiStageOperator {
     return rows;
   }
 
-  private List<Object[]> buildJoinedDataBlockAnti(TransferableBlock leftBlock) {
-    List<Object[]> container = leftBlock.getContainer();
+  private List<Object[]> buildJoinedDataBlockAnti(List<Object[]> container) {
     List<Object[]> rows = new ArrayList<>(container.size());
 
     for (Object[] leftRow : container) {
@@ -461,7 +745,7 @@ public class HashJoinOperator extends MultiStageOperator {
   private boolean isMaxRowsLimitReached(int numJoinedRows)
       throws ProcessingException {
     if (numJoinedRows == _maxRowsInJoin) {
-      if (_joinOverflowMode == JoinOverFlowMode.THROW) {
+      if (_joinOverflowMode != JoinOverFlowMode.BREAK) {
         throwProcessingExceptionForJoinRowLimitExceeded(
             "Cannot process join, reached number of rows limit: " + _maxRowsInJoin);
       } else {
@@ -493,6 +777,18 @@ public class HashJoinOperator extends MultiStageOperator {
     throw resourceLimitExceededException;
   }
 
+  private static class SpillPartition {
+    final DataBlockSpillFile _rightFile;
+    final DataBlockSpillFile _leftFile;
+    final int _depth;
+
+    SpillPartition(DataBlockSpillFile rightFile, DataBlockSpillFile leftFile, int depth) {
+      _rightFile = rightFile;
+      _leftFile = leftFile;
+      _depth = depth;
+    }
+  }
+
   public enum StatKey implements StatMap.Key {
     //@formatter:off
     EXECUTION_TIME_MS(StatMap.Type.LONG) {
@@ -511,7 +807,15 @@ public class HashJoinOperator extends MultiStageOperator {
     /**
      * How long (CPU time) has been spent on building the hash table.
      */
-    TIME_BUILDING_HASH_TABLE_MS(StatMap.Type.LONG);
+    TIME_BUILDING_HASH_TABLE_MS(StatMap.Type.LONG),
+    /**
+     * Number of rows (from both sides) spilled to disk.
+     */
+    SPILLED_ROWS(StatMap.Type.LONG),
+    /**
+     * Number of bytes (from both sides) spilled to disk.
+     */
+    SPILLED_BYTES(StatMap.Type.LONG);
     //@formatter:on
 
     private final StatMap.Type _type;
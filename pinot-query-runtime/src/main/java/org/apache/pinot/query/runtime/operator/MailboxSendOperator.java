@@ -277,7 +277,14 @@ public class MailboxSendOperator extends MultiStageOperator {
       public boolean includeDefaultInJson() {
         return true;
       }
-    };
+    },
+    /**
+     * How long (in clock time) this mailbox was blocked waiting for the receivers to consume the data.
+     * <p>
+     * A high number here indicates that the next stage (or one of its workers in case of skewed exchange) is the
+     * bottleneck.
+     */
+    SEND_BLOCKED_TIME_MS(StatMap.Type.LONG);
     //@formatter:on
 
     private final StatMap.Type _type;
@@ -332,6 +332,8 @@ public abstract class MultiStageOperator
         StatMap<MailboxSendOperator.StatKey> stats = (StatMap<MailboxSendOperator.StatKey>) map;
         serverMetrics.addTimedValue(ServerTimer.MULTI_STAGE_SERIALIZATION_CPU_TIME_MS,
             stats.getLong(MailboxSendOperator.StatKey.SERIALIZATION_TIME_MS), TimeUnit.MILLISECONDS);
+        serverMetrics.addTimedValue(ServerTimer.SEND_BLOCKED_TIME_MS,
+            stats.getLong(MailboxSendOperator.StatKey.SEND_BLOCKED_TIME_MS), TimeUnit.MILLISECONDS);
       }
     },
     MINUS(SetOperator.StatKey.class) {
@@ -18,7 +18,10 @@
  */
 package org.apache.pinot.query.runtime.operator;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -41,6 +44,7 @@ import org.apache.pinot.query.planner.plannode.PlanNode;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.operator.groupby.GroupIdGenerator;
 import org.apache.pinot.query.runtime.operator.groupby.GroupIdGeneratorFactory;
+import org.apache.pinot.query.runtime.operator.utils.DataBlockSpillFile;
 import org.apache.pinot.query.runtime.operator.utils.TypeUtils;
 import org.roaringbitmap.PeekableIntIterator;
 import org.roaringbitmap.RoaringBitmap;
@@ -48,9 +52,17 @@ import org.roaringbitmap.RoaringBitmap;
 
 /**
  * Class that executes the group by aggregations for the multistage AggregateOperator.
+ * <p>When the group-by spill threshold is configured, at most that many groups are kept in memory and
+ * {@code numGroupsLimit} is not applied. Once the threshold is reached, the input rows of the groups not in memory are
+ * hash partitioned on the group keys and spilled to disk. Since a group is either fully aggregated in memory or fully
+ * spilled, each spilled partition can later be aggregated independently (recursively spilling if needed) to produce
+ * exact results.
  */
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class MultistageGroupByExecutor {
+  private static final int NUM_SPILL_PARTITIONS = 16;
+  private static final int MAX_SPILL_DEPTH = 3;
+
   private final int[] _groupKeyIds;
   private final AggregationFunction[] _aggFunctions;
   private final int[] _filterArgIds;
@@ -60,6 +72,9 @@ public class MultistageGroupByExecutor {
   private final DataSchema _resultSchema;
   private final int _numGroupsLimit;
   private final boolean _filteredAggregationsSkipEmptyGroups;
+  private final Map<String, String> _opChainMetadata;
+  @Nullable
+  private final PlanNode.NodeHint _nodeHint;
 
   // Group By Result holders for each mode
   private final GroupByResultHolder[] _aggregateResultHolders;
@@ -69,9 +84,27 @@ public class MultistageGroupByExecutor {
   // because they use the zero based integer indexes to store results.
   private final GroupIdGenerator _groupIdGenerator;
 
+  // Below are only used when spilling is enabled, in which case the group id generator is bounded by the spill
+  // threshold instead of the num groups limit.
+  private final int _spillThresholdGroups;
+  private final File _spillDir;
+  private final int _spillDepth;
+  private DataBlockSpillFile[] _spillFiles;
+  private int _nextSpillPartition;
+  private boolean _spilledNumGroupsLimitReached;
+  private long _numSpilledRows;
+  private long _numSpilledBytes;
+
   public MultistageGroupByExecutor(int[] groupKeyIds, AggregationFunction[] aggFunctions, int[] filterArgIds,
       int maxFilterArgId, AggType aggType, boolean leafReturnFinalResult, DataSchema resultSchema,
-      Map<String, String> opChainMetadata, @Nullable PlanNode.NodeHint nodeHint) {
+      Map<String, String> opChainMetadata, @Nullable PlanNode.NodeHint nodeHint, File spillDir) {
+    this(groupKeyIds, aggFunctions, filterArgIds, maxFilterArgId, aggType, leafReturnFinalResult, resultSchema,
+        opChainMetadata, nodeHint, spillDir, 0);
+  }
+
+  private MultistageGroupByExecutor(int[] groupKeyIds, AggregationFunction[] aggFunctions, int[] filterArgIds,
+      int maxFilterArgId, AggType aggType, boolean leafReturnFinalResult, DataSchema resultSchema,
+      Map<String, String> opChainMetadata, @Nullable PlanNode.NodeHint nodeHint, File spillDir, int spillDepth) {
     _groupKeyIds = groupKeyIds;
     _aggFunctions = aggFunctions;
     _filterArgIds = filterArgIds;
@@ -81,6 +114,16 @@ public class MultistageGroupByExecutor {
     _resultSchema = resultSchema;
     int maxInitialResultHolderCapacity = getMaxInitialResultHolderCapacity(opChainMetadata, nodeHint);
     _numGroupsLimit = getNumGroupsLimit(opChainMetadata, nodeHint);
+    _opChainMetadata = opChainMetadata;
+    _nodeHint = nodeHint;
+
+    // Partitions that are still too large after MAX_SPILL_DEPTH levels of partitioning fall back to the num groups
+    // limit
+    Integer spillThresholdGroups = QueryOptionsUtils.getGroupBySpillThresholdGroups(opChainMetadata);
+    _spillThresholdGroups = spillThresholdGroups != null && spillDepth < MAX_SPILL_DEPTH ? spillThresholdGroups : 0;
+    _spillDir = spillDir;
+    _spillDepth = spillDepth;
+    int maxNumGroups = _spillThresholdGroups > 0 ? _spillThresholdGroups : _numGroupsLimit;
 
     // By default, we compute all groups for SQL compliant results. However, we allow overriding this behavior via
     // query option for improved performance.
@@ -91,7 +134,7 @@ public class MultistageGroupByExecutor {
       _aggregateResultHolders = new GroupByResultHolder[numFunctions];
       for (int i = 0; i < numFunctions; i++) {
         _aggregateResultHolders[i] =
-            _aggFunctions[i].createGroupByResultHolder(maxInitialResultHolderCapacity, _numGroupsLimit);
+            _aggFunctions[i].createGroupByResultHolder(maxInitialResultHolderCapacity, maxNumGroups);
       }
       _mergeResultHolder = null;
     } else {
@@ -101,7 +144,7 @@ public class MultistageGroupByExecutor {
 
     _groupIdGenerator =
         GroupIdGeneratorFactory.getGroupIdGenerator(_resultSchema.getStoredColumnDataTypes(), groupKeyIds.length,
-            _numGroupsLimit);
+            maxNumGroups);
   }
 
   private int getNumGroupsLimit(Map<String, String> opChainMetadata, @Nullable PlanNode.NodeHint nodeHint) {
@@ -142,11 +185,21 @@ public class MultistageGroupByExecutor {
   /**
    * Performs group-by aggregation for the data in the block.
    */
-  public void processBlock(TransferableBlock block) {
+  public void processBlock(TransferableBlock block)
+      throws IOException {
+    int[] groupIds = null;
+    if (_spillThresholdGroups > 0 && _groupIdGenerator.getNumGroups() + block.getNumRows() > _spillThresholdGroups) {
+      List<Object[]> rows = getRowsCreatingGroups(block);
+      groupIds = generateGroupByKeys(rows);
+      block = spillNewGroups(block, rows, groupIds);
+      if (block == null) {
+        return;
+      }
+    }
     if (!_aggType.isInputIntermediateFormat()) {
-      processAggregate(block);
+      processAggregate(block, groupIds);
     } else {
-      processMerge(block);
+      processMerge(block, groupIds);
     }
   }
 
@@ -202,13 +255,167 @@ public class MultistageGroupByExecutor {
   }
 
   public boolean isNumGroupsLimitReached() {
+    if (_spillThresholdGroups > 0) {
+      return _spilledNumGroupsLimitReached;
+    }
     return _groupIdGenerator.getNumGroups() == _numGroupsLimit;
   }
 
-  private void processAggregate(TransferableBlock block) {
+  /**
+   * Returns whether there are spilled partitions not yet returned by {@link #getNextSpilledResult()}.
+   */
+  public boolean hasPendingSpilledPartitions() {
+    return _spillFiles != null && _nextSpillPartition < _spillFiles.length;
+  }
+
+  /**
+   * Aggregates the next spilled partition and returns its result rows, which can be empty.
+   */
+  public List<Object[]> getNextSpilledResult()
+      throws IOException {
+    try (DataBlockSpillFile spillFile = _spillFiles[_nextSpillPartition++]) {
+      if (spillFile.getNumRows() == 0) {
+        return Collections.emptyList();
+      }
+      MultistageGroupByExecutor executor =
+          new MultistageGroupByExecutor(_groupKeyIds, _aggFunctions, _filterArgIds, _maxFilterArgId, _aggType,
+              _leafReturnFinalResult, _resultSchema, _opChainMetadata, _nodeHint, _spillDir, _spillDepth + 1);
+      try {
+        DataBlockSpillFile.Reader reader = spillFile.openReader();
+        List<Object[]> rows;
+        while ((rows = reader.nextRows()) != null) {
+          executor.processBlock(new TransferableBlock(rows, spillFile.getDataSchema(), DataBlock.Type.ROW));
+        }
+        List<Object[]> result = new ArrayList<>(executor.getResult());
+        while (executor.hasPendingSpilledPartitions()) {
+          result.addAll(executor.getNextSpilledResult());
+        }
+        _spilledNumGroupsLimitReached |= executor.isNumGroupsLimitReached();
+        _numSpilledRows += executor._numSpilledRows;
+        _numSpilledBytes += executor._numSpilledBytes;
+        return result;
+      } finally {
+        executor.close();
+      }
+    }
+  }
+
+  public long getNumSpilledRows() {
+    return _numSpilledRows;
+  }
+
+  public long getNumSpilledBytes() {
+    return _numSpilledBytes;
+  }
+
+  /**
+   * Releases the spill files not processed yet.
+   */
+  public void close() {
+    if (_spillFiles != null) {
+      for (; _nextSpillPartition < _spillFiles.length; _nextSpillPartition++) {
+        try {
+          _spillFiles[_nextSpillPartition].close();
+        } catch (Exception e) {
+          // Ignore, the file is deleted on a best effort basis
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the rows of the block that should create groups. Rows not matching any filter should not create groups
+   * when empty groups are skipped for filtered aggregations.
+   */
+  private List<Object[]> getRowsCreatingGroups(TransferableBlock block) {
+    List<Object[]> rows = block.getContainer();
+    if (!_filteredAggregationsSkipEmptyGroups || _maxFilterArgId < 0) {
+      return rows;
+    }
+    for (int filterArgId : _filterArgIds) {
+      if (filterArgId < 0) {
+        return rows;
+      }
+    }
+    List<Object[]> matchedRows = new ArrayList<>(rows.size());
+    for (Object[] row : rows) {
+      for (int filterArgId : _filterArgIds) {
+        if ((int) row[filterArgId] == 1) {
+          matchedRows.add(row);
+          break;
+        }
+      }
+    }
+    return matchedRows;
+  }
+
+  /**
+   * Spills the rows belonging to groups that are not kept in memory (i.e. got {@link GroupIdGenerator#INVALID_ID} from
+   * the given group ids). Returns the block with the remaining rows, or {@code null} if all the rows are spilled. The
+   * group ids of the remaining rows are compacted in place to the front of the given array, so that they can be reused
+   * for the aggregation without generating the group keys again.
+   */
+  @Nullable
+  private TransferableBlock spillNewGroups(TransferableBlock block, List<Object[]> rows, int[] groupIds)
+      throws IOException {
+    int numRows = rows.size();
+    List<Object[]> inMemoryRows = new ArrayList<>(numRows);
+    List<List<Object[]>> partitionedRows = null;
+    int numKeys = _groupKeyIds.length;
+    Object[] key = new Object[numKeys];
+    for (int i = 0; i < numRows; i++) {
+      Object[] row = rows.get(i);
+      int groupId = groupIds[i];
+      if (groupId != GroupIdGenerator.INVALID_ID) {
+        groupIds[inMemoryRows.size()] = groupId;
+        inMemoryRows.add(row);
+        continue;
+      }
+      if (partitionedRows == null) {
+        partitionedRows = new ArrayList<>(NUM_SPILL_PARTITIONS);
+        for (int j = 0; j < NUM_SPILL_PARTITIONS; j++) {
+          partitionedRows.add(new ArrayList<>());
+        }
+      }
+      Object partitionKey;
+      if (numKeys == 1) {
+        partitionKey = row[_groupKeyIds[0]];
+      } else {
+        for (int j = 0; j < numKeys; j++) {
+          key[j] = row[_groupKeyIds[j]];
+        }
+        partitionKey = Arrays.hashCode(key);
+      }
+      partitionedRows.get(DataBlockSpillFile.getPartitionId(partitionKey, _spillDepth, NUM_SPILL_PARTITIONS)).add(row);
+    }
+    if (partitionedRows == null) {
+      return numRows == block.getNumRows() ? block : new TransferableBlock(inMemoryRows, block.getDataSchema(),
+          DataBlock.Type.ROW);
+    }
+    DataSchema dataSchema = block.getDataSchema();
+    if (_spillFiles == null) {
+      _spillFiles = new DataBlockSpillFile[NUM_SPILL_PARTITIONS];
+      for (int i = 0; i < NUM_SPILL_PARTITIONS; i++) {
+        _spillFiles[i] = new DataBlockSpillFile(_spillDir, dataSchema);
+      }
+    }
+    for (int i = 0; i < NUM_SPILL_PARTITIONS; i++) {
+      DataBlockSpillFile spillFile = _spillFiles[i];
+      long sizeInBytes = spillFile.getSizeInBytes();
+      spillFile.appendRows(partitionedRows.get(i));
+      _numSpilledBytes += spillFile.getSizeInBytes() - sizeInBytes;
+    }
+    _numSpilledRows += numRows - inMemoryRows.size();
+    return inMemoryRows.isEmpty() ? null : new TransferableBlock(inMemoryRows, dataSchema, DataBlock.Type.ROW);
+  }
+
+  /**
+   * Aggregates the rows of the block. The group ids of the rows can be passed in when already generated.
+   */
+  private void processAggregate(TransferableBlock block, @Nullable int[] groupIds) {
     if (_maxFilterArgId < 0) {
       // No filter for any aggregation function
-      int[] intKeys = generateGroupByKeys(block);
+      int[] intKeys = groupIds != null ? groupIds : generateGroupByKeys(block);
       for (int i = 0; i < _aggFunctions.length; i++) {
         AggregationFunction aggFunction = _aggFunctions[i];
         Map<ExpressionContext, BlockValSet> blockValSetMap = AggregateOperator.getBlockValSetMap(aggFunction, block);
@@ -218,7 +425,7 @@ public class MultistageGroupByExecutor {
       }
     } else {
       // Some aggregation functions have filter, cache the matching rows
-      int[] intKeys = null;
+      int[] intKeys = groupIds;
       RoaringBitmap[] matchedBitmaps = new RoaringBitmap[_maxFilterArgId + 1];
       int[] numMatchedRowsArray = new int[_maxFilterArgId + 1];
       int[][] filteredIntKeysArray = new int[_maxFilterArgId + 1][];
@@ -242,7 +449,9 @@ public class MultistageGroupByExecutor {
             matchedBitmaps[filterArgId] = matchedBitmap;
             int numMatchedRows = matchedBitmap.getCardinality();
             numMatchedRowsArray[filterArgId] = numMatchedRows;
-            filteredIntKeysArray[filterArgId] = generateGroupByKeys(block, numMatchedRows, matchedBitmap);
+            filteredIntKeysArray[filterArgId] =
+                groupIds != null ? getFilteredGroupIds(groupIds, numMatchedRows, matchedBitmap)
+                    : generateGroupByKeys(block, numMatchedRows, matchedBitmap);
           }
           int numMatchedRows = numMatchedRowsArray[filterArgId];
           int[] filteredIntKeys = filteredIntKeysArray[filterArgId];
@@ -262,9 +471,12 @@ public class MultistageGroupByExecutor {
     }
   }
 
-  private void processMerge(TransferableBlock block) {
-    int[] groupByKeys = generateGroupByKeys(block);
-    int numRows = groupByKeys.length;
+  /**
+   * Merges the intermediate results of the block. The group ids of the rows can be passed in when already generated.
+   */
+  private void processMerge(TransferableBlock block, @Nullable int[] groupIds) {
+    int[] groupByKeys = groupIds != null ? groupIds : generateGroupByKeys(block);
+    int numRows = block.getNumRows();
     int numFunctions = _aggFunctions.length;
     Object[][] intermediateResults = new Object[numFunctions][numRows];
     for (int i = 0; i < numFunctions; i++) {
@@ -375,6 +587,15 @@ public class MultistageGroupByExecutor {
     return intKeys;
   }
 
+  private static int[] getFilteredGroupIds(int[] groupIds, int numMatchedRows, RoaringBitmap matchedBitmap) {
+    int[] filteredGroupIds = new int[numMatchedRows];
+    PeekableIntIterator iterator = matchedBitmap.getIntIterator();
+    for (int i = 0; i < numMatchedRows; i++) {
+      filteredGroupIds[i] = groupIds[iterator.next()];
+    }
+    return filteredGroupIds;
+  }
+
   /**
    * Creates the group by key for each row. Converts the key into a 0-index based int value that can be used by
    * GroupByAggregationResultHolders used in v1 aggregations.
@@ -20,17 +20,23 @@ package org.apache.pinot.query.runtime.operator;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.PriorityQueue;
+import javax.annotation.Nullable;
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.pinot.common.datablock.DataBlock;
 import org.apache.pinot.common.datatable.StatMap;
 import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.config.QueryOptionsUtils;
 import org.apache.pinot.core.query.selection.SelectionOperatorUtils;
 import org.apache.pinot.query.planner.plannode.SortNode;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
+import org.apache.pinot.query.runtime.operator.utils.DataBlockSpillFile;
 import org.apache.pinot.query.runtime.operator.utils.SortUtils;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
 import org.apache.pinot.spi.utils.CommonConstants;
@@ -38,9 +44,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
+/**
+ * This {@code SortOperator} sorts and/or trims the input rows based on the collations, offset and fetch.
+ * <p>By default all the rows to keep are buffered in memory. When the sort spill threshold is configured (via the
+ * {@code sortSpillThresholdRows} query option or the server config) and the number of rows to keep exceeds it, the
+ * operator performs an external merge sort instead: rows are buffered up to the threshold, sorted and spilled to disk
+ * as sorted runs, and the runs are k-way merged when producing the output.
+ */
 public class SortOperator extends MultiStageOperator {
   private static final String EXPLAIN_NAME = "SORT";
   private static final Logger LOGGER = LoggerFactory.getLogger(SortOperator.class);
+  private static final int SPILL_BATCH_SIZE = 10_000;
 
   private final MultiStageOperator _input;
   private final DataSchema _dataSchema;
@@ -50,6 +64,16 @@ public class SortOperator extends MultiStageOperator {
   private final ArrayList<Object[]> _rows;
   private final StatMap<StatKey> _statMap = new StatMap<>(StatKey.class);
 
+  // Below are only used for external merge sort, in which case _rows buffers the current run.
+  private final int _spillThresholdRows;
+  private final File _spillDir;
+  @Nullable
+  private final Comparator<Object[]> _comparator;
+  private final List<DataBlockSpillFile> _spilledRuns = new ArrayList<>();
+  private PriorityQueue<RunCursor> _mergeQueue;
+  private int _numRowsToSkip;
+  private int _numRowsToEmit;
+
   private boolean _hasConstructedSortedBlock;
   private TransferableBlock _eosBlock;
 
@@ -73,15 +97,27 @@ public class SortOperator extends MultiStageOperator {
     // - There is no collation
     // - Input is already sorted
     List<RelFieldCollation> collations = node.getCollations();
+    Integer spillThresholdRows = QueryOptionsUtils.getSortSpillThresholdRows(context.getOpChainMetadata());
+    _spillDir = context.getSpillDir();
     if (collations.isEmpty() || input instanceof SortedMailboxReceiveOperator) {
       _priorityQueue = null;
       _rows = new ArrayList<>(Math.min(defaultHolderCapacity, _numRowsToKeep));
+      _spillThresholdRows = 0;
+      _comparator = null;
+    } else if (spillThresholdRows != null && _numRowsToKeep > spillThresholdRows) {
+      // The rows to keep might not fit in memory, use external merge sort.
+      _priorityQueue = null;
+      _rows = new ArrayList<>(Math.min(defaultHolderCapacity, spillThresholdRows));
+      _spillThresholdRows = spillThresholdRows;
+      _comparator = new SortUtils.SortComparator(_dataSchema, collations, false);
     } else {
       // Use the opposite direction as specified by the collation directions since we need the PriorityQueue to decide
       // which elements to keep and which to remove based on the limits.
       _priorityQueue = new PriorityQueue<>(Math.min(defaultHolderCapacity, _numRowsToKeep),
           new SortUtils.SortComparator(_dataSchema, collations, true));
       _rows = null;
+      _spillThresholdRows = 0;
+      _comparator = null;
     }
   }
 
@@ -106,8 +142,15 @@ public class SortOperator extends MultiStageOperator {
     return List.of(_input);
   }
 
+  @Override
+  public void close() {
+    releaseSpilledRuns();
+    super.close();
+  }
+
   @Override
   public void cancel(Throwable e) {
+    releaseSpilledRuns();
   }
 
   @Override
@@ -116,7 +159,11 @@ public class SortOperator extends MultiStageOperator {
   }
 
   @Override
-  protected TransferableBlock getNextBlock() {
+  protected TransferableBlock getNextBlock()
+      throws IOException {
+    if (_mergeQueue != null) {
+      return produceMergedBlock();
+    }
     if (_hasConstructedSortedBlock) {
       assert _eosBlock != null;
       return _eosBlock;
@@ -126,13 +173,40 @@ public class SortOperator extends MultiStageOperator {
     if (finalBlock.isErrorBlock()) {
       return finalBlock;
     }
-    _statMap.merge(StatKey.REQUIRE_SORT, _priorityQueue != null);
+    _statMap.merge(StatKey.REQUIRE_SORT, _priorityQueue != null || _comparator != null);
     _eosBlock = updateEosBlock(finalBlock, _statMap);
     return produceSortedBlock();
   }
 
-  private TransferableBlock produceSortedBlock() {
+  private TransferableBlock produceSortedBlock()
+      throws IOException {
     _hasConstructedSortedBlock = true;
+    if (_comparator != null) {
+      _rows.sort(_comparator);
+      if (_spilledRuns.isEmpty()) {
+        int numRows = Math.min(_rows.size(), _numRowsToKeep);
+        if (numRows > _offset) {
+          return new TransferableBlock(_rows.subList(_offset, numRows), _dataSchema, DataBlock.Type.ROW);
+        } else {
+          return _eosBlock;
+        }
+      }
+      // Merge the spilled runs along with the last run still in memory
+      _mergeQueue = new PriorityQueue<>(_spilledRuns.size() + 1, (c1, c2) -> _comparator.compare(c1._row, c2._row));
+      for (DataBlockSpillFile spilledRun : _spilledRuns) {
+        RunCursor cursor = new RunCursor(spilledRun.openReader(), List.of());
+        if (cursor.advance()) {
+          _mergeQueue.add(cursor);
+        }
+      }
+      RunCursor cursor = new RunCursor(null, _rows);
+      if (cursor.advance()) {
+        _mergeQueue.add(cursor);
+      }
+      _numRowsToSkip = _offset;
+      _numRowsToEmit = _numRowsToKeep - _offset;
+      return produceMergedBlock();
+    }
     if (_priorityQueue == null) {
       if (_rows.size() > _offset) {
         List<Object[]> row = _rows.subList(_offset, _rows.size());
@@ -154,11 +228,77 @@ public class SortOperator extends MultiStageOperator {
     }
   }
 
-  private TransferableBlock consumeInputBlocks() {
+  /**
+   * Returns the next block of the k-way merge of the sorted runs, or the EOS block once all the rows are emitted.
+   */
+  private TransferableBlock produceMergedBlock()
+      throws IOException {
+    List<Object[]> rows = new ArrayList<>(Math.min(SPILL_BATCH_SIZE, _numRowsToEmit));
+    while (rows.size() < SPILL_BATCH_SIZE && _numRowsToEmit > 0 && !_mergeQueue.isEmpty()) {
+      RunCursor cursor = _mergeQueue.poll();
+      Object[] row = cursor._row;
+      if (cursor.advance()) {
+        _mergeQueue.add(cursor);
+      }
+      if (_numRowsToSkip > 0) {
+        _numRowsToSkip--;
+      } else {
+        rows.add(row);
+        _numRowsToEmit--;
+      }
+    }
+    sampleAndCheckInterruption();
+    if (rows.isEmpty()) {
+      _mergeQueue = null;
+      releaseSpilledRuns();
+      return _eosBlock;
+    }
+    return new TransferableBlock(rows, _dataSchema, DataBlock.Type.ROW);
+  }
+
+  /**
+   * Sorts the buffered rows and spills them to disk as a sorted run. Only the first {@link #_numRowsToKeep} rows of a
+   * run can make it into the result, so the rest are dropped.
+   */
+  private void spillRun()
+      throws IOException {
+    _rows.sort(_comparator);
+    int numRows = Math.min(_rows.size(), _numRowsToKeep);
+    DataBlockSpillFile spilledRun = new DataBlockSpillFile(_spillDir, _dataSchema);
+    _spilledRuns.add(spilledRun);
+    for (int i = 0; i < numRows; i += SPILL_BATCH_SIZE) {
+      spilledRun.appendRows(_rows.subList(i, Math.min(i + SPILL_BATCH_SIZE, numRows)));
+    }
+    _rows.clear();
+    _statMap.merge(StatKey.SPILLED_RUNS, 1);
+    _statMap.merge(StatKey.SPILLED_BYTES, spilledRun.getSizeInBytes());
+  }
+
+  private void releaseSpilledRuns() {
+    for (DataBlockSpillFile spilledRun : _spilledRuns) {
+      try {
+        spilledRun.close();
+      } catch (Exception e) {
+        LOGGER.warn("Failed to close sort spill file", e);
+      }
+    }
+    _spilledRuns.clear();
+  }
+
+  private TransferableBlock consumeInputBlocks()
+      throws IOException {
     TransferableBlock block = _input.nextBlock();
     while (block.isDataBlock()) {
       List<Object[]> container = block.getContainer();
-      if (_priorityQueue == null) {
+      if (_comparator != null) {
+        for (Object[] row : container) {
+          _rows.add(row);
+          if (_rows.size() == _spillThresholdRows) {
+            spillRun();
+          }
+        }
+        sampleAndCheckInterruption();
+      } else if (_priorityQueue == null) {
         // TODO: when push-down properly, we shouldn't get more than _numRowsToKeep
         int numRows = _rows.size();
         if (numRows < _numRowsToKeep) {
@@ -188,6 +328,42 @@ public class SortOperator extends MultiStageOperator {
     return block;
   }
 
+  /**
+   * Cursor over a sorted run, which is either spilled to disk or still in memory.
+   */
+  private static class RunCursor {
+    @Nullable
+    final DataBlockSpillFile.Reader _reader;
+    List<Object[]> _batch;
+    int _index;
+    Object[] _row;
+
+    RunCursor(@Nullable DataBlockSpillFile.Reader reader, List<Object[]> batch) {
+      _reader = reader;
+      _batch = batch;
+    }
+
+    /**
+     * Moves to the next row of the run, returns {@code false} if the run is exhausted.
+     */
+    boolean advance()
+        throws IOException {
+      while (_index == _batch.size()) {
+        List<Object[]> nextBatch = _reader != null ? _reader.nextRows() : null;
+        if (nextBatch == null) {
+          _row = null;
+          _batch = List.of();
+          _index = 0;
+          return false;
+        }
+        _batch = nextBatch;
+        _index = 0;
+      }
+      _row = _batch.get(_index++);
+      return true;
+    }
+  }
+
   public enum StatKey implements StatMap.Key {
     //@formatter:off
     EXECUTION_TIME_MS(StatMap.Type.LONG) {
@@ -201,7 +377,15 @@ public class SortOperator extends MultiStageOperator {
       public boolean includeDefaultInJson() {
         return true;
       }
-    };
+    },
+    /**
+     * Number of sorted runs spilled to disk.
+     */
+    SPILLED_RUNS(StatMap.Type.INT),
+    /**
+     * Number of bytes spilled to disk.
+     */
+    SPILLED_BYTES(StatMap.Type.LONG);
     //@formatter:on
 
     private final StatMap.Type _type;
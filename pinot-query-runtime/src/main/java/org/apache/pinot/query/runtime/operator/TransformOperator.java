@@ -20,9 +20,12 @@ package org.apache.pinot.query.runtime.operator;
 
 import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.apache.pinot.common.datablock.DataBlock;
+import org.apache.pinot.common.datablock.RowDataBlock;
 import org.apache.pinot.common.datatable.StatMap;
 import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.core.common.datablock.DataBlockBuilder;
 import org.apache.pinot.query.planner.logical.RexExpression;
 import org.apache.pinot.query.planner.plannode.ProjectNode;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
@@ -42,6 +45,8 @@ import org.slf4j.LoggerFactory;
  * - Function transform, which runs a function on function operands. Function operands and be any of 3 the transform.
  * Note: Function transform only runs functions from v1 engine scalar function factory, which only does argument count
  * and canonicalized function name matching (lower case).
+ * When all the projections are InputRef, a block backed by a row data block is projected by copying the column values
+ * without extracting the rows.
  */
 public class TransformOperator extends MultiStageOperator {
   private static final Logger LOGGER = LoggerFactory.getLogger(TransformOperator.class);
@@ -53,6 +58,9 @@ public class TransformOperator extends MultiStageOperator {
   // TODO: Check type matching between resultSchema and the actual result.
   private final DataSchema _resultSchema;
   private final StatMap<StatKey> _statMap = new StatMap<>(StatKey.class);
+  // Input column ids of the projections when all of them are InputRef of the same type, null otherwise
+  @Nullable
+  private final int[] _inputRefIds;
 
   public TransformOperator(OpChainExecutionContext context, MultiStageOperator input, DataSchema inputSchema,
       ProjectNode node) {
@@ -65,6 +73,25 @@ public class TransformOperator extends MultiStageOperator {
       _transformOperandsList.add(TransformOperandFactory.getTransformOperand(rexExpression, inputSchema));
     }
     _resultSchema = node.getDataSchema();
+    _inputRefIds = getInputRefIds(projects, inputSchema, _resultSchema);
+  }
+
+  @Nullable
+  private static int[] getInputRefIds(List<RexExpression> projects, DataSchema inputSchema, DataSchema resultSchema) {
+    int numProjects = projects.size();
+    int[] inputRefIds = new int[numProjects];
+    for (int i = 0; i < numProjects; i++) {
+      RexExpression project = projects.get(i);
+      if (!(project instanceof RexExpression.InputRef)) {
+        return null;
+      }
+      int inputRefId = ((RexExpression.InputRef) project).getIndex();
+      if (inputSchema.getColumnDataType(inputRefId) != resultSchema.getColumnDataType(i)) {
+        return null;
+      }
+      inputRefIds[i] = inputRefId;
+    }
+    return inputRefIds;
   }
 
   @Override
@@ -103,6 +130,10 @@ public class TransformOperator extends MultiStageOperator {
         return block;
       }
     }
+    if (_inputRefIds != null && !block.isContainerConstructed() && block.getDataBlock() instanceof RowDataBlock) {
+      return new TransferableBlock(
+          DataBlockBuilder.buildFromColumnIds((RowDataBlock) block.getDataBlock(), _inputRefIds, _resultSchema));
+    }
     List<Object[]> container = block.getContainer();
     List<Object[]> resultRows = new ArrayList<>(container.size());
     for (Object[] row : container) {
@@ -43,6 +43,7 @@ import org.apache.pinot.query.runtime.operator.utils.TypeUtils;
 import org.apache.pinot.query.runtime.operator.window.WindowFrame;
 import org.apache.pinot.query.runtime.operator.window.WindowFunction;
 import org.apache.pinot.query.runtime.operator.window.WindowFunctionFactory;
+import org.apache.pinot.query.runtime.operator.window.aggregate.AggregateWindowFunction;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
 import org.apache.pinot.spi.utils.CommonConstants.MultiStageQueryRunner.WindowOverFlowMode;
 import org.slf4j.Logger;
@@ -68,6 +69,12 @@ import org.slf4j.LoggerFactory;
  * should handle adding a 'SortExchange' to do the ordering prior to pipelining the data to the upstream operators
  * wherever ordering is required.
  *
+ * When the input is sorted on the 'ORDER BY' keys, and the window frame doesn't include any row after the current row
+ * (e.g. running total, moving average), the window aggregations are computed incrementally in a streaming fashion:
+ * only the state of the window frame is kept for each partition, and the rows are emitted as soon as their window frame
+ * is complete (for RANGE window frame, once all the peers of the row are received) instead of after the whole input is
+ * materialized.
+ *
  * Note: This class performs aggregation over the double value of input.
  * If the input is single value, the output type will be input type. Otherwise, the output type will be double.
  *
@@ -97,6 +104,18 @@ public class WindowAggregateOperator extends MultiStageOperator {
   private final Map<Key, List<Object[]>> _partitionRows = new HashMap<>();
   private final StatMap<StatKey> _statMap = new StatMap<>(StatKey.class);
 
+  // Below are used when the window aggregations are computed in a streaming fashion.
+  private final boolean _streaming;
+  private final int[] _orderKeys;
+  private final Map<Key, AggregateWindowFunction.StreamingState[]> _partitionStates = new HashMap<>();
+  // RANGE window frame only: the rows (and the states of their partitions) sharing the same order key, which can be
+  // emitted only after all of them are received. The number of peer rows is bounded by the window cache limit.
+  private final List<Object[]> _peerRows = new ArrayList<>();
+  private final List<AggregateWindowFunction.StreamingState[]> _peerRowStates = new ArrayList<>();
+  private Key _peerOrderKey;
+  // Set when the peer rows reach the window cache limit with BREAK overflow mode, after which the input is ignored
+  private boolean _maxRowsInWindowReached;
+
   // Below are specific parameters to protect the window cache from growing too large.
   // Once the window cache reaches the limit, we will throw exception or break the cache build process.
   /**
@@ -116,6 +135,15 @@ public class WindowAggregateOperator extends MultiStageOperator {
 
   public WindowAggregateOperator(OpChainExecutionContext context, MultiStageOperator input, DataSchema inputSchema,
       WindowNode node) {
+    this(context, input, inputSchema, node, false);
+  }
+
+  /**
+   * @param inputSorted whether the input is sorted on the 'ORDER BY' keys (e.g. fed by a sorting mailbox receive),
+   *                    which allows computing the window aggregations in a streaming fashion.
+   */
+  public WindowAggregateOperator(OpChainExecutionContext context, MultiStageOperator input, DataSchema inputSchema,
+      WindowNode node, boolean inputSorted) {
     super(context);
 
     _input = input;
@@ -147,6 +175,28 @@ public class WindowAggregateOperator extends MultiStageOperator {
     PlanNode.NodeHint nodeHint = node.getNodeHint();
     _maxRowsInWindowCache = getMaxRowInWindow(metadata, nodeHint);
     _windowOverflowMode = getWindowOverflowMode(metadata, nodeHint);
+
+    int numOrderKeys = collations.size();
+    _orderKeys = new int[numOrderKeys];
+    for (int i = 0; i < numOrderKeys; i++) {
+      _orderKeys[i] = collations.get(i).getFieldIndex();
+    }
+    _streaming = inputSorted && numOrderKeys > 0 && isStreamingSupported();
+  }
+
+  private boolean isStreamingSupported() {
+    // Do not keep more rows than the window cache limit for a single ROWS window frame
+    if (_windowFrame.isRowType() && !_windowFrame.isUnboundedPreceding()
+        && -(long) _windowFrame.getLowerBound() >= _maxRowsInWindowCache) {
+      return false;
+    }
+    for (WindowFunction windowFunction : _windowFunctions) {
+      if (!(windowFunction instanceof AggregateWindowFunction)
+          || !((AggregateWindowFunction) windowFunction).isStreamingSupported()) {
+        return false;
+      }
+    }
+    return true;
   }
 
   @Override
@@ -205,7 +255,134 @@ public class WindowAggregateOperator extends MultiStageOperator {
     if (_hasReturnedWindowAggregateBlock) {
       return _eosBlock;
     }
-    return computeBlocks();
+    return _streaming ? computeStreamingBlock() : computeBlocks();
+  }
+
+  /**
+   * Returns the next block with the rows whose window frame is complete, or the final block (end of stream or error).
+   */
+  private TransferableBlock computeStreamingBlock()
+      throws ProcessingException {
+    TransferableBlock block = _input.nextBlock();
+    while (block.isDataBlock()) {
+      List<Object[]> rows = processStreamingRows(block.getContainer());
+      sampleAndCheckInterruption();
+      if (!rows.isEmpty()) {
+        return new TransferableBlock(rows, _resultSchema, DataBlock.Type.ROW);
+      }
+      block = _input.nextBlock();
+    }
+    // Early termination if the block is an error block
+    if (block.isErrorBlock()) {
+      return block;
+    }
+    assert block.isSuccessfulEndOfStreamBlock();
+    _eosBlock = updateEosBlock(block, _statMap);
+    _hasReturnedWindowAggregateBlock = true;
+
+    List<Object[]> rows = new ArrayList<>(_peerRows.size());
+    flushPeerRows(rows);
+    if (rows.isEmpty()) {
+      return _eosBlock;
+    } else {
+      return new TransferableBlock(rows, _resultSchema, DataBlock.Type.ROW);
+    }
+  }
+
+  private List<Object[]> processStreamingRows(List<Object[]> container)
+      throws ProcessingException {
+    if (_maxRowsInWindowReached) {
+      return List.of();
+    }
+    List<Object[]> rows = new ArrayList<>(container.size());
+    ColumnDataType[] resultStoredTypes = _resultSchema.getStoredColumnDataTypes();
+    int numWindowFunctions = _windowFunctions.length;
+    for (Object[] row : container) {
+      Key key = AggregationUtils.extractRowKey(row, _keys);
+      AggregateWindowFunction.StreamingState[] states =
+          _partitionStates.computeIfAbsent(key, k -> createStreamingStates());
+      if (_windowFrame.isRowType()) {
+        Object[] resultRow = new Object[row.length + numWindowFunctions];
+        System.arraycopy(row, 0, resultRow, 0, row.length);
+        for (int i = 0; i < numWindowFunctions; i++) {
+          resultRow[i + row.length] = states[i].processRow(row);
+        }
+        TypeUtils.convertRow(resultRow, resultStoredTypes);
+        rows.add(resultRow);
+      } else {
+        // Input is sorted on the order keys, so all the peers of the previous rows are received once the order key
+        // changes
+        Key orderKey = AggregationUtils.extractRowKey(row, _orderKeys);
+        if (!orderKey.equals(_peerOrderKey)) {
+          flushPeerRows(rows);
+          _peerOrderKey = orderKey;
+        }
+        if (_peerRows.size() >= _maxRowsInWindowCache) {
+          if (_windowOverflowMode == WindowOverFlowMode.THROW) {
+            throw getWindowCacheLimitExceededException();
+          }
+          // Stop processing the input, and emit the peer rows received so far. Results might be partial or wrong.
+          _maxRowsInWindowReached = true;
+          _statMap.merge(StatKey.MAX_ROWS_IN_WINDOW_REACHED, true);
+          _input.earlyTerminate();
+          break;
+        }
+        for (AggregateWindowFunction.StreamingState state : states) {
+          state.addPeerRow(row);
+        }
+        _peerRows.add(row);
+        _peerRowStates.add(states);
+      }
+    }
+    return rows;
+  }
+
+  private AggregateWindowFunction.StreamingState[] createStreamingStates() {
+    int numWindowFunctions = _windowFunctions.length;
+    AggregateWindowFunction.StreamingState[] states = new AggregateWindowFunction.StreamingState[numWindowFunctions];
+    for (int i = 0; i < numWindowFunctions; i++) {
+      states[i] = ((AggregateWindowFunction) _windowFunctions[i]).createStreamingState();
+    }
+    return states;
+  }
+
+  /**
+   * Emits the pending rows of the current peer group (RANGE window frame only).
+   */
+  private void flushPeerRows(List<Object[]> rows) {
+    int numPeerRows = _peerRows.size();
+    if (numPeerRows == 0) {
+      return;
+    }
+    ColumnDataType[] resultStoredTypes = _resultSchema.getStoredColumnDataTypes();
+    int numWindowFunctions = _windowFunctions.length;
+    for (int rowId = 0; rowId < numPeerRows; rowId++) {
+      Object[] row = _peerRows.get(rowId);
+      AggregateWindowFunction.StreamingState[] states = _peerRowStates.get(rowId);
+      Object[] resultRow = new Object[row.length + numWindowFunctions];
+      System.arraycopy(row, 0, resultRow, 0, row.length);
+      for (int i = 0; i < numWindowFunctions; i++) {
+        resultRow[i + row.length] = states[i].getPeerGroupResult();
+      }
+      TypeUtils.convertRow(resultRow, resultStoredTypes);
+      rows.add(resultRow);
+    }
+    for (AggregateWindowFunction.StreamingState[] states : _peerRowStates) {
+      for (AggregateWindowFunction.StreamingState state : states) {
+        state.endPeerGroup();
+      }
+    }
+    _peerRows.clear();
+    _peerRowStates.clear();
+  }
+
+  private ProcessingException getWindowCacheLimitExceededException() {
+    ProcessingException resourceLimitExceededException =
+        new ProcessingException(QueryException.SERVER_RESOURCE_LIMIT_EXCEEDED_ERROR_CODE);
+    resourceLimitExceededException.setMessage(
+        "Cannot build in memory window cache for WINDOW operator, reach number of rows limit: "
+            + _maxRowsInWindowCache);
+    return resourceLimitExceededException;
   }
 
   /**
@@ -219,12 +396,7 @@ public class WindowAggregateOperator extends MultiStageOperator {
       int containerSize = container.size();
       if (_numRows + containerSize > _maxRowsInWindowCache) {
         if (_windowOverflowMode == WindowOverFlowMode.THROW) {
-          ProcessingException resourceLimitExceededException =
-              new ProcessingException(QueryException.SERVER_RESOURCE_LIMIT_EXCEEDED_ERROR_CODE);
-          resourceLimitExceededException.setMessage(
-              "Cannot build in memory window cache for WINDOW operator, reach number of rows limit: "
-                  + _maxRowsInWindowCache);
-          throw resourceLimitExceededException;
+          throw getWindowCacheLimitExceededException();
         } else {
           // Just fill up the buffer.
           int remainingRows = _maxRowsInWindowCache - _numRows;
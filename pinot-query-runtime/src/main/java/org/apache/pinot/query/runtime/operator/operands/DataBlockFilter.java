@@ -0,0 +1,312 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.operands;
+
+import com.google.common.collect.Ordering;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+import javax.annotation.Nullable;
+import org.apache.pinot.common.datablock.DataBlock;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.core.util.DataBlockExtractUtils;
+import org.apache.pinot.query.planner.logical.RexExpression;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.roaringbitmap.RoaringBitmap;
+
+
+/**
+ * Evaluates a filter condition directly on the columns of a {@link DataBlock}, reading the values as primitives instead
+ * of extracting the rows into boxed {@code Object[]} and evaluating the {@link FilterOperand} row by row.
+ * <p>Only comparisons between a column and a literal combined with AND, OR and NOT are supported. For other conditions
+ * {@link #create} returns {@code null} and the caller should fall back to the row based {@link FilterOperand}.
+ * <p>The result of each row follows the SQL three-valued logic, encoded as {@link #FALSE}, {@link #NULL} and
+ * {@link #TRUE} so that AND and OR can be computed as the min and max of the operands.
+ */
+public abstract class DataBlockFilter {
+  private static final Ordering<ColumnDataType> NUMERIC_TYPE_ORDERING =
+      Ordering.explicit(ColumnDataType.INT, ColumnDataType.LONG, ColumnDataType.FLOAT, ColumnDataType.DOUBLE);
+
+  static final byte FALSE = 0;
+  static final byte NULL = 1;
+  static final byte TRUE = 2;
+
+  /**
+   * Returns the filter for the given condition, or {@code null} if the condition cannot be evaluated on the columns.
+   */
+  @Nullable
+  public static DataBlockFilter create(RexExpression condition, DataSchema dataSchema) {
+    if (!(condition instanceof RexExpression.FunctionCall)) {
+      return null;
+    }
+    RexExpression.FunctionCall functionCall = (RexExpression.FunctionCall) condition;
+    List<RexExpression> operands = functionCall.getFunctionOperands();
+    switch (functionCall.getFunctionName()) {
+      case "AND":
+      case "OR": {
+        List<DataBlockFilter> children = new ArrayList<>(operands.size());
+        for (RexExpression operand : operands) {
+          DataBlockFilter child = create(operand, dataSchema);
+          if (child == null) {
+            return null;
+          }
+          children.add(child);
+        }
+        return functionCall.getFunctionName().equals("AND") ? new And(children) : new Or(children);
+      }
+      case "NOT": {
+        DataBlockFilter child = operands.size() == 1 ? create(operands.get(0), dataSchema) : null;
+        return child != null ? new Not(child) : null;
+      }
+      case "EQUALS":
+        return createComparison(operands, dataSchema, v -> v == 0);
+      case "NOT_EQUALS":
+        return createComparison(operands, dataSchema, v -> v != 0);
+      case "GREATER_THAN":
+        return createComparison(operands, dataSchema, v -> v > 0);
+      case "GREATER_THAN_OR_EQUAL":
+        return createComparison(operands, dataSchema, v -> v >= 0);
+      case "LESS_THAN":
+        return createComparison(operands, dataSchema, v -> v < 0);
+      case "LESS_THAN_OR_EQUAL":
+        return createComparison(operands, dataSchema, v -> v <= 0);
+      default:
+        return null;
+    }
+  }
+
+  @Nullable
+  private static DataBlockFilter createComparison(List<RexExpression> operands, DataSchema dataSchema,
+      IntPredicate comparisonResultPredicate) {
+    if (operands.size() != 2) {
+      return null;
+    }
+    RexExpression lhs = operands.get(0);
+    RexExpression rhs = operands.get(1);
+    if (lhs instanceof RexExpression.Literal && rhs instanceof RexExpression.InputRef) {
+      // Swap the operands so that the column is always on the left side, and negate the comparison result accordingly
+      RexExpression temp = lhs;
+      lhs = rhs;
+      rhs = temp;
+      IntPredicate predicate = comparisonResultPredicate;
+      comparisonResultPredicate = v -> predicate.test(-v);
+    }
+    if (!(lhs instanceof RexExpression.InputRef) || !(rhs instanceof RexExpression.Literal)) {
+      return null;
+    }
+    int colId = ((RexExpression.InputRef) lhs).getIndex();
+    ColumnDataType columnType = dataSchema.getColumnDataType(colId);
+    RexExpression.Literal literal = (RexExpression.Literal) rhs;
+    ColumnDataType literalType = literal.getDataType();
+    Object value = literal.getValue();
+    if (value == null) {
+      return null;
+    }
+    if (columnType == ColumnDataType.STRING && literalType == ColumnDataType.STRING) {
+      return new StringComparison(colId, (String) value, comparisonResultPredicate);
+    }
+    if (!isNumeric(columnType) || !isNumeric(literalType)) {
+      return null;
+    }
+    return new NumericComparison(colId, columnType.toDataType(), NUMERIC_TYPE_ORDERING.max(columnType, literalType),
+        (Number) value, comparisonResultPredicate);
+  }
+
+  private static boolean isNumeric(ColumnDataType columnDataType) {
+    return columnDataType == ColumnDataType.INT || columnDataType == ColumnDataType.LONG
+        || columnDataType == ColumnDataType.FLOAT || columnDataType == ColumnDataType.DOUBLE;
+  }
+
+  /**
+   * Returns the ids of the rows where the condition is TRUE.
+   */
+  public RoaringBitmap getMatchingRows(DataBlock dataBlock) {
+    byte[] results = evaluate(dataBlock);
+    RoaringBitmap matchingRows = new RoaringBitmap();
+    for (int rowId = 0; rowId < results.length; rowId++) {
+      if (results[rowId] == TRUE) {
+        matchingRows.add(rowId);
+      }
+    }
+    return matchingRows;
+  }
+
+  /**
+   * Returns the result of the condition for each row of the block.
+   */
+  abstract byte[] evaluate(DataBlock dataBlock);
+
+  private static class And extends DataBlockFilter {
+    final List<DataBlockFilter> _children;
+
+    And(List<DataBlockFilter> children) {
+      _children = children;
+    }
+
+    @Override
+    byte[] evaluate(DataBlock dataBlock) {
+      byte[] results = _children.get(0).evaluate(dataBlock);
+      for (int i = 1; i < _children.size(); i++) {
+        byte[] childResults = _children.get(i).evaluate(dataBlock);
+        for (int rowId = 0; rowId < results.length; rowId++) {
+          results[rowId] = (byte) Math.min(results[rowId], childResults[rowId]);
+        }
+      }
+      return results;
+    }
+  }
+
+  private static class Or extends DataBlockFilter {
+    final List<DataBlockFilter> _children;
+
+    Or(List<DataBlockFilter> children) {
+      _children = children;
+    }
+
+    @Override
+    byte[] evaluate(DataBlock dataBlock) {
+      byte[] results = _children.get(0).evaluate(dataBlock);
+      for (int i = 1; i < _children.size(); i++) {
+        byte[] childResults = _children.get(i).evaluate(dataBlock);
+        for (int rowId = 0; rowId < results.length; rowId++) {
+          results[rowId] = (byte) Math.max(results[rowId], childResults[rowId]);
+        }
+      }
+      return results;
+    }
+  }
+
+  private static class Not extends DataBlockFilter {
+    final DataBlockFilter _child;
+
+    Not(DataBlockFilter child) {
+      _child = child;
+    }
+
+    @Override
+    byte[] evaluate(DataBlock dataBlock) {
+      byte[] results = _child.evaluate(dataBlock);
+      for (int rowId = 0; rowId < results.length; rowId++) {
+        results[rowId] = (byte) (TRUE - results[rowId]);
+      }
+      return results;
+    }
+  }
+
+  private static class NumericComparison extends DataBlockFilter {
+    final int _colId;
+    final DataType _storedType;
+    final ColumnDataType _commonType;
+    final Number _value;
+    final IntPredicate _comparisonResultPredicate;
+
+    NumericComparison(int colId, DataType dataType, ColumnDataType commonType, Number value,
+        IntPredicate comparisonResultPredicate) {
+      _colId = colId;
+      _storedType = dataType.getStoredType();
+      _commonType = commonType;
+      _value = value;
+      _comparisonResultPredicate = comparisonResultPredicate;
+    }
+
+    @Override
+    byte[] evaluate(DataBlock dataBlock) {
+      int numRows = dataBlock.getNumberOfRows();
+      byte[] results = new byte[numRows];
+      RoaringBitmap nullBitmap = dataBlock.getNullRowIds(_colId);
+      switch (_commonType) {
+        case INT: {
+          int[] values = DataBlockExtractUtils.extractIntColumn(_storedType, dataBlock, _colId, nullBitmap);
+          int value = _value.intValue();
+          for (int rowId = 0; rowId < numRows; rowId++) {
+            results[rowId] = _comparisonResultPredicate.test(Integer.compare(values[rowId], value)) ? TRUE : FALSE;
+          }
+          break;
+        }
+        case LONG: {
+          long[] values = DataBlockExtractUtils.extractLongColumn(_storedType, dataBlock, _colId, nullBitmap);
+          long value = _value.longValue();
+          for (int rowId = 0; rowId < numRows; rowId++) {
+            results[rowId] = _comparisonResultPredicate.test(Long.compare(values[rowId], value)) ? TRUE : FALSE;
+          }
+          break;
+        }
+        case FLOAT: {
+          float[] values = DataBlockExtractUtils.extractFloatColumn(_storedType, dataBlock, _colId, nullBitmap);
+          float value = _value.floatValue();
+          for (int rowId = 0; rowId < numRows; rowId++) {
+            results[rowId] = _comparisonResultPredicate.test(Float.compare(values[rowId], value)) ? TRUE : FALSE;
+          }
+          break;
+        }
+        case DOUBLE: {
+          double[] values = DataBlockExtractUtils.extractDoubleColumn(_storedType, dataBlock, _colId, nullBitmap);
+          double value = _value.doubleValue();
+          for (int rowId = 0; rowId < numRows; rowId++) {
+            results[rowId] = _comparisonResultPredicate.test(Double.compare(values[rowId], value)) ? TRUE : FALSE;
+          }
+          break;
+        }
+        default:
+          throw new IllegalStateException("Unsupported comparison type: " + _commonType);
+      }
+      setNullResults(results, nullBitmap);
+      return results;
+    }
+  }
+
+  private static class StringComparison extends DataBlockFilter {
+    final int _colId;
+    final String _value;
+    final IntPredicate _comparisonResultPredicate;
+
+    StringComparison(int colId, String value, IntPredicate comparisonResultPredicate) {
+      _colId = colId;
+      _value = value;
+      _comparisonResultPredicate = comparisonResultPredicate;
+    }
+
+    @Override
+    byte[] evaluate(DataBlock dataBlock) {
+      // Evaluate the comparison once per dictionary entry, then look up the result with the dictionary id of each row
+      String[] dictionary = dataBlock.getStringDictionary();
+      byte[] dictResults = new byte[dictionary.length];
+      for (int dictId = 0; dictId < dictionary.length; dictId++) {
+        dictResults[dictId] = _comparisonResultPredicate.test(dictionary[dictId].compareTo(_value)) ? TRUE : FALSE;
+      }
+      int numRows = dataBlock.getNumberOfRows();
+      byte[] results = new byte[numRows];
+      RoaringBitmap nullBitmap = dataBlock.getNullRowIds(_colId);
+      for (int rowId = 0; rowId < numRows; rowId++) {
+        if (nullBitmap == null || !nullBitmap.contains(rowId)) {
+          results[rowId] = dictResults[dataBlock.getInt(rowId, _colId)];
+        }
+      }
+      setNullResults(results, nullBitmap);
+      return results;
+    }
+  }
+
+  private static void setNullResults(byte[] results, @Nullable RoaringBitmap nullBitmap) {
+    if (nullBitmap != null) {
+      nullBitmap.forEach((int rowId) -> results[rowId] = NULL);
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.utils;
+
+import com.google.common.base.Preconditions;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.datablock.DataBlock;
+import org.apache.pinot.common.datablock.DataBlockUtils;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.core.common.datablock.DataBlockBuilder;
+import org.apache.pinot.core.util.DataBlockExtractUtils;
+
+
+/**
+ * A local file holding a sequence of serialized {@link DataBlock}s, used by the multi-stage operators to spill rows to
+ * disk once they exceed their in-memory budget.
+ * <p>Rows are appended in batches, each batch is written as a length-prefixed row {@link DataBlock} so that it can be
+ * read back one batch at a time without loading the whole file into memory. The file is deleted when closed.
+ * <p>This class is not thread-safe.
+ */
+public class DataBlockSpillFile implements Closeable {
+  private static final String FILE_PREFIX = "pinot-spill-";
+  private static final int LENGTH_PREFIX_SIZE = Integer.BYTES;
+
+  private final DataSchema _dataSchema;
+  private final File _file;
+  private final FileChannel _channel;
+  private final ByteBuffer _lengthBuffer = ByteBuffer.allocate(LENGTH_PREFIX_SIZE);
+
+  private int _numRows;
+  private int _numBlocks;
+  private long _sizeInBytes;
+
+  public DataBlockSpillFile(File spillDir, DataSchema dataSchema)
+      throws IOException {
+    _dataSchema = dataSchema;
+    FileUtils.forceMkdir(spillDir);
+    _file = File.createTempFile(FILE_PREFIX, null, spillDir);
+    _channel = FileChannel.open(_file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+
+  /**
+   * Returns the spill partition of the given key. The depth is mixed into the hash so that recursive partitioning of an
+   * oversized partition splits its rows differently on each level.
+   */
+  public static int getPartitionId(@Nullable Object key, int depth, int numPartitions) {
+    int hash = Objects.hashCode(key) * 0x9E3779B9 + depth * 0x85EBCA6B;
+    hash ^= hash >>> 16;
+    return (hash & Integer.MAX_VALUE) % numPartitions;
+  }
+
+  public DataSchema getDataSchema() {
+    return _dataSchema;
+  }
+
+  public int getNumRows() {
+    return _numRows;
+  }
+
+  public int getNumBlocks() {
+    return _numBlocks;
+  }
+
+  public long getSizeInBytes() {
+    return _sizeInBytes;
+  }
+
+  /**
+   * Appends the given rows as a single block at the end of the file.
+   */
+  public void appendRows(List<Object[]> rows)
+      throws IOException {
+    if (rows.isEmpty()) {
+      return;
+    }
+    DataBlock dataBlock = DataBlockBuilder.buildFromRows(rows, _dataSchema);
+    List<ByteBuffer> buffers = DataBlockUtils.serialize(dataBlock);
+    int length = 0;
+    for (ByteBuffer buffer : buffers) {
+      length += buffer.remaining();
+    }
+    long position = _channel.size();
+    _lengthBuffer.clear();
+    _lengthBuffer.putInt(length).flip();
+    position += writeFully(_lengthBuffer, position);
+    for (ByteBuffer buffer : buffers) {
+      position += writeFully(buffer, position);
+    }
+    _numRows += rows.size();
+    _numBlocks++;
+    _sizeInBytes += LENGTH_PREFIX_SIZE + length;
+  }
+
+  private int writeFully(ByteBuffer buffer, long position)
+      throws IOException {
+    int numBytes = 0;
+    while (buffer.hasRemaining()) {
+      numBytes += _channel.write(buffer, position + numBytes);
+    }
+    return numBytes;
+  }
+
+  /**
+   * Returns a new reader over the blocks written so far. Multiple readers can be opened on the same file.
+   */
+  public Reader openReader() {
+    return new Reader(_sizeInBytes);
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    try {
+      _channel.close();
+    } finally {
+      FileUtils.deleteQuietly(_file);
+    }
+  }
+
+  /**
+   * Sequential reader that returns the rows of one spilled block per call.
+   */
+  public class Reader {
+    private final long _endOffset;
+    private long _offset;
+
+    private Reader(long endOffset) {
+      _endOffset = endOffset;
+    }
+
+    /**
+     * Returns the rows of the next block, or {@code null} if all the blocks have been read.
+     */
+    @Nullable
+    public List<Object[]> nextRows()
+        throws IOException {
+      if (_offset >= _endOffset) {
+        return null;
+      }
+      ByteBuffer lengthBuffer = ByteBuffer.allocate(LENGTH_PREFIX_SIZE);
+      readFully(lengthBuffer, _offset);
+      int length = lengthBuffer.flip().getInt();
+      ByteBuffer dataBuffer = ByteBuffer.allocate(length);
+      readFully(dataBuffer, _offset + LENGTH_PREFIX_SIZE);
+      _offset += LENGTH_PREFIX_SIZE + length;
+      return DataBlockExtractUtils.extractRows(DataBlockUtils.readFrom(dataBuffer.flip()));
+    }
+
+    private void readFully(ByteBuffer buffer, long position)
+        throws IOException {
+      while (buffer.hasRemaining()) {
+        int numBytesRead = _channel.read(buffer, position + buffer.position());
+        Preconditions.checkState(numBytesRead >= 0, "Unexpected end of spill file: %s", _file);
+      }
+    }
+  }
+}
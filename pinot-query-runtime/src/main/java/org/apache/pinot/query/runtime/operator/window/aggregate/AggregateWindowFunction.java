@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.core.data.table.Key;
@@ -40,8 +41,9 @@ public class AggregateWindowFunction extends WindowFunction {
       List<RelFieldCollation> collations, WindowFrame windowFrame) {
     super(aggCall, inputSchema, collations, windowFrame);
     _functionName = aggCall.getFunctionName();
+    // Values are removed from the window only when sliding a ROWS window frame with a bounded lower bound
     _windowValueAggregator = WindowValueAggregatorFactory.getWindowValueAggregator(_functionName, _dataType,
-        windowFrame.isRowType() && !(_windowFrame.isUnboundedPreceding() && _windowFrame.isUnboundedFollowing()));
+        windowFrame.isRowType() && !_windowFrame.isUnboundedPreceding());
   }
 
   @Override
@@ -54,6 +56,99 @@ public class AggregateWindowFunction extends WindowFunction {
     }
   }
 
+  /**
+   * Returns whether the window function can be computed incrementally over the input sorted on the order keys, without
+   * materializing the whole partition. This is the case when the window frame doesn't include any row after the current
+   * row (or after its peers for RANGE window frame).
+   */
+  public boolean isStreamingSupported() {
+    if (_windowFrame.isRowType()) {
+      return _windowFrame.getUpperBound() <= 0;
+    } else {
+      return _windowFrame.isUpperBoundCurrentRow();
+    }
+  }
+
+  /**
+   * Creates the state to compute the window function incrementally for a single partition. See
+   * {@link #isStreamingSupported()}.
+   */
+  public StreamingState createStreamingState() {
+    return new StreamingState();
+  }
+
+  /**
+   * Keeps track of the window frame of a partition when the rows of the partition are processed one at a time in the
+   * order of the order keys. Only the values within the window frame are kept for ROWS window frame with offset
+   * PRECEDING lower bound, and no value is kept for the other window frames.
+   */
+  public class StreamingState {
+    private final WindowValueAggregator<Object> _aggregator;
+    // Circular buffer of the latest values for ROWS window frame, null for RANGE window frame
+    private final Object[] _values;
+    // Offset (from the current row) of the value to add into the window for each new row
+    private final int _addOffset;
+    // Offset (from the current row) of the value to remove from the window for each new row, -1 if unbounded preceding
+    private final int _removeOffset;
+    private long _numRows;
+
+    private StreamingState() {
+      boolean supportRemoval = _windowFrame.isRowType() && !_windowFrame.isUnboundedPreceding();
+      _aggregator = WindowValueAggregatorFactory.getWindowValueAggregator(_functionName, _dataType, supportRemoval);
+      if (_windowFrame.isRowType()) {
+        _addOffset = -_windowFrame.getUpperBound();
+        _removeOffset = supportRemoval ? 1 - _windowFrame.getLowerBound() : -1;
+        _values = new Object[Math.max(_addOffset, _removeOffset) + 1];
+      } else {
+        _addOffset = 0;
+        _removeOffset = -1;
+        _values = null;
+      }
+    }
+
+    /**
+     * Processes the next row of the partition for ROWS window frame, and returns the window function result for it.
+     */
+    @Nullable
+    public Object processRow(Object[] row) {
+      int capacity = _values.length;
+      _values[(int) (_numRows % capacity)] = extractValueFromRow(row);
+      _numRows++;
+      if (_numRows > _addOffset) {
+        _aggregator.addValue(_values[(int) ((_numRows - 1 - _addOffset) % capacity)]);
+      }
+      if (_removeOffset > 0 && _numRows > _removeOffset) {
+        _aggregator.removeValue(_values[(int) ((_numRows - 1 - _removeOffset) % capacity)]);
+      }
+      return _aggregator.getCurrentAggregatedValue();
+    }
+
+    /**
+     * Adds the next row of the partition for RANGE window frame. The result for the row is only available after all its
+     * peers (rows with the same order key) are added.
+     */
+    public void addPeerRow(Object[] row) {
+      _aggregator.addValue(extractValueFromRow(row));
+    }
+
+    /**
+     * Returns the window function result for the rows of the current peer group for RANGE window frame.
+     */
+    @Nullable
+    public Object getPeerGroupResult() {
+      return _aggregator.getCurrentAggregatedValue();
+    }
+
+    /**
+     * Marks the end of the current peer group for RANGE window frame.
+     */
+    public void endPeerGroup() {
+      if (_windowFrame.isLowerBoundCurrentRow()) {
+        _aggregator.clear();
+      }
+    }
+  }
+
   /**
    * Process windows where both ends are unbounded. Both ROWS and RANGE windows can be processed similarly.
    */
@@ -71,13 +166,18 @@ public class AggregateWindowFunction extends WindowFunction {
     }
 
     int numRows = rows.size();
+    // Extract the values only once since each value is both added to and removed from the sliding window
+    Object[] values = new Object[numRows];
+    for (int i = 0; i < numRows; i++) {
+      values[i] = extractValueFromRow(rows.get(i));
+    }
 
     int lowerBound = _windowFrame.getLowerBound();
     int upperBound = Math.min(_windowFrame.getUpperBound(), numRows - 1);
 
     // Add elements from first window
     for (int i = Math.max(0, lowerBound); i <= upperBound; i++) {
-      _windowValueAggregator.addValue(extractValueFromRow(rows.get(i)));
+      _windowValueAggregator.addValue(values[i]);
     }
 
     List<Object> result = new ArrayList<>(numRows);
@@ -93,14 +193,14 @@ public class AggregateWindowFunction extends WindowFunction {
 
       // Slide the window forward by one
       if (lowerBound >= 0) {
-        _windowValueAggregator.removeValue(extractValueFromRow(rows.get(lowerBound)));
+        _windowValueAggregator.removeValue(values[lowerBound]);
       }
       lowerBound++;
 
       if (upperBound < numRows - 1) {
         upperBound++;
         if (upperBound >= 0) {
-          _windowValueAggregator.addValue(extractValueFromRow(rows.get(upperBound)));
+          _windowValueAggregator.addValue(values[upperBound]);
         }
       }
     }
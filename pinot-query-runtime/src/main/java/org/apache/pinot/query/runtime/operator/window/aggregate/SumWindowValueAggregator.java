@@ -23,25 +23,47 @@ import javax.annotation.Nullable;
 
 /**
  * Window value aggregator for SUM window function.
+ *
+ * Values are summed with compensated (Neumaier) summation so that sliding the window over a large number of rows, i.e.
+ * repeatedly adding and removing values, doesn't accumulate floating point errors in the aggregated value.
  */
 public class SumWindowValueAggregator implements WindowValueAggregator<Object> {
   private double _sum = 0.0;
+  // Running compensation for the low-order bits lost when adding to / removing from '_sum'
+  private double _compensation = 0.0;
   private int _count = 0;
 
   @Override
   public void addValue(@Nullable Object value) {
     if (value != null) {
       _count++;
-      _sum += ((Number) value).doubleValue();
+      add(((Number) value).doubleValue());
     }
   }
 
   @Override
   public void removeValue(@Nullable Object value) {
     if (value != null) {
-      _count--;
-      _sum -= ((Number) value).doubleValue();
+      if (--_count == 0) {
+        // Reset the sum to avoid carrying over any residual error (or NaN from removed infinite values)
+        _sum = 0.0;
+        _compensation = 0.0;
+      } else {
+        add(-((Number) value).doubleValue());
+      }
+    }
+  }
+
+  private void add(double value) {
+    double sum = _sum + value;
+    if (Double.isFinite(sum)) {
+      if (Math.abs(_sum) >= Math.abs(value)) {
+        _compensation += (_sum - sum) + value;
+      } else {
+        _compensation += (value - sum) + _sum;
+      }
     }
+    _sum = sum;
   }
 
   @Override
@@ -50,13 +72,14 @@ public class SumWindowValueAggregator implements WindowValueAggregator<Object> {
     if (_count == 0) {
       return null;
     } else {
-      return _sum;
+      return Double.isFinite(_sum) ? _sum + _compensation : _sum;
     }
   }
 
   @Override
   public void clear() {
     _sum = 0.0;
+    _compensation = 0.0;
     _count = 0;
   }
 }
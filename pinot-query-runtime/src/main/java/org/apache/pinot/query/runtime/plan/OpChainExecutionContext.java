@@ -18,9 +18,11 @@
  */
 package org.apache.pinot.query.runtime.plan;
 
+import java.io.File;
 import java.util.Collections;
 import java.util.Map;
 import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
 import org.apache.pinot.query.mailbox.MailboxService;
 import org.apache.pinot.query.routing.StageMetadata;
 import org.apache.pinot.query.routing.VirtualServerAddress;
@@ -50,12 +52,21 @@ public class OpChainExecutionContext {
   private final PipelineBreakerResult _pipelineBreakerResult;
   private final boolean _traceEnabled;
   private final ThreadExecutionContext _parentContext;
+  private final File _spillDir;
 
   private ServerPlanRequestContext _leafStageContext;
 
   public OpChainExecutionContext(MailboxService mailboxService, long requestId, long deadlineMs,
       Map<String, String> opChainMetadata, StageMetadata stageMetadata, WorkerMetadata workerMetadata,
       @Nullable PipelineBreakerResult pipelineBreakerResult, @Nullable ThreadExecutionContext parentContext) {
+    this(mailboxService, requestId, deadlineMs, opChainMetadata, stageMetadata, workerMetadata, pipelineBreakerResult,
+        parentContext, FileUtils.getTempDirectory());
+  }
+
+  public OpChainExecutionContext(MailboxService mailboxService, long requestId, long deadlineMs,
+      Map<String, String> opChainMetadata, StageMetadata stageMetadata, WorkerMetadata workerMetadata,
+      @Nullable PipelineBreakerResult pipelineBreakerResult, @Nullable ThreadExecutionContext parentContext,
+      File spillDir) {
     _mailboxService = mailboxService;
     _requestId = requestId;
     _deadlineMs = deadlineMs;
@@ -68,6 +79,7 @@ public class OpChainExecutionContext {
     _pipelineBreakerResult = pipelineBreakerResult;
     _traceEnabled = Boolean.parseBoolean(opChainMetadata.get(CommonConstants.Broker.Request.TRACE));
     _parentContext = parentContext;
+    _spillDir = spillDir;
   }
 
   public MailboxService getMailboxService() {
@@ -131,4 +143,11 @@ public class OpChainExecutionContext {
   public ThreadExecutionContext getParentContext() {
     return _parentContext;
   }
+
+  /**
+   * Returns the directory where the operators create their spill files.
+   */
+  public File getSpillDir() {
+    return _spillDir;
+  }
 }
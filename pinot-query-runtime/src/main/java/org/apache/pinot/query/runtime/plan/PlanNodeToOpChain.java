@@ -136,7 +136,8 @@ public class PlanNodeToOpChain {
     @Override
     public MultiStageOperator visitWindow(WindowNode node, OpChainExecutionContext context) {
       PlanNode input = node.getInputs().get(0);
-      return new WindowAggregateOperator(context, visit(input, context), input.getDataSchema(), node);
+      boolean inputSorted = input instanceof MailboxReceiveNode && ((MailboxReceiveNode) input).isSort();
+      return new WindowAggregateOperator(context, visit(input, context), input.getDataSchema(), node, inputSorted);
     }
 
     @Override
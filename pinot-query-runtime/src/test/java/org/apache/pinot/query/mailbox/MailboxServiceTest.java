@@ -20,11 +20,14 @@ package org.apache.pinot.query.mailbox;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.pinot.common.datatable.StatMap;
 import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.query.mailbox.channel.ChannelManager;
 import org.apache.pinot.query.planner.physical.MailboxIdUtils;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockTestUtils;
@@ -594,6 +597,45 @@ public class MailboxServiceTest {
     assertEquals(receivingMailbox.getNumPendingBlocks(), 0);
   }
 
+  @Test
+  public void testRemoteFlowControl()
+      throws Exception {
+    String mailboxId = MailboxIdUtils.toMailboxId(_requestId++, SENDER_STAGE_ID, 0, RECEIVER_STAGE_ID, 0);
+    StatMap<MailboxSendOperator.StatKey> stats = new StatMap<>(MailboxSendOperator.StatKey.class);
+    // Allow only one in-flight message so that the sender is blocked as soon as the receiver cannot accept more blocks
+    SendingMailbox sendingMailbox =
+        new GrpcSendingMailbox(mailboxId, new ChannelManager(null), "localhost", _mailboxService1.getPort(),
+            System.currentTimeMillis() + 10_000L, 1, Long.MAX_VALUE, stats);
+    ReceivingMailbox receivingMailbox = _mailboxService1.getReceivingMailbox(mailboxId);
+    receivingMailbox.registeredReader(() -> {
+    });
+
+    // Fill up the receiving mailbox, then send one more block which is blocked on the receiver side
+    for (int i = 0; i <= ReceivingMailbox.DEFAULT_MAX_PENDING_BLOCKS; i++) {
+      sendingMailbox.send(OperatorTestUtil.block(DATA_SCHEMA, new Object[]{i}));
+    }
+    assertEquals(receivingMailbox.getNumPendingBlocks(), ReceivingMailbox.DEFAULT_MAX_PENDING_BLOCKS);
+    assertEquals(receivingMailbox.getStatMap().getInt(ReceivingMailbox.StatKey.MAX_PENDING_BLOCKS),
+        ReceivingMailbox.DEFAULT_MAX_PENDING_BLOCKS);
+
+    // Next send is blocked on the sender side until the receiver consumes a block
+    CompletableFuture<Void> sendFuture = CompletableFuture.runAsync(() -> {
+      try {
+        sendingMailbox.send(TransferableBlockTestUtils.getEndOfStreamTransferableBlock(SENDER_STAGE_ID));
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+    Thread.sleep(100);
+    assertFalse(sendFuture.isDone());
+    assertNotNull(receivingMailbox.poll());
+    sendFuture.get(1, TimeUnit.SECONDS);
+    assertTrue(stats.getLong(MailboxSendOperator.StatKey.SEND_BLOCKED_TIME_MS) > 0);
+
+    sendingMailbox.cancel(new Exception("TEST ERROR"));
+    receivingMailbox.cancel();
+  }
+
   @Test
   public void testRemoteEarlyTerminated()
       throws Exception {
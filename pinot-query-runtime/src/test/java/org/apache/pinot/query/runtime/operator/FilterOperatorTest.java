@@ -23,6 +23,7 @@ import org.apache.calcite.sql.SqlKind;
 import org.apache.pinot.common.exception.QueryException;
 import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.core.common.datablock.DataBlockBuilder;
 import org.apache.pinot.query.planner.logical.RexExpression;
 import org.apache.pinot.query.planner.plannode.FilterNode;
 import org.apache.pinot.query.planner.plannode.PlanNode;
@@ -37,6 +38,7 @@ import org.testng.annotations.Test;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 
@@ -218,6 +220,32 @@ public class FilterOperatorTest {
     assertEquals(resultRows.get(0), new Object[]{"starTree"});
   }
 
+  @Test
+  public void shouldFilterDataBlockWithoutExtractingRows()
+      throws Exception {
+    DataSchema inputSchema = new DataSchema(new String[]{"intCol", "strCol"}, new ColumnDataType[]{
+        ColumnDataType.INT, ColumnDataType.STRING
+    });
+    List<Object[]> rows = List.of(new Object[]{1, "a"}, new Object[]{2, "b"}, new Object[]{3, "c"},
+        new Object[]{null, "d"}, new Object[]{4, null});
+    when(_input.nextBlock()).thenReturn(new TransferableBlock(DataBlockBuilder.buildFromRows(rows, inputSchema)))
+        .thenReturn(TransferableBlockTestUtils.getEndOfStreamTransferableBlock(0));
+    // intCol > 2 OR 'a' = strCol
+    RexExpression.FunctionCall orCall = new RexExpression.FunctionCall(ColumnDataType.BOOLEAN, SqlKind.OR.name(),
+        List.of(new RexExpression.FunctionCall(ColumnDataType.BOOLEAN, SqlKind.GREATER_THAN.name(),
+                List.of(new RexExpression.InputRef(0), new RexExpression.Literal(ColumnDataType.INT, 2))),
+            new RexExpression.FunctionCall(ColumnDataType.BOOLEAN, SqlKind.EQUALS.name(),
+                List.of(new RexExpression.Literal(ColumnDataType.STRING, "a"), new RexExpression.InputRef(1)))));
+    FilterOperator operator = getOperator(inputSchema, orCall);
+    TransferableBlock block = operator.nextBlock();
+    assertFalse(block.isContainerConstructed());
+    List<Object[]> resultRows = block.getContainer();
+    assertEquals(resultRows.size(), 3);
+    assertEquals(resultRows.get(0), new Object[]{1, "a"});
+    assertEquals(resultRows.get(1), new Object[]{3, "c"});
+    assertEquals(resultRows.get(2), new Object[]{4, null});
+  }
+
   //@formatter:off
   @Test(
       expectedExceptions = IllegalArgumentException.class,
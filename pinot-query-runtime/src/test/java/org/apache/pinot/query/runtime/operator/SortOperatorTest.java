@@ -19,10 +19,12 @@
 package org.apache.pinot.query.runtime.operator;
 
 import java.util.List;
+import java.util.Map;
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.calcite.rel.RelFieldCollation.Direction;
 import org.apache.calcite.rel.RelFieldCollation.NullDirection;
 import org.apache.pinot.common.datablock.DataBlock;
+import org.apache.pinot.common.datatable.StatMap;
 import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.query.planner.plannode.PlanNode;
 import org.apache.pinot.query.planner.plannode.SortNode;
@@ -30,6 +32,8 @@ import org.apache.pinot.query.routing.VirtualServerAddress;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockTestUtils;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
+import org.apache.pinot.spi.utils.CommonConstants;
+import org.apache.pinot.spi.utils.CommonConstants.Broker.Request.QueryOptionKey;
 import org.mockito.Mock;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -472,6 +476,36 @@ public class SortOperatorTest {
     assertTrue(operator.nextBlock().isSuccessfulEndOfStreamBlock(), "expected EOS block to propagate");
   }
 
+  @Test
+  public void shouldSpillAndMergeSortedRunsWhenExceedingSpillThreshold() {
+    // Given:
+    DataSchema schema = new DataSchema(new String[]{"sort", "val"}, new DataSchema.ColumnDataType[]{INT, STRING});
+    when(_input.nextBlock()).thenReturn(
+            block(schema, new Object[]{5, "e"}, new Object[]{3, "c"}, new Object[]{7, "g"}, new Object[]{1, "a"}))
+        .thenReturn(block(schema, new Object[]{6, "f"}, new Object[]{2, "b"}, new Object[]{4, "d"}))
+        .thenReturn(TransferableBlockTestUtils.getEndOfStreamTransferableBlock(0));
+    List<RelFieldCollation> collations = List.of(new RelFieldCollation(0, Direction.ASCENDING, NullDirection.LAST));
+    SortOperator operator = new SortOperator(OperatorTestUtil.getTracingContext(
+        Map.of(CommonConstants.Broker.Request.TRACE, "true", QueryOptionKey.SORT_SPILL_THRESHOLD_ROWS, "2")), _input,
+        new SortNode(-1, schema, PlanNode.NodeHint.EMPTY, List.of(), collations, 5, 1));
+
+    // When:
+    List<Object[]> resultRows = operator.nextBlock().getContainer();
+    TransferableBlock eosBlock = operator.nextBlock();
+
+    // Then:
+    assertEquals(resultRows.size(), 5);
+    assertEquals(resultRows.get(0), new Object[]{2, "b"});
+    assertEquals(resultRows.get(1), new Object[]{3, "c"});
+    assertEquals(resultRows.get(2), new Object[]{4, "d"});
+    assertEquals(resultRows.get(3), new Object[]{5, "e"});
+    assertEquals(resultRows.get(4), new Object[]{6, "f"});
+    assertTrue(eosBlock.isSuccessfulEndOfStreamBlock(), "expected EOS block to propagate");
+    StatMap<SortOperator.StatKey> statMap = OperatorTestUtil.getStatMap(SortOperator.StatKey.class, eosBlock);
+    assertEquals(statMap.getInt(SortOperator.StatKey.SPILLED_RUNS), 3);
+    assertTrue(statMap.getLong(SortOperator.StatKey.SPILLED_BYTES) > 0, "expected spilled bytes to be tracked");
+  }
+
   private SortOperator getOperator(DataSchema schema, List<RelFieldCollation> collations, int fetch, int offset) {
     return new SortOperator(OperatorTestUtil.getTracingContext(), _input,
         new SortNode(-1, schema, PlanNode.NodeHint.EMPTY, List.of(), collations, fetch, offset));
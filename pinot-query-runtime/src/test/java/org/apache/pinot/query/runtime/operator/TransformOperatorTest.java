@@ -23,6 +23,7 @@ import org.apache.calcite.sql.SqlKind;
 import org.apache.pinot.common.exception.QueryException;
 import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.core.common.datablock.DataBlockBuilder;
 import org.apache.pinot.query.planner.logical.RexExpression;
 import org.apache.pinot.query.planner.plannode.PlanNode;
 import org.apache.pinot.query.planner.plannode.ProjectNode;
@@ -36,6 +37,7 @@ import org.testng.annotations.Test;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 
@@ -72,6 +74,26 @@ public class TransformOperatorTest {
     assertEquals(resultRows.get(1), new Object[]{2, "b"});
   }
 
+  @Test
+  public void shouldProjectDataBlockWithoutExtractingRows()
+      throws Exception {
+    DataSchema inputSchema = new DataSchema(new String[]{"intCol", "strCol", "doubleCol"}, new ColumnDataType[]{
+        ColumnDataType.INT, ColumnDataType.STRING, ColumnDataType.DOUBLE
+    });
+    List<Object[]> rows = List.of(new Object[]{1, "a", 1.0}, new Object[]{null, "b", 2.0});
+    when(_input.nextBlock()).thenReturn(new TransferableBlock(DataBlockBuilder.buildFromRows(rows, inputSchema)));
+    DataSchema resultSchema = new DataSchema(new String[]{"doubleCol", "intCol"},
+        new ColumnDataType[]{ColumnDataType.DOUBLE, ColumnDataType.INT});
+    List<RexExpression> projects = List.of(new RexExpression.InputRef(2), new RexExpression.InputRef(0));
+    TransformOperator operator = getOperator(inputSchema, resultSchema, projects);
+    TransferableBlock block = operator.nextBlock();
+    assertFalse(block.isContainerConstructed());
+    List<Object[]> resultRows = block.getContainer();
+    assertEquals(resultRows.size(), 2);
+    assertEquals(resultRows.get(0), new Object[]{1.0, 1});
+    assertEquals(resultRows.get(1), new Object[]{2.0, null});
+  }
+
   @Test
   public void shouldHandleLiteralTransform() {
     DataSchema inputSchema = new DataSchema(new String[]{"boolCol", "strCol"}, new ColumnDataType[]{
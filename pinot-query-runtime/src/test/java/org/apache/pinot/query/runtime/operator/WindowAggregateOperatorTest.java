@@ -19,6 +19,7 @@
 package org.apache.pinot.query.runtime.operator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -47,6 +48,7 @@ import org.testng.annotations.Test;
 import static org.apache.pinot.common.utils.DataSchema.ColumnDataType.*;
 import static org.apache.pinot.query.planner.plannode.WindowNode.WindowFrameType.RANGE;
 import static org.apache.pinot.query.planner.plannode.WindowNode.WindowFrameType.ROWS;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -2824,6 +2826,143 @@ public class WindowAggregateOperatorTest {
     assertEquals(e.getMessage(), "RANGE window frame with offset PRECEDING / FOLLOWING is not supported");
   }
 
+  @Test
+  public void testSumWithSlidingRowsWindowFrameDoesNotAccumulateRoundingErrors() {
+    // Given:
+    WindowAggregateOperator operator = prepareDataForWindowFunction(new String[]{"name", "value", "year"},
+        new ColumnDataType[]{STRING, DOUBLE, INT}, DOUBLE, List.of(0), 2, ROWS, -1, 0,
+        getSum(new RexExpression.InputRef(1)),
+        new Object[][]{
+            new Object[]{"A", 1e16, 2000},
+            new Object[]{"A", 1.0, 2001},
+            new Object[]{"A", 1.0, 2002},
+            new Object[]{"A", 1.0, 2003}
+        });
+
+    // When:
+    List<Object[]> resultRows = operator.nextBlock().getContainer();
+
+    // Then:
+    // The low-order bits of the values added while the large value is in the window must not be lost once it's removed
+    verifyResultRows(resultRows, List.of(0), Map.of(
+        "A", List.of(
+            new Object[]{"A", 1e16, 2000, 1e16},
+            new Object[]{"A", 1.0, 2001, 1e16 + 1},
+            new Object[]{"A", 1.0, 2002, 2.0},
+            new Object[]{"A", 1.0, 2003, 2.0}
+        )));
+    assertTrue(operator.nextBlock().isSuccessfulEndOfStreamBlock(), "Second block is EOS (done processing)");
+  }
+
+  @Test(dataProvider = "streamingWindowFrames")
+  public void testStreamingWindowAggregationOverSortedInput(WindowNode.WindowFrameType frameType, int lowerBound,
+      int upperBound) {
+    // Given:
+    DataSchema inputSchema =
+        new DataSchema(new String[]{"group", "arg", "order"}, new ColumnDataType[]{STRING, INT, INT});
+    // Input is sorted on the order key across all the partitions
+    Object[][] rows = new Object[][]{
+        new Object[]{"A", 14, 2000}, new Object[]{"B", 10, 2000}, new Object[]{"A", 10, 2002},
+        new Object[]{"B", 20, 2005}, new Object[]{"A", 20, 2008}, new Object[]{"A", 15, 2008},
+        new Object[]{"B", 5, 2008}, new Object[]{"A", 7, 2010}, new Object[]{"B", 30, 2012}
+    };
+    DataSchema resultSchema = new DataSchema(new String[]{"group", "arg", "order", "sum", "min", "max"},
+        new ColumnDataType[]{STRING, INT, INT, DOUBLE, DOUBLE, DOUBLE});
+    List<Integer> keys = List.of(0);
+    RexExpression.InputRef arg = new RexExpression.InputRef(1);
+    WindowNode node = new WindowNode(-1, resultSchema, PlanNode.NodeHint.EMPTY, List.of(), keys,
+        List.of(new RelFieldCollation(2)), List.of(getSum(arg), getMin(arg), getMax(arg)), frameType, lowerBound,
+        upperBound, List.of());
+
+    // Compute the expected rows by materializing the whole input
+    MultiStageOperator batchInput = mock(MultiStageOperator.class);
+    when(batchInput.nextBlock()).thenReturn(OperatorTestUtil.block(inputSchema, rows))
+        .thenReturn(TransferableBlockTestUtils.getEndOfStreamTransferableBlock(0));
+    WindowAggregateOperator batchOperator =
+        new WindowAggregateOperator(OperatorTestUtil.getTracingContext(), batchInput, inputSchema, node);
+    Map<Object, List<Object[]>> expectedKeyedRows = new HashMap<>();
+    for (Object[] row : batchOperator.nextBlock().getContainer()) {
+      expectedKeyedRows.computeIfAbsent(row[0], k -> new ArrayList<>()).add(row);
+    }
+
+    when(_input.nextBlock()).thenReturn(OperatorTestUtil.block(inputSchema, Arrays.copyOfRange(rows, 0, 3)))
+        .thenReturn(OperatorTestUtil.block(inputSchema, Arrays.copyOfRange(rows, 3, rows.length)))
+        .thenReturn(TransferableBlockTestUtils.getEndOfStreamTransferableBlock(0));
+    WindowAggregateOperator operator =
+        new WindowAggregateOperator(OperatorTestUtil.getTracingContext(), _input, inputSchema, node, true);
+
+    // When:
+    TransferableBlock block = operator.nextBlock();
+
+    // Then:
+    assertTrue(block.isDataBlock(), "Rows should be emitted before the whole input is consumed");
+    verify(_input, times(1)).nextBlock();
+    List<Object[]> resultRows = new ArrayList<>();
+    while (block.isDataBlock()) {
+      resultRows.addAll(block.getContainer());
+      block = operator.nextBlock();
+    }
+    assertTrue(block.isSuccessfulEndOfStreamBlock());
+    verifyResultRows(resultRows, keys, expectedKeyedRows);
+  }
+
+  @Test
+  public void testShouldPropagateWindowLimitErrorForStreamingPeerRows() {
+    // Given:
+    WindowAggregateOperator operator = getStreamingOperatorWithPeerRowsOverLimit("THROW");
+
+    // When:
+    TransferableBlock block = operator.nextBlock();
+
+    // Then:
+    assertTrue(block.isErrorBlock(), "expected ERROR block from window overflow");
+    assertTrue(block.getExceptions().get(QueryException.SERVER_RESOURCE_LIMIT_EXCEEDED_ERROR_CODE)
+        .contains("reach number of rows limit"));
+  }
+
+  @Test
+  public void testShouldHandleStreamingPeerRowsWithPartialResultsWhenHitDataRowsLimit() {
+    // Given:
+    WindowAggregateOperator operator = getStreamingOperatorWithPeerRowsOverLimit("BREAK");
+
+    // When:
+    List<Object[]> resultRows = operator.nextBlock().getContainer();
+
+    // Then:
+    verify(_input).earlyTerminate();
+    assertEquals(resultRows.size(), 2);
+    assertEquals(resultRows.get(0), new Object[]{"A", 1, 2000, 3.0});
+    assertEquals(resultRows.get(1), new Object[]{"A", 2, 2000, 3.0});
+    TransferableBlock block2 = operator.nextBlock();
+    assertTrue(block2.isSuccessfulEndOfStreamBlock());
+    StatMap<WindowAggregateOperator.StatKey> windowStats =
+        OperatorTestUtil.getStatMap(WindowAggregateOperator.StatKey.class, block2);
+    assertTrue(windowStats.getBoolean(WindowAggregateOperator.StatKey.MAX_ROWS_IN_WINDOW_REACHED),
+        "Max rows in window should be reached");
+  }
+
+  /**
+   * Returns a streaming operator (RANGE window frame over sorted input) whose peer group is larger than the window
+   * cache limit.
+   */
+  private WindowAggregateOperator getStreamingOperatorWithPeerRowsOverLimit(String windowOverflowMode) {
+    DataSchema inputSchema =
+        new DataSchema(new String[]{"group", "arg", "order"}, new ColumnDataType[]{STRING, INT, INT});
+    when(_input.nextBlock()).thenReturn(
+            OperatorTestUtil.block(inputSchema, new Object[]{"A", 1, 2000}, new Object[]{"A", 2, 2000},
+                new Object[]{"A", 3, 2000}))
+        .thenReturn(TransferableBlockTestUtils.getEndOfStreamTransferableBlock(0));
+    DataSchema resultSchema = new DataSchema(new String[]{"group", "arg", "order", "sum"},
+        new ColumnDataType[]{STRING, INT, INT, DOUBLE});
+    PlanNode.NodeHint nodeHint = new PlanNode.NodeHint(Map.of(PinotHintOptions.WINDOW_HINT_OPTIONS,
+        Map.of(PinotHintOptions.WindowHintOptions.WINDOW_OVERFLOW_MODE, windowOverflowMode,
+            PinotHintOptions.WindowHintOptions.MAX_ROWS_IN_WINDOW, "2")));
+    WindowNode node = new WindowNode(-1, resultSchema, nodeHint, List.of(), List.of(0),
+        List.of(new RelFieldCollation(2)), List.of(getSum(new RexExpression.InputRef(1))),
+        WindowNode.WindowFrameType.RANGE, Integer.MIN_VALUE, 0, List.of());
+    return new WindowAggregateOperator(OperatorTestUtil.getTracingContext(), _input, inputSchema, node, true);
+  }
+
   private WindowAggregateOperator getOperator(DataSchema inputSchema, DataSchema resultSchema, List<Integer> keys,
       List<RelFieldCollation> collations, List<RexExpression.FunctionCall> aggCalls,
       WindowNode.WindowFrameType windowFrameType, int lowerBound, int upperBound, PlanNode.NodeHint nodeHint) {
@@ -2910,6 +3049,18 @@ public class WindowAggregateOperatorTest {
     }
   }
 
+  @DataProvider(name = "streamingWindowFrames")
+  public Object[][] getStreamingWindowFrames() {
+    return new Object[][]{
+        {ROWS, Integer.MIN_VALUE, 0},
+        {ROWS, -2, 0},
+        {ROWS, -2, -1},
+        {ROWS, 0, 0},
+        {RANGE, Integer.MIN_VALUE, 0},
+        {RANGE, 0, 0}
+    };
+  }
+
   @DataProvider(name = "windowFrameTypes")
   public Object[][] getWindowFrameTypes() {
     return new Object[][]{
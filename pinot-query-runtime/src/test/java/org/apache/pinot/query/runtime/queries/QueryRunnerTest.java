@@ -234,6 +234,10 @@ public class QueryRunnerTest extends QueryRunnerTestBase {
         // using join clause
         new Object[]{"SELECT * FROM a JOIN b USING (col1)", 15},
 
+        // dynamic broadcast applied as runtime filter on the left leaf stage of the join, should not change the result
+        new Object[]{"SELECT /*+ joinOptions(join_strategy='dynamic_broadcast') */ * FROM a JOIN b ON a.col1 = b.col1",
+            15},
+
         // cannot compare with H2 w/o an ORDER BY because ordering is indeterminate
         new Object[]{"SELECT * FROM a LIMIT 2", 2},
 
@@ -25,6 +25,7 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -598,6 +599,267 @@ public class MutableSegmentImpl implements MutableSegment {
     return canTakeMore;
   }
 
+  /**
+   * Indexes the batch of records column by column: the values of each column are added to the dictionary in bulk, then
+   * appended to each index of the column, where the inverted index bitmaps are updated once per dictionary id. The
+   * records become queryable after the whole batch is indexed.
+   * <p>The records are indexed one by one when upsert, dedup or metrics aggregation is enabled because they require
+   * per-record handling, or when the batch does not fit into the remaining capacity of the segment.
+   * <p>NOTE: The length of the multi-values of all the records are validated before indexing any column, so that no
+   * record in the batch is indexed if any of them cannot be stored.
+   */
+  @Override
+  public boolean index(List<GenericRow> rows, @Nullable RowMetadata rowMetadata)
+      throws IOException {
+    int numRows = rows.size();
+    int numDocsIndexed = _numDocsIndexed;
+    if (numRows <= 1 || isUpsertEnabled() || isDedupEnabled() || isAggregateMetricsEnabled()
+        || numRows > _capacity - numDocsIndexed) {
+      return MutableSegment.super.index(rows, rowMetadata);
+    }
+
+    for (GenericRow row : rows) {
+      validateLengthOfMVColumns(row);
+    }
+
+    for (Map.Entry<String, IndexContainer> entry : _indexContainerMap.entrySet()) {
+      if (entry.getValue()._fieldSpec.isSingleValueField()) {
+        addSVColumn(entry.getKey(), entry.getValue(), rows, numDocsIndexed);
+      } else {
+        addMVColumn(entry.getKey(), entry.getValue(), rows, numDocsIndexed);
+      }
+    }
+
+    // Update number of documents indexed at last to make the latest rows queryable
+    int lastDocId = numDocsIndexed + numRows - 1;
+    _numDocsIndexed = lastDocId + 1;
+
+    // Update last indexed time and latest ingestion time
+    _lastIndexedTimeMs = System.currentTimeMillis();
+    if (rowMetadata != null) {
+      _latestIngestionTimeMs = Math.max(_latestIngestionTimeMs, rowMetadata.getRecordIngestionTimeMs());
+    }
+
+    return lastDocId < _capacity;
+  }
+
+  /**
+   * Adds the values of a single-value column for a batch of records starting from the given docId.
+   */
+  private void addSVColumn(String column, IndexContainer indexContainer, List<GenericRow> rows, int startDocId) {
+    int numRows = rows.size();
+    Object[] values = new Object[numRows];
+    int[] docIds = new int[numRows];
+    int numValues = 0;
+    for (int i = 0; i < numRows; i++) {
+      GenericRow row = rows.get(i);
+      int docId = startDocId + i;
+      // Update the null value vector even if a null value is somehow produced
+      if (indexContainer._nullValueVector != null && row.isNullValue(column)) {
+        indexContainer._nullValueVector.setNull(docId);
+      }
+      Object value = row.getValue(column);
+      if (value == null) {
+        // Skip the null value to avoid corrupting the indexes, see addNewRow() for details
+        if (indexContainer._dictionary != null) {
+          recordIndexingError("DICTIONARY");
+        }
+        continue;
+      }
+      values[numValues] = value;
+      docIds[numValues] = docId;
+      numValues++;
+    }
+    if (numValues == 0) {
+      return;
+    }
+    if (numValues < numRows) {
+      values = Arrays.copyOf(values, numValues);
+    }
+
+    MutableDictionary dictionary = indexContainer._dictionary;
+    int[] dictIds = null;
+    if (dictionary != null) {
+      dictIds = indexSVValues(dictionary, indexContainer._fieldSpec.getDataType().getStoredType(), values);
+      // Update min/max value from dictionary
+      indexContainer._minValue = dictionary.getMinVal();
+      indexContainer._maxValue = dictionary.getMaxVal();
+    }
+
+    boolean isPartitionColumn = column.equals(_partitionColumn);
+    for (int i = 0; i < numValues; i++) {
+      if (isPartitionColumn) {
+        checkPartition(column, indexContainer, values[i]);
+      }
+      // Update numValues info
+      indexContainer._valuesInfo.updateSVNumValues();
+      if (dictIds == null) {
+        // Update min/max value from raw value
+        updateMinMaxValue(indexContainer, values[i]);
+      }
+    }
+
+    // Update indexes
+    for (Map.Entry<IndexType, MutableIndex> indexEntry : indexContainer._mutableIndexes.entrySet()) {
+      MutableIndex mutableIndex = indexEntry.getValue();
+      if (dictIds != null && mutableIndex instanceof MutableInvertedIndex) {
+        try {
+          ((MutableInvertedIndex) mutableIndex).add(dictIds, docIds, numValues);
+        } catch (Exception e) {
+          recordIndexingError(indexEntry.getKey(), e);
+        }
+        continue;
+      }
+      for (int i = 0; i < numValues; i++) {
+        try {
+          mutableIndex.add(values[i], dictIds != null ? dictIds[i] : -1, docIds[i]);
+        } catch (Exception e) {
+          recordIndexingError(indexEntry.getKey(), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds the values of a multi-value column for a batch of records starting from the given docId.
+   */
+  private void addMVColumn(String column, IndexContainer indexContainer, List<GenericRow> rows, int startDocId) {
+    int numRows = rows.size();
+    Object[][] values = new Object[numRows][];
+    int[] docIds = new int[numRows];
+    int numEntries = 0;
+    int totalNumValues = 0;
+    for (int i = 0; i < numRows; i++) {
+      GenericRow row = rows.get(i);
+      int docId = startDocId + i;
+      // Update the null value vector even if a null value is somehow produced
+      if (indexContainer._nullValueVector != null && row.isNullValue(column)) {
+        indexContainer._nullValueVector.setNull(docId);
+      }
+      Object value = row.getValue(column);
+      if (value == null) {
+        // Skip the null value to avoid corrupting the indexes, see addNewRow() for details
+        if (indexContainer._dictionary != null) {
+          recordIndexingError("DICTIONARY");
+        }
+        continue;
+      }
+      values[numEntries] = (Object[]) value;
+      docIds[numEntries] = docId;
+      totalNumValues += values[numEntries].length;
+      numEntries++;
+    }
+    if (numEntries == 0) {
+      return;
+    }
+
+    MutableDictionary dictionary = indexContainer._dictionary;
+    int[][] dictIds = null;
+    if (dictionary != null) {
+      dictIds = indexMVValues(dictionary, indexContainer._fieldSpec.getDataType().getStoredType(), values, numEntries,
+          totalNumValues);
+      // Update min/max value from dictionary
+      indexContainer._minValue = dictionary.getMinVal();
+      indexContainer._maxValue = dictionary.getMaxVal();
+    }
+
+    DataType storedType = indexContainer._fieldSpec.getDataType().getStoredType();
+    for (int i = 0; i < numEntries; i++) {
+      indexContainer._valuesInfo.updateVarByteMVMaxRowLengthInBytes(values[i], storedType);
+    }
+
+    // Update indexes
+    for (Map.Entry<IndexType, MutableIndex> indexEntry : indexContainer._mutableIndexes.entrySet()) {
+      MutableIndex mutableIndex = indexEntry.getValue();
+      if (dictIds != null && mutableIndex instanceof MutableInvertedIndex) {
+        int[] flattenedDictIds = new int[totalNumValues];
+        int[] flattenedDocIds = new int[totalNumValues];
+        int numValues = 0;
+        for (int i = 0; i < numEntries; i++) {
+          int[] entryDictIds = dictIds[i];
+          System.arraycopy(entryDictIds, 0, flattenedDictIds, numValues, entryDictIds.length);
+          Arrays.fill(flattenedDocIds, numValues, numValues + entryDictIds.length, docIds[i]);
+          numValues += entryDictIds.length;
+        }
+        try {
+          ((MutableInvertedIndex) mutableIndex).add(flattenedDictIds, flattenedDocIds, numValues);
+        } catch (Exception e) {
+          recordIndexingError(indexEntry.getKey(), e);
+        }
+        continue;
+      }
+      for (int i = 0; i < numEntries; i++) {
+        try {
+          mutableIndex.add(values[i], dictIds != null ? dictIds[i] : null, docIds[i]);
+        } catch (Exception e) {
+          recordIndexingError(indexEntry.getKey(), e);
+        }
+      }
+      // See addNewRow() for why the capacity of the index is checked
+      if (!_indexCapacityThresholdBreached && !mutableIndex.canAddMore()) {
+        _logger.info(
+            "Index: {} for column: {} cannot consume more rows, marking _indexCapacityThresholdBreached as true",
+            indexEntry.getKey(), column);
+        _indexCapacityThresholdBreached = true;
+      }
+    }
+
+    for (int i = 0; i < numEntries; i++) {
+      indexContainer._valuesInfo.updateMVNumValues(values[i].length);
+    }
+  }
+
+  /**
+   * Indexes the single-value entries into the dictionary, in one call when the dictionary supports bulk indexing.
+   */
+  private static int[] indexSVValues(MutableDictionary dictionary, DataType storedType, Object[] values) {
+    if (supportsBulkIndexing(dictionary, storedType)) {
+      return dictionary.index(values);
+    }
+    int numValues = values.length;
+    int[] dictIds = new int[numValues];
+    for (int i = 0; i < numValues; i++) {
+      dictIds[i] = dictionary.index(values[i]);
+    }
+    return dictIds;
+  }
+
+  /**
+   * Indexes the multi-value entries into the dictionary, in one call for all the entries when the dictionary supports
+   * bulk indexing.
+   */
+  private static int[][] indexMVValues(MutableDictionary dictionary, DataType storedType, Object[][] values,
+      int numEntries, int totalNumValues) {
+    int[][] dictIds = new int[numEntries][];
+    if (!supportsBulkIndexing(dictionary, storedType)) {
+      for (int i = 0; i < numEntries; i++) {
+        dictIds[i] = dictionary.index(values[i]);
+      }
+      return dictIds;
+    }
+    Object[] flattenedValues = new Object[totalNumValues];
+    int numValues = 0;
+    for (int i = 0; i < numEntries; i++) {
+      System.arraycopy(values[i], 0, flattenedValues, numValues, values[i].length);
+      numValues += values[i].length;
+    }
+    int[] flattenedDictIds = dictionary.index(flattenedValues);
+    numValues = 0;
+    for (int i = 0; i < numEntries; i++) {
+      dictIds[i] = Arrays.copyOfRange(flattenedDictIds, numValues, numValues + values[i].length);
+      numValues += values[i].length;
+    }
+    return dictIds;
+  }
+
+  /**
+   * Returns whether {@link MutableDictionary#index(Object[])} can be used to index the values of multiple records at
+   * once. BYTES dictionaries do not support it, and {@link SameValueMutableDictionary} always indexes the same values.
+   */
+  private static boolean supportsBulkIndexing(MutableDictionary dictionary, DataType storedType) {
+    return storedType != BYTES && storedType != MAP && !(dictionary instanceof SameValueMutableDictionary);
+  }
+
   private boolean isUpsertEnabled() {
     return _partitionUpsertMetadataManager != null;
   }
@@ -768,19 +1030,7 @@ public class MutableSegmentImpl implements MutableSegment {
       if (fieldSpec.isSingleValueField()) {
         // Check partitions
         if (column.equals(_partitionColumn)) {
-          String stringValue = dataType.toString(value);
-          int partition = _partitionFunction.getPartition(stringValue);
-          if (partition != _mainPartitionId) {
-            if (indexContainer._partitions.add(partition)) {
-              // for every partition other than mainPartitionId, log a warning once
-              _logger.warn("Found new partition: {} from partition column: {}, value: {}", partition, column,
-                  stringValue);
-            }
-            // always emit a metric when a partition other than mainPartitionId is detected
-            if (_serverMetrics != null) {
-              _serverMetrics.addMeteredTableValue(_realtimeTableName, ServerMeter.REALTIME_PARTITION_MISMATCH, 1);
-            }
-          }
+          checkPartition(column, indexContainer, value);
         }
 
         // Update numValues info
@@ -800,25 +1050,7 @@ public class MutableSegmentImpl implements MutableSegment {
           // Update min/max value from raw value
           // NOTE: Skip updating min/max value for aggregated metrics because the value will change over time.
           if (!isAggregateMetricsEnabled() || fieldSpec.getFieldType() != FieldSpec.FieldType.METRIC) {
-            Comparable comparable;
-            if (dataType == BYTES) {
-              comparable = new ByteArray((byte[]) value);
-            } else if (dataType == MAP) {
-              comparable = new ByteArray(MapUtils.serializeMap((Map) value));
-            } else {
-              comparable = (Comparable) value;
-            }
-            if (indexContainer._minValue == null) {
-              indexContainer._minValue = comparable;
-              indexContainer._maxValue = comparable;
-            } else {
-              if (comparable.compareTo(indexContainer._minValue) < 0) {
-                indexContainer._minValue = comparable;
-              }
-              if (comparable.compareTo(indexContainer._maxValue) > 0) {
-                indexContainer._maxValue = comparable;
-              }
-            }
+            updateMinMaxValue(indexContainer, value);
           }
         }
       } else {
@@ -852,6 +1084,44 @@ public class MutableSegmentImpl implements MutableSegment {
     }
   }
 
+  private void checkPartition(String column, IndexContainer indexContainer, Object value) {
+    String stringValue = indexContainer._fieldSpec.getDataType().toString(value);
+    int partition = _partitionFunction.getPartition(stringValue);
+    if (partition != _mainPartitionId) {
+      if (indexContainer._partitions.add(partition)) {
+        // for every partition other than mainPartitionId, log a warning once
+        _logger.warn("Found new partition: {} from partition column: {}, value: {}", partition, column, stringValue);
+      }
+      // always emit a metric when a partition other than mainPartitionId is detected
+      if (_serverMetrics != null) {
+        _serverMetrics.addMeteredTableValue(_realtimeTableName, ServerMeter.REALTIME_PARTITION_MISMATCH, 1);
+      }
+    }
+  }
+
+  private static void updateMinMaxValue(IndexContainer indexContainer, Object value) {
+    DataType dataType = indexContainer._fieldSpec.getDataType();
+    Comparable comparable;
+    if (dataType == BYTES) {
+      comparable = new ByteArray((byte[]) value);
+    } else if (dataType == MAP) {
+      comparable = new ByteArray(MapUtils.serializeMap((Map) value));
+    } else {
+      comparable = (Comparable) value;
+    }
+    if (indexContainer._minValue == null) {
+      indexContainer._minValue = comparable;
+      indexContainer._maxValue = comparable;
+    } else {
+      if (comparable.compareTo(indexContainer._minValue) < 0) {
+        indexContainer._minValue = comparable;
+      }
+      if (comparable.compareTo(indexContainer._maxValue) > 0) {
+        indexContainer._maxValue = comparable;
+      }
+    }
+  }
+
   private void recordIndexingError(IndexType<?, ?, ?> indexType, Exception exception) {
     _logger.error("failed to index value with {}", indexType, exception);
     if (_serverMetrics != null) {
@@ -46,6 +46,10 @@ public class MutableColumnStatistics implements ColumnStatistics {
   //       dictionary.
   private final Dictionary _dictionary;
 
+  // NOTE: Sorting the dictionary is expensive for high cardinality columns, so the sorted values are cached because
+  //       they are accessed multiple times during the segment creation.
+  private Object _sortedValues;
+
   private int _minElementLength = -1;
   private int _maxElementLength = -1;
 
@@ -67,7 +71,10 @@ public class MutableColumnStatistics implements ColumnStatistics {
 
   @Override
   public Object getUniqueValuesSet() {
-    return _dictionary.getSortedValues();
+    if (_sortedValues == null) {
+      _sortedValues = _dictionary.getSortedValues();
+    }
+    return _sortedValues;
   }
 
   @Override
@@ -19,6 +19,7 @@
 package org.apache.pinot.segment.local.realtime.impl.invertedindex;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.pinot.segment.spi.index.mutable.MutableInvertedIndex;
@@ -61,6 +62,46 @@ public class RealtimeInvertedIndex implements MutableInvertedIndex {
     }
   }
 
+  /**
+   * Adds the document ids to the bitmaps of the paired dictionary ids. The pairs are grouped by dictionary id so that
+   * each bitmap is locked and updated only once for the batch.
+   */
+  @Override
+  public void add(int[] dictIds, int[] docIds, int length) {
+    if (length == 0) {
+      return;
+    }
+    // Sort the (dictionary id, document id) pairs by dictionary id first, then by document id
+    long[] pairs = new long[length];
+    for (int i = 0; i < length; i++) {
+      pairs[i] = ((long) dictIds[i] << 32) | docIds[i];
+    }
+    Arrays.sort(pairs);
+    int[] groupDocIds = new int[length];
+    int index = 0;
+    while (index < length) {
+      int dictId = (int) (pairs[index] >>> 32);
+      int numDocIds = 0;
+      do {
+        groupDocIds[numDocIds++] = (int) pairs[index++];
+      } while (index < length && (int) (pairs[index] >>> 32) == dictId);
+      if (_bitmaps.size() == dictId) {
+        // Bitmap for the dictionary id does not exist, add a new bitmap into the list
+        ThreadSafeMutableRoaringBitmap bitmap = new ThreadSafeMutableRoaringBitmap();
+        bitmap.add(groupDocIds, 0, numDocIds);
+        try {
+          _writeLock.lock();
+          _bitmaps.add(bitmap);
+        } finally {
+          _writeLock.unlock();
+        }
+      } else {
+        // Bitmap for the dictionary id already exists, check and add document ids into the bitmap
+        _bitmaps.get(dictId).add(groupDocIds, 0, numDocIds);
+      }
+    }
+  }
+
   @Override
   public MutableRoaringBitmap getDocIds(int dictId) {
     ThreadSafeMutableRoaringBitmap bitmap;
@@ -29,6 +29,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -48,6 +52,7 @@ import org.apache.pinot.segment.spi.creator.ColumnIndexCreationInfo;
 import org.apache.pinot.segment.spi.creator.IndexCreationContext;
 import org.apache.pinot.segment.spi.creator.SegmentCreator;
 import org.apache.pinot.segment.spi.creator.SegmentGeneratorConfig;
+import org.apache.pinot.segment.spi.datasource.DataSource;
 import org.apache.pinot.segment.spi.index.DictionaryIndexConfig;
 import org.apache.pinot.segment.spi.index.FieldIndexConfigs;
 import org.apache.pinot.segment.spi.index.ForwardIndexConfig;
@@ -58,6 +63,10 @@ import org.apache.pinot.segment.spi.index.StandardIndexes;
 import org.apache.pinot.segment.spi.index.TextIndexConfig;
 import org.apache.pinot.segment.spi.index.creator.ForwardIndexCreator;
 import org.apache.pinot.segment.spi.index.creator.SegmentIndexCreationInfo;
+import org.apache.pinot.segment.spi.index.reader.Dictionary;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReader;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReaderContext;
+import org.apache.pinot.segment.spi.index.reader.NullValueVectorReader;
 import org.apache.pinot.segment.spi.partition.PartitionFunction;
 import org.apache.pinot.spi.config.table.IndexConfig;
 import org.apache.pinot.spi.config.table.SegmentZKPropsConfig;
@@ -321,35 +330,106 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
       throws IOException {
     for (Map.Entry<String, Map<IndexType<?, ?, ?>, IndexCreator>> byColEntry : _creatorsByColAndIndex.entrySet()) {
       String columnName = byColEntry.getKey();
+      indexColumnValue(row, columnName, _schema.getFieldSpecFor(columnName), _dictionaryCreatorMap.get(columnName),
+          byColEntry.getValue());
+    }
 
-      Object columnValueToIndex = row.getValue(columnName);
-      if (columnValueToIndex == null) {
-        throw new RuntimeException("Null value for column:" + columnName);
+    for (Map.Entry<String, NullValueVectorCreator> entry : _nullValueVectorCreatorMap.entrySet()) {
+      // If row has null value for given column name, add to null value vector
+      if (row.isNullValue(entry.getKey())) {
+        entry.getValue().setNull(_docIdCounter);
       }
+    }
 
-      Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex = byColEntry.getValue();
+    _docIdCounter++;
+  }
 
+  /**
+   * Indexes the batch of rows column by column. When an executor is provided, each column is indexed by a separate
+   * task so that the columns are indexed in parallel. The null value vectors are updated after all the columns are
+   * indexed.
+   */
+  @Override
+  public void indexRows(List<GenericRow> rows, @Nullable ExecutorService executorService)
+      throws IOException {
+    if (executorService == null) {
+      for (GenericRow row : rows) {
+        indexRow(row);
+      }
+      return;
+    }
+
+    List<Callable<Void>> tasks = new ArrayList<>(_creatorsByColAndIndex.size());
+    for (Map.Entry<String, Map<IndexType<?, ?, ?>, IndexCreator>> byColEntry : _creatorsByColAndIndex.entrySet()) {
+      String columnName = byColEntry.getKey();
+      Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex = byColEntry.getValue();
       FieldSpec fieldSpec = _schema.getFieldSpecFor(columnName);
       SegmentDictionaryCreator dictionaryCreator = _dictionaryCreatorMap.get(columnName);
-      try {
-        if (fieldSpec.isSingleValueField()) {
-          indexSingleValueRow(dictionaryCreator, columnValueToIndex, creatorsByIndex);
-        } else {
-          indexMultiValueRow(dictionaryCreator, (Object[]) columnValueToIndex, creatorsByIndex);
+      tasks.add(() -> {
+        for (GenericRow row : rows) {
+          indexColumnValue(row, columnName, fieldSpec, dictionaryCreator, creatorsByIndex);
+        }
+        return null;
+      });
+    }
+    runInParallel(executorService, tasks);
+
+    for (GenericRow row : rows) {
+      for (Map.Entry<String, NullValueVectorCreator> entry : _nullValueVectorCreatorMap.entrySet()) {
+        // If row has null value for given column name, add to null value vector
+        if (row.isNullValue(entry.getKey())) {
+          entry.getValue().setNull(_docIdCounter);
         }
-      } catch (JsonParseException jpe) {
-        throw new ColumnJsonParserException(columnName, jpe);
       }
+      _docIdCounter++;
     }
+  }
 
-    for (Map.Entry<String, NullValueVectorCreator> entry : _nullValueVectorCreatorMap.entrySet()) {
-      // If row has null value for given column name, add to null value vector
-      if (row.isNullValue(entry.getKey())) {
-        entry.getValue().setNull(_docIdCounter);
+  /**
+   * Indexes the value of the given column within the row with the dictionary creator and the index creators of the
+   * column.
+   */
+  private void indexColumnValue(GenericRow row, String columnName, FieldSpec fieldSpec,
+      @Nullable SegmentDictionaryCreator dictionaryCreator, Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex)
+      throws IOException {
+    Object columnValueToIndex = row.getValue(columnName);
+    if (columnValueToIndex == null) {
+      throw new RuntimeException("Null value for column:" + columnName);
+    }
+    try {
+      if (fieldSpec.isSingleValueField()) {
+        indexSingleValueRow(dictionaryCreator, columnValueToIndex, creatorsByIndex);
+      } else {
+        indexMultiValueRow(dictionaryCreator, (Object[]) columnValueToIndex, creatorsByIndex);
       }
+    } catch (JsonParseException jpe) {
+      throw new ColumnJsonParserException(columnName, jpe);
     }
+  }
 
-    _docIdCounter++;
+  /**
+   * Runs the index creation tasks with the executor and waits for all of them to finish. The exception thrown by the
+   * first failed task is rethrown.
+   */
+  static void runInParallel(ExecutorService executorService, List<Callable<Void>> tasks)
+      throws IOException {
+    try {
+      for (Future<Void> future : executorService.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while creating indexes", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new RuntimeException("Caught exception while creating indexes", cause);
+    }
   }
 
   @Override
@@ -361,6 +441,14 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
       return;
     }
 
+    DataSource dataSource = segment.getDataSource(columnName);
+    Dictionary dictionary = dataSource.getDictionary();
+    ForwardIndexReader forwardIndex = dataSource.getForwardIndex();
+    if (dictionary != null && forwardIndex != null && forwardIndex.isDictionaryEncoded()) {
+      indexDictionaryEncodedColumn(columnName, sortedDocIds, numDocs, dataSource, dictionary, forwardIndex);
+      return;
+    }
+
     try (PinotSegmentColumnReader colReader = new PinotSegmentColumnReader(segment, columnName)) {
       Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex = _creatorsByColAndIndex.get(columnName);
       NullValueVectorCreator nullVec = _nullValueVectorCreatorMap.get(columnName);
@@ -381,6 +469,91 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     }
   }
 
+  /**
+   * Indexes a dictionary-encoded column of the source segment (e.g. a mutable segment being committed). The values and
+   * the new dictionary ids are resolved once per source dictionary id, so the documents can be indexed by remapping the
+   * source dictionary ids without looking up the new dictionary for every value.
+   */
+  private void indexDictionaryEncodedColumn(String columnName, @Nullable int[] sortedDocIds, int numDocs,
+      DataSource dataSource, Dictionary dictionary, ForwardIndexReader forwardIndex)
+      throws IOException {
+    Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex = _creatorsByColAndIndex.get(columnName);
+    NullValueVectorCreator nullVec = _nullValueVectorCreatorMap.get(columnName);
+    NullValueVectorReader nullValueVector = nullVec != null ? dataSource.getNullValueVector() : null;
+    SegmentDictionaryCreator dictionaryCreator = _dictionaryCreatorMap.get(columnName);
+
+    // Resolve the value and the new dictionary id for each source dictionary id
+    int cardinality = dictionary.length();
+    Object[] values = new Object[cardinality];
+    int[] dictIdMap = new int[cardinality];
+    for (int dictId = 0; dictId < cardinality; dictId++) {
+      Object value = dictionary.get(dictId);
+      values[dictId] = value;
+      dictIdMap[dictId] = dictionaryCreator != null ? dictionaryCreator.indexOfSV(value) : -1;
+    }
+
+    try (ForwardIndexReaderContext context = forwardIndex.createContext()) {
+      if (forwardIndex.isSingleValue()) {
+        for (int onDiskDocId = 0; onDiskDocId < numDocs; onDiskDocId++) {
+          int sourceDocId = sortedDocIds != null ? sortedDocIds[onDiskDocId] : onDiskDocId;
+          int sourceDictId = forwardIndex.getDictId(sourceDocId, context);
+          Object value = values[sourceDictId];
+          int dictId = dictIdMap[sourceDictId];
+          for (IndexCreator creator : creatorsByIndex.values()) {
+            creator.add(value, dictId);
+          }
+          if (nullValueVector != null && nullValueVector.isNull(sourceDocId)) {
+            nullVec.setNull(onDiskDocId);
+          }
+        }
+      } else {
+        DataType storedType = dictionary.getValueType();
+        int[] sourceDictIds = new int[dataSource.getDataSourceMetadata().getMaxNumValuesPerMVEntry()];
+        for (int onDiskDocId = 0; onDiskDocId < numDocs; onDiskDocId++) {
+          int sourceDocId = sortedDocIds != null ? sortedDocIds[onDiskDocId] : onDiskDocId;
+          int numValues = forwardIndex.getDictIdMV(sourceDocId, sourceDictIds, context);
+          Object[] mvValues = newMultiValueArray(storedType, numValues);
+          int[] dictIds = dictionaryCreator != null ? new int[numValues] : null;
+          for (int i = 0; i < numValues; i++) {
+            int sourceDictId = sourceDictIds[i];
+            mvValues[i] = values[sourceDictId];
+            if (dictIds != null) {
+              dictIds[i] = dictIdMap[sourceDictId];
+            }
+          }
+          for (IndexCreator creator : creatorsByIndex.values()) {
+            creator.add(mvValues, dictIds);
+          }
+          if (nullValueVector != null && nullValueVector.isNull(sourceDocId)) {
+            nullVec.setNull(onDiskDocId);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates an array of the same type as the multi-value read through {@link PinotSegmentColumnReader}.
+   */
+  private static Object[] newMultiValueArray(DataType storedType, int length) {
+    switch (storedType) {
+      case INT:
+        return new Integer[length];
+      case LONG:
+        return new Long[length];
+      case FLOAT:
+        return new Float[length];
+      case DOUBLE:
+        return new Double[length];
+      case STRING:
+        return new String[length];
+      case BYTES:
+        return new byte[length][];
+      default:
+        throw new IllegalStateException("Unsupported MV type: " + storedType);
+    }
+  }
+
   private void indexColumnValue(PinotSegmentColumnReader colReader,
       Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex, String columnName, FieldSpec fieldSpec,
       SegmentDictionaryCreator dictionaryCreator, int sourceDocId, int onDiskDocPos,
@@ -23,6 +23,7 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,11 +31,15 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.utils.NamedThreadFactory;
 import org.apache.pinot.segment.local.realtime.converter.stats.RealtimeSegmentSegmentCreationDataSource;
 import org.apache.pinot.segment.local.segment.creator.RecordReaderSegmentCreationDataSource;
 import org.apache.pinot.segment.local.segment.creator.TransformPipeline;
@@ -42,6 +47,7 @@ import org.apache.pinot.segment.local.segment.index.converter.SegmentFormatConve
 import org.apache.pinot.segment.local.segment.index.dictionary.DictionaryIndexType;
 import org.apache.pinot.segment.local.segment.index.loader.IndexLoadingConfig;
 import org.apache.pinot.segment.local.segment.readers.PinotSegmentRecordReader;
+import org.apache.pinot.segment.local.segment.readers.sort.OffHeapRecordSorter;
 import org.apache.pinot.segment.local.startree.v2.builder.MultipleTreesBuilder;
 import org.apache.pinot.segment.local.utils.CrcUtils;
 import org.apache.pinot.segment.local.utils.IngestionUtils;
@@ -92,6 +98,8 @@ import org.slf4j.LoggerFactory;
 // TODO: Check resource leaks
 public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDriver {
   private static final Logger LOGGER = LoggerFactory.getLogger(SegmentIndexCreationDriverImpl.class);
+  // Number of rows buffered and indexed as a batch when creating the column indexes in parallel
+  private static final int INDEX_CREATION_BATCH_SIZE = 10_000;
 
   private SegmentGeneratorConfig _config;
   private RecordReader _recordReader;
@@ -208,6 +216,76 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     // Create a temporary directory used in segment creation
     _tempIndexDir = new File(indexDir, "tmp-" + UUID.randomUUID());
     LOGGER.debug("tempIndexDir:{}", _tempIndexDir);
+
+    // Stage and sort the records off-heap so that the segment is created in the configured sort order
+    if (shouldSortRecordsOffHeap()) {
+      sortRecordsOffHeap(new File(indexDir, "sort-" + UUID.randomUUID()));
+    }
+  }
+
+  private boolean shouldSortRecordsOffHeap() {
+    // NOTE: PinotSegmentRecordReader already returns the records in the sort order
+    return _config.isOffHeapSortEnabled() && !_config.getColumnSortOrder().isEmpty()
+        && _dataSource instanceof RecordReaderSegmentCreationDataSource
+        && !(_recordReader instanceof PinotSegmentRecordReader);
+  }
+
+  /**
+   * Transforms all the records from the record reader and stages them off-heap, then replaces the record reader with
+   * one that returns the transformed records in sorted order. Only the sorted row ids are kept on heap.
+   */
+  private void sortRecordsOffHeap(File stagingDir)
+      throws Exception {
+    List<String> sortOrder = _config.getColumnSortOrder();
+    LOGGER.info("Start sorting records off-heap on columns: {}", sortOrder);
+    long startTimeMs = System.currentTimeMillis();
+
+    OffHeapRecordSorter sorter = new OffHeapRecordSorter(stagingDir, _dataSchema, sortOrder);
+    RecordReader sortedRecordReader;
+    int incompleteRowsFound = 0;
+    try {
+      GenericRow reuse = new GenericRow();
+      TransformPipeline.Result reusedResult = new TransformPipeline.Result();
+      while (_recordReader.hasNext()) {
+        reuse.clear();
+        try {
+          _transformPipeline.processRow(_recordReader.next(reuse), reusedResult);
+        } catch (Exception e) {
+          if (!_continueOnError) {
+            throw new RuntimeException("Error occurred while reading row during sorting", e);
+          } else {
+            incompleteRowsFound++;
+            LOGGER.debug("Error occurred while reading row during sorting", e);
+            continue;
+          }
+        }
+        for (GenericRow row : reusedResult.getTransformedRows()) {
+          sorter.add(row);
+        }
+        incompleteRowsFound += reusedResult.getIncompleteRowCount();
+      }
+      sortedRecordReader = sorter.sort();
+    } catch (Exception e) {
+      sorter.close();
+      throw e;
+    } finally {
+      _recordReader.close();
+    }
+
+    if (incompleteRowsFound > 0) {
+      LOGGER.warn("Incomplete data found for {} records. This can be due to error during reader or transformations",
+          incompleteRowsFound);
+    }
+    LOGGER.info("Finished sorting {} records off-heap in {}ms", sorter.getNumRows(),
+        System.currentTimeMillis() - startTimeMs);
+
+    // The staged records are already transformed
+    TransformPipeline passThroughPipeline = TransformPipeline.getPassThroughPipeline();
+    RecordReaderSegmentCreationDataSource dataSource = new RecordReaderSegmentCreationDataSource(sortedRecordReader);
+    dataSource.setTransformPipeline(passThroughPipeline);
+    _dataSource = dataSource;
+    _recordReader = sortedRecordReader;
+    _transformPipeline = passThroughPipeline;
   }
 
   /**
@@ -237,6 +315,7 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     LOGGER.info("Collected stats for {} documents", _totalDocs);
 
     int incompleteRowsFound = 0;
+    ExecutorService executorService = null;
     try {
       // TODO: Eventually pull the doc Id sorting logic out of Record Reader so that all row oriented logic can be
       //    removed from this code.
@@ -255,14 +334,23 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
       // Build the index
       _recordReader.rewind();
       LOGGER.info("Start building IndexCreator!");
+      // When indexing the columns in parallel, rows are buffered and indexed in batches, so they cannot be reused
+      executorService = createIndexCreationExecutor();
+      List<GenericRow> rowBatch = executorService != null ? new ArrayList<>(INDEX_CREATION_BATCH_SIZE) : null;
       GenericRow reuse = new GenericRow();
       TransformPipeline.Result reusedResult = new TransformPipeline.Result();
       while (_recordReader.hasNext()) {
         long recordReadStopTimeNs;
-        reuse.clear();
+        GenericRow rowToRead;
+        if (rowBatch == null) {
+          reuse.clear();
+          rowToRead = reuse;
+        } else {
+          rowToRead = new GenericRow();
+        }
 
         try {
-          GenericRow decodedRow = _recordReader.next(reuse);
+          GenericRow decodedRow = _recordReader.next(rowToRead);
           long recordReadStartTimeNs = System.nanoTime();
           _transformPipeline.processRow(decodedRow, reusedResult);
           recordReadStopTimeNs = System.nanoTime();
@@ -277,17 +365,33 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
           }
         }
 
-        for (GenericRow row : reusedResult.getTransformedRows()) {
-          _indexCreator.indexRow(row);
+        if (rowBatch == null) {
+          for (GenericRow row : reusedResult.getTransformedRows()) {
+            _indexCreator.indexRow(row);
+          }
+        } else {
+          rowBatch.addAll(reusedResult.getTransformedRows());
+          if (rowBatch.size() >= INDEX_CREATION_BATCH_SIZE) {
+            _indexCreator.indexRows(rowBatch, executorService);
+            rowBatch.clear();
+          }
         }
         _totalIndexTimeNs += (System.nanoTime() - recordReadStopTimeNs);
         incompleteRowsFound += reusedResult.getIncompleteRowCount();
       }
+      if (rowBatch != null && !rowBatch.isEmpty()) {
+        long indexStartTimeNs = System.nanoTime();
+        _indexCreator.indexRows(rowBatch, executorService);
+        _totalIndexTimeNs += (System.nanoTime() - indexStartTimeNs);
+      }
     } catch (Exception e) {
       _indexCreator.close();
       throw e;
     } finally {
       _recordReader.close();
+      if (executorService != null) {
+        executorService.shutdownNow();
+      }
     }
 
     if (incompleteRowsFound > 0) {
@@ -308,6 +412,7 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     LOGGER.info("Finished building StatsCollector!");
     LOGGER.info("Collected stats for {} documents", _totalDocs);
 
+    ExecutorService executorService = null;
     try {
       // TODO: Eventually pull the doc Id sorting logic out of Record Reader so that all row oriented logic can be
       //    removed from this code.
@@ -325,8 +430,20 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
 
       TreeSet<String> columns = _dataSchema.getPhysicalColumnNames();
 
-      for (String col : columns) {
-        _indexCreator.indexColumn(col, sortedDocIds, indexSegment);
+      executorService = createIndexCreationExecutor();
+      if (executorService == null) {
+        for (String col : columns) {
+          _indexCreator.indexColumn(col, sortedDocIds, indexSegment);
+        }
+      } else {
+        List<Callable<Void>> tasks = new ArrayList<>(columns.size());
+        for (String col : columns) {
+          tasks.add(() -> {
+            _indexCreator.indexColumn(col, sortedDocIds, indexSegment);
+            return null;
+          });
+        }
+        SegmentColumnarIndexCreator.runInParallel(executorService, tasks);
       }
     } catch (Exception e) {
       _indexCreator.close();
@@ -335,6 +452,9 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
       // The record reader is created by the `init` method and needs to be closed and
       // cleaned up even by the Column Mode builder.
       _recordReader.close();
+      if (executorService != null) {
+        executorService.shutdownNow();
+      }
     }
 
     // TODO: Using column oriented, we can't catch incomplete records.  Does that matter?
@@ -344,6 +464,20 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     handlePostCreation();
   }
 
+  /**
+   * Returns the executor used to create the column indexes in parallel, or {@code null} if the indexes should be
+   * created in the current thread.
+   */
+  @Nullable
+  private ExecutorService createIndexCreationExecutor() {
+    int numThreads = Math.min(_config.getNumIndexCreationThreads(), _dataSchema.getPhysicalColumnNames().size());
+    if (numThreads <= 1) {
+      return null;
+    }
+    LOGGER.info("Creating indexes with {} threads", numThreads);
+    return Executors.newFixedThreadPool(numThreads, new NamedThreadFactory("segment-index-creation"));
+  }
+
   private void handlePostCreation()
       throws Exception {
     ColumnStatistics timeColumnStatistics = _segmentStats.getColumnProfileFor(_config.getTimeColumnName());
@@ -19,6 +19,7 @@
 package org.apache.pinot.segment.local.segment.index.readers.forward;
 
 import java.util.List;
+import javax.annotation.Nullable;
 import org.apache.pinot.segment.local.io.reader.impl.FixedBitIntReader;
 import org.apache.pinot.segment.spi.index.reader.ForwardIndexReader;
 import org.apache.pinot.segment.spi.index.reader.ForwardIndexReaderContext;
@@ -30,15 +31,19 @@ import org.apache.pinot.spi.data.FieldSpec.DataType;
  * Bit-compressed dictionary-encoded forward index reader for single-value columns. The values returned are dictionary
  * ids.
  */
-public final class FixedBitSVForwardIndexReaderV2 implements ForwardIndexReader<ForwardIndexReaderContext> {
+public final class FixedBitSVForwardIndexReaderV2
+    implements ForwardIndexReader<FixedBitSVForwardIndexReaderV2.Context> {
   private final FixedBitIntReader _reader;
   private final int _numDocs;
   private final int _numBitsPerValue;
+  // Number of 32-value blocks that are fully backed by the data buffer, which can be decoded with read32()
+  private final long _numFullBlocks;
 
   public FixedBitSVForwardIndexReaderV2(PinotDataBuffer dataBuffer, int numDocs, int numBitsPerValue) {
     _reader = FixedBitIntReader.getReader(dataBuffer, numBitsPerValue);
     _numDocs = numDocs;
     _numBitsPerValue = numBitsPerValue;
+    _numFullBlocks = dataBuffer.size() / (4L * numBitsPerValue);
   }
 
   @Override
@@ -57,27 +62,26 @@ public final class FixedBitSVForwardIndexReaderV2 implements ForwardIndexReader<
   }
 
   @Override
-  public int getDictId(int docId, ForwardIndexReaderContext context) {
+  public Context createContext() {
+    return new Context();
+  }
+
+  @Override
+  public int getDictId(int docId, Context context) {
     return _reader.read(docId);
   }
 
   @Override
-  public void readDictIds(int[] docIds, int length, int[] dictIdBuffer, ForwardIndexReaderContext context) {
+  public void readDictIds(int[] docIds, int length, int[] dictIdBuffer, @Nullable Context context) {
     int firstDocId = docIds[0];
     int lastDocId = docIds[length - 1];
     int index = 0;
 
     // Use bulk read if the doc ids are sequential
-    if (lastDocId - firstDocId + 1 == length && length >= 64) {
-      int bulkStartIndex = (firstDocId + 31) & 0xffffffe0;
-      int bulkEndIndex = lastDocId & 0xffffffe0;
-
-      for (int i = firstDocId; i < bulkStartIndex; i++) {
-        dictIdBuffer[index++] = _reader.readUnchecked(i);
-      }
-      for (int i = bulkStartIndex; i < bulkEndIndex; i += 32) {
-        _reader.read32(i, dictIdBuffer, index);
-        index += 32;
+    if (lastDocId - firstDocId + 1 == length) {
+      index = readSequentialDictIds(firstDocId, length, dictIdBuffer, context);
+      if (index == length) {
+        return;
       }
     }
 
@@ -98,6 +102,65 @@ public final class FixedBitSVForwardIndexReaderV2 implements ForwardIndexReader<
     }
   }
 
+  /**
+   * Reads the dictIds for the sequential docIds starting from the given docId with the bulk read of the 32-value
+   * blocks. The partial blocks at the boundaries are also bulk read into the block buffer of the context when
+   * available, and copied into the dictId buffer. Returns the number of dictIds read, where the remaining ones should
+   * be read one by one.
+   */
+  private int readSequentialDictIds(int startDocId, int length, int[] dictIdBuffer, @Nullable Context context) {
+    int endDocId = startDocId + length;
+    int bulkStartDocId = (startDocId + 31) & 0xffffffe0;
+    int bulkEndDocId = endDocId & 0xffffffe0;
+    int[] blockBuffer = context != null ? context._blockBuffer : null;
+
+    if (bulkStartDocId >= bulkEndDocId) {
+      // No full block, read the block containing all the docs if possible
+      int blockStartDocId = startDocId & 0xffffffe0;
+      if (blockBuffer != null && blockStartDocId == ((endDocId - 1) & 0xffffffe0) && isFullBlock(blockStartDocId)) {
+        _reader.read32(blockStartDocId, blockBuffer, 0);
+        System.arraycopy(blockBuffer, startDocId - blockStartDocId, dictIdBuffer, 0, length);
+        return length;
+      }
+      return 0;
+    }
+
+    // Head (partial block before the first full block)
+    int index = bulkStartDocId - startDocId;
+    if (index > 0) {
+      if (blockBuffer != null) {
+        _reader.read32(bulkStartDocId - 32, blockBuffer, 0);
+        System.arraycopy(blockBuffer, 32 - index, dictIdBuffer, 0, index);
+      } else {
+        for (int i = 0; i < index; i++) {
+          dictIdBuffer[i] = _reader.readUnchecked(startDocId + i);
+        }
+      }
+    }
+
+    // Full blocks
+    for (int docId = bulkStartDocId; docId < bulkEndDocId; docId += 32) {
+      _reader.read32(docId, dictIdBuffer, index);
+      index += 32;
+    }
+
+    // Tail (partial block after the last full block)
+    if (blockBuffer != null && index < length && isFullBlock(bulkEndDocId)) {
+      _reader.read32(bulkEndDocId, blockBuffer, 0);
+      System.arraycopy(blockBuffer, 0, dictIdBuffer, index, length - index);
+      index = length;
+    }
+    return index;
+  }
+
+  /**
+   * Returns whether the 32-value block starting from the given docId is fully backed by the data buffer. The values
+   * after the last doc within the block are not valid, but can be decoded without reading out of the buffer.
+   */
+  private boolean isFullBlock(int blockStartDocId) {
+    return (blockStartDocId >>> 5) < _numFullBlocks;
+  }
+
   @Override
   public void close() {
   }
@@ -108,7 +171,7 @@ public final class FixedBitSVForwardIndexReaderV2 implements ForwardIndexReader<
   }
 
   @Override
-  public void recordDocIdByteRanges(int docId, ForwardIndexReaderContext context, List<ByteRange> ranges) {
+  public void recordDocIdByteRanges(int docId, Context context, List<ByteRange> ranges) {
     throw new UnsupportedOperationException("Forward index is fixed length type");
   }
 
@@ -131,4 +194,16 @@ public final class FixedBitSVForwardIndexReaderV2 implements ForwardIndexReader<
   public boolean isDocLengthInBits() {
     return true;
   }
+
+  /**
+   * Reader context that holds the buffer for the partial 32-value blocks, so that sequential docIds not aligned to the
+   * block boundaries can also be read with the bulk read.
+   */
+  public static final class Context implements ForwardIndexReaderContext {
+    private final int[] _blockBuffer = new int[32];
+
+    @Override
+    public void close() {
+    }
+  }
 }
@@ -93,6 +93,111 @@ public final class FixedByteChunkSVForwardIndexReader extends BaseChunkForwardIn
     }
   }
 
+  @Override
+  public void readValuesSV(int[] docIds, int length, int[] values, ChunkReaderContext context) {
+    if (!_isCompressed || _storedType != DataType.INT) {
+      super.readValuesSV(docIds, length, values, context);
+      return;
+    }
+    readValuesByChunk(docIds, length, Integer.BYTES, context,
+        (view, start, numValues) -> view.asIntBuffer().get(values, start, numValues),
+        (chunkBuffer, offset, index) -> values[index] = chunkBuffer.getInt(offset));
+  }
+
+  @Override
+  public void readValuesSV(int[] docIds, int length, long[] values, ChunkReaderContext context) {
+    if (!_isCompressed || _storedType != DataType.LONG) {
+      super.readValuesSV(docIds, length, values, context);
+      return;
+    }
+    readValuesByChunk(docIds, length, Long.BYTES, context,
+        (view, start, numValues) -> view.asLongBuffer().get(values, start, numValues),
+        (chunkBuffer, offset, index) -> values[index] = chunkBuffer.getLong(offset));
+  }
+
+  @Override
+  public void readValuesSV(int[] docIds, int length, float[] values, ChunkReaderContext context) {
+    if (!_isCompressed || _storedType != DataType.FLOAT) {
+      super.readValuesSV(docIds, length, values, context);
+      return;
+    }
+    readValuesByChunk(docIds, length, Float.BYTES, context,
+        (view, start, numValues) -> view.asFloatBuffer().get(values, start, numValues),
+        (chunkBuffer, offset, index) -> values[index] = chunkBuffer.getFloat(offset));
+  }
+
+  @Override
+  public void readValuesSV(int[] docIds, int length, double[] values, ChunkReaderContext context) {
+    if (!_isCompressed || _storedType != DataType.DOUBLE) {
+      super.readValuesSV(docIds, length, values, context);
+      return;
+    }
+    readValuesByChunk(docIds, length, Double.BYTES, context,
+        (view, start, numValues) -> view.asDoubleBuffer().get(values, start, numValues),
+        (chunkBuffer, offset, index) -> values[index] = chunkBuffer.getDouble(offset));
+  }
+
+  /**
+   * Batch reads the values for the given docIds from the compressed chunks. Each chunk is decompressed at most once
+   * per run of docIds within it, and contiguous docIds are bulk copied from the decompressed chunk instead of being
+   * read one at a time. Uncompressed forward index is handled by the base class.
+   */
+  private void readValuesByChunk(int[] docIds, int length, int valueSize, ChunkReaderContext context,
+      BulkValueReader bulkValueReader, ValueReader valueReader) {
+    int i = 0;
+    while (i < length) {
+      int runEnd = getRunEnd(docIds, i, length);
+      ByteBuffer chunkBuffer = getChunkBuffer(docIds[i], context);
+      int chunkRowId = docIds[i] % _numDocsPerChunk;
+      if (docIds[runEnd - 1] - docIds[i] == runEnd - 1 - i) {
+        bulkValueReader.read(getChunkView(chunkBuffer, chunkRowId * valueSize), i, runEnd - i);
+      } else {
+        int chunkStartDocId = docIds[i] - chunkRowId;
+        for (int j = i; j < runEnd; j++) {
+          valueReader.read(chunkBuffer, (docIds[j] - chunkStartDocId) * valueSize, j);
+        }
+      }
+      i = runEnd;
+    }
+  }
+
+  /**
+   * Returns the end (exclusive) of the run of docIds starting at the given index that are within the same chunk.
+   */
+  private int getRunEnd(int[] docIds, int start, int length) {
+    int chunkStartDocId = docIds[start] - docIds[start] % _numDocsPerChunk;
+    int chunkEndDocId = chunkStartDocId + _numDocsPerChunk;
+    int end = start + 1;
+    while (end < length && docIds[end] >= chunkStartDocId && docIds[end] < chunkEndDocId) {
+      end++;
+    }
+    return end;
+  }
+
+  /**
+   * Returns a view of the decompressed chunk buffer starting at the given offset, with the same byte order.
+   */
+  private static ByteBuffer getChunkView(ByteBuffer chunkBuffer, int offset) {
+    ByteBuffer view = chunkBuffer.duplicate().order(chunkBuffer.order());
+    view.position(offset);
+    return view;
+  }
+
+  /**
+   * Copies the given number of contiguous values from the view of the decompressed chunk into the values array starting
+   * at the given index.
+   */
+  private interface BulkValueReader {
+    void read(ByteBuffer view, int start, int numValues);
+  }
+
+  /**
+   * Reads the value at the given byte offset of the decompressed chunk into the values array at the given index.
+   */
+  private interface ValueReader {
+    void read(ByteBuffer chunkBuffer, int offset, int index);
+  }
+
   @Override
   public boolean isBufferByteRangeInfoSupported() {
     return true;
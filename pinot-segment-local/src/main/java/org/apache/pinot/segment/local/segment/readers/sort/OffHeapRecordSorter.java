@@ -0,0 +1,231 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.readers.sort;
+
+import com.google.common.base.Preconditions;
+import it.unimi.dsi.fastutil.Arrays;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.local.utils.GenericRowDeserializer;
+import org.apache.pinot.segment.local.utils.GenericRowSerializer;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+import org.apache.pinot.spi.data.FieldSpec;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.data.readers.RecordReader;
+import org.apache.pinot.spi.data.readers.RecordReaderConfig;
+
+
+/**
+ * Sorter that stages the records in files under the given directory and sorts them on the sort columns without keeping
+ * them on heap.
+ * <p>The records are serialized into a data file (NATIVE_ORDER) with their offsets in a separate offset file
+ * (BIG_ENDIAN). Both files are memory-mapped when sorting, and only the sorted row ids (4 bytes per record) are kept on
+ * heap. The values of the sort columns are compared directly on the mapped data file, and the records are deserialized
+ * in sorted order when read from the returned {@link RecordReader}.
+ * <p>Only the fields within the schema are staged, so the records added should already be transformed. The staged files
+ * are only meant to be read on the same host and are deleted when the sorter is closed.
+ */
+public class OffHeapRecordSorter implements Closeable {
+  public static final String OFFSET_FILE_NAME = "record.offset";
+  public static final String DATA_FILE_NAME = "record.data";
+
+  private final File _stagingDir;
+  private final File _offsetFile;
+  private final File _dataFile;
+  private final List<FieldSpec> _fieldSpecs;
+  private final int _numSortFields;
+  private final GenericRowSerializer _serializer;
+
+  private DataOutputStream _offsetStream;
+  private BufferedOutputStream _dataStream;
+  private long _nextOffset;
+  private int _numRows;
+
+  private PinotDataBuffer _offsetBuffer;
+  private PinotDataBuffer _dataBuffer;
+
+  public OffHeapRecordSorter(File stagingDir, Schema schema, List<String> sortOrder)
+      throws IOException {
+    Preconditions.checkArgument(!sortOrder.isEmpty(), "Sort order must be specified");
+    _stagingDir = stagingDir;
+    FileUtils.forceMkdir(stagingDir);
+    _offsetFile = new File(stagingDir, OFFSET_FILE_NAME);
+    _dataFile = new File(stagingDir, DATA_FILE_NAME);
+
+    // Put the sort fields in the front so that they are compared in order
+    _fieldSpecs = new ArrayList<>();
+    for (String sortColumn : sortOrder) {
+      FieldSpec fieldSpec = schema.getFieldSpecFor(sortColumn);
+      Preconditions.checkArgument(fieldSpec != null, "Failed to find sort column: %s in schema", sortColumn);
+      Preconditions.checkArgument(fieldSpec.isSingleValueField(), "Unsupported sort multi-value column: %s",
+          sortColumn);
+      _fieldSpecs.add(fieldSpec);
+    }
+    for (FieldSpec fieldSpec : schema.getAllFieldSpecs()) {
+      if (!fieldSpec.isVirtualColumn() && !sortOrder.contains(fieldSpec.getName())) {
+        _fieldSpecs.add(fieldSpec);
+      }
+    }
+    _numSortFields = sortOrder.size();
+    _serializer = new GenericRowSerializer(_fieldSpecs, true);
+
+    _offsetStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(_offsetFile)));
+    _dataStream = new BufferedOutputStream(new FileOutputStream(_dataFile));
+  }
+
+  /**
+   * Adds the given record to the staged files.
+   */
+  public void add(GenericRow row)
+      throws IOException {
+    Preconditions.checkState(_offsetStream != null, "Cannot add records after sorting");
+    _offsetStream.writeLong(_nextOffset);
+    byte[] bytes = _serializer.serialize(row);
+    _dataStream.write(bytes);
+    _nextOffset += bytes.length;
+    _numRows++;
+  }
+
+  /**
+   * Returns the number of records added.
+   */
+  public int getNumRows() {
+    return _numRows;
+  }
+
+  /**
+   * Sorts the staged records on the sort columns, and returns a record reader which reads the records in sorted order.
+   * No more records can be added after this call. Closing the returned record reader also closes the sorter.
+   */
+  public RecordReader sort()
+      throws IOException {
+    closeStreams();
+    int[] sortedRowIds = new int[_numRows];
+    if (_numRows == 0) {
+      return new SortedRecordReader(null, sortedRowIds);
+    }
+
+    _offsetBuffer = PinotDataBuffer.mapFile(_offsetFile, true, 0L, _offsetFile.length(), ByteOrder.BIG_ENDIAN,
+        "OffHeapRecordSorter offset buffer");
+    _dataBuffer = PinotDataBuffer.mapFile(_dataFile, true, 0L, _dataFile.length(), PinotDataBuffer.NATIVE_ORDER,
+        "OffHeapRecordSorter data buffer");
+    GenericRowDeserializer deserializer = new GenericRowDeserializer(_dataBuffer, _fieldSpecs, true);
+    for (int i = 0; i < _numRows; i++) {
+      sortedRowIds[i] = i;
+    }
+    Arrays.quickSort(0, _numRows,
+        (i1, i2) -> deserializer.compare(getOffset(sortedRowIds[i1]), getOffset(sortedRowIds[i2]), _numSortFields),
+        (i1, i2) -> {
+          int temp = sortedRowIds[i1];
+          sortedRowIds[i1] = sortedRowIds[i2];
+          sortedRowIds[i2] = temp;
+        });
+    return new SortedRecordReader(deserializer, sortedRowIds);
+  }
+
+  private long getOffset(int rowId) {
+    return _offsetBuffer.getLong((long) rowId << 3); // rowId * Long.BYTES
+  }
+
+  private void closeStreams()
+      throws IOException {
+    if (_offsetStream != null) {
+      try {
+        // Wrapping around try block to make sure dataStream is closed, despite failures while closing offsetStream.
+        _offsetStream.close();
+      } finally {
+        _offsetStream = null;
+        _dataStream.close();
+        _dataStream = null;
+      }
+    }
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    try {
+      closeStreams();
+      if (_offsetBuffer != null) {
+        _offsetBuffer.close();
+        _offsetBuffer = null;
+      }
+      if (_dataBuffer != null) {
+        _dataBuffer.close();
+        _dataBuffer = null;
+      }
+    } finally {
+      FileUtils.deleteQuietly(_stagingDir);
+    }
+  }
+
+  /**
+   * Record reader for the staged records in sorted order.
+   */
+  private class SortedRecordReader implements RecordReader {
+    private final GenericRowDeserializer _deserializer;
+    private final int[] _sortedRowIds;
+
+    private int _nextRowId;
+
+    SortedRecordReader(@Nullable GenericRowDeserializer deserializer, int[] sortedRowIds) {
+      _deserializer = deserializer;
+      _sortedRowIds = sortedRowIds;
+    }
+
+    @Override
+    public void init(File dataFile, @Nullable Set<String> fieldsToRead,
+        @Nullable RecordReaderConfig recordReaderConfig) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return _nextRowId < _sortedRowIds.length;
+    }
+
+    @Override
+    public GenericRow next(GenericRow reuse) {
+      _deserializer.deserialize(getOffset(_sortedRowIds[_nextRowId++]), reuse);
+      return reuse;
+    }
+
+    @Override
+    public void rewind() {
+      _nextRowId = 0;
+    }
+
+    @Override
+    public void close()
+        throws IOException {
+      OffHeapRecordSorter.this.close();
+    }
+  }
+}
@@ -23,6 +23,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.AtomicDouble;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -33,12 +34,14 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.io.FileUtils;
 import org.apache.helix.HelixManager;
 import org.apache.pinot.common.metrics.ServerGauge;
 import org.apache.pinot.common.metrics.ServerMeter;
@@ -87,6 +90,10 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
   protected final HashFunction _hashFunction;
   protected final PartialUpsertHandler _partialUpsertHandler;
   protected final boolean _enableSnapshot;
+  protected final boolean _enablePrimaryKeySnapshot;
+  // Set when the primary key snapshot is enabled and supported by the manager
+  @Nullable
+  private final PrimaryKeySnapshotSupport _primaryKeySnapshotSupport;
   protected final double _metadataTTL;
   protected final double _deletedKeysTTL;
   protected final File _tableIndexDir;
@@ -124,6 +131,13 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
   // The lock and boolean flag ensure only one thread can start preloading and preloading happens only once.
   private final Lock _preloadLock = new ReentrantLock();
   private volatile boolean _isPreloading;
+  // Primary key snapshot opened for preloading, which is only available while preloading the segments.
+  private volatile PrimaryKeySnapshot _primaryKeySnapshot;
+  // Segment states captured under the snapshot write lock, pending to be persisted into the primary key snapshot.
+  private final AtomicReference<List<PrimaryKeySnapshot.SegmentState>> _pendingPrimaryKeySnapshot =
+      new AtomicReference<>();
+  // Ensures only one thread persists the primary key snapshot at a time.
+  private final Lock _primaryKeySnapshotLock = new ReentrantLock();
 
   // By default, the upsert consistency mode is NONE and upsertViewManager is disabled.
   private final UpsertViewManager _upsertViewManager;
@@ -149,6 +163,10 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
     _enableSnapshot = context.isSnapshotEnabled();
     _snapshotLock = _enableSnapshot ? new ReentrantReadWriteLock() : null;
     _isPreloading = context.isPreloadEnabled();
+    // Primary key snapshot stores the comparison value as a single value
+    _enablePrimaryKeySnapshot = context.isPrimaryKeySnapshotEnabled() && _comparisonColumns.size() == 1
+        && this instanceof PrimaryKeySnapshotSupport;
+    _primaryKeySnapshotSupport = _enablePrimaryKeySnapshot ? (PrimaryKeySnapshotSupport) this : null;
     _metadataTTL = context.getMetadataTTL();
     _deletedKeysTTL = context.getDeletedKeysTTL();
     _tableIndexDir = context.getTableIndexDir();
@@ -177,6 +195,9 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
       _largestSeenComparisonValue = new AtomicDouble(TTL_WATERMARK_NOT_SET);
       WatermarkUtils.deleteWatermark(getWatermarkFile());
     }
+    if (!_enablePrimaryKeySnapshot) {
+      FileUtils.deleteQuietly(getPrimaryKeySnapshotFile());
+    }
   }
 
   @Override
@@ -233,7 +254,13 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
       }
       // From now on, the _isPreloading flag is true until the segments are preloaded.
       long startTime = System.currentTimeMillis();
+      if (_primaryKeySnapshotSupport != null) {
+        loadPrimaryKeySnapshot();
+      }
       doPreloadSegments(tableDataManager, indexLoadingConfig, helixManager, segmentPreloadExecutor);
+      if (_primaryKeySnapshot != null) {
+        addRecordLocationsFromPrimaryKeySnapshot();
+      }
       long duration = System.currentTimeMillis() - startTime;
       _serverMetrics.addTimedTableValue(_tableNameWithType, ServerTimer.UPSERT_PRELOAD_TIME_MS, duration,
           TimeUnit.MILLISECONDS);
@@ -249,11 +276,47 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
         Thread.currentThread().interrupt();
       }
     } finally {
+      _primaryKeySnapshot = null;
       _isPreloading = false;
       _preloadLock.unlock();
     }
   }
 
+  @VisibleForTesting
+  void loadPrimaryKeySnapshot() {
+    File primaryKeySnapshotFile = getPrimaryKeySnapshotFile();
+    if (!primaryKeySnapshotFile.exists()) {
+      _logger.info("Primary key snapshot: {} does not exist, preloading segments from validDocIds snapshots",
+          primaryKeySnapshotFile);
+      return;
+    }
+    long startTimeMs = System.currentTimeMillis();
+    try {
+      _primaryKeySnapshot = PrimaryKeySnapshot.open(primaryKeySnapshotFile);
+      _logger.info("Opened primary key snapshot for {} segments in {}ms", _primaryKeySnapshot.getNumSegments(),
+          System.currentTimeMillis() - startTimeMs);
+    } catch (Exception e) {
+      _logger.warn("Caught exception while loading primary key snapshot: {}, preloading segments from validDocIds "
+          + "snapshots", primaryKeySnapshotFile, e);
+    }
+  }
+
+  /**
+   * Streams the record locations of the segments preloaded with the primary key snapshot into the primary key map.
+   * This is invoked after all the segments are preloaded, so that the entries don't need to be buffered on heap.
+   */
+  @VisibleForTesting
+  void addRecordLocationsFromPrimaryKeySnapshot()
+      throws IOException {
+    long startTimeMs = System.currentTimeMillis();
+    long numRecordLocations =
+        _primaryKeySnapshot.forEachRecordLocation(_primaryKeySnapshotSupport::addRecordLocationFromPrimaryKeySnapshot);
+    long numPrimaryKeys = getNumPrimaryKeys();
+    updatePrimaryKeyGauge(numPrimaryKeys);
+    _logger.info("Added {} record locations from primary key snapshot in {}ms, current primary key count: {}",
+        numRecordLocations, System.currentTimeMillis() - startTimeMs, numPrimaryKeys);
+  }
+
   // Keep this hook method for subclasses to extend the preloading logic as needed.
   protected void doPreloadSegments(TableDataManager tableDataManager, IndexLoadingConfig indexLoadingConfig,
       HelixManager helixManager, ExecutorService segmentPreloadExecutor)
@@ -436,6 +499,11 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
         return;
       }
     }
+    if (preloadSegmentFromPrimaryKeySnapshot(segment, validDocIds)) {
+      _logger.info("Finished preloading segment: {} from primary key snapshot in {}ms, record locations are added "
+          + "after all segments are preloaded", segmentName, System.currentTimeMillis() - startTimeMs);
+      return;
+    }
     try (UpsertUtils.RecordInfoReader recordInfoReader = new UpsertUtils.RecordInfoReader(segment, _primaryKeyColumns,
         _comparisonColumns, _deleteRecordColumn)) {
       doPreloadSegment(segment, null, null, UpsertUtils.getRecordInfoIterator(recordInfoReader, validDocIds));
@@ -452,6 +520,34 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
         System.currentTimeMillis() - startTimeMs, numPrimaryKeys);
   }
 
+  /**
+   * Preloads the segment with the primary key snapshot if the snapshot is still valid for the segment and its
+   * validDocIds snapshot. The record locations of the segment are added after all the segments are preloaded. Returns
+   * {@code false} if the segment should be preloaded by reading the valid docs.
+   */
+  private boolean preloadSegmentFromPrimaryKeySnapshot(ImmutableSegmentImpl segment,
+      MutableRoaringBitmap validDocIds) {
+    PrimaryKeySnapshot primaryKeySnapshot = _primaryKeySnapshot;
+    if (primaryKeySnapshot == null) {
+      return false;
+    }
+    String segmentName = segment.getSegmentName();
+    PrimaryKeySnapshot.SegmentInfo segmentInfo = primaryKeySnapshot.getSegmentInfo(segmentName);
+    if (segmentInfo == null) {
+      return false;
+    }
+    if (!segmentInfo.isValid(segment.getSegmentMetadata().getCrc(), validDocIds)) {
+      _logger.info("Primary key snapshot is stale for segment: {}, preloading it from validDocIds snapshot",
+          segmentName);
+      return false;
+    }
+    MutableRoaringBitmap queryableDocIds = getQueryableDocIds(segment, validDocIds);
+    segment.enableUpsert(this, new ThreadSafeMutableRoaringBitmap(validDocIds),
+        queryableDocIds != null ? new ThreadSafeMutableRoaringBitmap(queryableDocIds) : null);
+    primaryKeySnapshot.addPreloadedSegment(segmentInfo, segment);
+    return true;
+  }
+
   /**
    * NOTE: no need to get segmentLock to preload segment as callers ensure the segment is processed by a single thread.
    * NOTE: We allow passing in validDocIds and queryableDocIds here so that the value can be easily accessed from the
@@ -860,7 +956,11 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
       _logger.warn("Caught exception while taking snapshot", e);
     } finally {
       _snapshotLock.writeLock().unlock();
-      finishOperation();
+      try {
+        persistPendingPrimaryKeySnapshot();
+      } finally {
+        finishOperation();
+      }
     }
   }
 
@@ -958,6 +1058,11 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
     if (isTTLEnabled()) {
       WatermarkUtils.persistWatermark(_largestSeenComparisonValue.get(), getWatermarkFile());
     }
+    if (_primaryKeySnapshotSupport != null) {
+      // Only capture the segment states under the snapshot write lock, and persist the primary key snapshot after
+      // releasing the lock so that ingestion is not blocked while writing the file
+      _pendingPrimaryKeySnapshot.set(capturePrimaryKeySnapshotSegments());
+    }
     _serverMetrics.setValueOfPartitionGauge(_tableNameWithType, _partitionId,
         ServerGauge.UPSERT_VALID_DOC_ID_SNAPSHOT_COUNT, numImmutableSegments);
     _serverMetrics.setValueOfPartitionGauge(_tableNameWithType, _partitionId,
@@ -977,6 +1082,62 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
     return new File(_tableIndexDir, V1Constants.TTL_WATERMARK_TABLE_PARTITION + _partitionId);
   }
 
+  /**
+   * Captures the states of the immutable segments whose validDocIds snapshots are up-to-date. This should be called
+   * while holding the snapshot write lock so that the captured validDocIds match the validDocIds snapshots.
+   */
+  @VisibleForTesting
+  List<PrimaryKeySnapshot.SegmentState> capturePrimaryKeySnapshotSegments() {
+    List<PrimaryKeySnapshot.SegmentState> segmentStates = new ArrayList<>();
+    for (IndexSegment segment : _trackedSegments) {
+      if (segment instanceof ImmutableSegmentImpl && !_updatedSegmentsSinceLastSnapshot.contains(segment)
+          && ((ImmutableSegmentImpl) segment).hasValidDocIdsSnapshotFile()) {
+        segmentStates.add(PrimaryKeySnapshot.captureSegmentState((ImmutableSegmentImpl) segment));
+      }
+    }
+    return segmentStates;
+  }
+
+  private void persistPendingPrimaryKeySnapshot() {
+    if (_pendingPrimaryKeySnapshot.get() == null) {
+      return;
+    }
+    _primaryKeySnapshotLock.lock();
+    try {
+      // Always persist the latest captured states
+      List<PrimaryKeySnapshot.SegmentState> segmentStates = _pendingPrimaryKeySnapshot.getAndSet(null);
+      if (segmentStates != null) {
+        persistPrimaryKeySnapshot(segmentStates);
+      }
+    } finally {
+      _primaryKeySnapshotLock.unlock();
+    }
+  }
+
+  /**
+   * Persists the record locations of the valid docs within the captured segments. This is called without holding the
+   * snapshot write lock, and entries of the segments updated concurrently are detected as incomplete when loading.
+   */
+  @VisibleForTesting
+  void persistPrimaryKeySnapshot(List<PrimaryKeySnapshot.SegmentState> segmentStates) {
+    File primaryKeySnapshotFile = getPrimaryKeySnapshotFile();
+    long startTimeMs = System.currentTimeMillis();
+    try {
+      long numPrimaryKeys =
+          PrimaryKeySnapshot.persist(primaryKeySnapshotFile, segmentStates,
+              _primaryKeySnapshotSupport::forEachRecordLocation);
+      _logger.info("Persisted primary key snapshot for {} segments with {} primary keys in {}ms",
+          segmentStates.size(), numPrimaryKeys, System.currentTimeMillis() - startTimeMs);
+    } catch (Exception e) {
+      _logger.warn("Caught exception while persisting primary key snapshot, deleting it", e);
+      FileUtils.deleteQuietly(primaryKeySnapshotFile);
+    }
+  }
+
+  protected File getPrimaryKeySnapshotFile() {
+    return new File(_tableIndexDir, V1Constants.UPSERT_PRIMARY_KEY_SNAPSHOT_TABLE_PARTITION + _partitionId);
+  }
+
   @VisibleForTesting
   double getWatermark() {
     return _largestSeenComparisonValue.get();
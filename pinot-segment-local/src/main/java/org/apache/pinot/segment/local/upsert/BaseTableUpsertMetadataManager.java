@@ -70,6 +70,8 @@ public abstract class BaseTableUpsertMetadataManager implements TableUpsertMetad
     boolean enableSnapshot = upsertConfig.isEnableSnapshot();
     _enablePreload =
         enableSnapshot && upsertConfig.isEnablePreload() && tableDataManager.getSegmentPreloadExecutor() != null;
+    // Primary key snapshot is only used to preload segments
+    boolean enablePrimaryKeySnapshot = _enablePreload && upsertConfig.isEnablePrimaryKeySnapshot();
     double metadataTTL = upsertConfig.getMetadataTTL();
     double deletedKeysTTL = upsertConfig.getDeletedKeysTTL();
     _enableDeletedKeysCompactionConsistency = upsertConfig.isEnableDeletedKeysCompactionConsistency();
@@ -84,7 +86,8 @@ public abstract class BaseTableUpsertMetadataManager implements TableUpsertMetad
         .setPrimaryKeyColumns(primaryKeyColumns).setComparisonColumns(comparisonColumns)
         .setDeleteRecordColumn(deleteRecordColumn).setHashFunction(hashFunction)
         .setPartialUpsertHandler(partialUpsertHandler).setEnableSnapshot(enableSnapshot)
-        .setEnablePreload(_enablePreload).setMetadataTTL(metadataTTL).setDeletedKeysTTL(deletedKeysTTL)
+        .setEnablePreload(_enablePreload).setEnablePrimaryKeySnapshot(enablePrimaryKeySnapshot)
+        .setMetadataTTL(metadataTTL).setDeletedKeysTTL(deletedKeysTTL)
         .setConsistencyMode(_consistencyMode).setUpsertViewRefreshIntervalMs(upsertViewRefreshIntervalMs)
         .setNewSegmentTrackingTimeMs(newSegmentTrackingTimeMs).setTableIndexDir(tableIndexDir)
         .setDropOutOfOrderRecord(upsertConfig.isDropOutOfOrderRecord())
@@ -92,12 +95,12 @@ public abstract class BaseTableUpsertMetadataManager implements TableUpsertMetad
         .setTableDataManager(tableDataManager).build();
     LOGGER.info(
         "Initialized {} for table: {} with primary key columns: {}, comparison columns: {}, delete record column: {},"
-            + " hash function: {}, upsert mode: {}, enable snapshot: {}, enable preload: {}, metadata TTL: {},"
-            + " deleted Keys TTL: {}, consistency mode: {}, upsert view refresh interval: {}ms, new segment tracking"
-            + " time: {}ms, table index dir: {}", getClass().getSimpleName(), _tableNameWithType, primaryKeyColumns,
-        comparisonColumns, deleteRecordColumn, hashFunction, upsertConfig.getMode(), enableSnapshot, _enablePreload,
-        metadataTTL, deletedKeysTTL, _consistencyMode, upsertViewRefreshIntervalMs, newSegmentTrackingTimeMs,
-        tableIndexDir);
+            + " hash function: {}, upsert mode: {}, enable snapshot: {}, enable preload: {}, enable primary key"
+            + " snapshot: {}, metadata TTL: {}, deleted Keys TTL: {}, consistency mode: {}, upsert view refresh"
+            + " interval: {}ms, new segment tracking time: {}ms, table index dir: {}", getClass().getSimpleName(),
+        _tableNameWithType, primaryKeyColumns, comparisonColumns, deleteRecordColumn, hashFunction,
+        upsertConfig.getMode(), enableSnapshot, _enablePreload, enablePrimaryKeySnapshot, metadataTTL, deletedKeysTTL,
+        _consistencyMode, upsertViewRefreshIntervalMs, newSegmentTrackingTimeMs, tableIndexDir);
 
     initCustomVariables();
   }
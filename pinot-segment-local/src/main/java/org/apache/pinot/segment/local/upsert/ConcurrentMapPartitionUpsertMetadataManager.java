@@ -19,6 +19,7 @@
 package org.apache.pinot.segment.local.upsert;
 
 import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -45,7 +46,8 @@ import org.roaringbitmap.buffer.MutableRoaringBitmap;
  */
 @SuppressWarnings({"rawtypes", "unchecked"})
 @ThreadSafe
-public class ConcurrentMapPartitionUpsertMetadataManager extends BasePartitionUpsertMetadataManager {
+public class ConcurrentMapPartitionUpsertMetadataManager extends BasePartitionUpsertMetadataManager
+    implements PrimaryKeySnapshotSupport {
 
   // Used to initialize a reference to previous row for merging in partial upsert
   private final LazyRow _reusePreviousRow = new LazyRow();
@@ -171,6 +173,22 @@ public class ConcurrentMapPartitionUpsertMetadataManager extends BasePartitionUp
     }
   }
 
+  @Override
+  public void forEachRecordLocation(PrimaryKeySnapshot.RecordLocationConsumer consumer)
+      throws IOException {
+    for (Map.Entry<Object, RecordLocation> entry : _primaryKeyToRecordLocationMap.entrySet()) {
+      RecordLocation recordLocation = entry.getValue();
+      consumer.accept(entry.getKey(), recordLocation.getSegment(), recordLocation.getDocId(),
+          recordLocation.getComparisonValue());
+    }
+  }
+
+  @Override
+  public void addRecordLocationFromPrimaryKeySnapshot(Object primaryKey, IndexSegment segment, int docId,
+      Comparable comparisonValue) {
+    _primaryKeyToRecordLocationMap.put(primaryKey, new RecordLocation(segment, docId, comparisonValue));
+  }
+
   @Override
   protected void removeSegment(IndexSegment segment, Iterator<PrimaryKey> primaryKeyIterator) {
     while (primaryKeyIterator.hasNext()) {
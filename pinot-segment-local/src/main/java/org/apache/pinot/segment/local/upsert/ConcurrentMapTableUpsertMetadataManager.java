@@ -42,7 +42,7 @@ import org.slf4j.LoggerFactory;
 public class ConcurrentMapTableUpsertMetadataManager extends BaseTableUpsertMetadataManager {
   private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentMapTableUpsertMetadataManager.class);
 
-  private final Map<Integer, BasePartitionUpsertMetadataManager> _partitionMetadataManagerMap =
+  protected final Map<Integer, BasePartitionUpsertMetadataManager> _partitionMetadataManagerMap =
       new ConcurrentHashMap<>();
 
   @Override
@@ -0,0 +1,547 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.common.metrics.ServerMeter;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentImpl;
+import org.apache.pinot.segment.local.segment.readers.LazyRow;
+import org.apache.pinot.segment.local.utils.HashUtils;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.MutableSegment;
+import org.apache.pinot.segment.spi.index.mutable.ThreadSafeMutableRoaringBitmap;
+import org.apache.pinot.spi.data.FieldSpec;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+import org.apache.pinot.spi.utils.ByteArray;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+
+/**
+ * Implementation of {@link PartitionUpsertMetadataManager} that is backed by an {@link OffHeapPrimaryKeyMap}, which
+ * keeps the record locations of the primary keys in off-heap memory.
+ * <p>Compared to {@link ConcurrentMapPartitionUpsertMetadataManager}, it has the following limitations:
+ * <ul>
+ *   <li>
+ *     The primary keys are stored as 128-bit hashes. When the configured hash function does not produce 128-bit
+ *     hashes (e.g. NONE), the primary key bytes are hashed with MURMUR3.
+ *   </li>
+ *   <li>
+ *     Only a single numeric comparison column is supported because the comparison value is stored as a long.
+ *   </li>
+ * </ul>
+ * All the accesses to the off-heap map are guarded by a partition level lock, which is held only for a single record
+ * at a time so that segment addition does not block the ingestion for long.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+@ThreadSafe
+public class OffHeapPartitionUpsertMetadataManager extends BasePartitionUpsertMetadataManager {
+  // Number of slots to scan while holding the lock when removing the expired primary keys
+  private static final long TTL_SCAN_BATCH_SIZE = 1 << 16;
+
+  // Used to initialize a reference to previous row for merging in partial upsert
+  private final LazyRow _reusePreviousRow = new LazyRow();
+  private final Map<String, Object> _reuseMergeResultHolder = new HashMap<>();
+
+  private final DataType _comparisonValueType;
+  private final ReentrantLock _lock = new ReentrantLock();
+  // Segment ids are never reused so that stale entries pointing to a removed segment can be detected
+  private final Map<IndexSegment, Integer> _segmentToIdMap = new IdentityHashMap<>();
+  private final Int2ObjectOpenHashMap<IndexSegment> _idToSegmentMap = new Int2ObjectOpenHashMap<>();
+  private int _nextSegmentId = 1;
+
+  @VisibleForTesting
+  final OffHeapPrimaryKeyMap _primaryKeyMap;
+
+  public OffHeapPartitionUpsertMetadataManager(String tableNameWithType, int partitionId, UpsertContext context) {
+    super(tableNameWithType, partitionId, context);
+    Preconditions.checkState(_comparisonColumns.size() == 1,
+        "Off-heap upsert metadata manager supports only a single comparison column, got: %s", _comparisonColumns);
+    FieldSpec fieldSpec = context.getSchema().getFieldSpecFor(_comparisonColumns.get(0));
+    Preconditions.checkState(fieldSpec != null, "Failed to find comparison column: %s", _comparisonColumns.get(0));
+    _comparisonValueType = fieldSpec.getDataType().getStoredType();
+    Preconditions.checkState(_comparisonValueType == DataType.INT || _comparisonValueType == DataType.LONG
+            || _comparisonValueType == DataType.FLOAT || _comparisonValueType == DataType.DOUBLE,
+        "Off-heap upsert metadata manager supports only numeric comparison column, got: %s of type: %s",
+        _comparisonColumns.get(0), _comparisonValueType);
+    _primaryKeyMap = new OffHeapPrimaryKeyMap(
+        "OffHeapPrimaryKeyMap: " + tableNameWithType + ", partition: " + partitionId);
+  }
+
+  @Override
+  protected long getNumPrimaryKeys() {
+    _lock.lock();
+    try {
+      return _primaryKeyMap.size();
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  @Override
+  protected void doAddOrReplaceSegment(ImmutableSegmentImpl segment, ThreadSafeMutableRoaringBitmap validDocIds,
+      @Nullable ThreadSafeMutableRoaringBitmap queryableDocIds, Iterator<RecordInfo> recordInfoIterator,
+      @Nullable IndexSegment oldSegment, @Nullable MutableRoaringBitmap validDocIdsForOldSegment) {
+    String segmentName = segment.getSegmentName();
+    segment.enableUpsert(this, validDocIds, queryableDocIds);
+
+    int segmentId = getOrCreateSegmentId(segment);
+    int numKeysInWrongSegment = 0;
+    long[] key = new long[2];
+    while (recordInfoIterator.hasNext()) {
+      RecordInfo recordInfo = recordInfoIterator.next();
+      int newDocId = recordInfo.getDocId();
+      Comparable newComparisonValue = recordInfo.getComparisonValue();
+      long newComparisonBits = encodeComparisonValue(newComparisonValue);
+      hashPrimaryKey(recordInfo.getPrimaryKey(), key);
+      _lock.lock();
+      try {
+        long slot = _primaryKeyMap.find(key[0], key[1]);
+        IndexSegment currentSegment = slot >= 0 ? _idToSegmentMap.get(_primaryKeyMap.getSegmentId(slot)) : null;
+        if (currentSegment == null) {
+          // New primary key
+          addDocId(segment, validDocIds, queryableDocIds, newDocId, recordInfo);
+          _primaryKeyMap.put(key[0], key[1], segmentId, newDocId, newComparisonBits);
+          continue;
+        }
+
+        // Existing primary key
+        int currentDocId = _primaryKeyMap.getDocId(slot);
+        int comparisonResult = compareComparisonValues(newComparisonBits, _primaryKeyMap.getComparisonValue(slot));
+
+        // The current record is in the same segment
+        // Update the record location when there is a tie to keep the newer record. Note that the record info iterator
+        // will return records with incremental doc ids.
+        if (currentSegment == segment) {
+          if (comparisonResult >= 0) {
+            replaceDocId(segment, validDocIds, queryableDocIds, currentDocId, newDocId, recordInfo);
+            _primaryKeyMap.update(slot, segmentId, newDocId, newComparisonBits);
+          }
+          continue;
+        }
+
+        // The current record is in an old segment being replaced
+        // See ConcurrentMapPartitionUpsertMetadataManager for details on how the valid doc ids are handled.
+        if (currentSegment == oldSegment) {
+          if (comparisonResult >= 0) {
+            if (validDocIdsForOldSegment == null && oldSegment.getValidDocIds() != null) {
+              // Update the old segment's bitmap in place if a copy of the bitmap was not provided.
+              replaceDocId(segment, validDocIds, queryableDocIds, oldSegment, currentDocId, newDocId, recordInfo);
+            } else {
+              addDocId(segment, validDocIds, queryableDocIds, newDocId, recordInfo);
+              if (validDocIdsForOldSegment != null) {
+                validDocIdsForOldSegment.remove(currentDocId);
+              }
+            }
+            _primaryKeyMap.update(slot, segmentId, newDocId, newComparisonBits);
+          }
+          continue;
+        }
+
+        // This should not happen because the previously replaced segment should have all keys removed. We still handle
+        // it here, and also track the number of keys not properly replaced previously.
+        String currentSegmentName = currentSegment.getSegmentName();
+        if (currentSegmentName.equals(segmentName)) {
+          numKeysInWrongSegment++;
+          if (comparisonResult >= 0) {
+            addDocId(segment, validDocIds, queryableDocIds, newDocId, recordInfo);
+            _primaryKeyMap.update(slot, segmentId, newDocId, newComparisonBits);
+          }
+          continue;
+        }
+
+        // The current record is in a different segment
+        // Update the record location when getting a newer comparison value, or the value is the same as the current
+        // value, but the segment has a larger sequence number (the segment is newer than the current segment).
+        if (comparisonResult > 0 || (comparisonResult == 0 && shouldReplaceOnComparisonTie(segmentName,
+            currentSegmentName, segment.getSegmentMetadata().getIndexCreationTime(),
+            currentSegment.getSegmentMetadata().getIndexCreationTime()))) {
+          replaceDocId(segment, validDocIds, queryableDocIds, currentSegment, currentDocId, newDocId, recordInfo);
+          _primaryKeyMap.update(slot, segmentId, newDocId, newComparisonBits);
+        }
+      } finally {
+        _lock.unlock();
+      }
+    }
+    if (numKeysInWrongSegment > 0) {
+      _logger.warn("Found {} primary keys in the wrong segment when adding segment: {}", numKeysInWrongSegment,
+          segmentName);
+      _serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.UPSERT_KEYS_IN_WRONG_SEGMENT,
+          numKeysInWrongSegment);
+    }
+  }
+
+  @Override
+  protected void addSegmentWithoutUpsert(ImmutableSegmentImpl segment, ThreadSafeMutableRoaringBitmap validDocIds,
+      @Nullable ThreadSafeMutableRoaringBitmap queryableDocIds, Iterator<RecordInfo> recordInfoIterator) {
+    segment.enableUpsert(this, validDocIds, queryableDocIds);
+    int segmentId = getOrCreateSegmentId(segment);
+    long[] key = new long[2];
+    while (recordInfoIterator.hasNext()) {
+      RecordInfo recordInfo = recordInfoIterator.next();
+      int newDocId = recordInfo.getDocId();
+      long newComparisonBits = encodeComparisonValue(recordInfo.getComparisonValue());
+      hashPrimaryKey(recordInfo.getPrimaryKey(), key);
+      addDocId(segment, validDocIds, queryableDocIds, newDocId, recordInfo);
+      _lock.lock();
+      try {
+        _primaryKeyMap.put(key[0], key[1], segmentId, newDocId, newComparisonBits);
+      } finally {
+        _lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  protected void removeSegment(IndexSegment segment, Iterator<PrimaryKey> primaryKeyIterator) {
+    Integer segmentId;
+    _lock.lock();
+    try {
+      segmentId = _segmentToIdMap.get(segment);
+    } finally {
+      _lock.unlock();
+    }
+    if (segmentId == null) {
+      return;
+    }
+    long[] key = new long[2];
+    while (primaryKeyIterator.hasNext()) {
+      hashPrimaryKey(primaryKeyIterator.next(), key);
+      _lock.lock();
+      try {
+        long slot = _primaryKeyMap.find(key[0], key[1]);
+        if (slot >= 0 && _primaryKeyMap.getSegmentId(slot) == segmentId) {
+          _primaryKeyMap.remove(slot);
+        }
+      } finally {
+        _lock.unlock();
+      }
+    }
+    // The segment is either removed or replaced at this point. The entries still pointing to it (if any) are treated as
+    // absent after the id is released.
+    _lock.lock();
+    try {
+      _segmentToIdMap.remove(segment);
+      _idToSegmentMap.remove((int) segmentId);
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  @Override
+  public void doRemoveExpiredPrimaryKeys() {
+    int numMetadataTTLKeysRemoved = 0;
+    int numDeletedTTLKeysRemoved = 0;
+    int numTotalKeysMarkForDeletion = 0;
+    int numDeletedKeysWithinTTLWindow = 0;
+    double largestSeenComparisonValue = _largestSeenComparisonValue.get();
+    double metadataTTLKeysThreshold =
+        _metadataTTL > 0 ? largestSeenComparisonValue - _metadataTTL : Double.NEGATIVE_INFINITY;
+    double deletedKeysThreshold =
+        _deletedKeysTTL > 0 ? largestSeenComparisonValue - _deletedKeysTTL : Double.NEGATIVE_INFINITY;
+    // Scan the slots in batches to avoid blocking the ingestion for the whole scan. The map might be rehashed between
+    // the batches, in which case some keys might be skipped and will be removed in the next run.
+    long startSlot = 0;
+    while (true) {
+      _lock.lock();
+      try {
+        long capacity = _primaryKeyMap.getCapacity();
+        if (startSlot >= capacity) {
+          break;
+        }
+        long endSlot = Math.min(startSlot + TTL_SCAN_BATCH_SIZE, capacity);
+        for (long slot = startSlot; slot < endSlot; slot++) {
+          int segmentId = _primaryKeyMap.getSegmentId(slot);
+          if (segmentId == OffHeapPrimaryKeyMap.EMPTY_SEGMENT_ID
+              || segmentId == OffHeapPrimaryKeyMap.REMOVED_SEGMENT_ID) {
+            continue;
+          }
+          double comparisonValue = toDouble(_primaryKeyMap.getComparisonValue(slot));
+          if (_metadataTTL > 0 && comparisonValue < metadataTTLKeysThreshold) {
+            _primaryKeyMap.remove(slot);
+            numMetadataTTLKeysRemoved++;
+          } else if (_deletedKeysTTL > 0) {
+            IndexSegment segment = _idToSegmentMap.get(segmentId);
+            if (segment == null) {
+              // Stale entry of a removed segment
+              _primaryKeyMap.remove(slot);
+              continue;
+            }
+            ThreadSafeMutableRoaringBitmap currentQueryableDocIds = segment.getQueryableDocIds();
+            int docId = _primaryKeyMap.getDocId(slot);
+            // if key not part of queryable doc id, it means it is deleted
+            if (currentQueryableDocIds != null && !currentQueryableDocIds.contains(docId)) {
+              numTotalKeysMarkForDeletion++;
+              if (comparisonValue >= deletedKeysThreshold) {
+                // If key is within the TTL window, do not remove it from the primary key map
+                numDeletedKeysWithinTTLWindow++;
+              } else {
+                _primaryKeyMap.remove(slot);
+                removeDocId(segment, docId);
+                numDeletedTTLKeysRemoved++;
+              }
+            }
+          }
+        }
+        startSlot = endSlot;
+      } finally {
+        _lock.unlock();
+      }
+    }
+
+    // Update metrics
+    updatePrimaryKeyGauge();
+    if (numMetadataTTLKeysRemoved > 0) {
+      _logger.info("Deleted {} primary keys based on metadataTTL", numMetadataTTLKeysRemoved);
+      _serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.METADATA_TTL_PRIMARY_KEYS_REMOVED,
+          numMetadataTTLKeysRemoved);
+    }
+    if (numDeletedTTLKeysRemoved > 0) {
+      _logger.info("Deleted {} primary keys based on deletedKeysTTL", numDeletedTTLKeysRemoved);
+      _serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.DELETED_KEYS_TTL_PRIMARY_KEYS_REMOVED,
+          numDeletedTTLKeysRemoved);
+    }
+    if (numTotalKeysMarkForDeletion > 0) {
+      _serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.TOTAL_KEYS_MARKED_FOR_DELETION,
+          numTotalKeysMarkForDeletion);
+    }
+    if (numDeletedKeysWithinTTLWindow > 0) {
+      _serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.DELETED_KEYS_WITHIN_TTL_WINDOW,
+          numDeletedKeysWithinTTLWindow);
+    }
+  }
+
+  @Override
+  protected boolean doAddRecord(MutableSegment segment, RecordInfo recordInfo) {
+    ThreadSafeMutableRoaringBitmap validDocIds = Objects.requireNonNull(segment.getValidDocIds());
+    ThreadSafeMutableRoaringBitmap queryableDocIds = segment.getQueryableDocIds();
+    int newDocId = recordInfo.getDocId();
+    Comparable newComparisonValue = recordInfo.getComparisonValue();
+    long newComparisonBits = encodeComparisonValue(newComparisonValue);
+
+    // When TTL is enabled, update largestSeenComparisonValue when adding new record
+    if (isTTLEnabled()) {
+      double comparisonValue = ((Number) newComparisonValue).doubleValue();
+      _largestSeenComparisonValue.getAndUpdate(v -> Math.max(v, comparisonValue));
+    }
+
+    long[] key = new long[2];
+    hashPrimaryKey(recordInfo.getPrimaryKey(), key);
+    boolean isOutOfOrderRecord = false;
+    _lock.lock();
+    try {
+      int segmentId = getOrCreateSegmentIdUnderLock(segment);
+      long slot = _primaryKeyMap.find(key[0], key[1]);
+      IndexSegment currentSegment = slot >= 0 ? _idToSegmentMap.get(_primaryKeyMap.getSegmentId(slot)) : null;
+      if (currentSegment != null) {
+        // Existing primary key
+
+        // Update the record location when the new comparison value is greater than or equal to the current value.
+        // Update the record location when there is a tie to keep the newer record.
+        long currentComparisonBits = _primaryKeyMap.getComparisonValue(slot);
+        if (compareComparisonValues(newComparisonBits, currentComparisonBits) >= 0) {
+          int currentDocId = _primaryKeyMap.getDocId(slot);
+          if (segment == currentSegment) {
+            replaceDocId(segment, validDocIds, queryableDocIds, currentDocId, newDocId, recordInfo);
+          } else {
+            replaceDocId(segment, validDocIds, queryableDocIds, currentSegment, currentDocId, newDocId, recordInfo);
+          }
+          _primaryKeyMap.update(slot, segmentId, newDocId, newComparisonBits);
+        } else {
+          // Out-of-order record
+          handleOutOfOrderEvent(decodeComparisonValue(currentComparisonBits), newComparisonValue);
+          isOutOfOrderRecord = true;
+        }
+      } else {
+        // New primary key
+        addDocId(segment, validDocIds, queryableDocIds, newDocId, recordInfo);
+        _primaryKeyMap.put(key[0], key[1], segmentId, newDocId, newComparisonBits);
+      }
+    } finally {
+      _lock.unlock();
+    }
+
+    updatePrimaryKeyGauge();
+    return !isOutOfOrderRecord;
+  }
+
+  @Override
+  protected GenericRow doUpdateRecord(GenericRow record, RecordInfo recordInfo) {
+    assert _partialUpsertHandler != null;
+    long newComparisonBits = encodeComparisonValue(recordInfo.getComparisonValue());
+    long[] key = new long[2];
+    hashPrimaryKey(recordInfo.getPrimaryKey(), key);
+    _lock.lock();
+    try {
+      long slot = _primaryKeyMap.find(key[0], key[1]);
+      if (slot < 0) {
+        return record;
+      }
+      IndexSegment currentSegment = _idToSegmentMap.get(_primaryKeyMap.getSegmentId(slot));
+      // Read the previous record if the following conditions are met:
+      // - New record is not a DELETE record
+      // - New record is not out-of-order
+      // - Previous record is not deleted
+      if (currentSegment != null && !recordInfo.isDeleteRecord()
+          && compareComparisonValues(newComparisonBits, _primaryKeyMap.getComparisonValue(slot)) >= 0) {
+        ThreadSafeMutableRoaringBitmap currentQueryableDocIds = currentSegment.getQueryableDocIds();
+        int currentDocId = _primaryKeyMap.getDocId(slot);
+        if (currentQueryableDocIds == null || currentQueryableDocIds.contains(currentDocId)) {
+          _reusePreviousRow.init(currentSegment, currentDocId);
+          _partialUpsertHandler.merge(_reusePreviousRow, record, _reuseMergeResultHolder);
+          _reuseMergeResultHolder.clear();
+        }
+      }
+    } finally {
+      _lock.unlock();
+    }
+    return record;
+  }
+
+  @Override
+  protected void doClose()
+      throws IOException {
+    _lock.lock();
+    try {
+      _primaryKeyMap.close();
+      _segmentToIdMap.clear();
+      _idToSegmentMap.clear();
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the location of the given primary key as {segment, docId, comparisonValue}, or {@code null} if the primary
+   * key does not exist.
+   */
+  @VisibleForTesting
+  @Nullable
+  Object[] getRecordLocation(PrimaryKey primaryKey) {
+    long[] key = new long[2];
+    hashPrimaryKey(primaryKey, key);
+    _lock.lock();
+    try {
+      long slot = _primaryKeyMap.find(key[0], key[1]);
+      if (slot < 0) {
+        return null;
+      }
+      IndexSegment segment = _idToSegmentMap.get(_primaryKeyMap.getSegmentId(slot));
+      if (segment == null) {
+        return null;
+      }
+      return new Object[]{
+          segment, _primaryKeyMap.getDocId(slot), decodeComparisonValue(_primaryKeyMap.getComparisonValue(slot))
+      };
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  private int getOrCreateSegmentId(IndexSegment segment) {
+    _lock.lock();
+    try {
+      return getOrCreateSegmentIdUnderLock(segment);
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  private int getOrCreateSegmentIdUnderLock(IndexSegment segment) {
+    Integer segmentId = _segmentToIdMap.get(segment);
+    if (segmentId != null) {
+      return segmentId;
+    }
+    Preconditions.checkState(_nextSegmentId > 0, "Ran out of segment ids for table: %s, partition: %s",
+        _tableNameWithType, _partitionId);
+    int newSegmentId = _nextSegmentId++;
+    _segmentToIdMap.put(segment, newSegmentId);
+    _idToSegmentMap.put(newSegmentId, segment);
+    return newSegmentId;
+  }
+
+  /**
+   * Writes the 128-bit hash of the primary key into the given array as {high, low}.
+   */
+  private void hashPrimaryKey(PrimaryKey primaryKey, long[] key) {
+    Object hashedKey = HashUtils.hashPrimaryKey(primaryKey, _hashFunction);
+    byte[] bytes = hashedKey instanceof ByteArray ? ((ByteArray) hashedKey).getBytes() : null;
+    if (bytes == null || bytes.length != 16) {
+      bytes = HashUtils.hashMurmur3(primaryKey.asBytes());
+    }
+    ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+    key[0] = byteBuffer.getLong();
+    key[1] = byteBuffer.getLong();
+  }
+
+  private long encodeComparisonValue(Comparable comparisonValue) {
+    switch (_comparisonValueType) {
+      case INT:
+      case LONG:
+        return ((Number) comparisonValue).longValue();
+      case FLOAT:
+      case DOUBLE:
+        return Double.doubleToLongBits(((Number) comparisonValue).doubleValue());
+      default:
+        throw new IllegalStateException("Unsupported comparison value type: " + _comparisonValueType);
+    }
+  }
+
+  private Comparable decodeComparisonValue(long bits) {
+    switch (_comparisonValueType) {
+      case INT:
+        return (int) bits;
+      case LONG:
+        return bits;
+      case FLOAT:
+        return (float) Double.longBitsToDouble(bits);
+      case DOUBLE:
+        return Double.longBitsToDouble(bits);
+      default:
+        throw new IllegalStateException("Unsupported comparison value type: " + _comparisonValueType);
+    }
+  }
+
+  private int compareComparisonValues(long bits1, long bits2) {
+    if (_comparisonValueType == DataType.FLOAT || _comparisonValueType == DataType.DOUBLE) {
+      return Double.compare(Double.longBitsToDouble(bits1), Double.longBitsToDouble(bits2));
+    }
+    return Long.compare(bits1, bits2);
+  }
+
+  private double toDouble(long bits) {
+    if (_comparisonValueType == DataType.FLOAT || _comparisonValueType == DataType.DOUBLE) {
+      return Double.longBitsToDouble(bits);
+    }
+    return bits;
+  }
+}
@@ -0,0 +1,256 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import com.google.common.base.Preconditions;
+import java.io.Closeable;
+import java.io.IOException;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+
+
+/**
+ * Open addressing hash map from 128-bit primary key hashes to record locations, stored in off-heap memory so that the
+ * upsert metadata of large partitions does not put pressure on the heap and the garbage collector.
+ * <p>Each slot takes 32 bytes:
+ * <ul>
+ *   <li>8 bytes: high 64 bits of the key</li>
+ *   <li>8 bytes: low 64 bits of the key</li>
+ *   <li>4 bytes: segment id ({@link #EMPTY_SEGMENT_ID} for empty slot, {@link #REMOVED_SEGMENT_ID} for removed
+ *   entry)</li>
+ *   <li>4 bytes: doc id</li>
+ *   <li>8 bytes: comparison value encoded as long</li>
+ * </ul>
+ * Collisions are resolved with linear probing. Removed entries are marked with a tombstone so that the probing chains
+ * are kept intact, and are cleaned up when the map is rehashed. The map grows by doubling its capacity when the load
+ * factor (including the tombstones) exceeds {@link #MAX_LOAD_FACTOR}.
+ * <p>The map is not thread-safe, and the caller should guard all the accesses.
+ */
+@NotThreadSafe
+public class OffHeapPrimaryKeyMap implements Closeable {
+  public static final int EMPTY_SEGMENT_ID = 0;
+  public static final int REMOVED_SEGMENT_ID = -1;
+  public static final int DEFAULT_INITIAL_CAPACITY = 1 << 16;
+
+  private static final int SLOT_SIZE = 32;
+  private static final int KEY_HIGH_OFFSET = 0;
+  private static final int KEY_LOW_OFFSET = 8;
+  private static final int SEGMENT_ID_OFFSET = 16;
+  private static final int DOC_ID_OFFSET = 20;
+  private static final int COMPARISON_VALUE_OFFSET = 24;
+  private static final double MAX_LOAD_FACTOR = 0.75;
+
+  private final String _description;
+  private PinotDataBuffer _buffer;
+  private long _capacity;
+  private long _mask;
+  private long _size;
+  private long _numRemoved;
+
+  public OffHeapPrimaryKeyMap(String description) {
+    this(DEFAULT_INITIAL_CAPACITY, description);
+  }
+
+  public OffHeapPrimaryKeyMap(long initialCapacity, String description) {
+    Preconditions.checkArgument(initialCapacity > 0 && Long.bitCount(initialCapacity) == 1,
+        "Initial capacity must be a positive power of 2, got: %s", initialCapacity);
+    _description = description;
+    _capacity = initialCapacity;
+    _mask = initialCapacity - 1;
+    _buffer = allocate(initialCapacity);
+  }
+
+  /**
+   * Returns the number of entries in the map.
+   */
+  public long size() {
+    return _size;
+  }
+
+  /**
+   * Returns the number of slots of the map.
+   */
+  public long getCapacity() {
+    return _capacity;
+  }
+
+  /**
+   * Returns the slot of the given key, or {@code -1} if the key does not exist.
+   */
+  public long find(long keyHigh, long keyLow) {
+    long slot = getStartSlot(keyHigh, keyLow);
+    while (true) {
+      long offset = slot * SLOT_SIZE;
+      int segmentId = _buffer.getInt(offset + SEGMENT_ID_OFFSET);
+      if (segmentId == EMPTY_SEGMENT_ID) {
+        return -1;
+      }
+      if (segmentId != REMOVED_SEGMENT_ID && _buffer.getLong(offset + KEY_HIGH_OFFSET) == keyHigh
+          && _buffer.getLong(offset + KEY_LOW_OFFSET) == keyLow) {
+        return slot;
+      }
+      slot = (slot + 1) & _mask;
+    }
+  }
+
+  /**
+   * Puts the record location of the given key, replacing the existing one if the key already exists. Slots returned
+   * before this call might be invalidated because the map can be rehashed.
+   */
+  public void put(long keyHigh, long keyLow, int segmentId, int docId, long comparisonValue) {
+    Preconditions.checkArgument(segmentId > 0, "Segment id must be positive, got: %s", segmentId);
+    long existingSlot = find(keyHigh, keyLow);
+    if (existingSlot >= 0) {
+      update(existingSlot, segmentId, docId, comparisonValue);
+      return;
+    }
+    if (_size + _numRemoved + 1 > _capacity * MAX_LOAD_FACTOR) {
+      // Only grow the map when the tombstones are not the main reason of exceeding the load factor
+      rehash(_size + 1 > _capacity * MAX_LOAD_FACTOR / 2 ? _capacity << 1 : _capacity);
+    }
+    long slot = getStartSlot(keyHigh, keyLow);
+    while (true) {
+      long offset = slot * SLOT_SIZE;
+      int currentSegmentId = _buffer.getInt(offset + SEGMENT_ID_OFFSET);
+      if (currentSegmentId == EMPTY_SEGMENT_ID || currentSegmentId == REMOVED_SEGMENT_ID) {
+        if (currentSegmentId == REMOVED_SEGMENT_ID) {
+          _numRemoved--;
+        }
+        _buffer.putLong(offset + KEY_HIGH_OFFSET, keyHigh);
+        _buffer.putLong(offset + KEY_LOW_OFFSET, keyLow);
+        _buffer.putInt(offset + SEGMENT_ID_OFFSET, segmentId);
+        _buffer.putInt(offset + DOC_ID_OFFSET, docId);
+        _buffer.putLong(offset + COMPARISON_VALUE_OFFSET, comparisonValue);
+        _size++;
+        return;
+      }
+      slot = (slot + 1) & _mask;
+    }
+  }
+
+  /**
+   * Updates the record location in the given occupied slot.
+   */
+  public void update(long slot, int segmentId, int docId, long comparisonValue) {
+    long offset = slot * SLOT_SIZE;
+    _buffer.putInt(offset + SEGMENT_ID_OFFSET, segmentId);
+    _buffer.putInt(offset + DOC_ID_OFFSET, docId);
+    _buffer.putLong(offset + COMPARISON_VALUE_OFFSET, comparisonValue);
+  }
+
+  /**
+   * Removes the entry in the given occupied slot. Removing entries does not move any other entry, so it is safe to
+   * remove entries while iterating over the slots.
+   */
+  public void remove(long slot) {
+    _buffer.putInt(slot * SLOT_SIZE + SEGMENT_ID_OFFSET, REMOVED_SEGMENT_ID);
+    _size--;
+    _numRemoved++;
+  }
+
+  /**
+   * Returns the segment id in the given slot, which is {@link #EMPTY_SEGMENT_ID} or {@link #REMOVED_SEGMENT_ID} if the
+   * slot is not occupied.
+   */
+  public int getSegmentId(long slot) {
+    return _buffer.getInt(slot * SLOT_SIZE + SEGMENT_ID_OFFSET);
+  }
+
+  public int getDocId(long slot) {
+    return _buffer.getInt(slot * SLOT_SIZE + DOC_ID_OFFSET);
+  }
+
+  public long getComparisonValue(long slot) {
+    return _buffer.getLong(slot * SLOT_SIZE + COMPARISON_VALUE_OFFSET);
+  }
+
+  public long getKeyHigh(long slot) {
+    return _buffer.getLong(slot * SLOT_SIZE + KEY_HIGH_OFFSET);
+  }
+
+  public long getKeyLow(long slot) {
+    return _buffer.getLong(slot * SLOT_SIZE + KEY_LOW_OFFSET);
+  }
+
+  private long getStartSlot(long keyHigh, long keyLow) {
+    // Keys are hashes already, but mix the bits anyway because some hash functions (e.g. time based UUID) do not
+    // distribute the bits evenly
+    long hash = keyHigh * 31 + keyLow;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return hash & _mask;
+  }
+
+  private void rehash(long newCapacity) {
+    PinotDataBuffer oldBuffer = _buffer;
+    long oldCapacity = _capacity;
+    _buffer = allocate(newCapacity);
+    _capacity = newCapacity;
+    _mask = newCapacity - 1;
+    _numRemoved = 0;
+    try {
+      for (long oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+        long oldOffset = oldSlot * SLOT_SIZE;
+        int segmentId = oldBuffer.getInt(oldOffset + SEGMENT_ID_OFFSET);
+        if (segmentId == EMPTY_SEGMENT_ID || segmentId == REMOVED_SEGMENT_ID) {
+          continue;
+        }
+        long keyHigh = oldBuffer.getLong(oldOffset + KEY_HIGH_OFFSET);
+        long keyLow = oldBuffer.getLong(oldOffset + KEY_LOW_OFFSET);
+        long slot = getStartSlot(keyHigh, keyLow);
+        while (_buffer.getInt(slot * SLOT_SIZE + SEGMENT_ID_OFFSET) != EMPTY_SEGMENT_ID) {
+          slot = (slot + 1) & _mask;
+        }
+        long offset = slot * SLOT_SIZE;
+        _buffer.putLong(offset + KEY_HIGH_OFFSET, keyHigh);
+        _buffer.putLong(offset + KEY_LOW_OFFSET, keyLow);
+        _buffer.putInt(offset + SEGMENT_ID_OFFSET, segmentId);
+        _buffer.putInt(offset + DOC_ID_OFFSET, oldBuffer.getInt(oldOffset + DOC_ID_OFFSET));
+        _buffer.putLong(offset + COMPARISON_VALUE_OFFSET, oldBuffer.getLong(oldOffset + COMPARISON_VALUE_OFFSET));
+      }
+    } finally {
+      closeQuietly(oldBuffer);
+    }
+  }
+
+  private PinotDataBuffer allocate(long capacity) {
+    PinotDataBuffer buffer =
+        PinotDataBuffer.allocateDirect(capacity * SLOT_SIZE, PinotDataBuffer.NATIVE_ORDER, _description);
+    // Direct memory is not guaranteed to be zeroed, so explicitly mark all the slots as empty
+    for (long slot = 0; slot < capacity; slot++) {
+      buffer.putInt(slot * SLOT_SIZE + SEGMENT_ID_OFFSET, EMPTY_SEGMENT_ID);
+    }
+    return buffer;
+  }
+
+  private static void closeQuietly(PinotDataBuffer buffer) {
+    try {
+      buffer.close();
+    } catch (IOException e) {
+      // Ignore
+    }
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    _buffer.close();
+  }
+}
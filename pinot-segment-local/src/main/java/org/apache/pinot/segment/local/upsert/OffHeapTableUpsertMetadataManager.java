@@ -0,0 +1,46 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import com.google.common.base.Preconditions;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * Implementation of {@link TableUpsertMetadataManager} that keeps the primary key to record location map of each
+ * partition in off-heap memory with {@link OffHeapPartitionUpsertMetadataManager}.
+ * <p>It can be enabled by setting {@code metadataManagerClass} in the upsert config of the table to the name of this
+ * class, or by setting it as the default metadata manager class of the server.
+ */
+@ThreadSafe
+public class OffHeapTableUpsertMetadataManager extends ConcurrentMapTableUpsertMetadataManager {
+
+  @Override
+  protected void initCustomVariables() {
+    Preconditions.checkState(!_enableDeletedKeysCompactionConsistency,
+        "Deleted keys compaction consistency is not supported by off-heap upsert metadata manager for table: %s",
+        _tableNameWithType);
+  }
+
+  @Override
+  public BasePartitionUpsertMetadataManager getOrCreatePartitionManager(int partitionId) {
+    return _partitionMetadataManagerMap.computeIfAbsent(partitionId,
+        k -> new OffHeapPartitionUpsertMetadataManager(_tableNameWithType, k, _context));
+  }
+}
@@ -0,0 +1,439 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import javax.annotation.Nullable;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentImpl;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+import org.apache.pinot.spi.utils.BigDecimalUtils;
+import org.apache.pinot.spi.utils.ByteArray;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+
+/**
+ * Snapshot of the primary key to record location map of an upsert partition, which allows preloading the segments
+ * without reading the primary keys and comparison values from the segments.
+ * <p>The snapshot only contains the record locations in the immutable segments whose validDocIds snapshots are in sync
+ * with the in-memory validDocIds. For each segment, the segment CRC, a checksum of the validDocIds and the number of
+ * persisted entries are recorded, so that the entries of a segment are only used when the segment and its validDocIds
+ * snapshot are unchanged since the primary key snapshot was taken, and all its valid docs are in the snapshot.
+ * Otherwise, the segment is preloaded by reading the valid docs as before.
+ * <p>File format:
+ * <ul>
+ *   <li>Version</li>
+ *   <li>Entries: segment index, doc id, primary key, comparison value; terminated by segment index -1</li>
+ *   <li>Segments: number of segments, then for each segment: name, CRC, number of valid docs, checksum of valid docs,
+ *   number of entries</li>
+ *   <li>Footer: length of the segments section, CRC32 of all the bytes above</li>
+ * </ul>
+ * <p>The segments are in the footer so that the entries can be written while iterating over the primary key map, and
+ * streamed into the primary key map when loading without buffering them on heap.
+ */
+@SuppressWarnings("rawtypes")
+public class PrimaryKeySnapshot {
+  private static final int VERSION = 2;
+  private static final int END_OF_ENTRIES = -1;
+  // Length of the segments section (int) + CRC32 (long)
+  private static final int FOOTER_SIZE = Integer.BYTES + Long.BYTES;
+
+  private static final byte INT = 0;
+  private static final byte LONG = 1;
+  private static final byte FLOAT = 2;
+  private static final byte DOUBLE = 3;
+  private static final byte STRING = 4;
+  private static final byte BYTES = 5;
+  private static final byte BIG_DECIMAL = 6;
+  private static final byte PRIMARY_KEY = 7;
+
+  private final File _file;
+  private final Map<String, SegmentInfo> _segmentInfoMap;
+  // Segments preloaded with the snapshot, indexed by the segment index within the snapshot
+  private final AtomicReferenceArray<IndexSegment> _preloadedSegments;
+
+  private PrimaryKeySnapshot(File file, Map<String, SegmentInfo> segmentInfoMap) {
+    _file = file;
+    _segmentInfoMap = segmentInfoMap;
+    _preloadedSegments = new AtomicReferenceArray<>(segmentInfoMap.size());
+  }
+
+  /**
+   * Consumer of the record locations in the primary key map.
+   */
+  public interface RecordLocationConsumer {
+    void accept(Object primaryKey, IndexSegment segment, int docId, Comparable comparisonValue)
+        throws IOException;
+  }
+
+  /**
+   * Iterates over the record locations in the primary key map.
+   */
+  public interface RecordLocationIterator {
+    void forEach(RecordLocationConsumer consumer)
+        throws IOException;
+  }
+
+  /**
+   * Captures the state of the segment to be persisted into the snapshot. This should be called while the validDocIds
+   * of the segment is in sync with its validDocIds snapshot, and is cheap as only the validDocIds is copied.
+   */
+  public static SegmentState captureSegmentState(ImmutableSegmentImpl segment) {
+    return new SegmentState(segment, segment.getSegmentName(), String.valueOf(segment.getSegmentMetadata().getCrc()),
+        segment.getValidDocIds().getMutableRoaringBitmap());
+  }
+
+  /**
+   * Persists the record locations of the valid docs within the captured segments to the file, and returns the number
+   * of persisted entries. The primary key map can be updated concurrently, in which case the entries of the affected
+   * segments might be incomplete and are not used when loading the snapshot. The file is written to a temporary file
+   * first, then atomically moved to replace the existing file.
+   */
+  public static long persist(File file, List<SegmentState> segmentStates,
+      RecordLocationIterator recordLocationIterator)
+      throws IOException {
+    int numSegments = segmentStates.size();
+    Map<IndexSegment, Integer> segmentIndexMap = new IdentityHashMap<>();
+    for (int i = 0; i < numSegments; i++) {
+      segmentIndexMap.put(segmentStates.get(i)._segment, i);
+    }
+    int[] numEntriesPerSegment = new int[numSegments];
+    File tempFile = new File(file.getPath() + ".tmp");
+    long numEntries = 0;
+    try (CheckedOutputStream checkedOutputStream = new CheckedOutputStream(
+        new BufferedOutputStream(new FileOutputStream(tempFile)), new CRC32());
+        DataOutputStream dataOutputStream = new DataOutputStream(checkedOutputStream)) {
+      dataOutputStream.writeInt(VERSION);
+      recordLocationIterator.forEach((primaryKey, segment, docId, comparisonValue) -> {
+        Integer segmentIndex = segmentIndexMap.get(segment);
+        // Only persist the record locations of the valid docs captured, which match the validDocIds snapshot
+        if (segmentIndex != null && segmentStates.get(segmentIndex)._validDocIds.contains(docId)) {
+          dataOutputStream.writeInt(segmentIndex);
+          dataOutputStream.writeInt(docId);
+          writeValue(dataOutputStream, primaryKey);
+          writeValue(dataOutputStream, comparisonValue);
+          numEntriesPerSegment[segmentIndex]++;
+        }
+      });
+      dataOutputStream.writeInt(END_OF_ENTRIES);
+
+      ByteArrayOutputStream segmentsBytes = new ByteArrayOutputStream();
+      DataOutputStream segmentsOutputStream = new DataOutputStream(segmentsBytes);
+      segmentsOutputStream.writeInt(numSegments);
+      for (int i = 0; i < numSegments; i++) {
+        SegmentState segmentState = segmentStates.get(i);
+        segmentsOutputStream.writeUTF(segmentState._segmentName);
+        segmentsOutputStream.writeUTF(segmentState._crc);
+        segmentsOutputStream.writeInt(segmentState._validDocIds.getCardinality());
+        segmentsOutputStream.writeLong(getValidDocIdsChecksum(segmentState._validDocIds));
+        segmentsOutputStream.writeInt(numEntriesPerSegment[i]);
+        numEntries += numEntriesPerSegment[i];
+      }
+      segmentsOutputStream.flush();
+      dataOutputStream.write(segmentsBytes.toByteArray());
+      dataOutputStream.writeInt(segmentsBytes.size());
+      dataOutputStream.flush();
+      dataOutputStream.writeLong(checkedOutputStream.getChecksum().getValue());
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(tempFile.toPath());
+      throw e;
+    }
+    Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    return numEntries;
+  }
+
+  /**
+   * Opens the snapshot file. The checksum of the whole file is verified and the segments are loaded, but the entries
+   * are only read when {@link #forEachRecordLocation} is invoked.
+   */
+  public static PrimaryKeySnapshot open(File file)
+      throws IOException {
+    long fileLength = file.length();
+    if (fileLength < Integer.BYTES + FOOTER_SIZE) {
+      throw new IOException("Invalid primary key snapshot: " + file + " of length: " + fileLength);
+    }
+    long expectedChecksum;
+    byte[] segmentsBytes;
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+      long checksumOffset = fileLength - Long.BYTES;
+      CRC32 crc32 = new CRC32();
+      byte[] buffer = new byte[8192];
+      long offset = 0;
+      while (offset < checksumOffset) {
+        int numBytes = randomAccessFile.read(buffer, 0, (int) Math.min(buffer.length, checksumOffset - offset));
+        if (numBytes < 0) {
+          throw new IOException("Unexpected end of primary key snapshot: " + file);
+        }
+        crc32.update(buffer, 0, numBytes);
+        offset += numBytes;
+      }
+      expectedChecksum = randomAccessFile.readLong();
+      if (crc32.getValue() != expectedChecksum) {
+        throw new IOException("Checksum mismatch for primary key snapshot: " + file);
+      }
+      randomAccessFile.seek(fileLength - FOOTER_SIZE);
+      int segmentsLength = randomAccessFile.readInt();
+      if (segmentsLength < 0 || segmentsLength > fileLength - FOOTER_SIZE - Integer.BYTES) {
+        throw new IOException("Invalid segments length: " + segmentsLength + " for primary key snapshot: " + file);
+      }
+      segmentsBytes = new byte[segmentsLength];
+      randomAccessFile.seek(fileLength - FOOTER_SIZE - segmentsLength);
+      randomAccessFile.readFully(segmentsBytes);
+      randomAccessFile.seek(0);
+      int version = randomAccessFile.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported primary key snapshot version: " + version);
+      }
+    }
+    try (DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(segmentsBytes))) {
+      int numSegments = dataInputStream.readInt();
+      Map<String, SegmentInfo> segmentInfoMap = new HashMap<>();
+      for (int i = 0; i < numSegments; i++) {
+        String segmentName = dataInputStream.readUTF();
+        String crc = dataInputStream.readUTF();
+        int numValidDocs = dataInputStream.readInt();
+        long validDocIdsChecksum = dataInputStream.readLong();
+        int numEntries = dataInputStream.readInt();
+        segmentInfoMap.put(segmentName, new SegmentInfo(i, crc, numValidDocs, validDocIdsChecksum, numEntries));
+      }
+      return new PrimaryKeySnapshot(file, segmentInfoMap);
+    }
+  }
+
+  /**
+   * Returns the number of segments within the snapshot.
+   */
+  public int getNumSegments() {
+    return _segmentInfoMap.size();
+  }
+
+  /**
+   * Returns the info of the given segment, or {@code null} if the segment is not in the snapshot.
+   */
+  @Nullable
+  public SegmentInfo getSegmentInfo(String segmentName) {
+    return _segmentInfoMap.get(segmentName);
+  }
+
+  /**
+   * Marks the segment as preloaded with the snapshot, so that its record locations are returned by
+   * {@link #forEachRecordLocation}. Can be invoked concurrently for different segments.
+   */
+  public void addPreloadedSegment(SegmentInfo segmentInfo, IndexSegment segment) {
+    _preloadedSegments.set(segmentInfo._segmentIndex, segment);
+  }
+
+  /**
+   * Streams the record locations of the preloaded segments from the file, and returns the number of record locations
+   * returned. The entries are not buffered on heap.
+   */
+  public long forEachRecordLocation(RecordLocationConsumer consumer)
+      throws IOException {
+    long numRecordLocations = 0;
+    try (DataInputStream dataInputStream = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(_file)))) {
+      // Version is already verified when opening the snapshot
+      dataInputStream.readInt();
+      int segmentIndex;
+      while ((segmentIndex = dataInputStream.readInt()) != END_OF_ENTRIES) {
+        int docId = dataInputStream.readInt();
+        Object primaryKey = readValue(dataInputStream);
+        Comparable comparisonValue = (Comparable) readValue(dataInputStream);
+        IndexSegment segment = _preloadedSegments.get(segmentIndex);
+        if (segment != null) {
+          consumer.accept(primaryKey, segment, docId, comparisonValue);
+          numRecordLocations++;
+        }
+      }
+    }
+    return numRecordLocations;
+  }
+
+  /**
+   * Returns the checksum of the given validDocIds, which is independent of how the bitmap is serialized.
+   */
+  public static long getValidDocIdsChecksum(MutableRoaringBitmap validDocIds) {
+    CRC32 crc32 = new CRC32();
+    ByteBuffer buffer = ByteBuffer.allocate(4096);
+    PeekableIntIterator docIdIterator = validDocIds.getIntIterator();
+    while (docIdIterator.hasNext()) {
+      if (!buffer.hasRemaining()) {
+        buffer.flip();
+        crc32.update(buffer);
+        buffer.clear();
+      }
+      buffer.putInt(docIdIterator.next());
+    }
+    buffer.flip();
+    crc32.update(buffer);
+    return crc32.getValue();
+  }
+
+  private static void writeValue(DataOutputStream dataOutputStream, Object value)
+      throws IOException {
+    if (value instanceof Integer) {
+      dataOutputStream.writeByte(INT);
+      dataOutputStream.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      dataOutputStream.writeByte(LONG);
+      dataOutputStream.writeLong((Long) value);
+    } else if (value instanceof Float) {
+      dataOutputStream.writeByte(FLOAT);
+      dataOutputStream.writeFloat((Float) value);
+    } else if (value instanceof Double) {
+      dataOutputStream.writeByte(DOUBLE);
+      dataOutputStream.writeDouble((Double) value);
+    } else if (value instanceof String) {
+      dataOutputStream.writeByte(STRING);
+      writeBytes(dataOutputStream, ((String) value).getBytes(StandardCharsets.UTF_8));
+    } else if (value instanceof ByteArray) {
+      dataOutputStream.writeByte(BYTES);
+      writeBytes(dataOutputStream, ((ByteArray) value).getBytes());
+    } else if (value instanceof BigDecimal) {
+      dataOutputStream.writeByte(BIG_DECIMAL);
+      writeBytes(dataOutputStream, BigDecimalUtils.serialize((BigDecimal) value));
+    } else if (value instanceof PrimaryKey) {
+      Object[] values = ((PrimaryKey) value).getValues();
+      dataOutputStream.writeByte(PRIMARY_KEY);
+      dataOutputStream.writeInt(values.length);
+      for (Object v : values) {
+        writeValue(dataOutputStream, v);
+      }
+    } else {
+      throw new IllegalStateException("Unsupported value: " + value + " of type: " + (value != null ? value.getClass()
+          : null));
+    }
+  }
+
+  private static void writeBytes(DataOutputStream dataOutputStream, byte[] bytes)
+      throws IOException {
+    dataOutputStream.writeInt(bytes.length);
+    dataOutputStream.write(bytes);
+  }
+
+  private static Object readValue(DataInputStream dataInputStream)
+      throws IOException {
+    byte type = dataInputStream.readByte();
+    switch (type) {
+      case INT:
+        return dataInputStream.readInt();
+      case LONG:
+        return dataInputStream.readLong();
+      case FLOAT:
+        return dataInputStream.readFloat();
+      case DOUBLE:
+        return dataInputStream.readDouble();
+      case STRING:
+        return new String(readBytes(dataInputStream), StandardCharsets.UTF_8);
+      case BYTES:
+        return new ByteArray(readBytes(dataInputStream));
+      case BIG_DECIMAL:
+        return BigDecimalUtils.deserialize(readBytes(dataInputStream));
+      case PRIMARY_KEY:
+        int numValues = dataInputStream.readInt();
+        Object[] values = new Object[numValues];
+        for (int i = 0; i < numValues; i++) {
+          values[i] = readValue(dataInputStream);
+        }
+        return new PrimaryKey(values);
+      default:
+        throw new IOException("Unsupported value type: " + type);
+    }
+  }
+
+  private static byte[] readBytes(DataInputStream dataInputStream)
+      throws IOException {
+    byte[] bytes = new byte[dataInputStream.readInt()];
+    dataInputStream.readFully(bytes);
+    return bytes;
+  }
+
+  /**
+   * State of a segment captured to be persisted into the snapshot.
+   */
+  public static class SegmentState {
+    private final IndexSegment _segment;
+    private final String _segmentName;
+    private final String _crc;
+    private final MutableRoaringBitmap _validDocIds;
+
+    private SegmentState(IndexSegment segment, String segmentName, String crc, MutableRoaringBitmap validDocIds) {
+      _segment = segment;
+      _segmentName = segmentName;
+      _crc = crc;
+      _validDocIds = validDocIds.clone();
+    }
+  }
+
+  /**
+   * Info of a segment loaded from the snapshot.
+   */
+  public static class SegmentInfo {
+    private final int _segmentIndex;
+    private final String _crc;
+    private final int _numValidDocs;
+    private final long _validDocIdsChecksum;
+    private final int _numEntries;
+
+    private SegmentInfo(int segmentIndex, String crc, int numValidDocs, long validDocIdsChecksum, int numEntries) {
+      _segmentIndex = segmentIndex;
+      _crc = crc;
+      _numValidDocs = numValidDocs;
+      _validDocIdsChecksum = validDocIdsChecksum;
+      _numEntries = numEntries;
+    }
+
+    /**
+     * Returns whether the record locations are still valid and complete for the segment with the given CRC and
+     * validDocIds (loaded from the validDocIds snapshot).
+     */
+    public boolean isValid(@Nullable String crc, MutableRoaringBitmap validDocIds) {
+      return _crc.equals(String.valueOf(crc)) && _numValidDocs == validDocIds.getCardinality()
+          && _numEntries == _numValidDocs && _validDocIdsChecksum == getValidDocIdsChecksum(validDocIds);
+    }
+
+    public int getNumEntries() {
+      return _numEntries;
+    }
+  }
+}
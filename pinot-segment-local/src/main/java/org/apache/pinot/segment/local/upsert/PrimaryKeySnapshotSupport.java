@@ -0,0 +1,46 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import java.io.IOException;
+import org.apache.pinot.segment.spi.IndexSegment;
+
+
+/**
+ * Implemented by the partition upsert metadata managers which can persist their primary key map into a
+ * {@link PrimaryKeySnapshot} and preload the segments from it. The primary key snapshot is only taken and loaded for
+ * the managers implementing this interface.
+ */
+interface PrimaryKeySnapshotSupport {
+
+  /**
+   * Iterates over all the record locations in the primary key map, with the primary key hashed with the configured
+   * hash function.
+   */
+  void forEachRecordLocation(PrimaryKeySnapshot.RecordLocationConsumer consumer)
+      throws IOException;
+
+  /**
+   * Adds a record location from the primary key snapshot for a segment preloaded with the snapshot. The valid docs are
+   * already tracked in the validDocIds of the segment, and the record locations don't overlap with the ones of the
+   * other segments.
+   */
+  void addRecordLocationFromPrimaryKeySnapshot(Object primaryKey, IndexSegment segment, int docId,
+      Comparable comparisonValue);
+}
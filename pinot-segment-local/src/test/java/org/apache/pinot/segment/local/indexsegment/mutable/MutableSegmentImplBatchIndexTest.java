@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.indexsegment.mutable;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.local.segment.creator.SegmentTestUtils;
+import org.apache.pinot.segment.spi.creator.SegmentGeneratorConfig;
+import org.apache.pinot.segment.spi.datasource.DataSource;
+import org.apache.pinot.segment.spi.datasource.DataSourceMetadata;
+import org.apache.pinot.segment.spi.index.reader.Dictionary;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReader;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReaderContext;
+import org.apache.pinot.segment.spi.index.reader.InvertedIndexReader;
+import org.apache.pinot.spi.data.FieldSpec;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.FileFormat;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.data.readers.RecordReader;
+import org.apache.pinot.spi.data.readers.RecordReaderFactory;
+import org.apache.pinot.spi.stream.StreamMessageMetadata;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+
+/**
+ * Tests that indexing records in batches into a {@link MutableSegmentImpl} produces the same indexes as indexing the
+ * records one by one.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class MutableSegmentImplBatchIndexTest {
+  private static final String AVRO_FILE = "data/test_data-mv.avro";
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "MutableSegmentImplBatchIndexTest");
+  private static final int BATCH_SIZE = 97;
+
+  private Schema _schema;
+  private MutableSegmentImpl _rowSegment;
+  private MutableSegmentImpl _batchSegment;
+  private int _numRows;
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteQuietly(TEMP_DIR);
+
+    URL resourceUrl = MutableSegmentImplBatchIndexTest.class.getClassLoader().getResource(AVRO_FILE);
+    assertNotNull(resourceUrl);
+    File avroFile = new File(resourceUrl.getFile());
+
+    SegmentGeneratorConfig config =
+        SegmentTestUtils.getSegmentGeneratorConfigWithoutTimeColumn(avroFile, TEMP_DIR, "testTable");
+    _schema = config.getSchema();
+    Set<String> invertedIndexColumns = new HashSet<>(_schema.getPhysicalColumnNames());
+    _rowSegment = MutableSegmentImplTestUtils.createMutableSegmentImpl(_schema, Collections.emptySet(),
+        Collections.emptySet(), invertedIndexColumns, false);
+    _batchSegment = MutableSegmentImplTestUtils.createMutableSegmentImpl(_schema, Collections.emptySet(),
+        Collections.emptySet(), invertedIndexColumns, false);
+
+    StreamMessageMetadata metadata = new StreamMessageMetadata(System.currentTimeMillis(), new GenericRow());
+    List<GenericRow> batch = new ArrayList<>(BATCH_SIZE);
+    try (RecordReader recordReader = RecordReaderFactory.getRecordReader(FileFormat.AVRO, avroFile,
+        _schema.getColumnNames(), null)) {
+      while (recordReader.hasNext()) {
+        GenericRow row = recordReader.next();
+        assertTrue(_rowSegment.index(row, metadata));
+        batch.add(row);
+        if (batch.size() == BATCH_SIZE) {
+          assertTrue(_batchSegment.index(batch, metadata));
+          batch.clear();
+        }
+        _numRows++;
+      }
+    }
+    if (!batch.isEmpty()) {
+      assertTrue(_batchSegment.index(batch, metadata));
+    }
+  }
+
+  @Test
+  public void testMetadata() {
+    assertEquals(_batchSegment.getNumDocsIndexed(), _numRows);
+    assertEquals(_rowSegment.getNumDocsIndexed(), _numRows);
+    assertEquals(_batchSegment.getSegmentMetadata().getLatestIngestionTimestamp(),
+        _rowSegment.getSegmentMetadata().getLatestIngestionTimestamp());
+
+    for (FieldSpec fieldSpec : _schema.getAllFieldSpecs()) {
+      String column = fieldSpec.getName();
+      DataSourceMetadata actualMetadata = _batchSegment.getDataSource(column).getDataSourceMetadata();
+      DataSourceMetadata expectedMetadata = _rowSegment.getDataSource(column).getDataSourceMetadata();
+      assertEquals(actualMetadata.getNumDocs(), expectedMetadata.getNumDocs());
+      assertEquals(actualMetadata.getNumValues(), expectedMetadata.getNumValues());
+      assertEquals(actualMetadata.getMaxNumValuesPerMVEntry(), expectedMetadata.getMaxNumValuesPerMVEntry());
+      assertEquals(actualMetadata.getMinValue(), expectedMetadata.getMinValue());
+      assertEquals(actualMetadata.getMaxValue(), expectedMetadata.getMaxValue());
+    }
+  }
+
+  @Test
+  public void testIndexes()
+      throws IOException {
+    for (FieldSpec fieldSpec : _schema.getAllFieldSpecs()) {
+      String column = fieldSpec.getName();
+      DataSource actualDataSource = _batchSegment.getDataSource(column);
+      DataSource expectedDataSource = _rowSegment.getDataSource(column);
+
+      // Values are added to the dictionary in the same order, so the dictionary ids should match
+      Dictionary actualDictionary = actualDataSource.getDictionary();
+      Dictionary expectedDictionary = expectedDataSource.getDictionary();
+      int dictionaryLength = expectedDictionary.length();
+      assertEquals(actualDictionary.length(), dictionaryLength);
+      for (int dictId = 0; dictId < dictionaryLength; dictId++) {
+        assertEquals(actualDictionary.get(dictId), expectedDictionary.get(dictId));
+      }
+
+      ForwardIndexReader actualReader = actualDataSource.getForwardIndex();
+      ForwardIndexReader expectedReader = expectedDataSource.getForwardIndex();
+      try (ForwardIndexReaderContext actualReaderContext = actualReader.createContext();
+          ForwardIndexReaderContext expectedReaderContext = expectedReader.createContext()) {
+        if (fieldSpec.isSingleValueField()) {
+          for (int docId = 0; docId < _numRows; docId++) {
+            assertEquals(actualReader.getDictId(docId, actualReaderContext),
+                expectedReader.getDictId(docId, expectedReaderContext));
+          }
+        } else {
+          int maxNumValuesPerMVEntry = expectedDataSource.getDataSourceMetadata().getMaxNumValuesPerMVEntry();
+          int[] actualDictIds = new int[maxNumValuesPerMVEntry];
+          int[] expectedDictIds = new int[maxNumValuesPerMVEntry];
+          for (int docId = 0; docId < _numRows; docId++) {
+            int length = expectedReader.getDictIdMV(docId, expectedDictIds, expectedReaderContext);
+            assertEquals(actualReader.getDictIdMV(docId, actualDictIds, actualReaderContext), length);
+            for (int i = 0; i < length; i++) {
+              assertEquals(actualDictIds[i], expectedDictIds[i]);
+            }
+          }
+        }
+      }
+
+      InvertedIndexReader actualInvertedIndex = actualDataSource.getInvertedIndex();
+      InvertedIndexReader expectedInvertedIndex = expectedDataSource.getInvertedIndex();
+      assertNotNull(actualInvertedIndex);
+      assertNotNull(expectedInvertedIndex);
+      for (int dictId = 0; dictId < dictionaryLength; dictId++) {
+        assertEquals(actualInvertedIndex.getDocIds(dictId), expectedInvertedIndex.getDocIds(dictId));
+      }
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    _rowSegment.destroy();
+    _batchSegment.destroy();
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+}
@@ -54,6 +54,7 @@ import org.apache.pinot.segment.spi.index.StandardIndexes;
 import org.apache.pinot.segment.spi.index.TextIndexConfig;
 import org.apache.pinot.segment.spi.index.column.ColumnIndexContainer;
 import org.apache.pinot.segment.spi.index.metadata.SegmentMetadataImpl;
+import org.apache.pinot.segment.spi.index.reader.InvertedIndexReader;
 import org.apache.pinot.segment.spi.index.reader.TextIndexReader;
 import org.apache.pinot.segment.spi.store.SegmentDirectory;
 import org.apache.pinot.spi.config.table.FieldConfig;
@@ -690,6 +691,123 @@ public class RealtimeSegmentConverterTest {
     segmentFile.destroy();
   }
 
+  @DataProvider
+  public static Object[][] sortedColumnParams() {
+    return new Object[][]{{null}, {LONG_COLUMN1}};
+  }
+
+  // Test that the column-major segment builder, which remaps the mutable dictionary ids, builds the same segment as
+  // the row-major segment builder
+  @Test(dataProvider = "sortedColumnParams")
+  public void testColumnMajorSegmentBuilderMatchesRowMajor(String sortedColumn)
+      throws Exception {
+    File tmpDir = new File(TMP_DIR, "tmp_" + System.nanoTime());
+    Schema schema = new Schema.SchemaBuilder()
+        .addSingleValueDimension(STRING_COLUMN1, FieldSpec.DataType.STRING)
+        .addSingleValueDimension(STRING_COLUMN2, FieldSpec.DataType.STRING)
+        .addSingleValueDimension(LONG_COLUMN1, FieldSpec.DataType.LONG)
+        .addSingleValueDimension(LONG_COLUMN2, FieldSpec.DataType.LONG)
+        .addMultiValueDimension(MV_INT_COLUMN, FieldSpec.DataType.INT)
+        .addDateTime(DATE_TIME_COLUMN, FieldSpec.DataType.LONG, "1:MILLISECONDS:EPOCH", "1:MILLISECONDS")
+        .build();
+    String tableNameWithType = "testTable_REALTIME";
+    String segmentName = "testTable__0__0__123456";
+
+    RealtimeSegmentConfig.Builder realtimeSegmentConfigBuilder =
+        new RealtimeSegmentConfig.Builder().setTableNameWithType(tableNameWithType).setSegmentName(segmentName)
+            .setStreamName(tableNameWithType).setSchema(schema).setTimeColumnName(DATE_TIME_COLUMN).setCapacity(1000)
+            .setAvgNumMultiValues(3)
+            .setIndex(Sets.newHashSet(LONG_COLUMN2), StandardIndexes.dictionary(), DictionaryIndexConfig.DISABLED)
+            .setIndex(Sets.newHashSet(STRING_COLUMN1, MV_INT_COLUMN), StandardIndexes.inverted(), IndexConfig.ENABLED)
+            .setSegmentZKMetadata(getSegmentZKMetadata(segmentName)).setOffHeap(true)
+            .setMemoryManager(new DirectMemoryManager(segmentName))
+            .setStatsHistory(RealtimeSegmentStatsHistory.deserialzeFrom(new File(tmpDir, "stats")))
+            .setConsumerDir(new File(tmpDir, "consumerDir").getAbsolutePath());
+    MutableSegmentImpl mutableSegmentImpl = new MutableSegmentImpl(realtimeSegmentConfigBuilder.build(), null);
+
+    // Index values in non-sorted order with repeated values, so that the mutable dictionary ids differ from the
+    // immutable dictionary ids
+    int numRows = 100;
+    for (int i = 0; i < numRows; i++) {
+      GenericRow row = new GenericRow();
+      row.putValue(STRING_COLUMN1, "str" + (i * 7 % 13));
+      row.putValue(STRING_COLUMN2, "str" + (numRows - i));
+      row.putValue(LONG_COLUMN1, (long) (i * 11 % 17));
+      row.putValue(LONG_COLUMN2, (long) (i % 5));
+      row.putValue(MV_INT_COLUMN, new Object[]{i % 3, 10 - i % 7, i % 3});
+      row.putValue(DATE_TIME_COLUMN, 1697814309L + i);
+      mutableSegmentImpl.index(row, null);
+    }
+
+    ImmutableSegmentImpl rowMajorSegment =
+        convert(mutableSegmentImpl, schema, sortedColumn, false, 1, new File(tmpDir, "rowMajor"), segmentName);
+    ImmutableSegmentImpl columnMajorSegment =
+        convert(mutableSegmentImpl, schema, sortedColumn, true, 1, new File(tmpDir, "columnMajor"), segmentName);
+    // Index the columns in parallel with the column-major segment builder
+    ImmutableSegmentImpl parallelColumnMajorSegment =
+        convert(mutableSegmentImpl, schema, sortedColumn, true, 4, new File(tmpDir, "parallelColumnMajor"),
+            segmentName);
+    assertEquals(parallelColumnMajorSegment.getSegmentMetadata().getCrc(),
+        columnMajorSegment.getSegmentMetadata().getCrc());
+
+    GenericRow expectedRow = new GenericRow();
+    GenericRow actualRow = new GenericRow();
+    GenericRow parallelRow = new GenericRow();
+    for (int docId = 0; docId < numRows; docId++) {
+      rowMajorSegment.getRecord(docId, expectedRow);
+      columnMajorSegment.getRecord(docId, actualRow);
+      parallelColumnMajorSegment.getRecord(docId, parallelRow);
+      for (String column : schema.getColumnNames()) {
+        assertEquals(actualRow.getValue(column), expectedRow.getValue(column));
+        assertEquals(parallelRow.getValue(column), expectedRow.getValue(column));
+      }
+    }
+    for (String column : Arrays.asList(STRING_COLUMN1, MV_INT_COLUMN)) {
+      InvertedIndexReader expectedInvertedIndex = rowMajorSegment.getDataSource(column).getInvertedIndex();
+      InvertedIndexReader actualInvertedIndex = columnMajorSegment.getDataSource(column).getInvertedIndex();
+      int cardinality = rowMajorSegment.getDataSource(column).getDictionary().length();
+      assertEquals(columnMajorSegment.getDataSource(column).getDictionary().length(), cardinality);
+      for (int dictId = 0; dictId < cardinality; dictId++) {
+        assertEquals(actualInvertedIndex.getDocIds(dictId), expectedInvertedIndex.getDocIds(dictId));
+      }
+    }
+
+    mutableSegmentImpl.destroy();
+    rowMajorSegment.destroy();
+    columnMajorSegment.destroy();
+    parallelColumnMajorSegment.destroy();
+  }
+
+  private ImmutableSegmentImpl convert(MutableSegmentImpl mutableSegmentImpl, Schema schema, String sortedColumn,
+      boolean columnMajorSegmentBuilder, int numIndexCreationThreads, File outputDir, String segmentName)
+      throws Exception {
+    TableConfig tableConfig =
+        new TableConfigBuilder(TableType.REALTIME).setTableName("testTable").setTimeColumnName(DATE_TIME_COLUMN)
+            .setInvertedIndexColumns(Lists.newArrayList(STRING_COLUMN1, MV_INT_COLUMN))
+            .setNoDictionaryColumns(Lists.newArrayList(LONG_COLUMN2)).setSortedColumn(sortedColumn)
+            .setColumnMajorSegmentBuilderEnabled(columnMajorSegmentBuilder).build();
+    tableConfig.getIndexingConfig().setNumIndexCreationThreads(numIndexCreationThreads);
+    SegmentZKPropsConfig segmentZKPropsConfig = new SegmentZKPropsConfig();
+    segmentZKPropsConfig.setStartOffset("1");
+    segmentZKPropsConfig.setEndOffset("100");
+    RealtimeSegmentConverter converter =
+        new RealtimeSegmentConverter(mutableSegmentImpl, segmentZKPropsConfig, outputDir.getAbsolutePath(), schema,
+            tableConfig.getTableName(), tableConfig, segmentName, false);
+    converter.build(SegmentVersion.v3, null);
+
+    File indexDir = new File(outputDir, segmentName);
+    SegmentMetadataImpl segmentMetadata = new SegmentMetadataImpl(indexDir);
+    SegmentLocalFSDirectory segmentDir = new SegmentLocalFSDirectory(indexDir, segmentMetadata, ReadMode.mmap);
+    SegmentDirectory.Reader segmentReader = segmentDir.createReader();
+    Map<String, ColumnIndexContainer> indexContainerMap = new HashMap<>();
+    IndexLoadingConfig indexLoadingConfig = new IndexLoadingConfig(null, tableConfig);
+    for (Map.Entry<String, ColumnMetadata> entry : segmentMetadata.getColumnMetadataMap().entrySet()) {
+      indexContainerMap.put(entry.getKey(),
+          new PhysicalColumnIndexContainer(segmentReader, entry.getValue(), indexLoadingConfig));
+    }
+    return new ImmutableSegmentImpl(segmentDir, segmentMetadata, indexContainerMap, null);
+  }
+
   private List<GenericRow> generateTestData() {
     LinkedList<GenericRow> rows = new LinkedList<>();
 
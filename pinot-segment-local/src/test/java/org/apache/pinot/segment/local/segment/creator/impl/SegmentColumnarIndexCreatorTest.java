@@ -21,6 +21,7 @@ package org.apache.pinot.segment.local.segment.creator.impl;
 import com.google.common.collect.ImmutableList;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import org.apache.commons.configuration2.PropertiesConfiguration;
 import org.apache.commons.io.FileUtils;
@@ -127,6 +128,68 @@ public class SegmentColumnarIndexCreatorTest {
     }
   }
 
+  @Test
+  public void testParallelIndexCreation()
+      throws Exception {
+    Schema schema = new Schema.SchemaBuilder().addSingleValueDimension("stringColumn", DataType.STRING)
+        .addSingleValueDimension("intColumn", DataType.INT).addMultiValueDimension("mvColumn", DataType.INT)
+        .addMetric("longMetric", DataType.LONG).build();
+    TableConfig tableConfig = new TableConfigBuilder(TableType.OFFLINE).setTableName("test")
+        .setInvertedIndexColumns(ImmutableList.of("stringColumn", "mvColumn"))
+        .setNoDictionaryColumns(ImmutableList.of("longMetric")).setNullHandlingEnabled(true).build();
+
+    // Index more rows than a single batch of the parallel index creation
+    int numRows = 25_000;
+    List<GenericRow> rows = new ArrayList<>(numRows);
+    for (int i = 0; i < numRows; i++) {
+      GenericRow row = new GenericRow();
+      row.putValue("stringColumn", i % 10 == 0 ? null : "value" + (i % 1000));
+      row.putValue("intColumn", i % 777);
+      row.putValue("mvColumn", new Object[]{i % 3, i % 5});
+      row.putValue("longMetric", (long) i);
+      rows.add(row);
+    }
+
+    File singleThreadDir = new File(TEMP_DIR, "singleThread");
+    File multiThreadsDir = new File(TEMP_DIR, "multiThreads");
+    try {
+      IndexSegment expectedSegment = buildSegment(tableConfig, schema, rows, singleThreadDir, 1);
+      IndexSegment actualSegment = buildSegment(tableConfig, schema, rows, multiThreadsDir, 4);
+      assertEquals(actualSegment.getSegmentMetadata().getTotalDocs(), numRows);
+      assertEquals(actualSegment.getSegmentMetadata().getCrc(), expectedSegment.getSegmentMetadata().getCrc());
+
+      GenericRow expectedRow = new GenericRow();
+      GenericRow actualRow = new GenericRow();
+      for (int docId = 0; docId < numRows; docId++) {
+        expectedSegment.getRecord(docId, expectedRow);
+        actualSegment.getRecord(docId, actualRow);
+        for (String column : schema.getColumnNames()) {
+          assertEquals(actualRow.getValue(column), expectedRow.getValue(column));
+          assertEquals(actualRow.isNullValue(column), expectedRow.isNullValue(column));
+        }
+      }
+      expectedSegment.destroy();
+      actualSegment.destroy();
+    } finally {
+      FileUtils.deleteQuietly(singleThreadDir);
+      FileUtils.deleteQuietly(multiThreadsDir);
+    }
+  }
+
+  private static IndexSegment buildSegment(TableConfig tableConfig, Schema schema, List<GenericRow> rows, File outDir,
+      int numIndexCreationThreads)
+      throws Exception {
+    String segmentName = "testSegment";
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(tableConfig, schema);
+    config.setOutDir(outDir.getAbsolutePath());
+    config.setSegmentName(segmentName);
+    config.setNumIndexCreationThreads(numIndexCreationThreads);
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, new GenericRowRecordReader(rows));
+    driver.build();
+    return ImmutableSegmentLoader.load(new File(outDir, segmentName), ReadMode.heap);
+  }
+
   @AfterClass
   public void tearDown()
       throws IOException {
@@ -346,6 +346,117 @@ public class FixedByteChunkSVForwardIndexTest {
     testBackwardCompatibilityHelper("data/fixedByteSVRDoubles.v1", 10009, 0);
   }
 
+  @Test(dataProvider = "combinations")
+  public void testReadValuesSV(ChunkCompressionType compressionType, int version)
+      throws Exception {
+    if (version >= 4) {
+      return;
+    }
+    for (DataType dataType : new DataType[]{DataType.INT, DataType.LONG, DataType.FLOAT, DataType.DOUBLE}) {
+      testReadValuesSV(compressionType, version, dataType);
+    }
+  }
+
+  private void testReadValuesSV(ChunkCompressionType compressionType, int version, DataType dataType)
+      throws Exception {
+    Number[] expected = new Number[NUM_VALUES];
+    File outFile = new File(TEST_FILE);
+    FileUtils.deleteQuietly(outFile);
+    try (FixedByteChunkForwardIndexWriter writer = new FixedByteChunkForwardIndexWriter(outFile, compressionType,
+        NUM_VALUES, NUM_DOCS_PER_CHUNK, dataType.size(), version)) {
+      for (int i = 0; i < NUM_VALUES; i++) {
+        switch (dataType) {
+          case INT:
+            int intValue = RANDOM.nextInt();
+            expected[i] = intValue;
+            writer.putInt(intValue);
+            break;
+          case LONG:
+            long longValue = RANDOM.nextLong();
+            expected[i] = longValue;
+            writer.putLong(longValue);
+            break;
+          case FLOAT:
+            float floatValue = RANDOM.nextFloat();
+            expected[i] = floatValue;
+            writer.putFloat(floatValue);
+            break;
+          case DOUBLE:
+            double doubleValue = RANDOM.nextDouble();
+            expected[i] = doubleValue;
+            writer.putDouble(doubleValue);
+            break;
+          default:
+            throw new IllegalStateException("Unsupported data type: " + dataType);
+        }
+      }
+    }
+
+    try (FixedByteChunkSVForwardIndexReader reader = new FixedByteChunkSVForwardIndexReader(
+        PinotDataBuffer.mapReadOnlyBigEndianFile(outFile), dataType);
+        ChunkReaderContext readerContext = reader.createContext()) {
+      // Contiguous docIds spanning across chunks
+      int batchSize = 256;
+      int[] docIds = new int[batchSize];
+      for (int startDocId = 0; startDocId < NUM_VALUES; startDocId += batchSize) {
+        int length = Math.min(batchSize, NUM_VALUES - startDocId);
+        for (int i = 0; i < length; i++) {
+          docIds[i] = startDocId + i;
+        }
+        readAndVerifyValuesSV(reader, dataType, docIds, length, expected, readerContext);
+      }
+
+      // Sparse docIds spanning across chunks
+      int length = 0;
+      for (int docId = RANDOM.nextInt(7); docId < NUM_VALUES && length < batchSize; docId += 1 + RANDOM.nextInt(80)) {
+        docIds[length++] = docId;
+      }
+      readAndVerifyValuesSV(reader, dataType, docIds, length, expected, readerContext);
+    }
+
+    FileUtils.deleteQuietly(outFile);
+  }
+
+  private static void readAndVerifyValuesSV(FixedByteChunkSVForwardIndexReader reader, DataType dataType,
+      int[] docIds, int length, Number[] expected, ChunkReaderContext readerContext) {
+    switch (dataType) {
+      case INT: {
+        int[] values = new int[length];
+        reader.readValuesSV(docIds, length, values, readerContext);
+        for (int i = 0; i < length; i++) {
+          Assert.assertEquals(values[i], expected[docIds[i]].intValue());
+        }
+        break;
+      }
+      case LONG: {
+        long[] values = new long[length];
+        reader.readValuesSV(docIds, length, values, readerContext);
+        for (int i = 0; i < length; i++) {
+          Assert.assertEquals(values[i], expected[docIds[i]].longValue());
+        }
+        break;
+      }
+      case FLOAT: {
+        float[] values = new float[length];
+        reader.readValuesSV(docIds, length, values, readerContext);
+        for (int i = 0; i < length; i++) {
+          Assert.assertEquals(values[i], expected[docIds[i]].floatValue());
+        }
+        break;
+      }
+      case DOUBLE: {
+        double[] values = new double[length];
+        reader.readValuesSV(docIds, length, values, readerContext);
+        for (int i = 0; i < length; i++) {
+          Assert.assertEquals(values[i], expected[docIds[i]].doubleValue());
+        }
+        break;
+      }
+      default:
+        throw new IllegalStateException("Unsupported data type: " + dataType);
+    }
+  }
+
   /**
    * This test ensures that the reader can read in an data file from version 2.
    */
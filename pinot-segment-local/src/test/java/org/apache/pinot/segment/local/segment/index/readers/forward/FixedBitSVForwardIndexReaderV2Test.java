@@ -107,6 +107,32 @@ public class FixedBitSVForwardIndexReaderV2Test {
         for (int i = 0; i < NUM_DOC_IDS; i++) {
           Assert.assertEquals(dictIdBuffer[i], values[_lastSequentialDocIds[i]]);
         }
+
+        // Sequential docIds not aligned to the 32-value blocks, read with the block buffer in the context
+        FixedBitSVForwardIndexReaderV2.Context context = reader.createContext();
+        int[] docIds = new int[100];
+        for (int length = 1; length <= 100; length += 9) {
+          for (int startDocId : new int[]{0, 5, 31, 32, 1000 + length, NUM_VALUES - length - 40, NUM_VALUES - length}) {
+            for (int i = 0; i < length; i++) {
+              docIds[i] = startDocId + i;
+            }
+            reader.readDictIds(docIds, length, dictIdBuffer, context);
+            for (int i = 0; i < length; i++) {
+              Assert.assertEquals(dictIdBuffer[i], values[docIds[i]]);
+            }
+          }
+        }
+        for (int i = 0; i < 32; i++) {
+          int[] sequentialDocIds = _sequentialDocIds[i];
+          reader.readDictIds(sequentialDocIds, NUM_DOC_IDS, dictIdBuffer, context);
+          for (int j = 0; j < NUM_DOC_IDS; j++) {
+            Assert.assertEquals(dictIdBuffer[j], values[sequentialDocIds[j]]);
+          }
+        }
+        reader.readDictIds(_lastSequentialDocIds, NUM_DOC_IDS, dictIdBuffer, context);
+        for (int i = 0; i < NUM_DOC_IDS; i++) {
+          Assert.assertEquals(dictIdBuffer[i], values[_lastSequentialDocIds[i]]);
+        }
       }
 
       // Byte range test
@@ -0,0 +1,194 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.readers.sort;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentLoader;
+import org.apache.pinot.segment.local.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import org.apache.pinot.segment.local.segment.readers.GenericRowRecordReader;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.creator.SegmentGeneratorConfig;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.data.readers.RecordReader;
+import org.apache.pinot.spi.utils.ReadMode;
+import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+
+public class OffHeapRecordSorterTest {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "OffHeapRecordSorterTest");
+  private static final String STRING_COLUMN = "stringColumn";
+  private static final String INT_COLUMN = "intColumn";
+  private static final String MV_COLUMN = "mvColumn";
+  private static final String LONG_METRIC = "longMetric";
+  private static final int NUM_ROWS = 10_000;
+
+  private Schema _schema;
+  private List<GenericRow> _rows;
+
+  @BeforeClass
+  public void setUp()
+      throws IOException {
+    FileUtils.deleteDirectory(TEMP_DIR);
+    _schema = new Schema.SchemaBuilder().addSingleValueDimension(STRING_COLUMN, DataType.STRING)
+        .addSingleValueDimension(INT_COLUMN, DataType.INT).addMultiValueDimension(MV_COLUMN, DataType.INT)
+        .addMetric(LONG_METRIC, DataType.LONG).build();
+
+    Random random = new Random(42);
+    _rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      GenericRow row = new GenericRow();
+      row.putValue(STRING_COLUMN, "value" + random.nextInt(100));
+      row.putValue(INT_COLUMN, random.nextInt(1000));
+      row.putValue(MV_COLUMN, new Object[]{i % 3, i % 5});
+      row.putValue(LONG_METRIC, (long) i);
+      if (i % 10 == 0) {
+        row.addNullValueField(LONG_METRIC);
+      }
+      _rows.add(row);
+    }
+  }
+
+  @Test
+  public void testSort()
+      throws IOException {
+    File stagingDir = new File(TEMP_DIR, "staging");
+    OffHeapRecordSorter sorter = new OffHeapRecordSorter(stagingDir, _schema, Arrays.asList(STRING_COLUMN, INT_COLUMN));
+    for (GenericRow row : _rows) {
+      sorter.add(row);
+    }
+    assertEquals(sorter.getNumRows(), NUM_ROWS);
+
+    try (RecordReader recordReader = sorter.sort()) {
+      // Read twice to verify the rewind
+      for (int i = 0; i < 2; i++) {
+        GenericRow previousRow = null;
+        int numRows = 0;
+        while (recordReader.hasNext()) {
+          GenericRow row = recordReader.next();
+          if (previousRow != null) {
+            int result = ((String) previousRow.getValue(STRING_COLUMN)).compareTo((String) row.getValue(STRING_COLUMN));
+            assertTrue(result < 0 || (result == 0
+                && (int) previousRow.getValue(INT_COLUMN) <= (int) row.getValue(INT_COLUMN)));
+          }
+          // Verify the staged row against the original row
+          GenericRow expectedRow = _rows.get((int) (long) row.getValue(LONG_METRIC));
+          assertEquals(row.getValue(STRING_COLUMN), expectedRow.getValue(STRING_COLUMN));
+          assertEquals(row.getValue(INT_COLUMN), expectedRow.getValue(INT_COLUMN));
+          assertEquals((Object[]) row.getValue(MV_COLUMN), (Object[]) expectedRow.getValue(MV_COLUMN));
+          assertEquals(row.getNullValueFields(), expectedRow.getNullValueFields());
+          previousRow = row;
+          numRows++;
+        }
+        assertEquals(numRows, NUM_ROWS);
+        recordReader.rewind();
+      }
+    }
+    assertFalse(stagingDir.exists());
+  }
+
+  @Test
+  public void testSortEmpty()
+      throws IOException {
+    File stagingDir = new File(TEMP_DIR, "emptyStaging");
+    OffHeapRecordSorter sorter = new OffHeapRecordSorter(stagingDir, _schema, Arrays.asList(INT_COLUMN));
+    try (RecordReader recordReader = sorter.sort()) {
+      assertFalse(recordReader.hasNext());
+    }
+    assertFalse(stagingDir.exists());
+  }
+
+  @Test
+  public void testSegmentCreation()
+      throws Exception {
+    TableConfig tableConfig = new TableConfigBuilder(TableType.OFFLINE).setTableName("test")
+        .setSortedColumn(INT_COLUMN).setNullHandlingEnabled(true).build();
+    String segmentName = "testSegment";
+    File outDir = new File(TEMP_DIR, "segment");
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(tableConfig, _schema);
+    config.setOutDir(outDir.getAbsolutePath());
+    config.setSegmentName(segmentName);
+    config.setOffHeapSortEnabled(true);
+    // Use raw records with actual null values, which are transformed before being staged
+    List<GenericRow> rawRows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      GenericRow rawRow = new GenericRow();
+      GenericRow row = _rows.get(i);
+      rawRow.putValue(STRING_COLUMN, i % 10 == 0 ? null : row.getValue(STRING_COLUMN));
+      rawRow.putValue(INT_COLUMN, row.getValue(INT_COLUMN));
+      rawRow.putValue(MV_COLUMN, row.getValue(MV_COLUMN));
+      rawRow.putValue(LONG_METRIC, row.getValue(LONG_METRIC));
+      rawRows.add(rawRow);
+    }
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, new GenericRowRecordReader(rawRows));
+    driver.build();
+
+    IndexSegment segment = ImmutableSegmentLoader.load(new File(outDir, segmentName), ReadMode.heap);
+    try {
+      assertEquals(segment.getSegmentMetadata().getTotalDocs(), NUM_ROWS);
+      assertTrue(segment.getSegmentMetadata().getColumnMetadataFor(INT_COLUMN).isSorted());
+      GenericRow row = new GenericRow();
+      int previousValue = Integer.MIN_VALUE;
+      for (int docId = 0; docId < NUM_ROWS; docId++) {
+        row.clear();
+        segment.getRecord(docId, row);
+        int value = (int) row.getValue(INT_COLUMN);
+        assertTrue(previousValue <= value);
+        previousValue = value;
+        GenericRow expectedRow = rawRows.get((int) (long) row.getValue(LONG_METRIC));
+        assertEquals(value, expectedRow.getValue(INT_COLUMN));
+        if (expectedRow.getValue(STRING_COLUMN) == null) {
+          assertTrue(row.isNullValue(STRING_COLUMN));
+        } else {
+          assertFalse(row.isNullValue(STRING_COLUMN));
+          assertEquals(row.getValue(STRING_COLUMN), expectedRow.getValue(STRING_COLUMN));
+        }
+      }
+    } finally {
+      segment.destroy();
+    }
+
+    // The staged records should be cleaned up
+    File[] stagingDirs = outDir.listFiles((dir, name) -> name.startsWith("sort-"));
+    assertEquals(stagingDirs.length, 0);
+  }
+
+  @AfterClass
+  public void tearDown()
+      throws IOException {
+    FileUtils.deleteDirectory(TEMP_DIR);
+  }
+}
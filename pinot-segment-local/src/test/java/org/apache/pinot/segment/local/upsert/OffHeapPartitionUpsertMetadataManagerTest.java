@@ -0,0 +1,295 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.utils.LLCSegmentName;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentImpl;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.MutableSegment;
+import org.apache.pinot.segment.spi.datasource.DataSource;
+import org.apache.pinot.segment.spi.index.metadata.SegmentMetadataImpl;
+import org.apache.pinot.segment.spi.index.mutable.ThreadSafeMutableRoaringBitmap;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReader;
+import org.apache.pinot.spi.config.table.HashFunction;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+import org.apache.pinot.spi.utils.builder.TableNameBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+
+public class OffHeapPartitionUpsertMetadataManagerTest {
+  private static final String RAW_TABLE_NAME = "testTable";
+  private static final String REALTIME_TABLE_NAME = TableNameBuilder.REALTIME.tableNameWithType(RAW_TABLE_NAME);
+  private static final String PRIMARY_KEY_COLUMN = "pk";
+  private static final String COMPARISON_COLUMN = "timeCol";
+  private static final Schema SCHEMA = new Schema.SchemaBuilder().setSchemaName(RAW_TABLE_NAME)
+      .addSingleValueDimension(PRIMARY_KEY_COLUMN, DataType.INT)
+      .addSingleValueDimension(COMPARISON_COLUMN, DataType.INT)
+      .setPrimaryKeyColumns(Collections.singletonList(PRIMARY_KEY_COLUMN))
+      .build();
+  private static final File INDEX_DIR =
+      new File(FileUtils.getTempDirectory(), "OffHeapPartitionUpsertMetadataManagerTest");
+
+  @BeforeClass
+  public void setUp()
+      throws IOException {
+    FileUtils.forceMkdir(INDEX_DIR);
+    ServerMetrics.register(mock(ServerMetrics.class));
+  }
+
+  @AfterClass
+  public void tearDown()
+      throws IOException {
+    FileUtils.forceDelete(INDEX_DIR);
+  }
+
+  @Test
+  public void testPrimaryKeyMap()
+      throws IOException {
+    try (OffHeapPrimaryKeyMap map = new OffHeapPrimaryKeyMap(16, "testPrimaryKeyMap")) {
+      int numKeys = 10_000;
+      for (int i = 0; i < numKeys; i++) {
+        map.put(i, -i, 1 + i % 3, i, 1000L + i);
+      }
+      assertEquals(map.size(), numKeys);
+      assertTrue(map.getCapacity() >= numKeys / 0.75);
+      for (int i = 0; i < numKeys; i++) {
+        long slot = map.find(i, -i);
+        assertTrue(slot >= 0);
+        assertEquals(map.getKeyHigh(slot), i);
+        assertEquals(map.getKeyLow(slot), -i);
+        assertEquals(map.getSegmentId(slot), 1 + i % 3);
+        assertEquals(map.getDocId(slot), i);
+        assertEquals(map.getComparisonValue(slot), 1000L + i);
+      }
+      assertEquals(map.find(numKeys, -numKeys), -1);
+
+      // Overwrite the existing keys
+      map.put(0, 0, 5, 50, 5000L);
+      long slot = map.find(0, 0);
+      assertEquals(map.getSegmentId(slot), 5);
+      assertEquals(map.getDocId(slot), 50);
+      assertEquals(map.getComparisonValue(slot), 5000L);
+      assertEquals(map.size(), numKeys);
+
+      // Remove half of the keys, and the probing chains should still work for the remaining keys
+      for (int i = 0; i < numKeys; i += 2) {
+        map.remove(map.find(i, -i));
+      }
+      assertEquals(map.size(), numKeys / 2);
+      for (int i = 0; i < numKeys; i++) {
+        assertEquals(map.find(i, -i) >= 0, i % 2 == 1);
+      }
+
+      // Re-insert the removed keys
+      for (int i = 0; i < numKeys; i += 2) {
+        map.put(i, -i, 4, i, 2000L + i);
+      }
+      assertEquals(map.size(), numKeys);
+      for (int i = 0; i < numKeys; i++) {
+        slot = map.find(i, -i);
+        assertEquals(map.getComparisonValue(slot), i % 2 == 0 ? 2000L + i : 1000L + i);
+      }
+    }
+  }
+
+  @Test
+  public void testAddReplaceRemoveSegment()
+      throws IOException {
+    verifyAddReplaceRemoveSegment(HashFunction.NONE);
+    verifyAddReplaceRemoveSegment(HashFunction.MD5);
+    verifyAddReplaceRemoveSegment(HashFunction.MURMUR3);
+  }
+
+  private void verifyAddReplaceRemoveSegment(HashFunction hashFunction)
+      throws IOException {
+    OffHeapPartitionUpsertMetadataManager upsertMetadataManager =
+        new OffHeapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0, createContext(hashFunction));
+
+    // segment1: 0 -> {5, 100}, 1 -> {4, 120}, 2 -> {2, 100}
+    int[] primaryKeys1 = new int[]{0, 1, 2, 0, 1, 0};
+    int[] timestamps1 = new int[]{100, 100, 100, 80, 120, 100};
+    ThreadSafeMutableRoaringBitmap validDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment1 = mockImmutableSegment(1, validDocIds1, primaryKeys1);
+    upsertMetadataManager.addSegment(segment1, validDocIds1, null,
+        getRecordInfoList(primaryKeys1, timestamps1).iterator());
+    upsertMetadataManager._trackedSegments.add(segment1);
+    assertEquals(upsertMetadataManager._primaryKeyMap.size(), 3);
+    checkRecordLocation(upsertMetadataManager, 0, segment1, 5, 100);
+    checkRecordLocation(upsertMetadataManager, 1, segment1, 4, 120);
+    checkRecordLocation(upsertMetadataManager, 2, segment1, 2, 100);
+    assertEquals(validDocIds1.getMutableRoaringBitmap().toArray(), new int[]{2, 4, 5});
+
+    // segment1: 1 -> {4, 120}
+    // segment2: 0 -> {0, 100}, 2 -> {1, 120}, 3 -> {2, 80}
+    int[] primaryKeys2 = new int[]{0, 2, 3};
+    int[] timestamps2 = new int[]{100, 120, 80};
+    ThreadSafeMutableRoaringBitmap validDocIds2 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment2 = mockImmutableSegment(2, validDocIds2, primaryKeys2);
+    upsertMetadataManager.addSegment(segment2, validDocIds2, null,
+        getRecordInfoList(primaryKeys2, timestamps2).iterator());
+    upsertMetadataManager._trackedSegments.add(segment2);
+    assertEquals(upsertMetadataManager._primaryKeyMap.size(), 4);
+    checkRecordLocation(upsertMetadataManager, 0, segment2, 0, 100);
+    checkRecordLocation(upsertMetadataManager, 1, segment1, 4, 120);
+    checkRecordLocation(upsertMetadataManager, 2, segment2, 1, 120);
+    checkRecordLocation(upsertMetadataManager, 3, segment2, 2, 80);
+    assertEquals(validDocIds1.getMutableRoaringBitmap().toArray(), new int[]{4});
+    assertEquals(validDocIds2.getMutableRoaringBitmap().toArray(), new int[]{0, 1, 2});
+
+    // Replace segment2 with the same records
+    ThreadSafeMutableRoaringBitmap newValidDocIds2 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl newSegment2 = mockImmutableSegment(2, newValidDocIds2, primaryKeys2);
+    upsertMetadataManager.replaceSegment(newSegment2, newValidDocIds2, null,
+        getRecordInfoList(primaryKeys2, timestamps2).iterator(), segment2);
+    upsertMetadataManager._trackedSegments.add(newSegment2);
+    upsertMetadataManager._trackedSegments.remove(segment2);
+    assertEquals(upsertMetadataManager._primaryKeyMap.size(), 4);
+    checkRecordLocation(upsertMetadataManager, 0, newSegment2, 0, 100);
+    checkRecordLocation(upsertMetadataManager, 1, segment1, 4, 120);
+    checkRecordLocation(upsertMetadataManager, 2, newSegment2, 1, 120);
+    checkRecordLocation(upsertMetadataManager, 3, newSegment2, 2, 80);
+    assertEquals(newValidDocIds2.getMutableRoaringBitmap().toArray(), new int[]{0, 1, 2});
+
+    // Remove segment1
+    upsertMetadataManager.removeSegment(segment1);
+    assertEquals(upsertMetadataManager._primaryKeyMap.size(), 3);
+    assertNull(upsertMetadataManager.getRecordLocation(makePrimaryKey(1)));
+    checkRecordLocation(upsertMetadataManager, 0, newSegment2, 0, 100);
+
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+  }
+
+  @Test
+  public void testAddRecord()
+      throws IOException {
+    OffHeapPartitionUpsertMetadataManager upsertMetadataManager =
+        new OffHeapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0, createContext(HashFunction.NONE));
+
+    // segment1: 0 -> {0, 100}, 1 -> {1, 120}, 2 -> {2, 100}
+    int[] primaryKeys = new int[]{0, 1, 2};
+    int[] timestamps = new int[]{100, 120, 100};
+    ThreadSafeMutableRoaringBitmap validDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment1 = mockImmutableSegment(1, validDocIds1, primaryKeys);
+    upsertMetadataManager.addSegment(segment1, validDocIds1, null,
+        getRecordInfoList(primaryKeys, timestamps).iterator());
+
+    // Newer record replaces the existing one, out-of-order record is skipped
+    ThreadSafeMutableRoaringBitmap validDocIds2 = new ThreadSafeMutableRoaringBitmap();
+    MutableSegment segment2 = mockMutableSegment(2, validDocIds2);
+    assertTrue(upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(3), 0, 100, false)));
+    assertTrue(upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(2), 1, 120, false)));
+    assertFalse(upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(1), 2, 100, false)));
+    assertTrue(upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(0), 3, 100, false)));
+
+    // segment1: 1 -> {1, 120}
+    // segment2: 0 -> {3, 100}, 2 -> {1, 120}, 3 -> {0, 100}
+    checkRecordLocation(upsertMetadataManager, 0, segment2, 3, 100);
+    checkRecordLocation(upsertMetadataManager, 1, segment1, 1, 120);
+    checkRecordLocation(upsertMetadataManager, 2, segment2, 1, 120);
+    checkRecordLocation(upsertMetadataManager, 3, segment2, 0, 100);
+    assertEquals(validDocIds1.getMutableRoaringBitmap().toArray(), new int[]{1});
+    assertEquals(validDocIds2.getMutableRoaringBitmap().toArray(), new int[]{0, 1, 3});
+
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+  }
+
+  private static UpsertContext createContext(HashFunction hashFunction) {
+    return new UpsertContext.Builder().setTableConfig(mock(TableConfig.class)).setSchema(SCHEMA)
+        .setPrimaryKeyColumns(Collections.singletonList(PRIMARY_KEY_COLUMN))
+        .setComparisonColumns(Collections.singletonList(COMPARISON_COLUMN)).setHashFunction(hashFunction)
+        .setTableIndexDir(INDEX_DIR).build();
+  }
+
+  private static List<RecordInfo> getRecordInfoList(int[] primaryKeys, int[] timestamps) {
+    List<RecordInfo> recordInfoList = new ArrayList<>(primaryKeys.length);
+    for (int i = 0; i < primaryKeys.length; i++) {
+      recordInfoList.add(new RecordInfo(makePrimaryKey(primaryKeys[i]), i, timestamps[i], false));
+    }
+    return recordInfoList;
+  }
+
+  private static ImmutableSegmentImpl mockImmutableSegment(int sequenceNumber,
+      ThreadSafeMutableRoaringBitmap validDocIds, int[] primaryKeys) {
+    ImmutableSegmentImpl segment = mock(ImmutableSegmentImpl.class);
+    when(segment.getSegmentName()).thenReturn(getSegmentName(sequenceNumber));
+    when(segment.getValidDocIds()).thenReturn(validDocIds);
+    DataSource dataSource = mock(DataSource.class);
+    when(segment.getDataSource(anyString())).thenReturn(dataSource);
+    ForwardIndexReader forwardIndex = mock(ForwardIndexReader.class);
+    when(forwardIndex.isSingleValue()).thenReturn(true);
+    when(forwardIndex.getStoredType()).thenReturn(DataType.INT);
+    when(forwardIndex.getInt(anyInt(), any())).thenAnswer(
+        invocation -> primaryKeys[(int) invocation.getArgument(0)]);
+    when(dataSource.getForwardIndex()).thenReturn(forwardIndex);
+    SegmentMetadataImpl segmentMetadata = mock(SegmentMetadataImpl.class);
+    when(segmentMetadata.getIndexCreationTime()).thenReturn(System.currentTimeMillis());
+    when(segment.getSegmentMetadata()).thenReturn(segmentMetadata);
+    return segment;
+  }
+
+  private static MutableSegment mockMutableSegment(int sequenceNumber, ThreadSafeMutableRoaringBitmap validDocIds) {
+    MutableSegment segment = mock(MutableSegment.class);
+    when(segment.getSegmentName()).thenReturn(getSegmentName(sequenceNumber));
+    when(segment.getValidDocIds()).thenReturn(validDocIds);
+    return segment;
+  }
+
+  private static String getSegmentName(int sequenceNumber) {
+    return new LLCSegmentName(RAW_TABLE_NAME, 0, sequenceNumber, System.currentTimeMillis()).toString();
+  }
+
+  private static PrimaryKey makePrimaryKey(int value) {
+    return new PrimaryKey(new Object[]{value});
+  }
+
+  private static void checkRecordLocation(OffHeapPartitionUpsertMetadataManager upsertMetadataManager, int keyValue,
+      IndexSegment segment, int docId, int comparisonValue) {
+    Object[] recordLocation = upsertMetadataManager.getRecordLocation(makePrimaryKey(keyValue));
+    assertNotNull(recordLocation);
+    assertSame(recordLocation[0], segment);
+    assertEquals(recordLocation[1], docId);
+    assertEquals(recordLocation[2], comparisonValue);
+  }
+}
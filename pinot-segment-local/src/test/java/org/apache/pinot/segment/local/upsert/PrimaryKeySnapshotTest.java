@@ -0,0 +1,279 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.utils.LLCSegmentName;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentImpl;
+import org.apache.pinot.segment.local.upsert.ConcurrentMapPartitionUpsertMetadataManager.RecordLocation;
+import org.apache.pinot.segment.local.utils.HashUtils;
+import org.apache.pinot.segment.spi.MutableSegment;
+import org.apache.pinot.segment.spi.V1Constants;
+import org.apache.pinot.segment.spi.datasource.DataSource;
+import org.apache.pinot.segment.spi.index.metadata.SegmentMetadataImpl;
+import org.apache.pinot.segment.spi.index.mutable.ThreadSafeMutableRoaringBitmap;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReader;
+import org.apache.pinot.spi.config.table.HashFunction;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+import org.apache.pinot.spi.utils.builder.TableNameBuilder;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+
+public class PrimaryKeySnapshotTest {
+  private static final String RAW_TABLE_NAME = "testTable";
+  private static final String REALTIME_TABLE_NAME = TableNameBuilder.REALTIME.tableNameWithType(RAW_TABLE_NAME);
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "PrimaryKeySnapshotTest");
+
+  @BeforeClass
+  public void setUpClass() {
+    ServerMetrics.register(mock(ServerMetrics.class));
+  }
+
+  @BeforeMethod
+  public void setUp()
+      throws IOException {
+    FileUtils.deleteQuietly(INDEX_DIR);
+    FileUtils.forceMkdir(INDEX_DIR);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Test
+  public void testPersistAndLoad()
+      throws IOException {
+    verifyPersistAndLoad(HashFunction.NONE);
+    verifyPersistAndLoad(HashFunction.MD5);
+    verifyPersistAndLoad(HashFunction.MURMUR3);
+  }
+
+  private void verifyPersistAndLoad(HashFunction hashFunction)
+      throws IOException {
+    FileUtils.cleanDirectory(INDEX_DIR);
+    ConcurrentMapPartitionUpsertMetadataManager upsertMetadataManager =
+        new ConcurrentMapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0, createContext(hashFunction));
+
+    // segment1: 0 -> {5, 100}, 1 -> {4, 120}, 2 -> {2, 100}
+    int[] primaryKeys1 = new int[]{0, 1, 2, 0, 1, 0};
+    int[] timestamps1 = new int[]{100, 100, 100, 80, 120, 100};
+    ThreadSafeMutableRoaringBitmap validDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment1 = mockImmutableSegment(1, validDocIds1, primaryKeys1, timestamps1, "1111");
+    upsertMetadataManager.addSegment(segment1, validDocIds1, null,
+        getRecordInfoList(primaryKeys1, timestamps1).iterator());
+    upsertMetadataManager._trackedSegments.add(segment1);
+
+    // segment2: 3 -> {0, 100}, 4 -> {1, 100}
+    int[] primaryKeys2 = new int[]{3, 4};
+    int[] timestamps2 = new int[]{100, 100};
+    ThreadSafeMutableRoaringBitmap validDocIds2 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment2 = mockImmutableSegment(2, validDocIds2, primaryKeys2, timestamps2, "2222");
+    upsertMetadataManager.addSegment(segment2, validDocIds2, null,
+        getRecordInfoList(primaryKeys2, timestamps2).iterator());
+    upsertMetadataManager._trackedSegments.add(segment2);
+
+    // segment2 is updated after the last validDocIds snapshot, so it should not be included
+    upsertMetadataManager._updatedSegmentsSinceLastSnapshot.add(segment2);
+    List<PrimaryKeySnapshot.SegmentState> segmentStates = upsertMetadataManager.capturePrimaryKeySnapshotSegments();
+    assertEquals(segmentStates.size(), 1);
+    upsertMetadataManager.persistPrimaryKeySnapshot(segmentStates);
+    File primaryKeySnapshotFile =
+        new File(INDEX_DIR, V1Constants.UPSERT_PRIMARY_KEY_SNAPSHOT_TABLE_PARTITION + 0);
+    assertTrue(primaryKeySnapshotFile.exists());
+    PrimaryKeySnapshot primaryKeySnapshot = PrimaryKeySnapshot.open(primaryKeySnapshotFile);
+    assertEquals(primaryKeySnapshot.getNumSegments(), 1);
+    assertNull(primaryKeySnapshot.getSegmentInfo(segment2.getSegmentName()));
+    PrimaryKeySnapshot.SegmentInfo segmentInfo = primaryKeySnapshot.getSegmentInfo(segment1.getSegmentName());
+    assertNotNull(segmentInfo);
+    assertEquals(segmentInfo.getNumEntries(), 3);
+    assertTrue(segmentInfo.isValid("1111", validDocIds1.getMutableRoaringBitmap()));
+    assertFalse(segmentInfo.isValid("1112", validDocIds1.getMutableRoaringBitmap()));
+    assertFalse(segmentInfo.isValid("1111", MutableRoaringBitmap.bitmapOf(2, 4)));
+    assertFalse(segmentInfo.isValid("1111", MutableRoaringBitmap.bitmapOf(2, 4, 6)));
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+
+    // Preload segment1 from the primary key snapshot without reading the segment, and segment2 from the validDocIds
+    // snapshot
+    ConcurrentMapPartitionUpsertMetadataManager newUpsertMetadataManager =
+        new ConcurrentMapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0, createContext(hashFunction));
+    newUpsertMetadataManager.loadPrimaryKeySnapshot();
+    ImmutableSegmentImpl newSegment1 = mockImmutableSegment(1, null, null, null, "1111");
+    when(newSegment1.getSegmentName()).thenReturn(segment1.getSegmentName());
+    when(newSegment1.loadValidDocIdsFromSnapshot()).thenReturn(validDocIds1.getMutableRoaringBitmap());
+    newUpsertMetadataManager.doPreloadSegment(newSegment1);
+    ImmutableSegmentImpl newSegment2 = mockImmutableSegment(2, null, primaryKeys2, timestamps2, "2222");
+    when(newSegment2.loadValidDocIdsFromSnapshot()).thenReturn(validDocIds2.getMutableRoaringBitmap());
+    newUpsertMetadataManager.doPreloadSegment(newSegment2);
+    // Record locations of segment1 are streamed from the primary key snapshot after preloading all segments
+    assertEquals(newUpsertMetadataManager._primaryKeyToRecordLocationMap.size(), 2);
+    newUpsertMetadataManager.addRecordLocationsFromPrimaryKeySnapshot();
+
+    Map<Object, RecordLocation> recordLocationMap = newUpsertMetadataManager._primaryKeyToRecordLocationMap;
+    assertEquals(recordLocationMap.size(), 5);
+    checkRecordLocation(recordLocationMap, 0, newSegment1, 5, 100, hashFunction);
+    checkRecordLocation(recordLocationMap, 1, newSegment1, 4, 120, hashFunction);
+    checkRecordLocation(recordLocationMap, 2, newSegment1, 2, 100, hashFunction);
+    checkRecordLocation(recordLocationMap, 3, newSegment2, 0, 100, hashFunction);
+    checkRecordLocation(recordLocationMap, 4, newSegment2, 1, 100, hashFunction);
+    newUpsertMetadataManager.stop();
+    newUpsertMetadataManager.close();
+  }
+
+  @Test
+  public void testIncompleteSnapshot()
+      throws IOException {
+    ConcurrentMapPartitionUpsertMetadataManager upsertMetadataManager =
+        new ConcurrentMapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0, createContext(HashFunction.NONE));
+    int[] primaryKeys = new int[]{0, 1, 2};
+    int[] timestamps = new int[]{100, 100, 100};
+    ThreadSafeMutableRoaringBitmap validDocIds = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment = mockImmutableSegment(1, validDocIds, primaryKeys, timestamps, "1111");
+    upsertMetadataManager.addSegment(segment, validDocIds, null, getRecordInfoList(primaryKeys, timestamps).iterator());
+    upsertMetadataManager._trackedSegments.add(segment);
+    List<PrimaryKeySnapshot.SegmentState> segmentStates = upsertMetadataManager.capturePrimaryKeySnapshotSegments();
+
+    // Simulate the primary key map being updated concurrently while persisting the snapshot, where a record location
+    // of the captured segment is replaced by the consuming segment
+    upsertMetadataManager._primaryKeyToRecordLocationMap.put(makePrimaryKey(1),
+        new RecordLocation(mock(MutableSegment.class), 0, 200));
+    upsertMetadataManager.persistPrimaryKeySnapshot(segmentStates);
+
+    PrimaryKeySnapshot primaryKeySnapshot =
+        PrimaryKeySnapshot.open(new File(INDEX_DIR, V1Constants.UPSERT_PRIMARY_KEY_SNAPSHOT_TABLE_PARTITION + 0));
+    PrimaryKeySnapshot.SegmentInfo segmentInfo = primaryKeySnapshot.getSegmentInfo(segment.getSegmentName());
+    assertNotNull(segmentInfo);
+    assertEquals(segmentInfo.getNumEntries(), 2);
+    // The snapshot of the segment is incomplete, so it should not be used
+    assertFalse(segmentInfo.isValid("1111", MutableRoaringBitmap.bitmapOf(0, 1, 2)));
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+  }
+
+  @Test
+  public void testCorruptedSnapshot()
+      throws IOException {
+    File primaryKeySnapshotFile = new File(INDEX_DIR, "corrupted");
+    FileUtils.writeByteArrayToFile(primaryKeySnapshotFile, new byte[]{0, 0, 0, 1, 0, 0, 0, 0, -1, -1, -1, -1, 0, 0});
+    try {
+      PrimaryKeySnapshot.open(primaryKeySnapshotFile);
+      throw new AssertionError("Expected IOException for corrupted snapshot");
+    } catch (IOException e) {
+      // Expected
+    }
+  }
+
+  private static UpsertContext createContext(HashFunction hashFunction) {
+    Schema schema = new Schema.SchemaBuilder().setSchemaName(RAW_TABLE_NAME)
+        .addSingleValueDimension("pk", DataType.INT)
+        .addSingleValueDimension("timeCol", DataType.INT)
+        .setPrimaryKeyColumns(Collections.singletonList("pk"))
+        .build();
+    return new UpsertContext.Builder().setTableConfig(mock(TableConfig.class)).setSchema(schema)
+        .setPrimaryKeyColumns(Collections.singletonList("pk"))
+        .setComparisonColumns(Collections.singletonList("timeCol"))
+        .setHashFunction(hashFunction).setEnableSnapshot(true).setEnablePreload(true).setEnablePrimaryKeySnapshot(true)
+        .setTableIndexDir(INDEX_DIR).build();
+  }
+
+  private static List<RecordInfo> getRecordInfoList(int[] primaryKeys, int[] timestamps) {
+    List<RecordInfo> recordInfoList = new ArrayList<>(primaryKeys.length);
+    for (int i = 0; i < primaryKeys.length; i++) {
+      recordInfoList.add(new RecordInfo(makePrimaryKey(primaryKeys[i]), i, timestamps[i], false));
+    }
+    return recordInfoList;
+  }
+
+  /**
+   * When primary keys are not provided, reading the segment fails so that the segment must be preloaded from the
+   * primary key snapshot.
+   */
+  private static ImmutableSegmentImpl mockImmutableSegment(int sequenceNumber,
+      ThreadSafeMutableRoaringBitmap validDocIds, int[] primaryKeys, int[] timestamps, String crc) {
+    ImmutableSegmentImpl segment = mock(ImmutableSegmentImpl.class);
+    when(segment.getSegmentName()).thenReturn(
+        new LLCSegmentName(RAW_TABLE_NAME, 0, sequenceNumber, System.currentTimeMillis()).toString());
+    when(segment.getValidDocIds()).thenReturn(validDocIds);
+    when(segment.hasValidDocIdsSnapshotFile()).thenReturn(true);
+    if (primaryKeys != null) {
+      DataSource primaryKeyDataSource = mockDataSource(primaryKeys);
+      when(segment.getDataSource("pk")).thenReturn(primaryKeyDataSource);
+      DataSource comparisonDataSource = mockDataSource(timestamps);
+      when(segment.getDataSource("timeCol")).thenReturn(comparisonDataSource);
+    } else {
+      when(segment.getDataSource(anyString())).thenThrow(new IllegalStateException("Segment should not be read"));
+    }
+    SegmentMetadataImpl segmentMetadata = mock(SegmentMetadataImpl.class);
+    when(segmentMetadata.getIndexCreationTime()).thenReturn(System.currentTimeMillis());
+    when(segmentMetadata.getCrc()).thenReturn(crc);
+    when(segment.getSegmentMetadata()).thenReturn(segmentMetadata);
+    return segment;
+  }
+
+  private static DataSource mockDataSource(int[] values) {
+    DataSource dataSource = mock(DataSource.class);
+    ForwardIndexReader forwardIndex = mock(ForwardIndexReader.class);
+    when(forwardIndex.isSingleValue()).thenReturn(true);
+    when(forwardIndex.getStoredType()).thenReturn(DataType.INT);
+    when(forwardIndex.getInt(anyInt(), any())).thenAnswer(invocation -> values[(int) invocation.getArgument(0)]);
+    when(dataSource.getForwardIndex()).thenReturn(forwardIndex);
+    return dataSource;
+  }
+
+  private static PrimaryKey makePrimaryKey(int value) {
+    return new PrimaryKey(new Object[]{value});
+  }
+
+  private static void checkRecordLocation(Map<Object, RecordLocation> recordLocationMap, int keyValue,
+      ImmutableSegmentImpl segment, int docId, int comparisonValue, HashFunction hashFunction) {
+    RecordLocation recordLocation =
+        recordLocationMap.get(HashUtils.hashPrimaryKey(makePrimaryKey(keyValue), hashFunction));
+    assertNotNull(recordLocation);
+    assertSame(recordLocation.getSegment(), segment);
+    assertEquals(recordLocation.getDocId(), docId);
+    assertEquals(recordLocation.getComparisonValue(), comparisonValue);
+  }
+}
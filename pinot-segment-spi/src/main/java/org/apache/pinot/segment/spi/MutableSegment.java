@@ -20,6 +20,7 @@ package org.apache.pinot.segment.spi;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import javax.annotation.Nullable;
 import org.apache.pinot.spi.data.readers.GenericRow;
 import org.apache.pinot.spi.stream.RowMetadata;
@@ -37,6 +38,25 @@ public interface MutableSegment extends IndexSegment {
   boolean index(GenericRow row, @Nullable RowMetadata rowMetadata)
       throws IOException;
 
+  /**
+   * Indexes a batch of records into the segment with optionally provided metadata shared by all the records. The
+   * records are indexed in the given order, and become queryable after the whole batch is indexed.
+   * <p>The default implementation indexes the records one by one. Implementations can override it to index the batch
+   * column by column.
+   *
+   * @param rows Records represented as {@link GenericRow}s
+   * @param rowMetadata the metadata associated with the message
+   * @return Whether the segment can index more records into it after the batch
+   */
+  default boolean index(List<GenericRow> rows, @Nullable RowMetadata rowMetadata)
+      throws IOException {
+    boolean canTakeMore = true;
+    for (GenericRow row : rows) {
+      canTakeMore = index(row, rowMetadata);
+    }
+    return canTakeMore;
+  }
+
   /**
    * Returns the number of records already indexed into the segment.
    *
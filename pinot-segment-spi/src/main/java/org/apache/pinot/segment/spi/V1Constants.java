@@ -27,6 +27,7 @@ public class V1Constants {
   public static final String INDEX_FILE_NAME = "columns.psf";
   public static final String VALID_DOC_IDS_SNAPSHOT_FILE_NAME = "validdocids.bitmap.snapshot";
   public static final String TTL_WATERMARK_TABLE_PARTITION = "ttl.watermark.partition.";
+  public static final String UPSERT_PRIMARY_KEY_SNAPSHOT_TABLE_PARTITION = "upsert.primary.key.snapshot.partition.";
 
   public static class Str {
     public static final char DEFAULT_STRING_PAD_CHAR = '\0';
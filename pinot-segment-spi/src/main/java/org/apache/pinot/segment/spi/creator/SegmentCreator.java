@@ -22,7 +22,9 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.List;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
 import javax.annotation.Nullable;
 import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.apache.pinot.segment.spi.IndexSegment;
@@ -58,6 +60,20 @@ public interface SegmentCreator extends Closeable, Serializable {
   void indexRow(GenericRow row)
       throws IOException;
 
+  /**
+   * Adds a batch of rows to the index. When an executor is provided, the columns of the batch can be indexed in
+   * parallel with it.
+   *
+   * @param rows The rows to index.
+   * @param executorService - If not null, the executor used to index the columns in parallel.
+   */
+  default void indexRows(List<GenericRow> rows, @Nullable ExecutorService executorService)
+      throws IOException {
+    for (GenericRow row : rows) {
+      indexRow(row);
+    }
+  }
+
   /**
    * Adds a column to the index.
    *
@@ -116,6 +116,10 @@ public class SegmentGeneratorConfig implements Serializable {
   private double _noDictionarySizeRatioThreshold = IndexingConfig.DEFAULT_NO_DICTIONARY_SIZE_RATIO_THRESHOLD;
   private Double _noDictionaryCardinalityRatioThreshold;
   private boolean _realtimeConversion = false;
+  // Number of threads used to create the column indexes in parallel, where 1 means single-threaded
+  private int _numIndexCreationThreads = 1;
+  // Whether to stage and sort the records on the sorted column off-heap before building the segment
+  private boolean _offHeapSortEnabled = false;
   // consumerDir contains data from the consuming segment, and is used during _realtimeConversion optimization
   private File _consumerDir;
   private final Map<String, FieldIndexConfigs> _indexConfigsByColName;
@@ -172,6 +176,8 @@ public class SegmentGeneratorConfig implements Serializable {
     _optimizeDictionaryType = indexingConfig.isOptimizeDictionaryType();
     _noDictionarySizeRatioThreshold = indexingConfig.getNoDictionarySizeRatioThreshold();
     _noDictionaryCardinalityRatioThreshold = indexingConfig.getNoDictionaryCardinalityRatioThreshold();
+    _numIndexCreationThreads = indexingConfig.getNumIndexCreationThreads();
+    _offHeapSortEnabled = indexingConfig.isOffHeapSortEnabled();
 
     // Star-tree configs
     setStarTreeIndexConfigs(indexingConfig.getStarTreeIndexConfigs());
@@ -677,6 +683,22 @@ public class SegmentGeneratorConfig implements Serializable {
     _realtimeConversion = realtimeConversion;
   }
 
+  public int getNumIndexCreationThreads() {
+    return _numIndexCreationThreads;
+  }
+
+  public void setNumIndexCreationThreads(int numIndexCreationThreads) {
+    _numIndexCreationThreads = numIndexCreationThreads;
+  }
+
+  public boolean isOffHeapSortEnabled() {
+    return _offHeapSortEnabled;
+  }
+
+  public void setOffHeapSortEnabled(boolean offHeapSortEnabled) {
+    _offHeapSortEnabled = offHeapSortEnabled;
+  }
+
   public File getConsumerDir() {
     return _consumerDir;
   }
@@ -43,4 +43,17 @@ public interface MutableInvertedIndex extends InvertedIndexReader<MutableRoaring
    * @param docId document id
    */
   void add(int dictId, int docId);
+
+  /**
+   * Add the docIds to the posting lists for the paired dictionary ids, i.e. {@code docIds[i]} is added to the posting
+   * list for {@code dictIds[i]}. The docIds should be in ascending order.
+   * @param dictIds dictionary ids
+   * @param docIds document ids
+   * @param length number of (dictionary id, document id) pairs to add
+   */
+  default void add(int[] dictIds, int[] docIds, int length) {
+    for (int i = 0; i < length; i++) {
+      add(dictIds[i], docIds[i]);
+    }
+  }
 }
@@ -44,6 +44,10 @@ public class ThreadSafeMutableRoaringBitmap {
     _mutableRoaringBitmap.add(docId);
   }
 
+  public synchronized void add(int[] docIds, int offset, int length) {
+    _mutableRoaringBitmap.addN(docIds, offset, length);
+  }
+
   public synchronized boolean contains(int docId) {
     return _mutableRoaringBitmap.contains(docId);
   }
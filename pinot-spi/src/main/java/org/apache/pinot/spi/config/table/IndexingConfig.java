@@ -66,6 +66,10 @@ public class IndexingConfig extends BaseJsonConfig {
   private boolean _aggregateMetrics;
   private boolean _nullHandlingEnabled;
   private boolean _columnMajorSegmentBuilderEnabled = true;
+  // Number of threads used to create the column indexes in parallel during segment creation
+  private int _numIndexCreationThreads = 1;
+  // Whether to sort the records on the sorted column off-heap before creating the segment
+  private boolean _offHeapSortEnabled;
 
   /**
    * If `optimizeDictionary` enabled, dictionary is not created for the high-cardinality
@@ -361,6 +365,22 @@ public class IndexingConfig extends BaseJsonConfig {
     _columnMajorSegmentBuilderEnabled = columnMajorSegmentBuilderEnabled;
   }
 
+  public boolean isOffHeapSortEnabled() {
+    return _offHeapSortEnabled;
+  }
+
+  public void setOffHeapSortEnabled(boolean offHeapSortEnabled) {
+    _offHeapSortEnabled = offHeapSortEnabled;
+  }
+
+  public int getNumIndexCreationThreads() {
+    return _numIndexCreationThreads;
+  }
+
+  public void setNumIndexCreationThreads(int numIndexCreationThreads) {
+    _numIndexCreationThreads = numIndexCreationThreads;
+  }
+
   public boolean isOptimizeDictionary() {
     return _optimizeDictionary;
   }
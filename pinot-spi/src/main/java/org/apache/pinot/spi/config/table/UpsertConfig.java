@@ -82,6 +82,10 @@ public class UpsertConfig extends BaseJsonConfig {
   @JsonPropertyDescription("Whether to preload segments for fast upsert metadata recovery")
   private boolean _enablePreload;
 
+  @JsonPropertyDescription("Whether to also snapshot the primary key map to preload segments without reading the "
+      + "primary keys from the segments, requires snapshot and preload to be enabled")
+  private boolean _enablePrimaryKeySnapshot;
+
   @JsonPropertyDescription("Configure the way to provide consistent view for upsert table")
   private ConsistencyMode _consistencyMode = ConsistencyMode.NONE;
 
@@ -167,6 +171,10 @@ public class UpsertConfig extends BaseJsonConfig {
     return _enablePreload;
   }
 
+  public boolean isEnablePrimaryKeySnapshot() {
+    return _enablePrimaryKeySnapshot;
+  }
+
   public boolean isEnableDeletedKeysCompactionConsistency() {
     return _enableDeletedKeysCompactionConsistency;
   }
@@ -273,6 +281,10 @@ public class UpsertConfig extends BaseJsonConfig {
     _enablePreload = enablePreload;
   }
 
+  public void setEnablePrimaryKeySnapshot(boolean enablePrimaryKeySnapshot) {
+    _enablePrimaryKeySnapshot = enablePrimaryKeySnapshot;
+  }
+
   public void setConsistencyMode(ConsistencyMode consistencyMode) {
     _consistencyMode = consistencyMode;
   }
@@ -40,6 +40,10 @@ public class StreamIngestionConfig extends BaseJsonConfig {
   @JsonPropertyDescription("Whether to track offsets of the filtered stream messages during consumption.")
   private boolean _trackFilteredMessageOffsets = false;
 
+  @JsonPropertyDescription("Number of threads per consuming segment to decode and transform the stream messages while "
+      + "the consumer thread indexes them. Decoding and transformation happen on the consumer thread when set to 0.")
+  private int _numDecodeThreads = 0;
+
   @JsonCreator
   public StreamIngestionConfig(@JsonProperty("streamConfigMaps") List<Map<String, String>> streamConfigMaps) {
     _streamConfigMaps = streamConfigMaps;
@@ -64,4 +68,12 @@ public class StreamIngestionConfig extends BaseJsonConfig {
   public boolean isTrackFilteredMessageOffsets() {
     return _trackFilteredMessageOffsets;
   }
+
+  public void setNumDecodeThreads(int numDecodeThreads) {
+    _numDecodeThreads = numDecodeThreads;
+  }
+
+  public int getNumDecodeThreads() {
+    return _numDecodeThreads;
+  }
 }
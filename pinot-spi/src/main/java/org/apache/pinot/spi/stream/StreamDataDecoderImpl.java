@@ -32,7 +32,7 @@ public class StreamDataDecoderImpl implements StreamDataDecoder {
   public static final String METADATA_KEY_PREFIX = "__metadata$";
 
   private final StreamMessageDecoder _valueDecoder;
-  private final GenericRow _reuse = new GenericRow();
+  private final GenericRow _reuse;
 
   /**
    * @return Whether the given key is one of the special types of keys (__key, __header$, etc.)
@@ -42,7 +42,16 @@ public class StreamDataDecoderImpl implements StreamDataDecoder {
   }
 
   public StreamDataDecoderImpl(StreamMessageDecoder valueDecoder) {
+    this(valueDecoder, true);
+  }
+
+  /**
+   * @param reuseRow Whether to reuse the same row for all the decoded messages. Should be disabled when the decoded
+   *                 rows are kept after decoding the next message.
+   */
+  public StreamDataDecoderImpl(StreamMessageDecoder valueDecoder, boolean reuseRow) {
     _valueDecoder = valueDecoder;
+    _reuse = reuseRow ? new GenericRow() : null;
   }
 
   @Override
@@ -50,8 +59,14 @@ public class StreamDataDecoderImpl implements StreamDataDecoder {
     assert message.getValue() != null;
 
     try {
-      _reuse.clear();
-      GenericRow row = _valueDecoder.decode(message.getValue(), 0, message.getLength(), _reuse);
+      GenericRow reuse;
+      if (_reuse != null) {
+        _reuse.clear();
+        reuse = _reuse;
+      } else {
+        reuse = new GenericRow();
+      }
+      GenericRow row = _valueDecoder.decode(message.getValue(), 0, message.getLength(), reuse);
       if (row != null) {
         if (message.getKey() != null) {
           row.putValue(KEY, new String(message.getKey(), StandardCharsets.UTF_8));
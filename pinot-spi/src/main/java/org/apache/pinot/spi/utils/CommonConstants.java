@@ -263,6 +263,27 @@ public class CommonConstants {
     public static final String CONFIG_OF_BROKER_QUERY_ENABLE_NULL_HANDLING = "pinot.broker.query.enable.null.handling";
     public static final String CONFIG_OF_BROKER_ENABLE_QUERY_CANCELLATION = "pinot.broker.enable.query.cancellation";
     public static final double DEFAULT_BROKER_QUERY_LOG_MAX_RATE_PER_SECOND = 10_000d;
+    // Broker-side cache of the query results for the tables without real-time part. The cached results are invalidated
+    // when the segments of the queried tables change.
+    public static final String CONFIG_OF_BROKER_QUERY_RESULT_CACHE_ENABLED = "pinot.broker.query.result.cache.enabled";
+    public static final boolean DEFAULT_BROKER_QUERY_RESULT_CACHE_ENABLED = false;
+    public static final String CONFIG_OF_BROKER_QUERY_RESULT_CACHE_MAX_SIZE_BYTES =
+        "pinot.broker.query.result.cache.max.size.bytes";
+    public static final long DEFAULT_BROKER_QUERY_RESULT_CACHE_MAX_SIZE_BYTES = 64 * 1024 * 1024L;
+    public static final String CONFIG_OF_BROKER_QUERY_RESULT_CACHE_TTL_MS = "pinot.broker.query.result.cache.ttl.ms";
+    public static final long DEFAULT_BROKER_QUERY_RESULT_CACHE_TTL_MS = 60_000L;
+    // Hedged requests for single-stage queries: the request sent to a server that hasn't responded after the hedging
+    // delay is re-sent to another replica, and the first response is taken. The hedging delay is the EMA latency of the
+    // server (requires adaptive server selector stats collection) times the latency multiplier, and no less than the
+    // min delay.
+    public static final String CONFIG_OF_BROKER_ENABLE_HEDGING = "pinot.broker.hedging.enabled";
+    public static final boolean DEFAULT_BROKER_ENABLE_HEDGING = false;
+    public static final String CONFIG_OF_BROKER_HEDGING_LATENCY_MULTIPLIER = "pinot.broker.hedging.latency.multiplier";
+    public static final double DEFAULT_BROKER_HEDGING_LATENCY_MULTIPLIER = 2.0;
+    public static final String CONFIG_OF_BROKER_HEDGING_MIN_DELAY_MS = "pinot.broker.hedging.min.delay.ms";
+    public static final long DEFAULT_BROKER_HEDGING_MIN_DELAY_MS = 100L;
+    public static final String CONFIG_OF_BROKER_HEDGING_NUM_THREADS = "pinot.broker.hedging.num.threads";
+    public static final int DEFAULT_BROKER_HEDGING_NUM_THREADS = 2;
     public static final String CONFIG_OF_BROKER_TIMEOUT_MS = "pinot.broker.timeoutMs";
     public static final long DEFAULT_BROKER_TIMEOUT_MS = 10_000L;
     public static final String CONFIG_OF_BROKER_ID = "pinot.broker.instance.id";
@@ -362,6 +383,14 @@ public class CommonConstants {
     // This value can always be overridden by INFER_PARTITION_HINT query option
     public static final String CONFIG_OF_INFER_PARTITION_HINT = "pinot.broker.multistage.infer.partition.hint";
     public static final boolean DEFAULT_INFER_PARTITION_HINT = false;
+    // Max number of rows (estimated from the segment ZK metadata) of the right table of a multi-stage hash join to
+    // broadcast it instead of shuffling both sides of the join. Non-positive value disables the optimization and the
+    // tracking of the number of rows of the OFFLINE tables.
+    // The AUTO_BROADCAST_JOIN_MAX_ROWS query option can override this value (or disable the optimization with 0) only
+    // when it is positive, because the number of rows is not tracked otherwise and no table can be broadcast.
+    public static final String CONFIG_OF_AUTO_BROADCAST_JOIN_MAX_ROWS =
+        "pinot.broker.multistage.auto.broadcast.join.max.rows";
+    public static final long DEFAULT_AUTO_BROADCAST_JOIN_MAX_ROWS = 0;
 
     public static final String CONFIG_OF_USE_FIXED_REPLICA = "pinot.broker.use.fixed.replica";
     public static final boolean DEFAULT_USE_FIXED_REPLICA = false;
@@ -398,6 +427,11 @@ public class CommonConstants {
         public static final String TIMEOUT_MS = "timeoutMs";
         public static final String SKIP_UPSERT = "skipUpsert";
         public static final String SKIP_UPSERT_VIEW = "skipUpsertView";
+        // Bypass the broker query result cache (if enabled) for the query. It does not affect the server segment
+        // results cache, which is bypassed with SKIP_SEGMENT_RESULTS_CACHE.
+        public static final String SKIP_RESULT_CACHE = "skipResultCache";
+        // Bypass the server segment results cache (if enabled) for the query
+        public static final String SKIP_SEGMENT_RESULTS_CACHE = "skipSegmentResultsCache";
         public static final String UPSERT_VIEW_FRESHNESS_MS = "upsertViewFreshnessMs";
         public static final String USE_STAR_TREE = "useStarTree";
         public static final String SCAN_STAR_TREE_NODES = "scanStarTreeNodes";
@@ -412,6 +446,7 @@ public class CommonConstants {
         public static final String EXPLAIN_PLAN_VERBOSE = "explainPlanVerbose";
         public static final String USE_MULTISTAGE_ENGINE = "useMultistageEngine";
         public static final String INFER_PARTITION_HINT = "inferPartitionHint";
+        public static final String AUTO_BROADCAST_JOIN_MAX_ROWS = "autoBroadcastJoinMaxRows";
         public static final String ENABLE_NULL_HANDLING = "enableNullHandling";
         public static final String APPLICATION_NAME = "applicationName";
         /**
@@ -462,6 +497,13 @@ public class CommonConstants {
         public static final String MAX_ROWS_IN_WINDOW = "maxRowsInWindow";
         public static final String WINDOW_OVERFLOW_MODE = "windowOverflowMode";
 
+        // Number of rows the multi-stage sort operator keeps in memory before spilling sorted runs to disk
+        public static final String SORT_SPILL_THRESHOLD_ROWS = "sortSpillThresholdRows";
+
+        // Number of groups the multi-stage aggregate operator keeps in memory before spilling the input rows of the
+        // new groups to disk. When set, numGroupsLimit is not applied to the intermediate stage group-by.
+        public static final String GROUP_BY_SPILL_THRESHOLD_GROUPS = "groupBySpillThresholdGroups";
+
         // Indicates the maximum length of the serialized response per server for a query.
         public static final String MAX_SERVER_RESPONSE_SIZE_BYTES = "maxServerResponseSizeBytes";
 
@@ -1128,6 +1170,9 @@ public class CommonConstants {
     public static final String CRYPTER_NAME = "segment.crypter";
     public static final String PARTITION_METADATA = "segment.partition.metadata";
     public static final String CUSTOM_MAP = "custom.map";
+    // Map fields from column name to the min/max value of the column in the segment, only tracked for sorted columns
+    public static final String COLUMN_MIN_VALUES = "segment.column.min.values";
+    public static final String COLUMN_MAX_VALUES = "segment.column.max.values";
     public static final String SIZE_IN_BYTES = "segment.size.in.bytes";
 
     /**
@@ -1261,6 +1306,17 @@ public class CommonConstants {
     public static final String KEY_OF_QUERY_RUNNER_PORT = "pinot.query.runner.port";
     public static final int DEFAULT_QUERY_RUNNER_PORT = 0;
 
+    /**
+     * Configuration for the flow control of the gRPC sending mailbox. The sender stops sending when the number of
+     * messages (or bytes) not yet acknowledged by the receiving mailbox reaches the limit, and waits for the receiver
+     * to consume the data.
+     */
+    public static final String KEY_OF_MAILBOX_MAX_IN_FLIGHT_MESSAGES =
+        "pinot.query.runner.mailbox.max.inflight.messages";
+    public static final int DEFAULT_MAILBOX_MAX_IN_FLIGHT_MESSAGES = 16;
+    public static final String KEY_OF_MAILBOX_MAX_IN_FLIGHT_BYTES = "pinot.query.runner.mailbox.max.inflight.bytes";
+    public static final long DEFAULT_MAILBOX_MAX_IN_FLIGHT_BYTES = 64L * 1024 * 1024;
+
     /**
      * Configuration for join overflow.
      */
@@ -1268,9 +1324,15 @@ public class CommonConstants {
     public static final String KEY_OF_JOIN_OVERFLOW_MODE = "pinot.query.join.overflow.mode";
 
     public enum JoinOverFlowMode {
-      THROW, BREAK
+      THROW, BREAK, SPILL
     }
 
+    /**
+     * Local directory where the multi-stage operators spill intermediate data when they exceed their in-memory limit.
+     * Defaults to the JVM temporary directory.
+     */
+    public static final String KEY_OF_SPILL_DIR = "pinot.query.runner.spill.dir";
+
     /**
      * Configuration for window overflow.
      */
@@ -1281,6 +1343,18 @@ public class CommonConstants {
       THROW, BREAK
     }
 
+    /**
+     * Configuration for sort spilling. When set, the sort operator keeps at most this number of rows in memory and
+     * spills sorted runs to disk beyond it.
+     */
+    public static final String KEY_OF_SORT_SPILL_THRESHOLD_ROWS = "pinot.query.sort.spill.threshold.rows";
+
+    /**
+     * Configuration for group-by spilling. When set, the aggregate operator keeps at most this number of groups in
+     * memory and spills the input rows of the other groups to disk, then aggregates them partition by partition.
+     */
+    public static final String KEY_OF_GROUP_BY_SPILL_THRESHOLD_GROUPS = "pinot.query.groupby.spill.threshold.groups";
+
     /**
      * Constants related to plan versions.
      */